@@ -0,0 +1,237 @@
+package lib;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Controlo de congestionamento do envio de fragmentos MISSION (AIMD).
+ *
+ * O emissor mantém uma janela de cwnd fragmentos em voo: só envia o seq s
+ * quando s - 1 - maiorSeqConfirmado < cwnd. O feedback são os ACKs que o
+ * rover já envia durante a receção (seq = maior fragmento recebido, lacunas
+ * abaixo dele em missing):
+ *  - ACK sem lacunas novas: a janela cresce (slow start até ssthresh,
+ *    depois +1 fragmento por janela confirmada);
+ *  - lacuna nova: a janela passa a metade, no máximo uma vez por janela;
+ *  - timeout: a janela volta ao mínimo.
+ *
+ * Os envios são espaçados por srtt / cwnd para não sair em rajada. O RTT
+ * é medido no EstimadorRTT do rover (partilhado com os restantes timers),
+ * a partir do maior seq confirmado em cada ACK.
+ * Thread-safe: os ACKs chegam na thread de receção, o envio corre na
+ * thread da sessão. Usa ReentrantLock/Condition em vez de synchronized/wait
+ * para que a espera pela janela não prenda a thread de suporte quando a
+ * sessão corre numa thread virtual.
+ */
+public class ControloCongestao {
+
+    /** O rover só confirma a cada FRAGMENTOS_POR_ACK fragmentos: a janela nunca desce abaixo de dois ACKs. */
+    public static final double JANELA_MINIMA = 2.0 * SessaoClienteMissionLink.FRAGMENTOS_POR_ACK;
+    public static final double JANELA_MAXIMA = 256;
+    private static final double SSTHRESH_INICIAL = 64;
+
+    private double cwnd = JANELA_MINIMA;
+    private double ssthresh = SSTHRESH_INICIAL;
+
+    private int maiorSeqConfirmado = 1;   // seqs de dados começam em 2
+    private int maiorSeqEnviado = 1;
+    private int maiorLacunaVista = 0;     // lacunas até aqui já provocaram reação
+    private int pontoRecuperacao = 0;     // não reduzir de novo até confirmar além deste seq
+
+    private final EstimadorRTT rtt;
+    private final long[] instanteEnvio;   // índice = seq
+    private final BitSet retransmitidos = new BitSet();
+
+    private long reducoes = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition janelaAberta = lock.newCondition();
+
+    /**
+     * @param totalFragmentos número de fragmentos de dados da missão
+     * @param rtt estimador de RTT do rover
+     */
+    public ControloCongestao(int totalFragmentos, EstimadorRTT rtt) {
+        this.instanteEnvio = new long[totalFragmentos + 2];
+        this.rtt = rtt;
+    }
+
+    // ==================== ENVIO ====================
+
+    /**
+     * Aguarda até o seq caber na janela.
+     *
+     * @return true se a janela abriu, false se expirou o RTO (a janela é
+     *         então reduzida ao mínimo e o chamador pode enviar na mesma)
+     */
+    public boolean aguardarJanela(int seq) throws InterruptedException {
+        lock.lock();
+        try {
+            long prazo = System.currentTimeMillis() + rtt.rto();
+            while (seq - 1 - maiorSeqConfirmado >= (int) cwnd) {
+                long restante = prazo - System.currentTimeMillis();
+                if (restante <= 0) {
+                    aoTimeout();
+                    rtt.aoTimeout();
+                    return false;
+                }
+                janelaAberta.await(restante, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Versão não bloqueante de aguardarJanela, para o ciclo de eventos.
+     *
+     * @return true se o seq cabe já na janela
+     */
+    public boolean cabeNaJanela(int seq) {
+        lock.lock();
+        try {
+            return seq - 1 - maiorSeqConfirmado < (int) cwnd;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Regista o envio (ou retransmissão) de um fragmento de dados.
+     */
+    public void registarEnvio(int seq) {
+        lock.lock();
+        try {
+            if (seq < 0 || seq >= instanteEnvio.length) return;
+            if (instanteEnvio[seq] != 0) {
+                retransmitidos.set(seq);
+            }
+            instanteEnvio[seq] = System.currentTimeMillis();
+            if (seq > maiorSeqEnviado) {
+                maiorSeqEnviado = seq;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Intervalo entre envios para espalhar a janela pelo RTT (0 sem amostras).
+     */
+    public long intervaloEnvioNanos() {
+        lock.lock();
+        try {
+            double srtt = rtt.srtt();
+            if (srtt <= 0) return 0;
+            return (long) (srtt * 1_000_000 / cwnd);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indica se um fragmento em falta já pode ser retransmitido: evita
+     * reenviar o mesmo seq a cada ACK enquanto a retransmissão está em voo
+     * (menos de um RTO desde o último envio).
+     */
+    public boolean podeRetransmitir(int seq) {
+        lock.lock();
+        try {
+            if (seq < 0 || seq >= instanteEnvio.length || instanteEnvio[seq] == 0) return true;
+            return System.currentTimeMillis() - instanteEnvio[seq] >= rtt.rto();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== FEEDBACK ====================
+
+    /**
+     * Processa um ACK de fragmentos.
+     *
+     * @param seqAck maior seq de dados recebido pelo rover
+     * @param emFalta seqs em falta listados no ACK
+     */
+    public void aoReceberAck(int seqAck, BitSet emFalta) {
+        lock.lock();
+        try {
+            long agora = System.currentTimeMillis();
+
+            if (seqAck > maiorSeqConfirmado) {
+                int confirmados = seqAck - maiorSeqConfirmado;
+                maiorSeqConfirmado = seqAck;
+
+                // Amostra de RTT só para fragmentos enviados uma vez (regra de Karn)
+                if (seqAck < instanteEnvio.length && instanteEnvio[seqAck] != 0 && !retransmitidos.get(seqAck)) {
+                    rtt.registarAmostra(agora - instanteEnvio[seqAck]);
+                }
+
+                int ultimaLacuna = emFalta.length() - 1;
+                if (ultimaLacuna > maiorLacunaVista) {
+                    maiorLacunaVista = ultimaLacuna;
+                    // Perda nova: redução multiplicativa, uma vez por janela
+                    if (ultimaLacuna > pontoRecuperacao) {
+                        ssthresh = Math.max(cwnd / 2, JANELA_MINIMA);
+                        cwnd = ssthresh;
+                        pontoRecuperacao = maiorSeqEnviado;
+                        reducoes++;
+                    }
+                } else if (cwnd < ssthresh) {
+                    cwnd = Math.min(cwnd + confirmados, JANELA_MAXIMA);
+                } else {
+                    cwnd = Math.min(cwnd + confirmados / cwnd, JANELA_MAXIMA);
+                }
+            }
+            janelaAberta.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sem feedback dentro do prazo: janela ao mínimo.
+     */
+    public void aoTimeout() {
+        lock.lock();
+        try {
+            ssthresh = Math.max(cwnd / 2, JANELA_MINIMA);
+            cwnd = JANELA_MINIMA;
+            pontoRecuperacao = maiorSeqEnviado;
+            reducoes++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== CONSULTA ====================
+
+    public int getMaiorSeqConfirmado() {
+        lock.lock();
+        try {
+            return maiorSeqConfirmado;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getJanela() {
+        lock.lock();
+        try {
+            return cwnd;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReducoes() {
+        lock.lock();
+        try {
+            return reducoes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package lib;
+
+/**
+ * Estimativa do RTT e do timeout de retransmissão (RTO) de um par nave/rover.
+ *
+ * Segue o RFC 6298: SRTT e RTTVAR por média exponencial (α = 1/8, β = 1/4)
+ * e RTO = SRTT + 4·RTTVAR, limitado a [RTO_MINIMO, RTO_MAXIMO]. Antes da
+ * primeira amostra usa-se o RTO inicial (os timeouts fixos de antes).
+ *
+ * Regra de Karn: só se devem registar amostras de mensagens enviadas uma
+ * única vez (cabe ao chamador não medir retransmissões). Cada timeout
+ * duplica o RTO (backoff) até chegar nova amostra válida.
+ *
+ * Thread-safe: as amostras chegam na thread de receção e o RTO é lido
+ * pelas threads que retransmitem.
+ */
+public class EstimadorRTT {
+
+    public static final long RTO_MINIMO_MS = 50;
+    public static final long RTO_MAXIMO_MS = 5000;
+
+    private static final double ALFA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+
+    private double srttMs = 0;   // 0 = sem amostras
+    private double rttvarMs = 0;
+    private long rtoMs;
+    private int backoff = 0;     // número de duplicações em curso
+    private long amostras = 0;
+
+    public EstimadorRTT(long rtoInicialMs) {
+        this.rtoMs = limitar(rtoInicialMs);
+    }
+
+    /**
+     * Regista uma amostra de RTT (mensagem enviada uma única vez).
+     */
+    public synchronized void registarAmostra(long rttMs) {
+        double r = Math.max(0, rttMs);
+        if (amostras == 0) {
+            srttMs = r;
+            rttvarMs = r / 2;
+        } else {
+            rttvarMs = (1 - BETA) * rttvarMs + BETA * Math.abs(srttMs - r);
+            srttMs = (1 - ALFA) * srttMs + ALFA * r;
+        }
+        amostras++;
+        backoff = 0;
+        rtoMs = limitar((long) Math.ceil(srttMs + 4 * rttvarMs));
+    }
+
+    /**
+     * Timeout expirado: duplica o RTO (backoff exponencial).
+     */
+    public synchronized void aoTimeout() {
+        backoff++;
+        rtoMs = limitar(rtoMs * 2);
+    }
+
+    /** @return timeout de retransmissão atual (ms) */
+    public synchronized long rto() {
+        return rtoMs;
+    }
+
+    /** @return RTT suavizado (ms), ou 0 se ainda não houve amostras */
+    public synchronized double srtt() {
+        return srttMs;
+    }
+
+    public synchronized double rttvar() {
+        return rttvarMs;
+    }
+
+    public synchronized boolean temAmostras() {
+        return amostras > 0;
+    }
+
+    public synchronized int getBackoff() {
+        return backoff;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RTT{srtt=%.1fms, rttvar=%.1fms, rto=%dms, amostras=%d}", srttMs, rttvarMs, rtoMs, amostras);
+    }
+
+    private static long limitar(long rto) {
+        return Math.max(RTO_MINIMO_MS, Math.min(RTO_MAXIMO_MS, rto));
+    }
+}
@@ -4,8 +4,13 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
 
 /**
  * Módulo de métricas para contabilizar estatísticas de comunicação UDP.
@@ -36,9 +41,45 @@ public class MetricasUDP {
     private final AtomicLong errorEnviados = new AtomicLong(0);
     private final AtomicLong errorRecebidos = new AtomicLong(0);
     
+    // Goodput das últimas MAX_GOODPUT_SESSOES entregas de missão (servidor),
+    // mais totais acumulados de todas para a média
+    private static final int MAX_GOODPUT_SESSOES = 256;
+    private final ConcurrentLinkedQueue<GoodputSessao> goodputSessoes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger goodputGuardadas = new AtomicInteger(0);
+    private final AtomicLong goodputTotalSessoes = new AtomicLong(0);
+    private final DoubleAdder goodputSomaKbPorSegundo = new DoubleAdder();
+    
     // Timestamp de início
     private final long timestampInicio;
     
+    /**
+     * Goodput de uma sessão: bytes úteis da missão entregues por unidade de
+     * tempo, do primeiro fragmento ao ACK completo.
+     */
+    public static class GoodputSessao {
+        public final int idMissao;
+        public final int idRover;
+        public final long bytesUteis;
+        public final long datagramasEnviados; // inclui retransmissões
+        public final long duracaoMs;
+        public final double janelaFinal;
+        
+        public GoodputSessao(int idMissao, int idRover, long bytesUteis, long datagramasEnviados,
+                             long duracaoMs, double janelaFinal) {
+            this.idMissao = idMissao;
+            this.idRover = idRover;
+            this.bytesUteis = bytesUteis;
+            this.datagramasEnviados = datagramasEnviados;
+            this.duracaoMs = duracaoMs;
+            this.janelaFinal = janelaFinal;
+        }
+        
+        /** @return goodput em KB/s */
+        public double kbPorSegundo() {
+            return duracaoMs > 0 ? (bytesUteis / 1024.0) / (duracaoMs / 1000.0) : 0;
+        }
+    }
+    
     public MetricasUDP(String nomeEntidade) {
         this.nomeEntidade = nomeEntidade;
         this.timestampInicio = System.currentTimeMillis();
@@ -115,6 +156,18 @@ public class MetricasUDP {
         errorRecebidos.incrementAndGet();
     }
     
+    public void registarGoodputSessao(int idMissao, int idRover, long bytesUteis, long datagramasEnviados,
+                                      long duracaoMs, double janelaFinal) {
+        GoodputSessao goodput = new GoodputSessao(idMissao, idRover, bytesUteis, datagramasEnviados, duracaoMs, janelaFinal);
+        goodputTotalSessoes.incrementAndGet();
+        goodputSomaKbPorSegundo.add(goodput.kbPorSegundo());
+        goodputSessoes.add(goodput);
+        // Só ficam as mais recentes
+        if (goodputGuardadas.incrementAndGet() > MAX_GOODPUT_SESSOES && goodputSessoes.poll() != null) {
+            goodputGuardadas.decrementAndGet();
+        }
+    }
+    
     // ==================== MÉTODOS DE CONSULTA ====================
     
     public long getMensagensEnviadas() {
@@ -141,6 +194,21 @@ public class MetricasUDP {
         return mensagensPerdidas.get();
     }
     
+    /** @return goodput das últimas entregas (no máximo MAX_GOODPUT_SESSOES) */
+    public List<GoodputSessao> getGoodputSessoes() {
+        return new ArrayList<>(goodputSessoes);
+    }
+    
+    public long getGoodputTotalSessoes() {
+        return goodputTotalSessoes.get();
+    }
+    
+    /** @return goodput médio (KB/s) de todas as entregas registadas */
+    public double getGoodputMedio() {
+        long total = goodputTotalSessoes.get();
+        return total > 0 ? goodputSomaKbPorSegundo.sum() / total : 0;
+    }
+    
     // ==================== EXPORTAÇÃO ====================
     
     /**
@@ -192,6 +260,17 @@ public class MetricasUDP {
                 writer.printf("  Taxa de Retransmissão:    %.2f%%\n", taxaRetransmissao);
             }
             
+            if (!goodputSessoes.isEmpty()) {
+                writer.println();
+                writer.printf("GOODPUT POR SESSÃO (últimas %d de %d, média %.2f KB/s):\n",
+                              goodputGuardadas.get(), goodputTotalSessoes.get(), getGoodputMedio());
+                for (GoodputSessao g : goodputSessoes) {
+                    writer.printf("  Missão %d -> rover %d: %d bytes em %d ms (%.2f KB/s, %d datagramas, janela final %.1f)\n",
+                                  g.idMissao, g.idRover, g.bytesUteis, g.duracaoMs, g.kbPorSegundo(),
+                                  g.datagramasEnviados, g.janelaFinal);
+                }
+            }
+            
             writer.println();
             
             System.out.println("[MetricasUDP] Métricas de " + nomeEntidade + " exportadas para " + caminhoFicheiro);
@@ -212,6 +291,9 @@ public class MetricasUDP {
                          " | Duplicadas: " + mensagensDuplicadas.get());
         System.out.println("Em Atraso: " + mensagensEmAtraso.get() + 
                          " | Perdidas: " + mensagensPerdidas.get());
+        if (goodputTotalSessoes.get() > 0) {
+            System.out.printf("Goodput médio: %.2f KB/s (%d sessões)%n", getGoodputMedio(), goodputTotalSessoes.get());
+        }
         System.out.println("===============================================\n");
     }
 }
@@ -31,6 +31,10 @@ public class Missao implements Serializable {
     public EstadoMissao estadoMissao;
     public float progressoMissao;
 
+    // Versão do conteúdo da missão: incrementada quando a missão é substituída
+    // (usada para invalidar os datagramas em cache na Nave-Mãe)
+    public int versao = 1;
+
     public Missao() {
         this.idMissao = 0;
         this.tarefa = null;
@@ -72,7 +76,7 @@ public class Missao implements Serializable {
         this.inicioMissao = p.inicioMissao;
         this.prioridade = p.prioridade;
         this.estadoMissao = EstadoMissao.PENDENTE;
-        this.progressoMissao = 0.0f;
+        this.progressoMissao = p.progressoInicial;
     }
 
     /** Converte esta Missao para um PayloadMissao (compatibilidade).
@@ -86,6 +90,7 @@ public class Missao implements Serializable {
         p.intervaloAtualizacao = this.intervaloAtualizacao;
         p.inicioMissao = this.inicioMissao;
         p.prioridade = this.prioridade;
+        p.progressoInicial = this.progressoMissao; // missão interrompida: o rover continua daqui
 
         return p;
     }
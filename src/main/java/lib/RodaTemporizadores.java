@@ -0,0 +1,175 @@
+package lib;
+
+/**
+ * Roda de temporizadores (hashed timing wheel).
+ *
+ * O tempo é dividido em ticks de tickMs; cada temporizador fica na ranhura
+ * tickAlvo % numeroRanhuras, numa lista duplamente ligada. Agendar e cancelar
+ * são O(1); avançar um tick só percorre a ranhura desse tick (os
+ * temporizadores de voltas futuras ficam lá até o seu tick chegar).
+ *
+ * Não é thread-safe: é usada apenas pela thread do ciclo de eventos, que
+ * chama avancar() a cada iteração.
+ */
+public class RodaTemporizadores {
+
+    /**
+     * Temporizador agendado. Pode ser cancelado enquanto não tiver expirado.
+     */
+    public static final class Temporizador {
+        private final Runnable tarefa;
+        private long tickAlvo;
+        private Temporizador anterior;
+        private Temporizador seguinte;
+        private int ranhura = -1; // -1 = fora da roda (expirado ou cancelado)
+        private RodaTemporizadores roda;
+
+        private Temporizador(Runnable tarefa) {
+            this.tarefa = tarefa;
+        }
+
+        /** Remove o temporizador da roda (sem efeito se já expirou). */
+        public void cancelar() {
+            if (ranhura >= 0) {
+                roda.remover(this);
+            }
+        }
+
+        public boolean ativo() {
+            return ranhura >= 0;
+        }
+    }
+
+    private final long tickMs;
+    private final Temporizador[] ranhuras;
+    private final int mascara;
+    private final long inicioMs;
+    private long tickAtual = 0; // último tick processado
+    private int pendentes = 0;
+
+    /**
+     * @param tickMs resolução da roda em ms
+     * @param numeroRanhuras ranhuras da roda (arredondado para potência de 2)
+     */
+    public RodaTemporizadores(long tickMs, int numeroRanhuras) {
+        this(tickMs, numeroRanhuras, System.currentTimeMillis());
+    }
+
+    public RodaTemporizadores(long tickMs, int numeroRanhuras, long inicioMs) {
+        if (tickMs <= 0 || numeroRanhuras <= 0) {
+            throw new IllegalArgumentException("Roda inválida: tick=" + tickMs + ", ranhuras=" + numeroRanhuras);
+        }
+        int n = Integer.highestOneBit(numeroRanhuras);
+        if (n < numeroRanhuras) n <<= 1;
+        this.tickMs = tickMs;
+        this.ranhuras = new Temporizador[n];
+        this.mascara = n - 1;
+        this.inicioMs = inicioMs;
+    }
+
+    /**
+     * Agenda a tarefa para daqui a atrasoMs (arredondado ao tick seguinte).
+     */
+    public Temporizador agendar(long atrasoMs, Runnable tarefa) {
+        long ticks = Math.max(1, (Math.max(0, atrasoMs) + tickMs - 1) / tickMs);
+        Temporizador t = new Temporizador(tarefa);
+        t.roda = this;
+        t.tickAlvo = tickAtual + ticks;
+        inserir(t);
+        return t;
+    }
+
+    /**
+     * Processa todos os ticks até ao instante dado, executando as tarefas expiradas.
+     *
+     * @return número de tarefas executadas
+     */
+    public int avancar(long agoraMs) {
+        long tickAlvo = (agoraMs - inicioMs) / tickMs;
+        int executadas = 0;
+        while (tickAtual < tickAlvo) {
+            tickAtual++;
+            int indice = (int) (tickAtual & mascara);
+            Temporizador t = ranhuras[indice];
+            while (t != null) {
+                Temporizador seguinte = t.seguinte;
+                if (t.tickAlvo <= tickAtual) {
+                    remover(t);
+                    t.tarefa.run();
+                    executadas++;
+                    if (seguinte != null && seguinte.ranhura != indice) {
+                        // A tarefa cancelou o seguinte: recomeçar pela cabeça da ranhura
+                        seguinte = ranhuras[indice];
+                    }
+                }
+                t = seguinte;
+            }
+            if (pendentes == 0) {
+                // Roda vazia: saltar diretamente para o tick atual
+                tickAtual = tickAlvo;
+            }
+        }
+        return executadas;
+    }
+
+    /**
+     * Tempo até ao próximo tick com tarefas, para quem espera por I/O entre
+     * avanços (ex: select com timeout em vez de acordar a cada tick).
+     * Percorre no máximo uma volta da roda.
+     *
+     * @return ms até ao próximo temporizador expirar (0 se já em atraso),
+     *         ou -1 se a roda estiver vazia
+     */
+    public long msAteProximo(long agoraMs) {
+        if (pendentes == 0) {
+            return -1;
+        }
+        long proximo = Long.MAX_VALUE;
+        for (int i = 1; i <= ranhuras.length; i++) {
+            long tick = tickAtual + i;
+            for (Temporizador t = ranhuras[(int) (tick & mascara)]; t != null; t = t.seguinte) {
+                proximo = Math.min(proximo, t.tickAlvo);
+            }
+            if (proximo <= tick) {
+                break; // nenhuma ranhura seguinte tem um tick mais cedo
+            }
+        }
+        return Math.max(0, inicioMs + proximo * tickMs - agoraMs);
+    }
+
+    /** @return número de temporizadores agendados */
+    public int pendentes() {
+        return pendentes;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    private void inserir(Temporizador t) {
+        int indice = (int) (t.tickAlvo & mascara);
+        t.ranhura = indice;
+        t.anterior = null;
+        t.seguinte = ranhuras[indice];
+        if (t.seguinte != null) {
+            t.seguinte.anterior = t;
+        }
+        ranhuras[indice] = t;
+        pendentes++;
+    }
+
+    private void remover(Temporizador t) {
+        if (t.anterior != null) {
+            t.anterior.seguinte = t.seguinte;
+        } else {
+            ranhuras[t.ranhura] = t.seguinte;
+        }
+        if (t.seguinte != null) {
+            t.seguinte.anterior = t.anterior;
+        }
+        t.anterior = null;
+        t.seguinte = null;
+        t.ranhura = -1;
+        pendentes--;
+    }
+}
@@ -24,6 +24,7 @@ public class Rover {
     public int idMissaoAtual;
     public Float progressoMissao; // pode ser null se não estiver em missão
     public boolean temMissao;
+    public int idMissaoSeguinte; // já reservada para o rover, começa quando a atual terminar (-1 = nenhuma)
 
     // Endpoint opcional do rover (se conhecido/configurado)
     public String enderecoHost; // ex: "192.168.1.50" (se null, usar sessão)
@@ -38,6 +39,7 @@ public class Rover {
         this.estadoRover = EstadoRover.ESTADO_DISPONIVEL;
         idMissaoAtual = -1;
         temMissao = false;
+        idMissaoSeguinte = -1;
         progressoMissao = null;
         this.enderecoHost = enderecoHost;
         this.portaUdp = null;
@@ -2,11 +2,11 @@ package lib;
 
 import lib.mensagens.payloads.PayloadProgresso;
 import lib.mensagens.payloads.FragmentoPayload;
+import lib.mensagens.payloads.PayloadParidade;
 import lib.mensagens.SerializadorUDP;
 
 import java.net.InetAddress;
-import java.util.Set;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -15,6 +15,9 @@ import java.util.HashMap;
      * Gerencia tanto a recepção quanto a reportagem do progresso da missão.
      */
     public class SessaoClienteMissionLink {
+        /** Durante a receção, o rover envia um ACK a cada FRAGMENTOS_POR_ACK fragmentos recebidos. */
+        public static final int FRAGMENTOS_POR_ACK = 5;
+
         // Comum a todas as fases
         public int idMissao;
         public InetAddress enderecoNave;
@@ -23,9 +26,15 @@ import java.util.HashMap;
     // Recepção de missão 
     public int totalFragmentos;
     public Map<Integer, FragmentoPayload> fragmentosRecebidos;
-    public Set<Integer> fragmentosPerdidos;
+    public BitSet seqsRecebidos;      // bit seq ativo = fragmento de dados recebido
+    public BitSet fragmentosPerdidos; // bit seq ativo = fragmento em falta
     public long ultimoFragmentoRecebido; // timestamp do último fragmento recebido
     
+    // FEC: datagramas de dados recebidos (seq -> bytes) e paridade por grupo (seqInicial -> paridade)
+    public Map<Integer, byte[]> datagramasRecebidos;
+    public Map<Integer, PayloadParidade> paridadesRecebidas;
+    public int recuperadosFec; // fragmentos reconstruídos por paridade
+    
     // Serializador para serialização/desserialização
     public SerializadorUDP serializador;        
     
@@ -39,6 +48,11 @@ import java.util.HashMap;
         // Controlo de ACK com validação de sequência
         public int seqAckEsperado = 0;      // seq que esperamos confirmar
         public int ultimoSeqConfirmado = 0; // último seq confirmado com sucesso
+        public long instanteUltimoAck = 0;  // chegada do último ACK válido (amostra de RTT)
+        
+        // Instante do RESPONSE e se houve reenvio (regra de Karn para a amostra de RTT)
+        public long instanteResponse = 0;
+        public boolean responseRetransmitido = false;
         
         // Armazena os progressos enviados por sequência
         public Map<Integer, PayloadProgresso> progressosEnviados;
@@ -51,8 +65,11 @@ import java.util.HashMap;
         this.seqAtual = 0;
         this.totalFragmentos = 0;
         this.fragmentosRecebidos = new HashMap<>();
+        this.datagramasRecebidos = new HashMap<>();
+        this.paridadesRecebidas = new HashMap<>();
         this.serializador = new SerializadorUDP();
         this.progressosEnviados = new HashMap<>();
-        this.fragmentosPerdidos = new HashSet<>();
+        this.seqsRecebidos = new BitSet();
+        this.fragmentosPerdidos = new BitSet();
         this.ultimoFragmentoRecebido = 0;
     }    }
\ No newline at end of file
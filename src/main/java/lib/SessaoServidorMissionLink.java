@@ -1,58 +1,124 @@
 package lib;
 
 import java.net.InetAddress;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.net.InetSocketAddress;
+import java.util.BitSet;
 
 import lib.mensagens.SerializadorUDP;
-import lib.mensagens.payloads.FragmentoPayload;
 
  /**
      * Classe que representa uma sessão de envio de missão no servidor.
      */
     public class SessaoServidorMissionLink {
 
+        /** Fases da sessão no modo de ciclo de eventos. */
+        public enum Fase {
+            HELLO,
+            ENVIO_FRAGMENTOS,
+            AGUARDAR_ACK,
+            AGUARDAR_PROGRESSO,
+            CANCELAMENTO,
+            TERMINADA
+        }
+
         // Endpoint do rover 
         public InetAddress enderecoRover;
         public int portaRover;
+        public InetSocketAddress destinoRover; // enderecoRover:portaRover, criado uma vez para os envios
 
         public Rover rover;
         public Missao missao;
 
-        public long ultimaAtividade;
+        public volatile long ultimaAtividade;
         
         // Limite de inatividade para considerar sessão órfã (ms)
         // Calculado a partir do intervalo de atualização da missão vezes um multiplicador.
         public long limiteInatividade;
         
-        // Estado da comunicação
-        public boolean responseRecebido = false;
-        public boolean responseSucesso = false;
-        public boolean ackRecebido = false;
-        public boolean recebendoProgresso = false;
-        public int ultimoSeq = 0;
-        public boolean completedRecebido = false;
-        public boolean completedSucesso = false;
-        public boolean erroRecebido = false;  // Indica se recebeu MSG_ERROR do rover
+        // Estado da comunicação: escrito pela thread de receção e lido pela
+        // thread da sessão (volatile), que espera no sinal da sessão
+        public volatile boolean responseRecebido = false;
+        public volatile boolean responseSucesso = false;
+        public volatile boolean ackRecebido = false;
+        public volatile boolean recebendoProgresso = false;
+        public volatile int ultimoSeq = 0;
+        public volatile boolean completedRecebido = false;
+        public volatile boolean completedSucesso = false;
+        public volatile boolean erroRecebido = false;  // Indica se recebeu MSG_ERROR do rover
+        public final SinalSessao sinal = new SinalSessao();
         
         // Fragmentação 
         public int totalFragmentos = 0;
-        public List<FragmentoPayload> fragmentosPayload;
-        public Set<Integer> fragmentosPerdidos = new HashSet<>();
+        // Seqs em falta no último ACK (bit ativo). Publicado por registarAck e
+        // nunca alterado depois, porque é lido pela thread que retransmite.
+        public volatile BitSet fragmentosPerdidos = new BitSet();
+        
+        // Datagramas MISSION já codificados (índice i = seq i+2), para retransmissão direta
+        public byte[][] datagramasMissao;
+        
+        // RTT/RTO do rover (partilhado entre sessões do mesmo rover)
+        public EstimadorRTT rtt;
+        // Instante do último HELLO e se houve retransmissão (regra de Karn)
+        public long instanteHello = 0;
+        public boolean helloRetransmitido = false;
+        
+        // Janela de envio dos fragmentos (AIMD), criada a cada envio da missão
+        public ControloCongestao controlo;
+        // ACK com todos os fragmentos recebidos (missing vazio e seq = último fragmento)
+        public volatile boolean ackCompleto = false;
+        // ACKs recebidos na entrega da missão (limita as rondas de retransmissão)
+        public int rondasAck = 0;
+        // Seqs reportados em falta em algum ACK desta sessão (amostra de perdas);
+        // escrito na receção e lido por quem envia, sempre com o lock da sessão
+        private final BitSet perdidosReportados = new BitSet();
+        // Goodput: bytes úteis da missão e instante do primeiro fragmento
+        public int bytesMissao = 0;
+        public long inicioEnvioMissao = 0;
+        public int datagramasMissaoEnviados = 0;
         
-        // Payload completo (para missões sem fragmentação)
-        public lib.mensagens.payloads.PayloadMissao payloadCompleto;
+        // FEC: tamanho dos grupos de paridade usado (0 = sem paridade)
+        public int tamanhoGrupoFec = 0;
+        // Fragmentos reconstruídos por paridade no rover (reportado no ACK)
+        public int recuperadosFec = 0;
+        // Seq do último ACK de fragmentos recebido e se já se registou a amostra de perdas
+        public int seqUltimoAck = 0;
+        public boolean perdasRegistadas = false;
+
+        // Ciclo de eventos: fase atual, temporizador pendente (retransmissão ou prazo)
+        // e timeouts seguidos sem resposta do rover
+        public Fase fase = Fase.HELLO;
+        public RodaTemporizadores.Temporizador temporizador;
+        public int tentativas = 0;
+        // Próximo seq de dados a enviar, paridade da missão e se o envio parou por janela cheia
+        public int proximoSeq = 2;
+        public byte[][] datagramasParidade = new byte[0][];
+        public boolean janelaCheia = false;
+
+        // Cancelamento/preempção (MSG_CANCEL): pedido pelo despachante, seq do
+        // CANCEL e resposta do rover (ACK com esse seq; sucesso = missão parada)
+        public volatile boolean cancelamentoPedido = false;
+        public volatile boolean reatribuirAposCancelar = false;
+        public volatile int seqCancelamento = 0;
+        public volatile boolean cancelamentoConfirmado = false;
+        public volatile boolean cancelamentoRecusado = false;
+
+        // Missão seguinte (prefetch): entregue com o rover ainda noutra missão,
+        // fica em fila até essa terminar; abandonada se a atual falhar
+        public boolean missaoSeguinte = false;
+        public volatile boolean emFila = false;
+        public volatile boolean abandonada = false;
 
         // Progresso perdido (seqs de PROGRESS não recebidos)
-        public Set<Integer> progressoPerdido = null;
+        public BitSet progressoPerdido = null;
         
         // Serializador para serialização/desserialização
         public SerializadorUDP serializador;
         // Indica que o servidor está a enviar ACK final (COMPLETED/ERROR)
         // para este rover. Quando true, não devemos remover a sessão
         // na limpeza de sessões órfãs até as retransmissões finais terminarem.
-        public boolean finalAckPending = false;
+        public volatile boolean finalAckPending = false;
+        // Já passou pela finalização (reversão, cache, libertação do rover)
+        private boolean finalizada = false;
         
         public SessaoServidorMissionLink(Rover rover, Missao missao) {
             this.rover = rover;
@@ -77,6 +143,35 @@ import lib.mensagens.payloads.FragmentoPayload;
             this.portaRover = rover.portaUdp != null ? rover.portaUdp : -1;
         }
 
+        /**
+         * Regista os seqs em falta de um ACK: publica-os em fragmentosPerdidos
+         * (o conjunto passa a ser da sessão e não pode ser alterado) e
+         * junta-os aos reportados.
+         * @return número de seqs reportados em falta pela primeira vez
+         */
+        public synchronized int registarAck(BitSet emFalta) {
+            int antes = perdidosReportados.cardinality();
+            perdidosReportados.or(emFalta);
+            fragmentosPerdidos = emFalta;
+            return perdidosReportados.cardinality() - antes;
+        }
+
+        /**
+         * Marca a sessão como finalizada.
+         * @return false se já estava (a finalização corre uma só vez, mesmo
+         *         que a thread da sessão e o fim do ACK final cheguem juntos)
+         */
+        public synchronized boolean marcarFinalizada() {
+            if (finalizada) return false;
+            finalizada = true;
+            return true;
+        }
+
+        /** @return número de seqs reportados em falta em algum ACK da sessão */
+        public synchronized int perdidosReportados() {
+            return perdidosReportados.cardinality();
+        }
+
         /**
          * Atualiza timestamp de atividade
          */
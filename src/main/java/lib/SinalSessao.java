@@ -0,0 +1,56 @@
+package lib;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sinal de uma sessão: a thread que recebe as mensagens chama sinalizar()
+ * depois de atualizar o estado da sessão, e quem está em aguardar() acorda
+ * logo e volta a avaliar a sua condição.
+ *
+ * A condição é sempre avaliada com o lock do sinal, e sinalizar() também o
+ * adquire, por isso um sinal não se perde entre a verificação e a espera.
+ * Usa ReentrantLock/Condition (e não synchronized) para não prender a
+ * thread de suporte de uma thread virtual.
+ */
+public class SinalSessao {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition alterada = lock.newCondition();
+
+    /**
+     * Acorda todas as threads à espera nesta sessão.
+     */
+    public void sinalizar() {
+        lock.lock();
+        try {
+            alterada.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aguarda até a condição se verificar ou expirar o timeout.
+     *
+     * @return true se a condição se verificou, false se timeout ou interrupção
+     */
+    public boolean aguardar(Condicao condicao, long timeoutMs) {
+        long restante = timeoutMs * 1_000_000;
+        lock.lock();
+        try {
+            while (!condicao.verificar()) {
+                if (restante <= 0) {
+                    return false;
+                }
+                restante = alterada.awaitNanos(restante);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
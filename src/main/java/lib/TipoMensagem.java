@@ -2,15 +2,30 @@ package lib;
 
 public enum TipoMensagem {
 
-    MSG_HELLO(1),
+    MSG_HELLO(1),      // flagSucesso = missão seguinte (entregue durante a missão em execução)
     MSG_RESPONSE(2),
     MSG_MISSION(3),
     MSG_ACK(4),
     MSG_PROGRESS(5),
     MSG_COMPLETED(6),
     MSG_TELEMETRY(7),
-    MSG_ERROR(8);      // Erro durante execução da missão (bateria baixa, obstáculo, etc.)
-    
+    MSG_ERROR(8),      // Erro durante execução da missão (bateria baixa, obstáculo, etc.)
+    MSG_CANCEL(9);     // Nave-Mãe interrompe a missão em execução (flagSucesso = preempção, volta a pendente)
+
     public final int value;
     TipoMensagem(int v) { value = v; }
+
+    // Tabela indexada pelo valor numérico (usada pelo codec binário)
+    private static final TipoMensagem[] POR_VALOR = new TipoMensagem[16];
+    static {
+        for (TipoMensagem t : values()) {
+            POR_VALOR[t.value] = t;
+        }
+    }
+
+    /** Devolve o tipo com o valor numérico dado, ou null se não existir. */
+    public static TipoMensagem deValor(int v) {
+        if (v < 0 || v >= POR_VALOR.length) return null;
+        return POR_VALOR[v];
+    }
 }
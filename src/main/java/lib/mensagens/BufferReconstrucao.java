@@ -0,0 +1,141 @@
+package lib.mensagens;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Buffer de reconstrução de um campo fragmentado.
+ *
+ * O array final é pré-alocado a partir de totalPartes e cada parte é copiada
+ * diretamente para o seu offset (indiceParte * tamanhoParte) quando chega.
+ * Um bitmap regista as partes recebidas, por isso duplicados são ignorados e
+ * a completude é O(1). A leitura devolve uma vista sobre o array, sem cópias.
+ *
+ * Todas as partes exceto a última têm o mesmo tamanho (ver
+ * SerializadorUDP.fragmentarCampoGrande). Se a última parte chegar antes de
+ * qualquer outra, fica guardada até se conhecer o tamanho das restantes.
+ *
+ * Campos não fragmentados usam o array da própria parte, sem alocação.
+ *
+ * totalPartes e o tamanho das partes vêm do datagrama: um campo cujo
+ * tamanho total excederia MAX_TAMANHO_CAMPO é recusado antes de alocar.
+ */
+final class BufferReconstrucao {
+
+    /** Tamanho máximo de um campo reconstruído (uma tarefa de vários MB cabe com folga). */
+    static final int MAX_TAMANHO_CAMPO = 16 * 1024 * 1024;
+
+    private final int totalPartes;
+    private final BitSet recebidas;
+    private int partesRecebidas;
+
+    private byte[] dados;       // array final (null até se conhecer o tamanho das partes)
+    private int tamanhoParte;   // tamanho de todas as partes exceto a última
+    private int tamanho;        // bytes válidos em dados
+    private byte[] ultimaPendente; // última parte recebida antes do tamanho ser conhecido
+
+    BufferReconstrucao(int totalPartes) {
+        this.totalPartes = Math.max(1, totalPartes);
+        this.recebidas = new BitSet(this.totalPartes);
+    }
+
+    /**
+     * Escreve uma parte no seu offset.
+     *
+     * @return true se a parte foi aceite (false para duplicados ou partes inconsistentes)
+     */
+    boolean adicionar(CampoSerializado parte) {
+        int indice = parte.indiceParte;
+        int total = Math.max(1, (int) parte.totalPartes);
+        byte[] bytes = parte.dados != null ? parte.dados : new byte[0];
+
+        if (total != totalPartes || indice < 0 || indice >= totalPartes || recebidas.get(indice)) {
+            return false;
+        }
+
+        if (totalPartes == 1) {
+            // Campo inteiro numa parte: usar o array diretamente
+            dados = bytes;
+            tamanho = bytes.length;
+        } else {
+            boolean ultima = indice == totalPartes - 1;
+            if (dados == null) {
+                if (ultima) {
+                    ultimaPendente = bytes;
+                    marcar(indice);
+                    return true;
+                }
+                if (!alocar(bytes.length)) {
+                    return false;
+                }
+            } else if (!ultima && bytes.length != tamanhoParte) {
+                return false;
+            }
+
+            if (ultima && bytes.length > tamanhoParte) {
+                return false;
+            }
+            System.arraycopy(bytes, 0, dados, indice * tamanhoParte, bytes.length);
+            if (ultima) {
+                tamanho = (totalPartes - 1) * tamanhoParte + bytes.length;
+            }
+        }
+
+        marcar(indice);
+        return true;
+    }
+
+    /**
+     * @return false se o campo excederia MAX_TAMANHO_CAMPO (nada é alocado)
+     */
+    private boolean alocar(int tamanhoParte) {
+        if ((long) totalPartes * tamanhoParte > MAX_TAMANHO_CAMPO) {
+            return false;
+        }
+        this.tamanhoParte = tamanhoParte;
+        if (ultimaPendente != null && ultimaPendente.length <= tamanhoParte) {
+            tamanho = (totalPartes - 1) * tamanhoParte + ultimaPendente.length;
+            dados = new byte[tamanho];
+            System.arraycopy(ultimaPendente, 0, dados, (totalPartes - 1) * tamanhoParte, ultimaPendente.length);
+        } else {
+            // Ainda não se sabe o tamanho da última parte: reservar o máximo possível
+            if (ultimaPendente != null) {
+                recebidas.clear(totalPartes - 1); // última parte inconsistente: descartar
+                partesRecebidas--;
+            }
+            dados = new byte[totalPartes * tamanhoParte];
+        }
+        ultimaPendente = null;
+        return true;
+    }
+
+    private void marcar(int indice) {
+        recebidas.set(indice);
+        partesRecebidas++;
+    }
+
+    /** @return true se todas as partes foram recebidas */
+    boolean completo() {
+        return partesRecebidas == totalPartes;
+    }
+
+    /** @return número de partes recebidas */
+    int partesRecebidas() {
+        return partesRecebidas;
+    }
+
+    /** @return total de partes esperadas */
+    int totalPartes() {
+        return totalPartes;
+    }
+
+    /**
+     * Vista sobre os bytes reconstruídos (sem cópia).
+     */
+    ByteBuffer vista() {
+        if (!completo()) {
+            throw new IllegalStateException("Campo incompleto: " + partesRecebidas + "/" + totalPartes + " partes");
+        }
+        return ByteBuffer.wrap(dados, 0, tamanho);
+    }
+}
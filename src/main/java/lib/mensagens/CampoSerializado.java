@@ -1,68 +1,89 @@
 package lib.mensagens;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Representa um campo serializado com metadados para fragmentação.
- * 
+ *
  * Permite:
- * - Identificar o campo pelo nome
+ * - Identificar o campo pelo id numérico (ver RegistoCampos)
  * - Fragmentar campos grandes em múltiplas partes
  * - Reconstruir campos independentemente da ordem de chegada
- * 
+ *
  */
 
 public class CampoSerializado implements Serializable {
-    
-    public final String nome; //nome do campo 
-    public final byte[] dados; //dados serializados do campo (ou parte dele se fragmentado) 
+
+    /** Overhead fixo por campo: id (2) + comprimento (4) + indiceParte (2) + totalPartes (2) */
+    public static final int OVERHEAD = 2 + 4 + 2 + 2;
+
+    public final short id; //id numérico do campo (vai no datagrama)
+    public transient String nome; //nome do campo, só para logs (não vai no datagrama)
+    public final byte[] dados; //dados serializados do campo (ou parte dele se fragmentado)
     public final short indiceParte; //indice deste fragmento dentro do campo (0 se não fragmentado)
     public final short totalPartes; //total de partes do campo (1 se não fragmentado)
-    
+
     /**
      * Construtor para campo completo (não fragmentado).
      */
-    public CampoSerializado(String nome, byte[] dados) {
-        this(nome, dados, 0, 1);
+    public CampoSerializado(short id, byte[] dados) {
+        this(id, dados, 0, 1);
     }
-    
+
     /**
      * Construtor para fragmento de campo.
      */
-    public CampoSerializado(String nome, byte[] dados, int indiceParte, int totalPartes) {
+    public CampoSerializado(short id, byte[] dados, int indiceParte, int totalPartes) {
+        this(id, RegistoCampos.nomeDe(id), dados, indiceParte, totalPartes);
+    }
+
+    private CampoSerializado(short id, String nome, byte[] dados, int indiceParte, int totalPartes) {
+        this.id = id;
         this.nome = nome;
         this.dados = dados;
         this.indiceParte = (short) indiceParte;
         this.totalPartes = (short) totalPartes;
     }
-    
+
+    /**
+     * Cria uma parte deste campo (mesmo id e nome) com os dados indicados.
+     */
+    public CampoSerializado parte(byte[] dadosParte, int indiceParte, int totalPartes) {
+        return new CampoSerializado(id, nome, dadosParte, indiceParte, totalPartes);
+    }
+
     /** @return true se este campo está fragmentado em múltiplas partes */
     public boolean isFragmentado() {
         return totalPartes > 1;
     }
-    
+
     /** @return tamanho dos dados em bytes */
     public int tamanho() {
         return dados != null ? dados.length : 0;
     }
-    
+
     /**
      * Tamanho total serializado.
-     * Inclui overhead do nome e metadados.
+     * Inclui o overhead fixo de id e metadados.
      */
     public int tamanhoSerializado() {
-        // nome (2 bytes length + chars) + dados (4 bytes length + bytes) + indiceParte (2) + totalPartes (2)
-        int nomeBytes = nome != null ? nome.getBytes(StandardCharsets.UTF_8).length : 0;
-        return 2 + nomeBytes + 4 + tamanho() + 2 + 2;
+        return OVERHEAD + tamanho();
     }
-    
+
+    // O nome não é serializado: é recuperado a partir do id
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.nome = RegistoCampos.nomeDe(id);
+    }
+
     @Override
     public String toString() {
+        String rotulo = nome != null ? nome : "#" + id;
         if (isFragmentado()) {
-            return String.format("Campo{%s[%d/%d], %d bytes}", nome, indiceParte + 1, totalPartes, tamanho());
+            return String.format("Campo{%s[%d/%d], %d bytes}", rotulo, indiceParte + 1, totalPartes, tamanho());
         }
-        return String.format("Campo{%s, %d bytes}", nome, tamanho());
+        return String.format("Campo{%s, %d bytes}", rotulo, tamanho());
     }
 }
-
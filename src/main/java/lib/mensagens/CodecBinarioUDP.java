@@ -0,0 +1,473 @@
+package lib.mensagens;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+
+import lib.TipoMensagem;
+import lib.mensagens.payloads.*;
+
+/**
+ * Codec binário de layout fixo para MensagemUDP (MissionLink).
+ *
+ * Substitui a serialização Java: não há descritores de classe nem nomes de
+ * atributos no datagrama, apenas os valores em big-endian.
+ *
+ * Cabeçalho (34 bytes):
+ * <pre>
+ *  0  'M' 'L'         magia (distingue do stream Java, que começa por 0xACED)
+ *  2  versão          byte
+ *  3  tipo            byte (TipoMensagem.value)
+ *  4  idEmissor       int
+ *  8  idRecetor       int
+ * 12  idMissao        int
+ * 16  timestamp       long (ms)
+ * 24  seq             int
+ * 28  totalFragm      int
+ * 32  flags           byte (bit 0 = flagSucesso)
+ * 33  tipoPayload     byte (0 = sem payload)
+ * </pre>
+ * Segue-se o payload, com layout próprio de cada tipo. Nos fragmentos, cada
+ * campo leva id (short), indiceParte, totalPartes, comprimento (int) e dados.
+ * A paridade (FEC) leva seqInicial, tamanhoGrupo, xorComprimentos e os bytes.
+ * O ACK leva os seqs em falta como pares [início, fim] (ver IntervalosSeq).
+ */
+public final class CodecBinarioUDP {
+
+    public static final byte MAGIA_0 = 'M';
+    public static final byte MAGIA_1 = 'L';
+    public static final byte VERSAO = 5;
+
+    public static final int TAMANHO_CABECALHO = 34;
+
+    // Offsets dos campos do cabeçalho
+    public static final int OFF_VERSAO = 2;
+    public static final int OFF_TIPO = 3;
+    public static final int OFF_EMISSOR = 4;
+    public static final int OFF_RECETOR = 8;
+    public static final int OFF_MISSAO = 12;
+    public static final int OFF_TIMESTAMP = 16;
+    public static final int OFF_SEQ = 24;
+    public static final int OFF_TOTAL_FRAGM = 28;
+    public static final int OFF_FLAGS = 32;
+    public static final int OFF_TIPO_PAYLOAD = 33;
+
+    private static final int FLAG_SUCESSO = 0x01;
+
+    // Identificadores do tipo de payload
+    public static final byte PAYLOAD_NENHUM = 0;
+    public static final byte PAYLOAD_MISSAO = 1;
+    public static final byte PAYLOAD_ACK = 2;
+    public static final byte PAYLOAD_PROGRESSO = 3;
+    public static final byte PAYLOAD_ERRO = 4;
+    public static final byte PAYLOAD_FRAGMENTO = 5;
+    public static final byte PAYLOAD_PARIDADE = 6;
+
+    private CodecBinarioUDP() {
+    }
+
+    // ==================== DETEÇÃO ====================
+
+    /**
+     * Verifica se os bytes começam por um cabeçalho binário MissionLink.
+     */
+    public static boolean ehBinario(byte[] dados, int length) {
+        return dados != null && length >= TAMANHO_CABECALHO
+                && dados[0] == MAGIA_0 && dados[1] == MAGIA_1;
+    }
+
+    /**
+     * Versão para buffers (ex: diretos, da receção NIO); não altera a posição.
+     */
+    public static boolean ehBinario(ByteBuffer buf) {
+        int p = buf.position();
+        return buf.remaining() >= TAMANHO_CABECALHO
+                && buf.get(p) == MAGIA_0 && buf.get(p + 1) == MAGIA_1;
+    }
+
+    /**
+     * Lê o idEmissor do cabeçalho sem descodificar a mensagem nem alterar a posição.
+     * @return idEmissor, ou -1 se o buffer não tiver um cabeçalho binário
+     */
+    public static int lerEmissor(ByteBuffer buf) {
+        if (!ehBinario(buf)) {
+            return -1;
+        }
+        return buf.getInt(buf.position() + OFF_EMISSOR);
+    }
+
+    // ==================== CODIFICAÇÃO ====================
+
+    /**
+     * Codifica a mensagem para um array com o tamanho exato.
+     */
+    public static byte[] codificar(MensagemUDP msg) {
+        ByteBuffer buf = ByteBuffer.allocate(tamanhoCodificado(msg));
+        codificar(msg, buf);
+        return buf.array();
+    }
+
+    /**
+     * Codifica a mensagem na posição atual do buffer.
+     * @return número de bytes escritos
+     */
+    public static int codificar(MensagemUDP msg, ByteBuffer buf) {
+        int inicio = buf.position();
+        CabecalhoUDP h = msg.header;
+
+        escreverCabecalho(buf, h.tipo, h.idEmissor, h.idRecetor, h.idMissao,
+                          h.timestamp != null ? h.timestamp.getTime() : 0L, h.seq, h.totalFragm, h.flagSucesso);
+
+        Payload p = msg.payload;
+        if (p == null) {
+            buf.put(PAYLOAD_NENHUM);
+        } else if (p instanceof PayloadMissao) {
+            buf.put(PAYLOAD_MISSAO);
+            escreverMissao((PayloadMissao) p, buf);
+        } else if (p instanceof PayloadAck) {
+            buf.put(PAYLOAD_ACK);
+            escreverAck((PayloadAck) p, buf);
+        } else if (p instanceof PayloadProgresso) {
+            buf.put(PAYLOAD_PROGRESSO);
+            escreverProgresso((PayloadProgresso) p, buf);
+        } else if (p instanceof PayloadErro) {
+            buf.put(PAYLOAD_ERRO);
+            escreverErro((PayloadErro) p, buf);
+        } else if (p instanceof FragmentoPayload) {
+            buf.put(PAYLOAD_FRAGMENTO);
+            escreverFragmento((FragmentoPayload) p, buf);
+        } else if (p instanceof PayloadParidade) {
+            buf.put(PAYLOAD_PARIDADE);
+            escreverParidade((PayloadParidade) p, buf);
+        } else {
+            throw new IllegalArgumentException("Payload sem codificação binária: " + p.getClass().getSimpleName());
+        }
+        return buf.position() - inicio;
+    }
+
+    /**
+     * Escreve o cabeçalho até às flags (o byte tipoPayload fica para o chamador).
+     */
+    static void escreverCabecalho(ByteBuffer buf, TipoMensagem tipo, int idEmissor, int idRecetor, int idMissao,
+                                  long timestamp, int seq, int totalFragm, boolean flagSucesso) {
+        buf.put(MAGIA_0).put(MAGIA_1).put(VERSAO);
+        buf.put((byte) (tipo != null ? tipo.value : 0));
+        buf.putInt(idEmissor);
+        buf.putInt(idRecetor);
+        buf.putInt(idMissao);
+        buf.putLong(timestamp);
+        buf.putInt(seq);
+        buf.putInt(totalFragm);
+        buf.put((byte) (flagSucesso ? FLAG_SUCESSO : 0));
+    }
+
+    /**
+     * Calcula o tamanho exato da mensagem codificada.
+     */
+    public static int tamanhoCodificado(MensagemUDP msg) {
+        Payload p = msg.payload;
+        int tamanho = TAMANHO_CABECALHO;
+        if (p instanceof PayloadMissao) {
+            PayloadMissao m = (PayloadMissao) p;
+            tamanho += 4 + 4 * 4 + 8 * 3 + 4 + 4 + tamanhoString(m.tarefa);
+        } else if (p instanceof PayloadAck) {
+            PayloadAck a = (PayloadAck) p;
+            tamanho += 4 + 4 + (a.intervalos != null ? a.intervalos.length * 4 : 0) + 1 + 4;
+        } else if (p instanceof PayloadProgresso) {
+            tamanho += 4 + 8 + 4;
+        } else if (p instanceof PayloadErro) {
+            PayloadErro e = (PayloadErro) p;
+            tamanho += 4 + 4 + tamanhoString(e.descricao) + 4 * 4 + 8;
+        } else if (p instanceof FragmentoPayload) {
+            FragmentoPayload f = (FragmentoPayload) p;
+            tamanho += 2;
+            if (f.campos != null) {
+                for (CampoSerializado c : f.campos) {
+                    tamanho += tamanhoCampo(c);
+                }
+            }
+        } else if (p instanceof PayloadParidade) {
+            PayloadParidade par = (PayloadParidade) p;
+            tamanho += 4 + 4 + 4 + 4 + (par.dados != null ? par.dados.length : 0);
+        }
+        return tamanho;
+    }
+
+    /**
+     * Reescreve o idRecetor de um datagrama já codificado, sem o descodificar.
+     * Usado para reenviar os mesmos bytes a outro rover.
+     */
+    public static void reescreverRecetor(byte[] dados, int idRecetor) {
+        if (!ehBinario(dados, dados.length)) {
+            throw new IllegalArgumentException("Datagrama não está no formato binário");
+        }
+        ByteBuffer.wrap(dados).putInt(OFF_RECETOR, idRecetor);
+    }
+
+    // ==================== DESCODIFICAÇÃO ====================
+
+    /**
+     * Descodifica uma mensagem a partir de um array.
+     * @throws IllegalArgumentException se os bytes não forem uma mensagem válida
+     */
+    public static MensagemUDP descodificar(byte[] dados, int length) {
+        return descodificar(ByteBuffer.wrap(dados, 0, length));
+    }
+
+    /**
+     * Descodifica uma mensagem a partir da posição atual do buffer.
+     * @throws IllegalArgumentException se os bytes não forem uma mensagem válida
+     */
+    public static MensagemUDP descodificar(ByteBuffer buf) {
+        MensagemUDP msg = new MensagemUDP();
+        descodificarCabecalho(buf, msg.header);
+        buf.position(buf.position() + OFF_TIPO_PAYLOAD);
+        msg.payload = descodificarPayload(buf);
+        return msg;
+    }
+
+    /**
+     * Descodifica só o cabeçalho, para o destino dado (que pode ser
+     * reutilizado: o timestamp existente é atualizado, não substituído).
+     * Não lê o payload nem altera a posição do buffer.
+     * @throws IllegalArgumentException se o cabeçalho não for válido
+     */
+    public static void descodificarCabecalho(ByteBuffer buf, CabecalhoUDP h) {
+        int p = buf.position();
+        if (buf.remaining() < TAMANHO_CABECALHO) {
+            throw new IllegalArgumentException("Datagrama demasiado curto: " + buf.remaining() + " bytes");
+        }
+        if (buf.get(p) != MAGIA_0 || buf.get(p + 1) != MAGIA_1) {
+            throw new IllegalArgumentException("Magia inválida");
+        }
+        byte versao = buf.get(p + OFF_VERSAO);
+        if (versao != VERSAO) {
+            throw new IllegalArgumentException("Versão não suportada: " + versao);
+        }
+
+        h.tipo = TipoMensagem.deValor(buf.get(p + OFF_TIPO));
+        if (h.tipo == null) {
+            throw new IllegalArgumentException("Tipo de mensagem inválido");
+        }
+        h.idEmissor = buf.getInt(p + OFF_EMISSOR);
+        h.idRecetor = buf.getInt(p + OFF_RECETOR);
+        h.idMissao = buf.getInt(p + OFF_MISSAO);
+        long timestamp = buf.getLong(p + OFF_TIMESTAMP);
+        if (h.timestamp != null) {
+            h.timestamp.setTime(timestamp);
+        } else {
+            h.timestamp = new Time(timestamp);
+        }
+        h.seq = buf.getInt(p + OFF_SEQ);
+        h.totalFragm = buf.getInt(p + OFF_TOTAL_FRAGM);
+        h.flagSucesso = (buf.get(p + OFF_FLAGS) & FLAG_SUCESSO) != 0;
+    }
+
+    /**
+     * Descodifica o payload, com o buffer posicionado no byte tipoPayload
+     * (OFF_TIPO_PAYLOAD a partir do início do datagrama).
+     * @return o payload, ou null se a mensagem não tiver payload
+     * @throws IllegalArgumentException se o payload não for válido
+     */
+    public static Payload descodificarPayload(ByteBuffer buf) {
+        byte tipoPayload = buf.get();
+        switch (tipoPayload) {
+            case PAYLOAD_NENHUM:
+                return null;
+            case PAYLOAD_MISSAO:
+                return lerMissao(buf);
+            case PAYLOAD_ACK:
+                return lerAck(buf);
+            case PAYLOAD_PROGRESSO:
+                return lerProgresso(buf);
+            case PAYLOAD_ERRO:
+                return lerErro(buf);
+            case PAYLOAD_FRAGMENTO:
+                return lerFragmento(buf);
+            case PAYLOAD_PARIDADE:
+                return lerParidade(buf);
+            default:
+                throw new IllegalArgumentException("Tipo de payload inválido: " + tipoPayload);
+        }
+    }
+
+    // ==================== PAYLOADS ====================
+
+    private static void escreverMissao(PayloadMissao m, ByteBuffer buf) {
+        buf.putInt(m.idMissao);
+        buf.putFloat(m.x1).putFloat(m.y1).putFloat(m.x2).putFloat(m.y2);
+        buf.putLong(m.duracaoMissao);
+        buf.putLong(m.intervaloAtualizacao);
+        buf.putLong(m.inicioMissao);
+        buf.putInt(m.prioridade);
+        buf.putFloat(m.progressoInicial);
+        escreverString(m.tarefa, buf);
+    }
+
+    private static PayloadMissao lerMissao(ByteBuffer buf) {
+        PayloadMissao m = new PayloadMissao();
+        m.idMissao = buf.getInt();
+        m.x1 = buf.getFloat();
+        m.y1 = buf.getFloat();
+        m.x2 = buf.getFloat();
+        m.y2 = buf.getFloat();
+        m.duracaoMissao = buf.getLong();
+        m.intervaloAtualizacao = buf.getLong();
+        m.inicioMissao = buf.getLong();
+        m.prioridade = buf.getInt();
+        m.progressoInicial = buf.getFloat();
+        m.tarefa = lerString(buf);
+        return m;
+    }
+
+    private static void escreverAck(PayloadAck a, ByteBuffer buf) {
+        buf.putInt(a.missingCount);
+        int[] arr = a.intervalos != null ? a.intervalos : new int[0];
+        buf.putInt(arr.length / 2);
+        for (int limite : arr) {
+            buf.putInt(limite);
+        }
+        buf.put((byte) (a.finalAck ? 1 : 0));
+        buf.putInt(a.recuperados);
+    }
+
+    private static PayloadAck lerAck(ByteBuffer buf) {
+        PayloadAck a = new PayloadAck();
+        a.missingCount = buf.getInt();
+        int n = buf.getInt();
+        if (n < 0 || n > PayloadAck.MAX_INTERVALOS || n * 8 > buf.remaining()) {
+            throw new IllegalArgumentException("Intervalos missing inválidos: " + n);
+        }
+        a.intervalos = new int[2 * n];
+        for (int i = 0; i < a.intervalos.length; i++) {
+            a.intervalos[i] = buf.getInt();
+        }
+        IntervalosSeq.validar(a.intervalos);
+        a.finalAck = buf.get() != 0;
+        a.recuperados = buf.getInt();
+        return a;
+    }
+
+    private static void escreverProgresso(PayloadProgresso p, ByteBuffer buf) {
+        buf.putInt(p.idMissao);
+        buf.putLong(p.tempoDecorrido);
+        buf.putFloat(p.progressoPercentagem);
+    }
+
+    private static PayloadProgresso lerProgresso(ByteBuffer buf) {
+        PayloadProgresso p = new PayloadProgresso();
+        p.idMissao = buf.getInt();
+        p.tempoDecorrido = buf.getLong();
+        p.progressoPercentagem = buf.getFloat();
+        return p;
+    }
+
+    private static void escreverErro(PayloadErro e, ByteBuffer buf) {
+        buf.putInt(e.idMissao);
+        buf.putInt(e.codigoErro);
+        escreverString(e.descricao, buf);
+        buf.putFloat(e.progressoAtual);
+        buf.putFloat(e.bateria);
+        buf.putFloat(e.posicaoX);
+        buf.putFloat(e.posicaoY);
+        buf.putLong(e.timestampErro);
+    }
+
+    private static PayloadErro lerErro(ByteBuffer buf) {
+        PayloadErro e = new PayloadErro();
+        e.idMissao = buf.getInt();
+        e.codigoErro = buf.getInt();
+        e.descricao = lerString(buf);
+        e.progressoAtual = buf.getFloat();
+        e.bateria = buf.getFloat();
+        e.posicaoX = buf.getFloat();
+        e.posicaoY = buf.getFloat();
+        e.timestampErro = buf.getLong();
+        return e;
+    }
+
+    private static void escreverFragmento(FragmentoPayload f, ByteBuffer buf) {
+        int n = f.campos != null ? f.campos.size() : 0;
+        buf.putShort((short) n);
+        for (int i = 0; i < n; i++) {
+            CampoSerializado c = f.campos.get(i);
+            buf.putShort(c.id);
+            buf.putShort(c.indiceParte);
+            buf.putShort(c.totalPartes);
+            buf.putInt(c.tamanho());
+            if (c.dados != null) {
+                buf.put(c.dados);
+            }
+        }
+    }
+
+    private static FragmentoPayload lerFragmento(ByteBuffer buf) {
+        int n = buf.getShort();
+        if (n < 0) {
+            throw new IllegalArgumentException("Número de campos inválido: " + n);
+        }
+        FragmentoPayload f = new FragmentoPayload();
+        for (int i = 0; i < n; i++) {
+            short id = buf.getShort();
+            short indice = buf.getShort();
+            short total = buf.getShort();
+            byte[] dados = lerBytes(buf, buf.getInt());
+            f.adicionarCampo(new CampoSerializado(id, dados, indice, total));
+        }
+        return f;
+    }
+
+    private static void escreverParidade(PayloadParidade p, ByteBuffer buf) {
+        buf.putInt(p.seqInicial);
+        buf.putInt(p.tamanhoGrupo);
+        buf.putInt(p.xorComprimentos);
+        byte[] dados = p.dados != null ? p.dados : new byte[0];
+        buf.putInt(dados.length);
+        buf.put(dados);
+    }
+
+    private static PayloadParidade lerParidade(ByteBuffer buf) {
+        int seqInicial = buf.getInt();
+        int tamanhoGrupo = buf.getInt();
+        int xorComprimentos = buf.getInt();
+        if (tamanhoGrupo < 1) {
+            throw new IllegalArgumentException("Grupo de paridade inválido: " + tamanhoGrupo);
+        }
+        return new PayloadParidade(seqInicial, tamanhoGrupo, xorComprimentos, lerBytes(buf, buf.getInt()));
+    }
+
+    private static int tamanhoCampo(CampoSerializado c) {
+        return c.tamanhoSerializado();
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private static int tamanhoString(String s) {
+        return 4 + (s != null ? s.getBytes(StandardCharsets.UTF_8).length : 0);
+    }
+
+    private static void escreverString(String s, ByteBuffer buf) {
+        if (s == null) {
+            buf.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String lerString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) return null;
+        return new String(lerBytes(buf, len), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] lerBytes(ByteBuffer buf, int len) {
+        if (len < 0 || len > buf.remaining()) {
+            throw new IllegalArgumentException("Comprimento inválido: " + len);
+        }
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,110 @@
+package lib.mensagens;
+
+import java.util.Map;
+
+import lib.mensagens.payloads.PayloadParidade;
+
+/**
+ * Código de paridade XOR para os fragmentos MISSION (FEC).
+ *
+ * Os fragmentos de dados são divididos em grupos consecutivos de tamanho k;
+ * cada grupo leva um fragmento de paridade com o XOR dos datagramas. Perder
+ * um fragmento por grupo deixa de custar uma ida e volta (ACK com missing
+ * seguido de retransmissão). Trabalha sobre os bytes já codificados, por
+ * isso serve para qualquer FormatoWire.
+ */
+public final class CodigoParidade {
+
+    /** Primeiro seq de dados dos fragmentos MISSION. */
+    public static final int SEQ_INICIAL = 2;
+
+    private CodigoParidade() {
+    }
+
+    /**
+     * Número de grupos de paridade para n fragmentos com grupos de tamanho k.
+     */
+    public static int numeroGrupos(int totalFragmentos, int tamanhoGrupo) {
+        if (tamanhoGrupo < 2 || totalFragmentos < 2) return 0;
+        return (totalFragmentos + tamanhoGrupo - 1) / tamanhoGrupo;
+    }
+
+    /**
+     * Seq do fragmento de paridade do grupo g (logo a seguir à gama de dados).
+     */
+    public static int seqParidade(int totalFragmentos, int grupo) {
+        return SEQ_INICIAL + totalFragmentos + grupo;
+    }
+
+    /**
+     * Gera a paridade de um grupo de datagramas.
+     *
+     * @param datagramas datagramas de dados (índice i = seq i + 2)
+     * @param grupo índice do grupo
+     * @param tamanhoGrupo fragmentos por grupo
+     */
+    public static PayloadParidade gerar(byte[][] datagramas, int grupo, int tamanhoGrupo) {
+        int inicio = grupo * tamanhoGrupo;
+        int fim = Math.min(inicio + tamanhoGrupo, datagramas.length);
+
+        int maior = 0;
+        for (int i = inicio; i < fim; i++) {
+            maior = Math.max(maior, datagramas[i].length);
+        }
+
+        byte[] xor = new byte[maior];
+        int xorComprimentos = 0;
+        for (int i = inicio; i < fim; i++) {
+            byte[] d = datagramas[i];
+            for (int j = 0; j < d.length; j++) {
+                xor[j] ^= d[j];
+            }
+            xorComprimentos ^= d.length;
+        }
+
+        return new PayloadParidade(SEQ_INICIAL + inicio, fim - inicio, xorComprimentos, xor);
+    }
+
+    /**
+     * Seq do único fragmento em falta no grupo, -1 se não faltar nenhum,
+     * ou -2 se faltar mais de um (não recuperável).
+     */
+    public static int seqEmFalta(PayloadParidade paridade, Map<Integer, byte[]> recebidos) {
+        int emFalta = -1;
+        for (int seq = paridade.seqInicial; seq < paridade.seqInicial + paridade.tamanhoGrupo; seq++) {
+            if (!recebidos.containsKey(seq)) {
+                if (emFalta != -1) return -2;
+                emFalta = seq;
+            }
+        }
+        return emFalta;
+    }
+
+    /**
+     * Reconstrói o datagrama em falta a partir da paridade e dos restantes do grupo.
+     *
+     * @param recebidos datagramas de dados recebidos (seq -> bytes)
+     * @return bytes do datagrama em falta, ou null se não for recuperável
+     */
+    public static byte[] recuperar(PayloadParidade paridade, Map<Integer, byte[]> recebidos) {
+        int emFalta = seqEmFalta(paridade, recebidos);
+        if (emFalta < 0) return null;
+
+        byte[] xor = paridade.dados.clone();
+        int comprimento = paridade.xorComprimentos;
+        for (int seq = paridade.seqInicial; seq < paridade.seqInicial + paridade.tamanhoGrupo; seq++) {
+            if (seq == emFalta) continue;
+            byte[] d = recebidos.get(seq);
+            if (d.length > xor.length) return null; // grupo inconsistente
+            for (int j = 0; j < d.length; j++) {
+                xor[j] ^= d[j];
+            }
+            comprimento ^= d.length;
+        }
+
+        if (comprimento < 0 || comprimento > xor.length) return null;
+        byte[] resultado = new byte[comprimento];
+        System.arraycopy(xor, 0, resultado, 0, comprimento);
+        return resultado;
+    }
+}
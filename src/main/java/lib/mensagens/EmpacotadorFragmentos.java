@@ -0,0 +1,84 @@
+package lib.mensagens;
+
+import lib.mensagens.payloads.FragmentoPayload;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Empacotamento de campos em FragmentoPayloads (bin packing).
+ *
+ * Usa best-fit decreasing: os campos são ordenados por tamanho serializado
+ * decrescente e cada um vai para o fragmento aberto com o menor espaço livre
+ * onde ainda cabe. Os fragmentos abertos estão indexados por espaço livre
+ * numa TreeMap, por isso cada colocação custa O(log n) e o total fica
+ * O(n log n), mesmo com milhares de partes de um campo grande.
+ *
+ * Campos maiores que o tamanho máximo (não deviam existir depois de
+ * fragmentarCampoGrande) ficam sozinhos num fragmento, como antes.
+ */
+public final class EmpacotadorFragmentos {
+
+    private EmpacotadorFragmentos() {
+    }
+
+    /**
+     * Empacota os campos em fragmentos de no máximo tamanhoMaximo bytes
+     * (medido com CampoSerializado.tamanhoSerializado()).
+     *
+     * A ordem dos fragmentos é a ordem de abertura; a reconstrução não
+     * depende da ordem dos campos.
+     */
+    public static List<FragmentoPayload> empacotar(List<CampoSerializado> campos, int tamanhoMaximo) {
+        int n = campos.size();
+        List<FragmentoPayload> fragmentos = new ArrayList<>();
+        if (n == 0) {
+            return fragmentos;
+        }
+
+        // Ordenar índices por tamanho decrescente (estável: empates mantêm a ordem original)
+        long[] chaves = new long[n];
+        for (int i = 0; i < n; i++) {
+            long tamanho = campos.get(i).tamanhoSerializado();
+            chaves[i] = ((Integer.MAX_VALUE - tamanho) << 32) | i;
+        }
+        Arrays.sort(chaves);
+
+        // espaço livre -> fragmentos abertos com esse espaço (por ordem de abertura)
+        TreeMap<Integer, ArrayDeque<Integer>> abertos = new TreeMap<>();
+        int[] livre = new int[n];
+
+        for (long chave : chaves) {
+            CampoSerializado campo = campos.get((int) chave);
+            int tamanho = campo.tamanhoSerializado();
+
+            Map.Entry<Integer, ArrayDeque<Integer>> melhor = abertos.ceilingEntry(tamanho);
+            int indice;
+            if (melhor != null) {
+                ArrayDeque<Integer> fila = melhor.getValue();
+                indice = fila.pollFirst();
+                if (fila.isEmpty()) {
+                    abertos.remove(melhor.getKey());
+                }
+            } else {
+                indice = fragmentos.size();
+                fragmentos.add(new FragmentoPayload());
+                livre[indice] = tamanhoMaximo;
+            }
+
+            fragmentos.get(indice).adicionarCampo(campo);
+            livre[indice] -= tamanho;
+
+            // Só vale a pena manter aberto se ainda cabe pelo menos um campo vazio
+            if (livre[indice] >= CampoSerializado.OVERHEAD) {
+                abertos.computeIfAbsent(livre[indice], k -> new ArrayDeque<>()).addLast(indice);
+            }
+        }
+
+        return fragmentos;
+    }
+}
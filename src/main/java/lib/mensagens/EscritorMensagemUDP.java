@@ -0,0 +1,88 @@
+package lib.mensagens;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import lib.TipoMensagem;
+import lib.mensagens.payloads.PayloadAck;
+
+/**
+ * Escritor (flyweight) de datagramas binários MissionLink diretamente num
+ * buffer, sem criar MensagemUDP nem payloads. Produz os mesmos bytes que
+ * CodecBinarioUDP.codificar para as mesmas mensagens.
+ *
+ * Uso: iniciar(...) escreve o cabeçalho na posição atual do buffer e um
+ * dos métodos de payload termina a mensagem. A instância é reutilizável,
+ * uma mensagem de cada vez.
+ */
+public final class EscritorMensagemUDP {
+
+    private ByteBuffer buf;
+    private int inicio;
+
+    /**
+     * Escreve o cabeçalho (timestamp = agora) na posição atual do buffer.
+     */
+    public EscritorMensagemUDP iniciar(ByteBuffer buf, TipoMensagem tipo, int idEmissor, int idRecetor,
+                                      int idMissao, int seq, int totalFragm, boolean flagSucesso) {
+        this.buf = buf;
+        this.inicio = buf.position();
+        CodecBinarioUDP.escreverCabecalho(buf, tipo, idEmissor, idRecetor, idMissao,
+                                          System.currentTimeMillis(), seq, totalFragm, flagSucesso);
+        return this;
+    }
+
+    /**
+     * Termina a mensagem sem payload.
+     * @return tamanho da mensagem escrita
+     */
+    public int semPayload() {
+        buf.put(CodecBinarioUDP.PAYLOAD_NENHUM);
+        return terminar();
+    }
+
+    /**
+     * Termina a mensagem com um payload PROGRESS.
+     * @return tamanho da mensagem escrita
+     */
+    public int progresso(int idMissao, long tempoDecorrido, float percentagem) {
+        buf.put(CodecBinarioUDP.PAYLOAD_PROGRESSO);
+        buf.putInt(idMissao);
+        buf.putLong(tempoDecorrido);
+        buf.putFloat(percentagem);
+        return terminar();
+    }
+
+    /**
+     * Termina a mensagem com um payload ACK. Os seqs em falta seguem em
+     * intervalos, no máximo PayloadAck.MAX_INTERVALOS (como definirEmFalta).
+     *
+     * @param emFalta seqs em falta (null = nenhum)
+     * @return tamanho da mensagem escrita
+     */
+    public int ack(BitSet emFalta, boolean finalAck, int recuperados) {
+        buf.put(CodecBinarioUDP.PAYLOAD_ACK);
+        buf.putInt(emFalta != null ? emFalta.cardinality() : 0);
+        int posicaoContagem = buf.position();
+        buf.putInt(0);
+        int n = 0;
+        int inicioPar = emFalta != null ? emFalta.nextSetBit(0) : -1;
+        while (inicioPar >= 0 && n < PayloadAck.MAX_INTERVALOS) {
+            int fimPar = emFalta.nextClearBit(inicioPar) - 1;
+            buf.putInt(inicioPar);
+            buf.putInt(fimPar);
+            n++;
+            inicioPar = emFalta.nextSetBit(fimPar + 1);
+        }
+        buf.putInt(posicaoContagem, n);
+        buf.put((byte) (finalAck ? 1 : 0));
+        buf.putInt(recuperados);
+        return terminar();
+    }
+
+    private int terminar() {
+        int tamanho = buf.position() - inicio;
+        buf = null;
+        return tamanho;
+    }
+}
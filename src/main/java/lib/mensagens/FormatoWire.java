@@ -0,0 +1,33 @@
+package lib.mensagens;
+
+/**
+ * Formato usado para colocar uma MensagemUDP no datagrama.
+ *
+ * - JAVA: serialização Java (ObjectOutputStream), formato original
+ * - BINARIO: codec binário de layout fixo (ver CodecBinarioUDP)
+ *
+ * A receção deteta o formato automaticamente, por isso só o emissor escolhe.
+ */
+public enum FormatoWire {
+    JAVA,
+    BINARIO;
+
+    /** Propriedade de sistema para escolher o formato (ex: -Dmissionlink.formato=JAVA). */
+    public static final String PROPRIEDADE = "missionlink.formato";
+
+    /**
+     * Lê o formato da propriedade de sistema, usando BINARIO por omissão.
+     */
+    public static FormatoWire doSistema() {
+        String valor = System.getProperty(PROPRIEDADE);
+        if (valor == null || valor.isBlank()) {
+            return BINARIO;
+        }
+        try {
+            return FormatoWire.valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[FormatoWire] Formato desconhecido '" + valor + "', a usar BINARIO");
+            return BINARIO;
+        }
+    }
+}
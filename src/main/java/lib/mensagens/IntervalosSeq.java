@@ -0,0 +1,101 @@
+package lib.mensagens;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Codificação de conjuntos de seqs em intervalos (estilo SACK).
+ *
+ * Um conjunto é representado por pares [início, fim] (ambos inclusivos)
+ * guardados em sequência num int[]: {i0, f0, i1, f1, ...}. Perdas em rajada
+ * ficam num único par, pelo que o tamanho do ACK depende do número de
+ * rajadas e não do número de fragmentos em falta.
+ *
+ * Os pares vêm da rede: a descodificação recorta-os à gama de seqs que a
+ * sessão conhece, para que um intervalo forjado (ex: [0, 2^31-2]) não
+ * crie um conjunto enorme nem pedidos de seqs inexistentes.
+ */
+public final class IntervalosSeq {
+
+    private IntervalosSeq() {
+    }
+
+    /**
+     * Codifica os bits ativos do conjunto em intervalos, por ordem crescente.
+     *
+     * @param conjunto seqs a codificar
+     * @param maxIntervalos limite de pares; os seqs acima do último par ficam de fora
+     * @return pares [início, fim]
+     */
+    public static int[] codificar(BitSet conjunto, int maxIntervalos) {
+        if (conjunto == null || conjunto.isEmpty() || maxIntervalos <= 0) {
+            return new int[0];
+        }
+
+        int[] pares = new int[2 * Math.min(maxIntervalos, 8)];
+        int n = 0;
+        int inicio = conjunto.nextSetBit(0);
+        while (inicio >= 0 && n / 2 < maxIntervalos) {
+            int fim = conjunto.nextClearBit(inicio) - 1;
+            if (n == pares.length) {
+                pares = Arrays.copyOf(pares, Math.min(2 * maxIntervalos, 2 * pares.length));
+            }
+            pares[n++] = inicio;
+            pares[n++] = fim;
+            inicio = conjunto.nextSetBit(fim + 1);
+        }
+        return n == pares.length ? pares : Arrays.copyOf(pares, n);
+    }
+
+    /**
+     * Reconstrói o conjunto a partir dos pares [início, fim], recortados à
+     * gama [minimo, maximo]; pares fora da gama são ignorados.
+     *
+     * @throws IllegalArgumentException se algum par for inválido
+     */
+    public static BitSet descodificar(int[] pares, int minimo, int maximo) {
+        BitSet conjunto = new BitSet();
+        if (pares == null || maximo < minimo) {
+            return conjunto;
+        }
+        validar(pares);
+        for (int i = 0; i < pares.length; i += 2) {
+            int inicio = Math.max(pares[i], minimo);
+            int fim = Math.min(pares[i + 1], maximo);
+            if (inicio <= fim) {
+                conjunto.set(inicio, fim + 1);
+            }
+        }
+        return conjunto;
+    }
+
+    /**
+     * Número de seqs cobertos pelos pares.
+     */
+    public static int contar(int[] pares) {
+        if (pares == null) return 0;
+        int total = 0;
+        for (int i = 0; i + 1 < pares.length; i += 2) {
+            total += pares[i + 1] - pares[i] + 1;
+        }
+        return total;
+    }
+
+    /**
+     * Verifica que os pares estão completos, ordenados e não se sobrepõem.
+     */
+    public static void validar(int[] pares) {
+        if (pares.length % 2 != 0) {
+            throw new IllegalArgumentException("Intervalos incompletos: " + pares.length);
+        }
+        int anterior = -1;
+        for (int i = 0; i < pares.length; i += 2) {
+            int inicio = pares[i];
+            int fim = pares[i + 1];
+            if (inicio < 0 || fim < inicio || inicio <= anterior || fim == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Intervalo inválido: [" + inicio + ", " + fim + "]");
+            }
+            anterior = fim;
+        }
+    }
+}
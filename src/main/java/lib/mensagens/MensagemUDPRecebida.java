@@ -0,0 +1,100 @@
+package lib.mensagens;
+
+import java.nio.ByteBuffer;
+
+import lib.mensagens.payloads.Payload;
+
+/**
+ * Datagrama recebido com descodificação em duas fases: ler() descodifica
+ * só o cabeçalho de layout fixo (tipo, emissor, recetor, missão, seq...) e
+ * o payload só é descodificado quando pedido (payload() ou mensagem()).
+ *
+ * Assim um datagrama destinado a outro rover é descartado depois de ler
+ * 34 bytes, sem descodificar fragmentos. A instância é reutilizável: o
+ * cabeçalho é reescrito a cada ler(), e os bytes não são copiados, pelo
+ * que o payload tem de ser pedido antes de o buffer de receção ser
+ * reutilizado.
+ *
+ * No formato de serialização Java não há cabeçalho separado: ler()
+ * descodifica a mensagem inteira.
+ */
+public final class MensagemUDPRecebida {
+
+    public final CabecalhoUDP header = new CabecalhoUDP();
+
+    private byte[] dados;
+    private int length;
+    private Payload payload;
+    private boolean payloadLido;
+
+    /**
+     * Descodifica o cabeçalho do datagrama.
+     * @return false se os bytes não forem uma mensagem MissionLink válida
+     */
+    public boolean ler(byte[] dados, int length) {
+        this.dados = dados;
+        this.length = length;
+        this.payload = null;
+        this.payloadLido = false;
+
+        if (CodecBinarioUDP.ehBinario(dados, length)) {
+            try {
+                CodecBinarioUDP.descodificarCabecalho(ByteBuffer.wrap(dados, 0, length), header);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        // Serialização Java: sem leitura parcial possível
+        MensagemUDP msg = SerializadorUDP.deserializarMensagem(dados, length);
+        if (msg == null || msg.header == null) {
+            return false;
+        }
+        copiarCabecalho(msg.header, header);
+        payload = msg.payload;
+        payloadLido = true;
+        return true;
+    }
+
+    /**
+     * Descodifica o payload (na primeira chamada) a partir dos bytes do último ler().
+     * @return o payload, ou null se a mensagem não tiver payload
+     * @throws IllegalArgumentException se o payload não for válido
+     */
+    public Payload payload() {
+        if (!payloadLido) {
+            ByteBuffer buf = ByteBuffer.wrap(dados, CodecBinarioUDP.OFF_TIPO_PAYLOAD,
+                                             length - CodecBinarioUDP.OFF_TIPO_PAYLOAD);
+            payload = CodecBinarioUDP.descodificarPayload(buf);
+            payloadLido = true;
+        }
+        return payload;
+    }
+
+    /**
+     * Mensagem completa, com uma cópia do cabeçalho (independente desta instância).
+     * @return a mensagem, ou null se o payload não for válido
+     */
+    public MensagemUDP mensagem() {
+        MensagemUDP msg = new MensagemUDP();
+        try {
+            msg.payload = payload();
+        } catch (RuntimeException e) {
+            return null;
+        }
+        copiarCabecalho(header, msg.header);
+        return msg;
+    }
+
+    private static void copiarCabecalho(CabecalhoUDP origem, CabecalhoUDP destino) {
+        destino.tipo = origem.tipo;
+        destino.idEmissor = origem.idEmissor;
+        destino.idRecetor = origem.idRecetor;
+        destino.idMissao = origem.idMissao;
+        destino.timestamp.setTime(origem.timestamp != null ? origem.timestamp.getTime() : 0L);
+        destino.seq = origem.seq;
+        destino.totalFragm = origem.totalFragm;
+        destino.flagSucesso = origem.flagSucesso;
+    }
+}
@@ -0,0 +1,143 @@
+package lib.mensagens;
+
+import lib.mensagens.payloads.PayloadAck;
+import lib.mensagens.payloads.PayloadErro;
+import lib.mensagens.payloads.PayloadMissao;
+import lib.mensagens.payloads.PayloadProgresso;
+import lib.mensagens.payloads.PayloadUDP;
+
+/**
+ * Registo de identificadores numéricos dos campos de cada payload.
+ *
+ * Os campos são identificados no datagrama por um short em vez do nome,
+ * o que poupa bytes em cada fragmento e evita hashing de strings na
+ * reconstrução. Cada tipo de payload tem a sua gama de ids; o nome só
+ * existe para logs (e idDe, por payload).
+ *
+ * Os ids fazem parte do formato: não alterar valores já atribuídos.
+ */
+public final class RegistoCampos {
+
+    /** Id reservado para campos sem registo. */
+    public static final short DESCONHECIDO = 0;
+
+    // PayloadMissao (1-15)
+    public static final short MISSAO_ID_MISSAO = 1;
+    public static final short MISSAO_X1 = 2;
+    public static final short MISSAO_Y1 = 3;
+    public static final short MISSAO_X2 = 4;
+    public static final short MISSAO_Y2 = 5;
+    public static final short MISSAO_TAREFA = 6;
+    public static final short MISSAO_DURACAO = 7;
+    public static final short MISSAO_INTERVALO = 8;
+    public static final short MISSAO_INICIO = 9;
+    public static final short MISSAO_PRIORIDADE = 10;
+    public static final short MISSAO_PROGRESSO = 11;
+
+    // PayloadProgresso (16-23)
+    public static final short PROGRESSO_ID_MISSAO = 16;
+    public static final short PROGRESSO_TEMPO_DECORRIDO = 17;
+    public static final short PROGRESSO_PERCENTAGEM = 18;
+
+    // PayloadAck (24-31)
+    public static final short ACK_MISSING_COUNT = 24;
+    public static final short ACK_MISSING = 25;
+
+    // PayloadErro (32-47)
+    public static final short ERRO_ID_MISSAO = 32;
+    public static final short ERRO_CODIGO = 33;
+    public static final short ERRO_DESCRICAO = 34;
+    public static final short ERRO_PROGRESSO = 35;
+    public static final short ERRO_BATERIA = 36;
+    public static final short ERRO_POSICAO_X = 37;
+    public static final short ERRO_POSICAO_Y = 38;
+    public static final short ERRO_TIMESTAMP = 39;
+
+    /** Limite (exclusivo) dos ids registados. */
+    public static final int MAX_ID = 48;
+
+    /** Campos esperados para reconstruir um PayloadMissao. */
+    public static final short[] CAMPOS_MISSAO = {
+        MISSAO_ID_MISSAO, MISSAO_X1, MISSAO_Y1, MISSAO_X2, MISSAO_Y2, MISSAO_TAREFA,
+        MISSAO_DURACAO, MISSAO_INTERVALO, MISSAO_INICIO, MISSAO_PRIORIDADE, MISSAO_PROGRESSO
+    };
+
+    /** Campos esperados para reconstruir um PayloadProgresso. */
+    public static final short[] CAMPOS_PROGRESSO = {
+        PROGRESSO_ID_MISSAO, PROGRESSO_TEMPO_DECORRIDO, PROGRESSO_PERCENTAGEM
+    };
+
+    private static final String[] NOMES = new String[MAX_ID];
+    static {
+        NOMES[MISSAO_ID_MISSAO] = "idMissao";
+        NOMES[MISSAO_X1] = "x1";
+        NOMES[MISSAO_Y1] = "y1";
+        NOMES[MISSAO_X2] = "x2";
+        NOMES[MISSAO_Y2] = "y2";
+        NOMES[MISSAO_TAREFA] = "tarefa";
+        NOMES[MISSAO_DURACAO] = "duracaoMissao";
+        NOMES[MISSAO_INTERVALO] = "intervaloAtualizacao";
+        NOMES[MISSAO_INICIO] = "inicioMissao";
+        NOMES[MISSAO_PRIORIDADE] = "prioridade";
+        NOMES[MISSAO_PROGRESSO] = "progressoInicial";
+
+        NOMES[PROGRESSO_ID_MISSAO] = "idMissao";
+        NOMES[PROGRESSO_TEMPO_DECORRIDO] = "tempoDecorrido";
+        NOMES[PROGRESSO_PERCENTAGEM] = "progressoPercentagem";
+
+        NOMES[ACK_MISSING_COUNT] = "missingCount";
+        NOMES[ACK_MISSING] = "missingIntervalos";
+
+        NOMES[ERRO_ID_MISSAO] = "idMissao";
+        NOMES[ERRO_CODIGO] = "codigoErro";
+        NOMES[ERRO_DESCRICAO] = "descricao";
+        NOMES[ERRO_PROGRESSO] = "progressoAtual";
+        NOMES[ERRO_BATERIA] = "bateria";
+        NOMES[ERRO_POSICAO_X] = "posicaoX";
+        NOMES[ERRO_POSICAO_Y] = "posicaoY";
+        NOMES[ERRO_TIMESTAMP] = "timestampErro";
+    }
+
+    private RegistoCampos() {
+    }
+
+    /** @return true se o id corresponde a um campo registado */
+    public static boolean valido(int id) {
+        return id > DESCONHECIDO && id < MAX_ID && NOMES[id] != null;
+    }
+
+    /** Devolve o nome do campo (para logs), ou null se o id não estiver registado. */
+    public static String nomeDe(int id) {
+        return valido(id) ? NOMES[id] : null;
+    }
+
+    /**
+     * Devolve o id do campo com este nome no payload dado, ou DESCONHECIDO.
+     * Os nomes repetem-se entre payloads (ex: idMissao), por isso a procura
+     * fica na gama de ids desse tipo de payload.
+     */
+    public static short idDe(Class<? extends PayloadUDP> tipoPayload, String nome) {
+        if (nome == null) return DESCONHECIDO;
+        int inicio;
+        int fim;
+        if (tipoPayload == PayloadMissao.class) {
+            inicio = MISSAO_ID_MISSAO;
+            fim = PROGRESSO_ID_MISSAO;
+        } else if (tipoPayload == PayloadProgresso.class) {
+            inicio = PROGRESSO_ID_MISSAO;
+            fim = ACK_MISSING_COUNT;
+        } else if (tipoPayload == PayloadAck.class) {
+            inicio = ACK_MISSING_COUNT;
+            fim = ERRO_ID_MISSAO;
+        } else if (tipoPayload == PayloadErro.class) {
+            inicio = ERRO_ID_MISSAO;
+            fim = MAX_ID;
+        } else {
+            return DESCONHECIDO;
+        }
+        for (int id = inicio; id < fim; id++) {
+            if (nome.equals(NOMES[id])) return (short) id;
+        }
+        return DESCONHECIDO;
+    }
+}
@@ -6,9 +6,8 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 
 
@@ -16,11 +15,11 @@ import java.util.Map;
  * Módulo unificado de serialização/desserialização para mensagens UDP.
  * 
  * Combina:
- * - Serialização de payloads em campos identificados
+ * - Serialização de payloads em campos identificados por id numérico
  * - Fragmentação de campos grandes em múltiplas partes
  * - Empacotamento de campos em FragmentoPayloads otimizados
  * - Agregação e reconstrução de campos fragmentados
- * - Serialização/deserialização de MensagemUDP para bytes
+ * - Serialização/deserialização de MensagemUDP para bytes (Java ou binário)
  * 
  * Instanciar para manter estado de agregação de fragmentos.
  */
@@ -31,24 +30,22 @@ public class SerializadorUDP {
     
     // ==================== ESTADO DE INSTÂNCIA (para agregação) ====================
     
-    /** Mapa de campos por nome (suporta campos fragmentados) */
-    private final Map<String, List<CampoSerializado>> camposPorNome;
+    /** Buffer de reconstrução de cada campo, indexado pelo id (ver RegistoCampos) */
+    private final BufferReconstrucao[] buffers;
     
-    /** Lista de nomes de campos esperados para PayloadMissao */
-    private static final String[] CAMPOS_MISSAO = {
-        "idMissao", "x1", "y1", "x2", "y2", "tarefa",
-        "duracaoMissao", "intervaloAtualizacao", "inicioMissao", "prioridade"
-    };
+    /** Bit id ligado para cada campo com pelo menos uma parte recebida */
+    private long camposPresentes;
     
-    /** Lista de nomes de campos esperados para PayloadProgresso */
-    private static final String[] CAMPOS_PROGRESSO = {
-        "idMissao", "tempoDecorrido", "progressoPercentagem"
-    };
+    /** Bit id ligado para cada campo com todas as partes recebidas */
+    private long camposCompletos;
+    
+    private static final long MASCARA_MISSAO = mascaraDe(RegistoCampos.CAMPOS_MISSAO);
+    private static final long MASCARA_PROGRESSO = mascaraDe(RegistoCampos.CAMPOS_PROGRESSO);
     
     // ==================== CONSTRUTORES ====================
     
     public SerializadorUDP() {
-        this.camposPorNome = new HashMap<>();
+        this.buffers = new BufferReconstrucao[RegistoCampos.MAX_ID];
     }
     
     // ==================== SERIALIZAÇÃO DE PAYLOADS (ESTÁTICO) ====================
@@ -58,7 +55,7 @@ public class SerializadorUDP {
      * Delega a serialização para cada tipo de payload.
      * 
      * @param payload Payload a serializar
-     * @return Lista de campos serializados com nomes
+     * @return Lista de campos serializados com ids
      */
     public static List<CampoSerializado> serializarPayload(Payload payload) {
         if (payload instanceof PayloadUDP) {
@@ -101,10 +98,11 @@ public class SerializadorUDP {
     
     /**
      * Empacota campos identificados em FragmentoPayloads.
+     * Campos maiores que o fragmento são primeiro divididos em partes;
+     * o empacotamento em si é feito pelo EmpacotadorFragmentos.
      */
     public static List<FragmentoPayload> empacotarCampos(List<CampoSerializado> campos, int tamanhoMaximo) {
-        List<FragmentoPayload> fragmentos = new ArrayList<>();
-        List<CampoSerializado> camposProcessados = new ArrayList<>();
+        List<CampoSerializado> camposProcessados = new ArrayList<>(campos.size());
         
         // 1) Fragmentar campos grandes
         for (CampoSerializado campo : campos) {
@@ -116,58 +114,8 @@ public class SerializadorUDP {
             }
         }
         
-        // 2) Empacotar campos em fragmentos (otimizando espaço)
-        List<CampoSerializado> camposPendentes = new ArrayList<>(camposProcessados);
-        FragmentoPayload fragmentoAtual = new FragmentoPayload();
-        int tamanhoAtual = 0;
-        
-        while (!camposPendentes.isEmpty()) {
-            boolean encontrouCampo = false;
-            CampoSerializado melhorCampo = null;
-            int melhorIndice = -1;
-            int melhorDesperdicio = Integer.MAX_VALUE;
-            
-            // Procurar o campo que melhor aproveita o espaço restante (best-fit)
-            int espacoRestante = tamanhoMaximo - tamanhoAtual;
-            for (int i = 0; i < camposPendentes.size(); i++) {
-                CampoSerializado campo = camposPendentes.get(i);
-                int tamanhoCampo = campo.tamanhoSerializado();
-                if (tamanhoCampo <= espacoRestante) {
-                    int desperdicio = espacoRestante - tamanhoCampo;
-                    if (desperdicio < melhorDesperdicio) {
-                        melhorDesperdicio = desperdicio;
-                        melhorCampo = campo;
-                        melhorIndice = i;
-                        encontrouCampo = true;
-                    }
-                }
-            }
-            if (encontrouCampo) {
-                // Adicionar o melhor campo encontrado ao fragmento atual
-                fragmentoAtual.adicionarCampo(melhorCampo);
-                tamanhoAtual += melhorCampo.tamanhoSerializado();
-                camposPendentes.remove(melhorIndice);
-            } else {
-                // Nenhum campo cabe: fechar fragmento atual e começar novo
-                if (fragmentoAtual.temDados()) {
-                    fragmentos.add(fragmentoAtual);
-                }
-                fragmentoAtual = new FragmentoPayload();
-                tamanhoAtual = 0;
-                // Adicionar o primeiro campo pendente ao novo fragmento
-                if (!camposPendentes.isEmpty()) {
-                    CampoSerializado campo = camposPendentes.remove(0);
-                    fragmentoAtual.adicionarCampo(campo);
-                    tamanhoAtual += campo.tamanhoSerializado();
-                }
-            }
-        }
-
-        if (fragmentoAtual.temDados()) {
-            fragmentos.add(fragmentoAtual);
-        }
-
-        return fragmentos;
+        // 2) Empacotar campos em fragmentos (best-fit decreasing, O(n log n))
+        return EmpacotadorFragmentos.empacotar(camposProcessados, tamanhoMaximo);
     }
     
     /**
@@ -177,8 +125,7 @@ public class SerializadorUDP {
         List<CampoSerializado> partes = new ArrayList<>();
         byte[] dados = campo.dados;
         
-        int overheadPorParte = 2 + campo.nome.length() + 4 + 2 + 2;
-        int tamanhoUtilPorParte = tamanhoMaximo - overheadPorParte;
+        int tamanhoUtilPorParte = tamanhoMaximo - CampoSerializado.OVERHEAD;
         
         if (tamanhoUtilPorParte <= 0) {
             tamanhoUtilPorParte = tamanhoMaximo / 2;
@@ -194,7 +141,7 @@ public class SerializadorUDP {
             byte[] parteDados = new byte[tamanho];
             System.arraycopy(dados, inicio, parteDados, 0, tamanho);
             
-            partes.add(new CampoSerializado(campo.nome, parteDados, i, totalPartes));
+            partes.add(campo.parte(parteDados, i, totalPartes));
         }
         
         return partes;
@@ -213,11 +160,25 @@ public class SerializadorUDP {
         return baos.toByteArray();
     }
     
+    /**
+     * Serializa uma MensagemUDP para bytes no formato indicado.
+     */
+    public byte[] serializarMensagem(MensagemUDP msg, FormatoWire formato) throws IOException {
+        if (formato == FormatoWire.BINARIO) {
+            return CodecBinarioUDP.codificar(msg);
+        }
+        return serializarObjeto(msg);
+    }
+    
     /**
      * Deserializa bytes para MensagemUDP.
+     * Deteta automaticamente o formato (binário ou serialização Java).
      */
     public static MensagemUDP deserializarMensagem(byte[] dados, int length) {
         try {
+            if (CodecBinarioUDP.ehBinario(dados, length)) {
+                return CodecBinarioUDP.descodificar(dados, length);
+            }
             ByteArrayInputStream bais = new ByteArrayInputStream(dados, 0, length);
             ObjectInputStream ois = new ObjectInputStream(bais);
             return (MensagemUDP) ois.readObject();
@@ -226,6 +187,24 @@ public class SerializadorUDP {
         }
     }
     
+    /**
+     * Deserializa a mensagem entre a posição e o limite do buffer.
+     * No formato binário lê diretamente do buffer (que pode ser direto);
+     * no formato Java copia os bytes primeiro.
+     */
+    public static MensagemUDP deserializarMensagem(ByteBuffer buf) {
+        try {
+            if (CodecBinarioUDP.ehBinario(buf)) {
+                return CodecBinarioUDP.descodificar(buf);
+            }
+            byte[] dados = new byte[buf.remaining()];
+            buf.get(dados);
+            return deserializarMensagem(dados, dados.length);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
     /**
      * Calcula o tamanho total dos campos serializados.
      */
@@ -241,14 +220,24 @@ public class SerializadorUDP {
     
     /**
      * Agrega campos de um FragmentoPayload.
+     * Cada parte é escrita diretamente no seu offset do buffer do campo.
      */
     public void agregarCampos(FragmentoPayload fragmento) {
         if (fragmento == null || fragmento.campos == null) return;
         
         for (CampoSerializado campo : fragmento.campos) {
-            camposPorNome
-                .computeIfAbsent(campo.nome, k -> new ArrayList<>())
-                .add(campo);
+            if (!RegistoCampos.valido(campo.id)) {
+                continue; // campo sem registo: não há onde o reconstruir
+            }
+            BufferReconstrucao buffer = buffers[campo.id];
+            if (buffer == null) {
+                buffer = new BufferReconstrucao(campo.totalPartes);
+                buffers[campo.id] = buffer;
+                camposPresentes |= 1L << campo.id;
+            }
+            if (buffer.adicionar(campo) && buffer.completo()) {
+                camposCompletos |= 1L << campo.id;
+            }
         }
     }
     
@@ -256,48 +245,35 @@ public class SerializadorUDP {
      * Limpa todos os campos agregados.
      */
     public void limpar() {
-        camposPorNome.clear();
+        Arrays.fill(buffers, null);
+        camposPresentes = 0;
+        camposCompletos = 0;
     }
     
     // ==================== VERIFICAÇÃO DE COMPLETUDE (INSTÂNCIA) ====================
     
     public boolean missaoCompleta() {
-        return camposCompletos(CAMPOS_MISSAO);
+        return (camposCompletos & MASCARA_MISSAO) == MASCARA_MISSAO;
     }
     
     public boolean progressoCompleto() {
-        return camposCompletos(CAMPOS_PROGRESSO);
+        return (camposCompletos & MASCARA_PROGRESSO) == MASCARA_PROGRESSO;
     }
     
-    private boolean camposCompletos(String[] nomesCampos) {
-        for (String nome : nomesCampos) {
-            if (!campoCompleto(nome)) {
-                return false;
-            }
-        }
-        return true;
+    public boolean temCampo(short id) {
+        return RegistoCampos.valido(id) && (camposPresentes & (1L << id)) != 0;
     }
     
-    private boolean campoCompleto(String nomeCampo) {
-        List<CampoSerializado> partes = camposPorNome.get(nomeCampo);
-        if (partes == null || partes.isEmpty()) {
-            return false;
-        }
-        
-        if (partes.size() == 1 && !partes.get(0).isFragmentado()) {
-            return true;
-        }
-        
-        int totalEsperado = partes.get(0).totalPartes;
-        return partes.size() == totalEsperado;
-    }
-    
-    public boolean temCampo(String nome) {
-        return camposPorNome.containsKey(nome) && !camposPorNome.get(nome).isEmpty();
+    public int numeroCampos() {
+        return Long.bitCount(camposPresentes);
     }
     
-    public int numeroCampos() {
-        return camposPorNome.size();
+    private static long mascaraDe(short[] ids) {
+        long mascara = 0;
+        for (short id : ids) {
+            mascara |= 1L << id;
+        }
+        return mascara;
     }
     
     // ==================== RECONSTRUÇÃO DE PAYLOADS (INSTÂNCIA) ====================
@@ -308,16 +284,17 @@ public class SerializadorUDP {
     public PayloadMissao reconstruirMissao() {
         PayloadMissao p = new PayloadMissao();
         
-        p.idMissao = lerInt("idMissao");
-        p.x1 = lerFloat("x1");
-        p.y1 = lerFloat("y1");
-        p.x2 = lerFloat("x2");
-        p.y2 = lerFloat("y2");
-        p.tarefa = lerString("tarefa");
-        p.duracaoMissao = lerLong("duracaoMissao");
-        p.intervaloAtualizacao = lerLong("intervaloAtualizacao");
-        p.inicioMissao = lerLong("inicioMissao");
-        p.prioridade = lerInt("prioridade");
+        p.idMissao = lerInt(RegistoCampos.MISSAO_ID_MISSAO);
+        p.x1 = lerFloat(RegistoCampos.MISSAO_X1);
+        p.y1 = lerFloat(RegistoCampos.MISSAO_Y1);
+        p.x2 = lerFloat(RegistoCampos.MISSAO_X2);
+        p.y2 = lerFloat(RegistoCampos.MISSAO_Y2);
+        p.tarefa = lerString(RegistoCampos.MISSAO_TAREFA);
+        p.duracaoMissao = lerLong(RegistoCampos.MISSAO_DURACAO);
+        p.intervaloAtualizacao = lerLong(RegistoCampos.MISSAO_INTERVALO);
+        p.inicioMissao = lerLong(RegistoCampos.MISSAO_INICIO);
+        p.prioridade = lerInt(RegistoCampos.MISSAO_PRIORIDADE);
+        p.progressoInicial = lerFloat(RegistoCampos.MISSAO_PROGRESSO);
         
         return p;
     }
@@ -328,9 +305,9 @@ public class SerializadorUDP {
     public PayloadProgresso reconstruirProgresso() {
         PayloadProgresso p = new PayloadProgresso();
         
-        p.idMissao = lerInt("idMissao");
-        p.tempoDecorrido = lerLong("tempoDecorrido");
-        p.progressoPercentagem = lerFloat("progressoPercentagem");
+        p.idMissao = lerInt(RegistoCampos.PROGRESSO_ID_MISSAO);
+        p.tempoDecorrido = lerLong(RegistoCampos.PROGRESSO_TEMPO_DECORRIDO);
+        p.progressoPercentagem = lerFloat(RegistoCampos.PROGRESSO_PERCENTAGEM);
         
         return p;
     }
@@ -338,63 +315,46 @@ public class SerializadorUDP {
     // ==================== LEITURA DE CAMPOS (INSTÂNCIA) ====================
     
     /**
-     * Reconstrói os bytes de um campo a partir das suas partes.
+     * Devolve uma vista sobre os bytes reconstruídos de um campo (sem cópia).
      */
-    private byte[] reconstruirBytes(String nomeCampo) {
-        List<CampoSerializado> partes = camposPorNome.get(nomeCampo);
-        if (partes == null || partes.isEmpty()) {
-            throw new IllegalStateException("Campo não encontrado: " + nomeCampo);
+    private ByteBuffer lerBytes(short idCampo) {
+        BufferReconstrucao buffer = buffers[idCampo];
+        if (buffer == null) {
+            throw new IllegalStateException("Campo não encontrado: " + RegistoCampos.nomeDe(idCampo));
         }
-        
-        if (partes.size() == 1 && !partes.get(0).isFragmentado()) {
-            return partes.get(0).dados;
-        }
-        
-        partes.sort((a, b) -> Integer.compare(a.indiceParte, b.indiceParte));
-        
-        int totalEsperado = partes.get(0).totalPartes;
-        if (partes.size() != totalEsperado) {
-            throw new IllegalStateException("Campo " + nomeCampo + " incompleto: " + 
-                                          partes.size() + "/" + totalEsperado + " partes");
-        }
-        
-        int tamanhoTotal = 0;
-        for (CampoSerializado p : partes) {
-            tamanhoTotal += p.dados.length;
+        if (!buffer.completo()) {
+            throw new IllegalStateException("Campo " + RegistoCampos.nomeDe(idCampo) + " incompleto: " + 
+                                          buffer.partesRecebidas() + "/" + buffer.totalPartes() + " partes");
         }
-        
-        byte[] resultado = new byte[tamanhoTotal];
-        int pos = 0;
-        for (CampoSerializado p : partes) {
-            System.arraycopy(p.dados, 0, resultado, pos, p.dados.length);
-            pos += p.dados.length;
-        }
-        
-        return resultado;
+        return buffer.vista();
     }
     
-    private int lerInt(String nome) {
-        byte[] dados = reconstruirBytes(nome);
-        return ByteBuffer.wrap(dados).getInt();
+    private int lerInt(short id) {
+        return lerBytes(id).getInt();
     }
     
-    private float lerFloat(String nome) {
-        byte[] dados = reconstruirBytes(nome);
-        return ByteBuffer.wrap(dados).getFloat();
+    private float lerFloat(short id) {
+        return lerBytes(id).getFloat();
     }
     
-    private long lerLong(String nome) {
-        byte[] dados = reconstruirBytes(nome);
-        return ByteBuffer.wrap(dados).getLong();
+    private long lerLong(short id) {
+        return lerBytes(id).getLong();
     }
     
-    private String lerString(String nome) {
-        byte[] dados = reconstruirBytes(nome);
-        ByteBuffer buf = ByteBuffer.wrap(dados);
-        int len = buf.getInt();
-        if (len <= 0) return "";
-        byte[] strBytes = new byte[len];
-        buf.get(strBytes);
-        return new String(strBytes, StandardCharsets.UTF_8);
+    /**
+     * O comprimento vem do datagrama: um valor negativo ou maior do que os
+     * bytes do campo recusa o payload (em vez de sair daqui um
+     * IndexOutOfBoundsException).
+     */
+    private String lerString(short id) {
+        ByteBuffer buf = lerBytes(id);
+        int len = buf.remaining() >= Integer.BYTES ? buf.getInt() : -1;
+        if (len < 0 || len > buf.remaining()) {
+            throw new IllegalStateException("Campo " + RegistoCampos.nomeDe(id) + " com comprimento inválido: " + 
+                                          len + " (" + buf.remaining() + " bytes)");
+        }
+        if (len == 0) return "";
+        // Descodifica diretamente do array do buffer
+        return new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,169 @@
+package lib.mensagens;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import lib.TipoMensagem;
+import lib.mensagens.payloads.PayloadAck;
+
+/**
+ * Vista de leitura (flyweight) sobre um datagrama binário MissionLink.
+ *
+ * Não cria objetos: envolver() valida o cabeçalho e cada getter lê o campo
+ * diretamente do buffer (pode ser direto, de um pool), por offset. O rover
+ * lê assim os ACKs recebidos, em que descodificar para MensagemUDP criaria
+ * cabeçalho, Time, payload e arrays por datagrama. Os PROGRESS recebidos
+ * pela nave ainda são descodificados para MensagemUDP (ver EntradaUDP).
+ *
+ * A mesma instância é reutilizada para todos os datagramas de uma thread;
+ * só é válida enquanto o buffer envolvido não for reutilizado. Os getters
+ * do payload só fazem sentido para o tipoPayload correspondente.
+ */
+public final class VistaMensagemUDP {
+
+    // Offsets a partir do início do payload
+    private static final int OFF_PROGRESSO_MISSAO = 0;
+    private static final int OFF_PROGRESSO_TEMPO = 4;
+    private static final int OFF_PROGRESSO_PERCENTAGEM = 12;
+    private static final int TAMANHO_PROGRESSO = 16;
+    private static final int OFF_ACK_MISSING = 0;
+    private static final int OFF_ACK_INTERVALOS = 4;
+    private static final int OFF_ACK_PARES = 8;
+
+    private ByteBuffer buf;
+    private int base;    // início do datagrama no buffer
+    private int payload; // início do payload no buffer
+
+    /**
+     * Envolve o datagrama entre a posição e o limite do buffer (a posição não muda).
+     * @return false se não for um datagrama binário válido (ex: serialização Java)
+     */
+    public boolean envolver(ByteBuffer buf) {
+        this.buf = null;
+        int p = buf.position();
+        int restante = buf.remaining();
+        if (restante < CodecBinarioUDP.TAMANHO_CABECALHO
+                || buf.get(p) != CodecBinarioUDP.MAGIA_0 || buf.get(p + 1) != CodecBinarioUDP.MAGIA_1
+                || buf.get(p + CodecBinarioUDP.OFF_VERSAO) != CodecBinarioUDP.VERSAO
+                || TipoMensagem.deValor(buf.get(p + CodecBinarioUDP.OFF_TIPO)) == null) {
+            return false;
+        }
+
+        // Os payloads lidos por offset têm de caber no datagrama
+        int tamanhoPayload = restante - CodecBinarioUDP.TAMANHO_CABECALHO;
+        int inicioPayload = p + CodecBinarioUDP.TAMANHO_CABECALHO;
+        switch (buf.get(p + CodecBinarioUDP.OFF_TIPO_PAYLOAD)) {
+            case CodecBinarioUDP.PAYLOAD_PROGRESSO:
+                if (tamanhoPayload < TAMANHO_PROGRESSO) return false;
+                break;
+            case CodecBinarioUDP.PAYLOAD_ACK:
+                if (tamanhoPayload < OFF_ACK_PARES) return false;
+                int n = buf.getInt(inicioPayload + OFF_ACK_INTERVALOS);
+                if (n < 0 || n > PayloadAck.MAX_INTERVALOS || tamanhoPayload < OFF_ACK_PARES + 8 * n + 1 + 4) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+        }
+
+        this.buf = buf;
+        this.base = p;
+        this.payload = inicioPayload;
+        return true;
+    }
+
+    // ==================== CABEÇALHO ====================
+
+    public TipoMensagem tipo() {
+        return TipoMensagem.deValor(buf.get(base + CodecBinarioUDP.OFF_TIPO));
+    }
+
+    public int idEmissor() {
+        return buf.getInt(base + CodecBinarioUDP.OFF_EMISSOR);
+    }
+
+    public int idRecetor() {
+        return buf.getInt(base + CodecBinarioUDP.OFF_RECETOR);
+    }
+
+    public int idMissao() {
+        return buf.getInt(base + CodecBinarioUDP.OFF_MISSAO);
+    }
+
+    public long timestamp() {
+        return buf.getLong(base + CodecBinarioUDP.OFF_TIMESTAMP);
+    }
+
+    public int seq() {
+        return buf.getInt(base + CodecBinarioUDP.OFF_SEQ);
+    }
+
+    public int totalFragm() {
+        return buf.getInt(base + CodecBinarioUDP.OFF_TOTAL_FRAGM);
+    }
+
+    public boolean flagSucesso() {
+        return (buf.get(base + CodecBinarioUDP.OFF_FLAGS) & 0x01) != 0;
+    }
+
+    /** @return tipo do payload (CodecBinarioUDP.PAYLOAD_*) */
+    public byte tipoPayload() {
+        return buf.get(base + CodecBinarioUDP.OFF_TIPO_PAYLOAD);
+    }
+
+    // ==================== PROGRESS ====================
+
+    public int progressoIdMissao() {
+        return buf.getInt(payload + OFF_PROGRESSO_MISSAO);
+    }
+
+    public long progressoTempoDecorrido() {
+        return buf.getLong(payload + OFF_PROGRESSO_TEMPO);
+    }
+
+    public float progressoPercentagem() {
+        return buf.getFloat(payload + OFF_PROGRESSO_PERCENTAGEM);
+    }
+
+    // ==================== ACK ====================
+
+    public int ackMissingCount() {
+        return buf.getInt(payload + OFF_ACK_MISSING);
+    }
+
+    /** @return número de pares [início, fim] listados */
+    public int ackNumeroIntervalos() {
+        return buf.getInt(payload + OFF_ACK_INTERVALOS);
+    }
+
+    public int ackInicio(int i) {
+        return buf.getInt(payload + OFF_ACK_PARES + 8 * i);
+    }
+
+    public int ackFim(int i) {
+        return buf.getInt(payload + OFF_ACK_PARES + 8 * i + 4);
+    }
+
+    public boolean ackFinal() {
+        return buf.get(payload + OFF_ACK_PARES + 8 * ackNumeroIntervalos()) != 0;
+    }
+
+    public int ackRecuperados() {
+        return buf.getInt(payload + OFF_ACK_PARES + 8 * ackNumeroIntervalos() + 1);
+    }
+
+    /**
+     * Seqs em falta listados no ACK, recortados à gama [minimo, maximo].
+     * Cria o conjunto: só para quando há perdas.
+     * @throws IllegalArgumentException se os intervalos forem inválidos
+     */
+    public BitSet ackEmFalta(int minimo, int maximo) {
+        int[] pares = new int[2 * ackNumeroIntervalos()];
+        for (int i = 0; i < pares.length / 2; i++) {
+            pares[2 * i] = ackInicio(i);
+            pares[2 * i + 1] = ackFim(i);
+        }
+        return IntervalosSeq.descodificar(pares, minimo, maximo);
+    }
+}
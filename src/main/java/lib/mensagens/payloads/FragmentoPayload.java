@@ -9,7 +9,7 @@ import lib.mensagens.CampoSerializado;
  * Container para fragmentos de dados com campos identificados.
  * 
  * Cada fragmento transporta uma lista de CampoSerializado, permitindo:
- * - Identificar campos pelo nome
+ * - Identificar campos pelo id numérico
  * - Fragmentar campos grandes em múltiplas partes
  * - Reconstruir independentemente da ordem de chegada
  * 
@@ -39,8 +39,8 @@ public class FragmentoPayload implements Payload {
     }
     
     /** Adiciona um campo completo (não fragmentado) */
-    public void adicionarCampo(String nome, byte[] dados) {
-        adicionarCampo(new CampoSerializado(nome, dados));
+    public void adicionarCampo(short id, byte[] dados) {
+        adicionarCampo(new CampoSerializado(id, dados));
     }
     
     /** @return true se o fragmento contém campos */
@@ -3,42 +3,77 @@ package lib.mensagens.payloads;
 import java.util.Arrays;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import lib.mensagens.CampoSerializado;
+import lib.mensagens.IntervalosSeq;
+import lib.mensagens.RegistoCampos;
 
 /**
  * Payload do ACK UDP.
+ *
+ * Os seqs em falta seguem em intervalos [início, fim] (ver IntervalosSeq),
+ * no máximo MAX_INTERVALOS pares. Se houver mais rajadas de perdas, seguem
+ * as de seq mais baixo e missingCount indica o total; as restantes são
+ * pedidas no ACK seguinte.
  */
 public class PayloadAck extends PayloadUDP {
 
-    public int missingCount;
-    public int[] missing; // indice de fragmentos em falta
+    /** Limite de pares por ACK (512 bytes de intervalos no pior caso) */
+    public static final int MAX_INTERVALOS = 64;
+
+    public int missingCount; // total de seqs em falta (pode exceder os listados)
+    public int[] intervalos; // pares [início, fim] dos seqs em falta
     public boolean finalAck; // Flag indicando que este é o ACK final (para COMPLETED/ERROR)
+    public int recuperados; // fragmentos reconstruídos por paridade (FEC), para estimar a perda real
 
     public PayloadAck() {
-        this.missing = new int[0];
+        this.intervalos = new int[0];
         this.finalAck = false;
     }
 
+    /**
+     * Define os seqs em falta a partir do conjunto (bit ativo = seq em falta).
+     */
+    public void definirEmFalta(BitSet emFalta) {
+        this.missingCount = emFalta != null ? emFalta.cardinality() : 0;
+        this.intervalos = IntervalosSeq.codificar(emFalta, MAX_INTERVALOS);
+    }
+
+    /**
+     * @return conjunto dos seqs em falta listados neste ACK, só os da gama
+     *         [minimo, maximo] (os seqs que a sessão conhece)
+     */
+    public BitSet emFalta(int minimo, int maximo) {
+        return IntervalosSeq.descodificar(intervalos, minimo, maximo);
+    }
+
+    /**
+     * @return número de seqs em falta listados (≤ missingCount)
+     */
+    public int listados() {
+        return IntervalosSeq.contar(intervalos);
+    }
+
     @Override
     public String toString() {
-        return String.format("Ack{missingCount=%d, missing=%s}", missingCount, Arrays.toString(missing));
+        return String.format("Ack{missingCount=%d, intervalos=%s}", missingCount, Arrays.toString(intervalos));
     }
 
     @Override
     public List<CampoSerializado> serializarCampos() {
         List<CampoSerializado> campos = new ArrayList<>();
 
-        campos.add(new CampoSerializado("missingCount", ByteBuffer.allocate(4).putInt(missingCount).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ACK_MISSING_COUNT, ByteBuffer.allocate(4).putInt(missingCount).array()));
 
-        int[] arr = missing != null ? missing : new int[0];
+        int[] arr = intervalos != null ? intervalos : new int[0];
         ByteBuffer buf = ByteBuffer.allocate(4 + arr.length * 4);
-        buf.putInt(arr.length);
-        for (int seq : arr) {
-            buf.putInt(seq);
+        buf.putInt(arr.length / 2);
+        for (int limite : arr) {
+            buf.putInt(limite);
         }
-        campos.add(new CampoSerializado("missing", buf.array()));
+        campos.add(new CampoSerializado(RegistoCampos.ACK_MISSING, buf.array()));
 
         return campos;
     }
@@ -6,6 +6,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 import lib.mensagens.CampoSerializado;
+import lib.mensagens.RegistoCampos;
 
 /**
  * Payload para mensagens de erro UDP.
@@ -74,20 +75,20 @@ public class PayloadErro extends PayloadUDP {
     public List<CampoSerializado> serializarCampos() {
         List<CampoSerializado> campos = new ArrayList<>();
 
-        campos.add(new CampoSerializado("idMissao", ByteBuffer.allocate(4).putInt(idMissao).array()));
-        campos.add(new CampoSerializado("codigoErro", ByteBuffer.allocate(4).putInt(codigoErro).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_ID_MISSAO, ByteBuffer.allocate(4).putInt(idMissao).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_CODIGO, ByteBuffer.allocate(4).putInt(codigoErro).array()));
 
         byte[] descBytes = descricao != null ? descricao.getBytes(StandardCharsets.UTF_8) : new byte[0];
         ByteBuffer descBuf = ByteBuffer.allocate(4 + descBytes.length);
         descBuf.putInt(descBytes.length);
         descBuf.put(descBytes);
-        campos.add(new CampoSerializado("descricao", descBuf.array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_DESCRICAO, descBuf.array()));
 
-        campos.add(new CampoSerializado("progressoAtual", ByteBuffer.allocate(4).putFloat(progressoAtual).array()));
-        campos.add(new CampoSerializado("bateria", ByteBuffer.allocate(4).putFloat(bateria).array()));
-        campos.add(new CampoSerializado("posicaoX", ByteBuffer.allocate(4).putFloat(posicaoX).array()));
-        campos.add(new CampoSerializado("posicaoY", ByteBuffer.allocate(4).putFloat(posicaoY).array()));
-        campos.add(new CampoSerializado("timestampErro", ByteBuffer.allocate(8).putLong(timestampErro).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_PROGRESSO, ByteBuffer.allocate(4).putFloat(progressoAtual).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_BATERIA, ByteBuffer.allocate(4).putFloat(bateria).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_POSICAO_X, ByteBuffer.allocate(4).putFloat(posicaoX).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_POSICAO_Y, ByteBuffer.allocate(4).putFloat(posicaoY).array()));
+        campos.add(new CampoSerializado(RegistoCampos.ERRO_TIMESTAMP, ByteBuffer.allocate(8).putLong(timestampErro).array()));
 
         return campos;
     }
@@ -6,6 +6,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import lib.mensagens.CampoSerializado;
+import lib.mensagens.RegistoCampos;
 
 /**
  * Payload da missão UDP.
@@ -20,35 +21,37 @@ public class PayloadMissao extends PayloadUDP {
     public long intervaloAtualizacao;   // intervalo de atualização em segundos
     public long inicioMissao;           // instante de início em segundos (epoch) 
     public int prioridade; // 1-5.  //implementar isto no gestaoestado, escolher primeiro missoes prioritarias ou apagar isto
+    public float progressoInicial;      // progresso (%) já feito noutro rover (missão interrompida e retomada)
 
     @Override
     public List<CampoSerializado> serializarCampos() {
         List<CampoSerializado> campos = new ArrayList<>();
         
-        campos.add(new CampoSerializado("idMissao", ByteBuffer.allocate(4).putInt(idMissao).array()));
-        campos.add(new CampoSerializado("x1", ByteBuffer.allocate(4).putFloat(x1).array()));
-        campos.add(new CampoSerializado("y1", ByteBuffer.allocate(4).putFloat(y1).array()));
-        campos.add(new CampoSerializado("x2", ByteBuffer.allocate(4).putFloat(x2).array()));
-        campos.add(new CampoSerializado("y2", ByteBuffer.allocate(4).putFloat(y2).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_ID_MISSAO, ByteBuffer.allocate(4).putInt(idMissao).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_X1, ByteBuffer.allocate(4).putFloat(x1).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_Y1, ByteBuffer.allocate(4).putFloat(y1).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_X2, ByteBuffer.allocate(4).putFloat(x2).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_Y2, ByteBuffer.allocate(4).putFloat(y2).array()));
         
         byte[] tarefaBytes = (tarefa == null) ? new byte[0] : tarefa.getBytes(StandardCharsets.UTF_8);
         ByteBuffer tarefaBuf = ByteBuffer.allocate(4 + tarefaBytes.length);
         tarefaBuf.putInt(tarefaBytes.length);
         tarefaBuf.put(tarefaBytes);
-        campos.add(new CampoSerializado("tarefa", tarefaBuf.array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_TAREFA, tarefaBuf.array()));
         
-        campos.add(new CampoSerializado("duracaoMissao", ByteBuffer.allocate(8).putLong(duracaoMissao).array()));
-        campos.add(new CampoSerializado("intervaloAtualizacao", ByteBuffer.allocate(8).putLong(intervaloAtualizacao).array()));
-        campos.add(new CampoSerializado("inicioMissao", ByteBuffer.allocate(8).putLong(inicioMissao).array()));
-        campos.add(new CampoSerializado("prioridade", ByteBuffer.allocate(4).putInt(prioridade).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_DURACAO, ByteBuffer.allocate(8).putLong(duracaoMissao).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_INTERVALO, ByteBuffer.allocate(8).putLong(intervaloAtualizacao).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_INICIO, ByteBuffer.allocate(8).putLong(inicioMissao).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_PRIORIDADE, ByteBuffer.allocate(4).putInt(prioridade).array()));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_PROGRESSO, ByteBuffer.allocate(4).putFloat(progressoInicial).array()));
         
         return campos;
     }
 
     @Override
     public String toString() {
-        return String.format("Missao{id=%d, area=(%.2f,%.2f)-(%.2f,%.2f), tarefa=%s, dur=%ds, int=%ds, prio=%d}",
+        return String.format("Missao{id=%d, area=(%.2f,%.2f)-(%.2f,%.2f), tarefa=%s, dur=%ds, int=%ds, prio=%d, inicial=%.1f%%}",
             idMissao, x1, y1, x2, y2, tarefa, duracaoMissao,
-            intervaloAtualizacao, prioridade);
+            intervaloAtualizacao, prioridade, progressoInicial);
     }
 }
\ No newline at end of file
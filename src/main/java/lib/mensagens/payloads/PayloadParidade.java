@@ -0,0 +1,51 @@
+package lib.mensagens.payloads;
+
+/**
+ * Fragmento de paridade (FEC) de um grupo de fragmentos MISSION.
+ *
+ * Contém o XOR dos datagramas codificados do grupo (com zeros à direita até
+ * ao maior) e o XOR dos seus comprimentos. Se faltar exatamente um
+ * datagrama do grupo, o rover reconstrói-o localmente sem pedir
+ * retransmissão (ver lib.mensagens.CodigoParidade).
+ *
+ * Vai numa mensagem MSG_MISSION com seq acima da gama de dados
+ * (seq > totalFragm + 1).
+ */
+public class PayloadParidade implements Payload {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Seq do primeiro fragmento de dados do grupo */
+    public int seqInicial;
+
+    /** Número de fragmentos de dados do grupo (seqInicial .. seqInicial + tamanhoGrupo - 1) */
+    public int tamanhoGrupo;
+
+    /** XOR dos comprimentos dos datagramas do grupo */
+    public int xorComprimentos;
+
+    /** XOR dos datagramas do grupo */
+    public byte[] dados;
+
+    public PayloadParidade() {
+        this.dados = new byte[0];
+    }
+
+    public PayloadParidade(int seqInicial, int tamanhoGrupo, int xorComprimentos, byte[] dados) {
+        this.seqInicial = seqInicial;
+        this.tamanhoGrupo = tamanhoGrupo;
+        this.xorComprimentos = xorComprimentos;
+        this.dados = dados != null ? dados : new byte[0];
+    }
+
+    /** @return true se o seq de dados pertence a este grupo */
+    public boolean cobre(int seq) {
+        return seq >= seqInicial && seq < seqInicial + tamanhoGrupo;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Paridade{seqs=%d..%d, %d bytes}",
+                             seqInicial, seqInicial + tamanhoGrupo - 1, dados.length);
+    }
+}
@@ -5,6 +5,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import lib.mensagens.CampoSerializado;
+import lib.mensagens.RegistoCampos;
 
 /**
  * Payload do progresso UDP.
@@ -34,9 +35,9 @@ public class PayloadProgresso extends PayloadUDP {
     public List<CampoSerializado> serializarCampos() {
         List<CampoSerializado> campos = new ArrayList<>();
         
-        campos.add(new CampoSerializado("idMissao", ByteBuffer.allocate(4).putInt(idMissao).array()));
-        campos.add(new CampoSerializado("tempoDecorrido", ByteBuffer.allocate(8).putLong(tempoDecorrido).array()));
-        campos.add(new CampoSerializado("progressoPercentagem", ByteBuffer.allocate(4).putFloat(progressoPercentagem).array()));
+        campos.add(new CampoSerializado(RegistoCampos.PROGRESSO_ID_MISSAO, ByteBuffer.allocate(4).putInt(idMissao).array()));
+        campos.add(new CampoSerializado(RegistoCampos.PROGRESSO_TEMPO_DECORRIDO, ByteBuffer.allocate(8).putLong(tempoDecorrido).array()));
+        campos.add(new CampoSerializado(RegistoCampos.PROGRESSO_PERCENTAGEM, ByteBuffer.allocate(4).putFloat(progressoPercentagem).array()));
         
         return campos;
     }
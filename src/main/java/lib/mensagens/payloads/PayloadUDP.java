@@ -11,9 +11,9 @@ import java.util.List;
 public abstract class PayloadUDP implements Payload {
     
     /**
-     * Serializa os campos do payload em CampoSerializado com nome identificador.
+     * Serializa os campos do payload em CampoSerializado com id identificador.
      * Usado para fragmentação e reconstrução independente da ordem.
-     * @return Lista de campos serializados com nomes
+     * @return Lista de campos serializados com ids (ver RegistoCampos)
      */
     public abstract List<CampoSerializado> serializarCampos();
 }
\ No newline at end of file
@@ -0,0 +1,256 @@
+package nave;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lib.Missao;
+import lib.Rover;
+
+/**
+ * Atribuição em lote de missões pendentes a rovers disponíveis.
+ *
+ * Constrói uma matriz de custos (tempo de deslocação até à área da missão,
+ * prioridade da missão e fração da bateria que a missão gasta) e resolve-a
+ * com o método húngaro, minimizando o custo total da frota em vez de dar a
+ * cada missão, por ordem, o rover mais próximo que sobrou.
+ *
+ * Com frotas grandes (missões x rovers acima de MAX_CELULAS_EXATO) usa o
+ * modo incremental: lotes de missões por ordem de prioridade, cada um
+ * resolvido só com os rovers mais próximos de cada missão.
+ */
+public class AtribuidorMissoes {
+
+    // Custo de um par impossível (bateria insuficiente)
+    static final double INVIAVEL = 1e9;
+
+    // Cada nível de prioridade abaixo do máximo pesa como 10 min de deslocação:
+    // só decide quais missões ficam sem rover, não a que rover vai cada uma
+    private static final double PENALIZACAO_PRIORIDADE_S = 600.0;
+    private static final int PRIORIDADE_MAXIMA = 5;
+    // Gastar a bateria toda pesa como 60 s de deslocação
+    private static final double PESO_BATERIA_S = 60.0;
+
+    // Acima disto (missões x rovers) usa o modo incremental
+    public static final int MAX_CELULAS_EXATO = 250_000;
+    private static final int TAMANHO_LOTE = 128;
+    private static final int CANDIDATOS_POR_MISSAO = 8;
+    private static final float LADO_CELULA_GRELHA = 10.0f;
+
+    /** Par missão-rover escolhido. */
+    public static class Atribuicao {
+        public final Missao missao;
+        public final Rover rover;
+
+        public Atribuicao(Missao missao, Rover rover) {
+            this.missao = missao;
+            this.rover = rover;
+        }
+    }
+
+    private AtribuidorMissoes() {}
+
+    /**
+     * Atribui as missões (por ordem de prioridade) aos rovers, no modo exato
+     * ou incremental consoante o tamanho do problema. Cada rover e cada
+     * missão aparecem no máximo uma vez; pares inviáveis ficam de fora.
+     */
+    public static List<Atribuicao> atribuir(List<Missao> missoes, List<Rover> rovers) {
+        if ((long) missoes.size() * rovers.size() <= MAX_CELULAS_EXATO) {
+            return atribuirExato(missoes, rovers);
+        }
+        return atribuirIncremental(missoes, rovers);
+    }
+
+    /**
+     * Custo de dar a missão ao rover (em segundos equivalentes), ou INVIAVEL.
+     */
+    public static double custo(Rover rover, Missao missao) {
+        float necessaria = GestaoEstado.bateriaNecessaria(rover, missao);
+        if (rover.bateria < necessaria) {
+            return INVIAVEL;
+        }
+        int prioridade = Math.max(1, Math.min(PRIORIDADE_MAXIMA, missao.prioridade));
+        return GestaoEstado.tempoDeslocacao(rover, missao)
+               + PENALIZACAO_PRIORIDADE_S * (PRIORIDADE_MAXIMA - prioridade)
+               + PESO_BATERIA_S * necessaria / Math.max(rover.bateria, 1.0f);
+    }
+
+    /**
+     * Ótimo global: uma só matriz missões x rovers.
+     */
+    public static List<Atribuicao> atribuirExato(List<Missao> missoes, List<Rover> rovers) {
+        List<Atribuicao> resultado = new ArrayList<>();
+        if (missoes.isEmpty() || rovers.isEmpty()) {
+            return resultado;
+        }
+
+        // O método húngaro quer linhas <= colunas: as linhas são o lado menor
+        boolean linhasSaoMissoes = missoes.size() <= rovers.size();
+        int n = linhasSaoMissoes ? missoes.size() : rovers.size();
+        int m = linhasSaoMissoes ? rovers.size() : missoes.size();
+        double[][] custos = new double[n][m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                custos[i][j] = linhasSaoMissoes ? custo(rovers.get(j), missoes.get(i))
+                                                : custo(rovers.get(i), missoes.get(j));
+            }
+        }
+
+        int[] colunaDaLinha = hungaro(custos);
+        for (int i = 0; i < n; i++) {
+            int j = colunaDaLinha[i];
+            if (j < 0 || custos[i][j] >= INVIAVEL) {
+                continue;
+            }
+            Missao missao = linhasSaoMissoes ? missoes.get(i) : missoes.get(j);
+            Rover rover = linhasSaoMissoes ? rovers.get(j) : rovers.get(i);
+            resultado.add(new Atribuicao(missao, rover));
+        }
+        return resultado;
+    }
+
+    /**
+     * Modo incremental para frotas grandes: as missões são tratadas em lotes
+     * de TAMANHO_LOTE por ordem de prioridade, e cada lote só considera os
+     * CANDIDATOS_POR_MISSAO rovers viáveis mais próximos de cada missão
+     * (procurados numa grelha espacial). Os rovers atribuídos saem da
+     * grelha; as missões que perderam os seus candidatos para outras do
+     * mesmo lote passam para o lote seguinte.
+     */
+    public static List<Atribuicao> atribuirIncremental(List<Missao> missoes, List<Rover> rovers) {
+        List<Atribuicao> resultado = new ArrayList<>();
+        GrelhaRovers grelha = new GrelhaRovers(LADO_CELULA_GRELHA);
+        for (Rover rover : rovers) {
+            grelha.colocar(rover);
+        }
+
+        int proxima = 0;
+        List<Missao> adiadas = new ArrayList<>();
+        Set<Integer> vistos = new HashSet<>();
+        while (grelha.tamanho() > 0 && (proxima < missoes.size() || !adiadas.isEmpty())) {
+            List<Missao> lote = new ArrayList<>(adiadas);
+            adiadas.clear();
+            while (lote.size() < TAMANHO_LOTE && proxima < missoes.size()) {
+                lote.add(missoes.get(proxima++));
+            }
+
+            // Candidatos: os rovers viáveis mais próximos de cada missão do lote
+            Map<Integer, Rover> candidatos = new LinkedHashMap<>();
+            List<Missao> comCandidatos = new ArrayList<>();
+            for (Missao missao : lote) {
+                vistos.clear();
+                float x = GestaoEstado.centroX(missao);
+                float y = GestaoEstado.centroY(missao);
+                for (int k = 0; k < CANDIDATOS_POR_MISSAO; k++) {
+                    Rover rover = grelha.maisProximo(x, y, r -> !vistos.contains(r.idRover)
+                                                               && custo(r, missao) < INVIAVEL);
+                    if (rover == null) {
+                        break;
+                    }
+                    vistos.add(rover.idRover);
+                    candidatos.put(rover.idRover, rover);
+                }
+                if (!vistos.isEmpty()) {
+                    comCandidatos.add(missao); // sem nenhum rover viável fica de fora
+                }
+            }
+            if (comCandidatos.isEmpty()) {
+                continue;
+            }
+
+            List<Atribuicao> atribuidas = atribuirExato(comCandidatos, new ArrayList<>(candidatos.values()));
+            if (atribuidas.isEmpty()) {
+                break;
+            }
+            Set<Missao> feitas = new HashSet<>();
+            for (Atribuicao a : atribuidas) {
+                resultado.add(a);
+                feitas.add(a.missao);
+                grelha.remover(a.rover.idRover);
+            }
+            for (Missao missao : comCandidatos) {
+                if (!feitas.contains(missao)) {
+                    adiadas.add(missao);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Método húngaro (com potenciais, O(n² m)) para uma matriz n x m com n <= m.
+     *
+     * @return para cada linha, a coluna atribuída
+     */
+    static int[] hungaro(double[][] custos) {
+        int n = custos.length;
+        int m = n == 0 ? 0 : custos[0].length;
+        if (n > m) {
+            throw new IllegalArgumentException("O método húngaro requer linhas <= colunas");
+        }
+
+        // Índices a partir de 1; a coluna 0 é fictícia
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] linhaDaColuna = new int[m + 1];
+        int[] anterior = new int[m + 1];
+        double[] minimo = new double[m + 1];
+        boolean[] usada = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            linhaDaColuna[0] = i;
+            int j0 = 0;
+            Arrays.fill(minimo, Double.MAX_VALUE);
+            Arrays.fill(usada, false);
+            do {
+                usada[j0] = true;
+                int i0 = linhaDaColuna[j0];
+                double delta = Double.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (!usada[j]) {
+                        double atual = custos[i0 - 1][j - 1] - u[i0] - v[j];
+                        if (atual < minimo[j]) {
+                            minimo[j] = atual;
+                            anterior[j] = j0;
+                        }
+                        if (minimo[j] < delta) {
+                            delta = minimo[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (usada[j]) {
+                        u[linhaDaColuna[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minimo[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (linhaDaColuna[j0] != 0);
+
+            // Inverter o caminho aumentante
+            do {
+                int j1 = anterior[j0];
+                linhaDaColuna[j0] = linhaDaColuna[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] colunaDaLinha = new int[n];
+        Arrays.fill(colunaDaLinha, -1);
+        for (int j = 1; j <= m; j++) {
+            if (linhaDaColuna[j] != 0) {
+                colunaDaLinha[linhaDaColuna[j] - 1] = j - 1;
+            }
+        }
+        return colunaDaLinha;
+    }
+}
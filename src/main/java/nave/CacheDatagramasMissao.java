@@ -0,0 +1,221 @@
+package nave;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lib.Missao;
+import lib.TipoMensagem;
+import lib.mensagens.CodecBinarioUDP;
+import lib.mensagens.CodigoParidade;
+import lib.mensagens.FormatoWire;
+import lib.mensagens.MensagemUDP;
+import lib.mensagens.SerializadorUDP;
+import lib.mensagens.payloads.FragmentoPayload;
+import lib.mensagens.payloads.Payload;
+import lib.mensagens.payloads.PayloadMissao;
+import lib.mensagens.payloads.PayloadParidade;
+
+/**
+ * Cache dos datagramas MISSION já codificados de cada missão.
+ *
+ * Uma entrada corresponde a (idMissao, versão da missão, tamanho do fragmento):
+ * a missão é serializada, fragmentada e codificada uma única vez, e as
+ * retransmissões enviam diretamente os bytes guardados. Se a missão for
+ * reenviada a outro rover, no formato binário basta reescrever o idRecetor
+ * no cabeçalho; no formato Java a entrada é reconstruída.
+ *
+ * Os datagramas de paridade (FEC) são gerados a partir dos bytes guardados,
+ * uma vez por tamanho de grupo.
+ *
+ * As entradas são removidas quando a sessão da missão termina (ver
+ * ServidorUDP.finalizarSessao) e o tamanho é limitado por LRU.
+ */
+public class CacheDatagramasMissao {
+
+    public static final int CAPACIDADE_PADRAO = 64;
+
+    /**
+     * Datagramas codificados de uma missão. O datagrama de índice i tem seq i + 2.
+     */
+    public static class Entrada {
+        public final int idMissao;
+        public final int versao;
+        public final int tamanhoFragmento;
+        public final FormatoWire formato;
+        public final int idRecetor;
+        public final byte[][] datagramas;
+        public final int tamanhoPayload; // soma dos campos serializados (para logs)
+        
+        // tamanho do grupo -> datagramas de paridade (índice g = grupo g)
+        private final Map<Integer, byte[][]> paridades = new ConcurrentHashMap<>();
+
+        Entrada(int idMissao, int versao, int tamanhoFragmento, FormatoWire formato,
+                int idRecetor, byte[][] datagramas, int tamanhoPayload) {
+            this.idMissao = idMissao;
+            this.versao = versao;
+            this.tamanhoFragmento = tamanhoFragmento;
+            this.formato = formato;
+            this.idRecetor = idRecetor;
+            this.datagramas = datagramas;
+            this.tamanhoPayload = tamanhoPayload;
+        }
+
+        public int totalFragmentos() {
+            return datagramas.length;
+        }
+
+        /** @return o datagrama com este seq, ou null se estiver fora da gama */
+        public byte[] datagrama(int seq) {
+            int indice = seq - 2;
+            if (indice < 0 || indice >= datagramas.length) return null;
+            return datagramas[indice];
+        }
+
+        boolean serve(Missao missao, int tamanhoFragmento, FormatoWire formato) {
+            return versao == missao.versao && this.tamanhoFragmento == tamanhoFragmento && this.formato == formato;
+        }
+    }
+
+    private final LinkedHashMap<Integer, Entrada> entradas;
+    private long acertos;
+    private long falhas;
+
+    public CacheDatagramasMissao() {
+        this(CAPACIDADE_PADRAO);
+    }
+
+    public CacheDatagramasMissao(int capacidade) {
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entrada> maisAntiga) {
+                return size() > capacidade;
+            }
+        };
+    }
+
+    /**
+     * Devolve os datagramas da missão endereçados ao rover indicado,
+     * codificando-os apenas se não houver entrada válida.
+     */
+    public synchronized Entrada obter(Missao missao, int tamanhoFragmento, FormatoWire formato, int idRecetor)
+            throws IOException {
+        Entrada entrada = entradas.get(missao.idMissao);
+
+        if (entrada != null && entrada.serve(missao, tamanhoFragmento, formato)) {
+            acertos++;
+            if (entrada.idRecetor == idRecetor) {
+                return entrada;
+            }
+            if (formato == FormatoWire.BINARIO) {
+                // Outro rover: copiar os bytes e reescrever só o idRecetor
+                entrada = reenderecar(entrada, idRecetor);
+                entradas.put(missao.idMissao, entrada);
+                return entrada;
+            }
+        }
+
+        falhas++;
+        entrada = construir(missao, tamanhoFragmento, formato, idRecetor);
+        entradas.put(missao.idMissao, entrada);
+        return entrada;
+    }
+
+    /**
+     * Devolve os datagramas de paridade da entrada para grupos de tamanhoGrupo
+     * fragmentos, gerando-os na primeira vez. O datagrama g tem o seq
+     * CodigoParidade.seqParidade(n, g).
+     */
+    public byte[][] obterParidade(Entrada entrada, int tamanhoGrupo) throws IOException {
+        int n = entrada.totalFragmentos();
+        if (CodigoParidade.numeroGrupos(n, tamanhoGrupo) == 0) {
+            return new byte[0][];
+        }
+        byte[][] paridade = entrada.paridades.get(tamanhoGrupo);
+        if (paridade != null) {
+            return paridade;
+        }
+
+        SerializadorUDP serializador = new SerializadorUDP();
+        paridade = new byte[CodigoParidade.numeroGrupos(n, tamanhoGrupo)][];
+        for (int g = 0; g < paridade.length; g++) {
+            PayloadParidade payload = CodigoParidade.gerar(entrada.datagramas, g, tamanhoGrupo);
+            MensagemUDP msg = criarMensagem(entrada.idMissao, entrada.idRecetor,
+                                            CodigoParidade.seqParidade(n, g), n, payload);
+            paridade[g] = serializador.serializarMensagem(msg, entrada.formato);
+        }
+        entrada.paridades.put(tamanhoGrupo, paridade);
+        return paridade;
+    }
+
+    /**
+     * Remove a entrada de uma missão (sessão terminada).
+     */
+    public synchronized void invalidar(int idMissao) {
+        entradas.remove(idMissao);
+    }
+
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    public synchronized long getAcertos() {
+        return acertos;
+    }
+
+    public synchronized long getFalhas() {
+        return falhas;
+    }
+
+    // ==================== CONSTRUÇÃO ====================
+
+    private static Entrada construir(Missao missao, int tamanhoFragmento, FormatoWire formato, int idRecetor)
+            throws IOException {
+        PayloadMissao payload = missao.toPayload();
+        SerializadorUDP serializador = new SerializadorUDP();
+        int tamanhoPayload = SerializadorUDP.calcularTamanhoTotal(SerializadorUDP.serializarPayload(payload));
+
+        byte[][] datagramas;
+        if (!SerializadorUDP.precisaFragmentacao(payload, tamanhoFragmento)) {
+            // Missão cabe num datagrama: payload direto, não fragmentado
+            datagramas = new byte[][] {
+                serializador.serializarMensagem(criarMensagem(missao.idMissao, idRecetor, 2, 1, payload), formato)
+            };
+        } else {
+            List<FragmentoPayload> fragmentos = SerializadorUDP.fragmentarPayload(payload, tamanhoFragmento);
+            datagramas = new byte[fragmentos.size()][];
+            for (int i = 0; i < datagramas.length; i++) {
+                MensagemUDP msg = criarMensagem(missao.idMissao, idRecetor, i + 2, datagramas.length, fragmentos.get(i));
+                datagramas[i] = serializador.serializarMensagem(msg, formato);
+            }
+        }
+
+        return new Entrada(missao.idMissao, missao.versao, tamanhoFragmento, formato,
+                           idRecetor, datagramas, tamanhoPayload);
+    }
+
+    private static Entrada reenderecar(Entrada original, int idRecetor) {
+        byte[][] datagramas = new byte[original.datagramas.length][];
+        for (int i = 0; i < datagramas.length; i++) {
+            datagramas[i] = original.datagramas[i].clone();
+            CodecBinarioUDP.reescreverRecetor(datagramas[i], idRecetor);
+        }
+        return new Entrada(original.idMissao, original.versao, original.tamanhoFragmento, original.formato,
+                           idRecetor, datagramas, original.tamanhoPayload);
+    }
+
+    private static MensagemUDP criarMensagem(int idMissao, int idRecetor, int seq, int totalFragm, Payload payload) {
+        MensagemUDP msg = new MensagemUDP();
+        msg.header.tipo = TipoMensagem.MSG_MISSION;
+        msg.header.idEmissor = 0; // Nave-Mãe
+        msg.header.idRecetor = idRecetor;
+        msg.header.idMissao = idMissao;
+        msg.header.seq = seq;
+        msg.header.totalFragm = totalFragm;
+        msg.header.flagSucesso = false;
+        msg.payload = payload;
+        return msg;
+    }
+}
@@ -0,0 +1,230 @@
+package nave;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BiConsumer;
+
+import lib.mensagens.CodecBinarioUDP;
+import lib.mensagens.MensagemUDP;
+import lib.mensagens.SerializadorUDP;
+
+/**
+ * Entrada de datagramas MissionLink da Nave-Mãe (NIO).
+ *
+ * - Vários DatagramChannel na mesma porta (SO_REUSEPORT): o kernel reparte
+ *   os rovers pelos canais, cada um com a sua thread de receção. Sem
+ *   SO_REUSEPORT usa-se um só canal.
+ * - Os datagramas são recebidos para buffers diretos de um pool fixo; com o
+ *   pool esgotado a receção espera, e o excesso fica (ou é descartado) no
+ *   socket em vez de crescer em memória.
+ * - A descodificação corre nas threads trabalhadoras. Cada rover é sempre
+ *   atribuído ao mesmo trabalhador (idEmissor lido do cabeçalho, ou o
+ *   endereço de origem no formato Java), pelo que as mensagens de um rover
+ *   são entregues pela ordem de chegada.
+ */
+public class EntradaUDP {
+
+    /** Propriedade de sistema com o número de canais de receção (ex: -Dmissionlink.canais=4). */
+    public static final String PROPRIEDADE_CANAIS = "missionlink.canais";
+    /** Propriedade de sistema com o número de trabalhadores de descodificação. */
+    public static final String PROPRIEDADE_TRABALHADORES = "missionlink.trabalhadores";
+
+    private static final int TAMANHO_BUFFER = 4096;
+    private static final int BUFFERS_POR_TRABALHADOR = 256;
+
+    /** Datagrama recebido à espera do trabalhador. */
+    private static final class Recebido {
+        final ByteBuffer buffer;
+        final InetSocketAddress origem;
+
+        Recebido(ByteBuffer buffer, InetSocketAddress origem) {
+            this.buffer = buffer;
+            this.origem = origem;
+        }
+    }
+
+    private final int porta;
+    private final List<DatagramChannel> canais = new ArrayList<>();
+    private final BlockingQueue<ByteBuffer> buffersLivres;
+    private final List<BlockingQueue<Recebido>> filas = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public EntradaUDP(int porta) {
+        this.porta = porta;
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        int trabalhadores = Math.max(1, Integer.getInteger(PROPRIEDADE_TRABALHADORES, nucleos));
+        this.buffersLivres = new ArrayBlockingQueue<>(trabalhadores * BUFFERS_POR_TRABALHADOR);
+        for (int i = 0; i < trabalhadores * BUFFERS_POR_TRABALHADOR; i++) {
+            buffersLivres.add(ByteBuffer.allocateDirect(TAMANHO_BUFFER));
+        }
+        for (int i = 0; i < trabalhadores; i++) {
+            filas.add(new ArrayBlockingQueue<>(BUFFERS_POR_TRABALHADOR));
+        }
+    }
+
+    /**
+     * Abre os canais na porta. Se o sistema não suportar SO_REUSEPORT fica um só canal.
+     */
+    public void abrir() throws IOException {
+        int pedidos = Math.max(1, Integer.getInteger(PROPRIEDADE_CANAIS,
+                Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+        DatagramChannel primeiro = DatagramChannel.open();
+        boolean reusePort = pedidos > 1 && primeiro.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        if (reusePort) {
+            primeiro.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        primeiro.bind(new InetSocketAddress(porta));
+        canais.add(primeiro);
+
+        for (int i = 1; reusePort && i < pedidos; i++) {
+            DatagramChannel canal = DatagramChannel.open();
+            try {
+                canal.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                canal.bind(new InetSocketAddress(porta));
+                canais.add(canal);
+            } catch (IOException e) {
+                canal.close();
+                System.err.println("[EntradaUDP] SO_REUSEPORT falhou no canal " + i + ": " + e.getMessage());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Arranca as threads de receção e os trabalhadores.
+     *
+     * @param recetor chamado na thread do trabalhador do rover, por ordem de chegada
+     */
+    public void iniciar(BiConsumer<MensagemUDP, InetSocketAddress> recetor) {
+        for (int i = 0; i < filas.size(); i++) {
+            BlockingQueue<Recebido> fila = filas.get(i);
+            iniciarThread("EntradaUDP-trabalhador-" + i, () -> trabalhar(fila, recetor));
+        }
+        for (int i = 0; i < canais.size(); i++) {
+            DatagramChannel canal = canais.get(i);
+            iniciarThread("EntradaUDP-rececao-" + i, () -> receber(canal));
+        }
+        System.out.println("[EntradaUDP] " + canais.size() + " canal(is) na porta " + porta + ", " +
+                           filas.size() + " trabalhador(es)");
+    }
+
+    private void iniciarThread(String nome, Runnable tarefa) {
+        Thread t = new Thread(tarefa, nome);
+        t.setDaemon(true);
+        t.start();
+        threads.add(t);
+    }
+
+    /**
+     * Loop de receção de um canal: recebe para um buffer do pool e entrega-o
+     * à fila do trabalhador do rover.
+     */
+    private void receber(DatagramChannel canal) {
+        while (running) {
+            ByteBuffer buffer = null;
+            try {
+                buffer = buffersLivres.take();
+                buffer.clear();
+                SocketAddress origem = canal.receive(buffer);
+                buffer.flip();
+
+                filas.get(trabalhadorDe(buffer, origem)).put(new Recebido(buffer, (InetSocketAddress) origem));
+                buffer = null;
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("[EntradaUDP] Erro ao receber: " + e.getMessage());
+                }
+            } finally {
+                if (buffer != null) {
+                    buffersLivres.offer(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Trabalhador: descodifica e entrega as mensagens dos seus rovers.
+     */
+    private void trabalhar(BlockingQueue<Recebido> fila, BiConsumer<MensagemUDP, InetSocketAddress> recetor) {
+        while (running) {
+            Recebido r;
+            try {
+                r = fila.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                MensagemUDP msg = SerializadorUDP.deserializarMensagem(r.buffer);
+                if (msg != null && msg.header != null) {
+                    recetor.accept(msg, r.origem);
+                }
+            } catch (Exception e) {
+                System.err.println("[EntradaUDP] Erro ao processar mensagem: " + e.getMessage());
+            } finally {
+                buffersLivres.offer(r.buffer);
+            }
+        }
+    }
+
+    /**
+     * Trabalhador responsável pelo emissor do datagrama.
+     */
+    private int trabalhadorDe(ByteBuffer buffer, SocketAddress origem) {
+        int chave = CodecBinarioUDP.lerEmissor(buffer);
+        if (chave < 0) {
+            chave = origem != null ? origem.hashCode() & Integer.MAX_VALUE : 0;
+        }
+        return chave % filas.size();
+    }
+
+    /**
+     * Envia bytes já codificados (por um dos canais da porta, escolhido pelo destino).
+     */
+    public void enviar(byte[] dados, InetSocketAddress destino) throws IOException {
+        DatagramChannel canal = canais.get((destino.hashCode() & Integer.MAX_VALUE) % canais.size());
+        canal.send(ByteBuffer.wrap(dados), destino);
+    }
+
+    /**
+     * Envia o buffer (entre a posição e o limite) sem cópia; usado com os buffers diretos do pool da SaidaUDP.
+     */
+    public void enviar(ByteBuffer dados, InetSocketAddress destino) throws IOException {
+        DatagramChannel canal = canais.get((destino.hashCode() & Integer.MAX_VALUE) % canais.size());
+        canal.send(dados, destino);
+    }
+
+    public int numeroCanais() {
+        return canais.size();
+    }
+
+    /**
+     * Fecha os canais e termina as threads.
+     */
+    public void fechar() {
+        running = false;
+        for (DatagramChannel canal : canais) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+            }
+        }
+        for (Thread t : threads) {
+            t.interrupt();
+        }
+    }
+}
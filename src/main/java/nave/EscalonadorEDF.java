@@ -0,0 +1,280 @@
+package nave;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lib.Missao;
+import lib.RodaTemporizadores;
+
+/**
+ * Escalonamento EDF (earliest deadline first) com janelas de início.
+ *
+ * Uma missão com inicioMissao (epoch, s) só pode começar a partir desse
+ * instante e tem como prazo inicioMissao + duracaoMissao: até lá fica
+ * retida, e depois é elegível por ordem de prazo (empates por
+ * prioridade e id). Se o prazo passar com a missão ainda pendente, conta
+ * como prazo falhado e a missão é escalada para a frente de todas as
+ * outras. Missões sem inicioMissao não têm prazo e vêm depois das que têm.
+ *
+ * Aberturas de janela e prazos são temporizadores (um por missão) numa
+ * RodaTemporizadores, sem varrer as missões periodicamente. A roda não é
+ * thread-safe: só é usada com o lock desta instância, e uma thread própria
+ * (o GestaoEstado chama o escalonador de várias threads, não de um ciclo
+ * de eventos) avança-a e dorme até ao próximo temporizador.
+ */
+public class EscalonadorEDF implements EscalonadorMissoes {
+
+    /** Prazo mais cedo primeiro; sem prazo no fim; empates pela ordem de atribuição. */
+    public static final Comparator<Missao> ORDEM_EDF =
+            Comparator.comparingLong(EscalonadorEDF::prazoMs).thenComparing(GestaoEstado.ORDEM_ATRIBUICAO);
+
+    // Resolução da roda: as janelas são em segundos; uma volta ~25s
+    private static final long TICK_MS = 50;
+    private static final int RANHURAS_RODA = 512;
+
+    private final ConcurrentSkipListSet<Missao> atrasadas = new ConcurrentSkipListSet<>(ORDEM_EDF);
+    private final ConcurrentSkipListSet<Missao> prontas = new ConcurrentSkipListSet<>(ORDEM_EDF);
+    private final Collection<Missao> elegiveis = new Elegiveis();
+
+    // Protegidos pelo lock desta instância
+    private final Set<Missao> retidas = new HashSet<>();
+    private final Map<Missao, RodaTemporizadores.Temporizador> temporizadores = new HashMap<>();
+    // Missões cujo prazo já foi contado (uma missão revertida volta a entrar
+    // atrasada); esquecidas quando a missão termina
+    private final Set<Integer> prazosContados = new HashSet<>();
+    private final RodaTemporizadores roda = new RodaTemporizadores(TICK_MS, RANHURAS_RODA);
+    private boolean avisoPendente = false; // um temporizador tornou uma missão elegível
+
+    private Thread relogio;                // arranca com o primeiro temporizador
+    private volatile boolean ativo = true;
+    private final AtomicInteger profundidade = new AtomicInteger();
+    private final AtomicLong prazosFalhados = new AtomicLong();
+    private volatile Runnable ouvinte;
+
+    /** Prazo da missão em ms (epoch), ou Long.MAX_VALUE se não tiver janela. */
+    public static long prazoMs(Missao missao) {
+        if (missao.inicioMissao <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (missao.inicioMissao + missao.duracaoMissao) * 1000;
+    }
+
+    @Override
+    public synchronized boolean adicionar(Missao missao) {
+        if (retidas.contains(missao) || prontas.contains(missao) || atrasadas.contains(missao)) {
+            return false;
+        }
+        profundidade.incrementAndGet();
+
+        long agora = System.currentTimeMillis();
+        long abertura = missao.inicioMissao * 1000;
+        if (missao.inicioMissao > 0 && abertura > agora) {
+            retidas.add(missao);
+            agendar(missao, abertura - agora, () -> abrir(missao));
+            return false;
+        }
+        tornarElegivel(missao, agora);
+        return true;
+    }
+
+    @Override
+    public synchronized void remover(Missao missao) {
+        RodaTemporizadores.Temporizador temporizador = temporizadores.remove(missao);
+        if (temporizador != null) {
+            temporizador.cancelar();
+        }
+        if (retidas.remove(missao) | prontas.remove(missao) | atrasadas.remove(missao)) {
+            profundidade.decrementAndGet();
+        }
+        if (terminada(missao)) {
+            prazosContados.remove(missao.idMissao); // não volta a entrar
+        }
+    }
+
+    @Override
+    public Collection<Missao> elegiveis() {
+        return elegiveis;
+    }
+
+    @Override
+    public void definirOuvinte(Runnable ouvinte) {
+        this.ouvinte = ouvinte;
+    }
+
+    @Override
+    public String nome() {
+        return "EDF";
+    }
+
+    @Override
+    public int profundidade() {
+        return profundidade.get();
+    }
+
+    @Override
+    public synchronized int retidas() {
+        return retidas.size();
+    }
+
+    @Override
+    public int atrasadas() {
+        return atrasadas.size();
+    }
+
+    @Override
+    public long prazosFalhados() {
+        return prazosFalhados.get();
+    }
+
+    @Override
+    public synchronized void parar() {
+        ativo = false;
+        if (relogio != null) {
+            relogio.interrupt();
+        }
+    }
+
+    // ==================== TEMPORIZADORES ====================
+
+    /** Chamado com o lock: passa a pronta (e arma o prazo) ou, já fora de prazo, a atrasada. */
+    private void tornarElegivel(Missao missao, long agora) {
+        long prazo = prazoMs(missao);
+        if (prazo <= agora) {
+            escalar(missao);
+            return;
+        }
+        prontas.add(missao);
+        if (prazo != Long.MAX_VALUE) {
+            agendar(missao, prazo - agora, () -> expirar(missao));
+        }
+    }
+
+    private static boolean terminada(Missao missao) {
+        return missao.estadoMissao == Missao.EstadoMissao.CONCLUIDA ||
+               missao.estadoMissao == Missao.EstadoMissao.CANCELADA ||
+               missao.estadoMissao == Missao.EstadoMissao.FALHADA;
+    }
+
+    /** Chamado com o lock: cada missão conta como prazo falhado uma só vez. */
+    private void escalar(Missao missao) {
+        atrasadas.add(missao);
+        if (prazosContados.add(missao.idMissao)) {
+            prazosFalhados.incrementAndGet();
+            System.out.println("[EscalonadorEDF] Prazo da missão " + missao.idMissao + " falhado - escalada");
+        }
+    }
+
+    /** Chamado com o lock: a roda é posta em dia antes de contar o atraso a partir dela. */
+    private void agendar(Missao missao, long atrasoMs, Runnable tarefa) {
+        roda.avancar(System.currentTimeMillis());
+        temporizadores.put(missao, roda.agendar(atrasoMs, tarefa));
+        if (relogio == null && ativo) {
+            relogio = new Thread(this::executarRelogio, "EscalonadorEDF");
+            relogio.setDaemon(true);
+            relogio.start();
+        }
+        notifyAll(); // o relógio pode estar a dormir até um temporizador mais tardio
+    }
+
+    /** Abertura da janela de início (na roda, com o lock). */
+    private void abrir(Missao missao) {
+        temporizadores.remove(missao);
+        if (retidas.remove(missao)) {
+            tornarElegivel(missao, System.currentTimeMillis());
+            avisoPendente = true;
+        }
+    }
+
+    /** Prazo atingido com a missão ainda por atribuir (na roda, com o lock). */
+    private void expirar(Missao missao) {
+        temporizadores.remove(missao);
+        if (prontas.remove(missao)) {
+            escalar(missao);
+            avisoPendente = true;
+        }
+    }
+
+    /**
+     * Thread do relógio: avança a roda e dorme até ao próximo temporizador
+     * (ou até agendar() a acordar). O ouvinte é avisado fora do lock.
+     */
+    private void executarRelogio() {
+        while (ativo) {
+            boolean avisarOuvinte;
+            synchronized (this) {
+                roda.avancar(System.currentTimeMillis());
+                avisarOuvinte = avisoPendente;
+                avisoPendente = false;
+                if (!avisarOuvinte) {
+                    long espera = roda.msAteProximo(System.currentTimeMillis());
+                    try {
+                        if (espera != 0) {
+                            wait(espera < 0 ? 0 : espera);
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            avisar();
+        }
+    }
+
+    private void avisar() {
+        Runnable o = ouvinte;
+        if (o != null) {
+            o.run();
+        }
+    }
+
+    /**
+     * Vista das elegíveis: primeiro as atrasadas, depois as prontas, cada
+     * grupo por ordem de prazo.
+     */
+    private final class Elegiveis extends AbstractCollection<Missao> {
+
+        @Override
+        public Iterator<Missao> iterator() {
+            Iterator<Missao> primeiro = atrasadas.iterator();
+            Iterator<Missao> segundo = prontas.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return primeiro.hasNext() || segundo.hasNext();
+                }
+
+                @Override
+                public Missao next() {
+                    if (primeiro.hasNext()) {
+                        return primeiro.next();
+                    }
+                    if (segundo.hasNext()) {
+                        return segundo.next();
+                    }
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return atrasadas.size() + prontas.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return atrasadas.isEmpty() && prontas.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package nave;
+
+import java.util.Collection;
+
+import lib.Missao;
+
+/**
+ * Política de escalonamento das missões PENDENTES: decide quais já podem
+ * ser atribuídas e por que ordem o despachante as deve tentar.
+ *
+ * O GestaoEstado chama adicionar/remover em cada transição de estado de
+ * uma missão (com o seu lock); elegiveis() é lida pelo despachante sem
+ * lock, por isso as implementações usam estruturas concorrentes.
+ *
+ * Políticas disponíveis:
+ * - PRIORIDADE: prioridade decrescente, depois id (EscalonadorPrioridade)
+ * - EDF: prazo mais cedo primeiro, com janelas de início (EscalonadorEDF)
+ */
+public interface EscalonadorMissoes {
+
+    /** Propriedade de sistema para escolher a política (ex: -Dmissionlink.escalonador=EDF). */
+    String PROPRIEDADE = "missionlink.escalonador";
+
+    /**
+     * A missão passou a PENDENTE.
+     * @return true se ficou já elegível (o despachante deve ser avisado)
+     */
+    boolean adicionar(Missao missao);
+
+    /** A missão deixou de estar pendente ou foi removida. */
+    void remover(Missao missao);
+
+    /** Vista (live) das missões que já podem ser atribuídas, pela ordem de atribuição. */
+    Collection<Missao> elegiveis();
+
+    /**
+     * Regista quem avisar quando uma missão fica elegível mais tarde (ex:
+     * abertura da janela de início), fora de adicionar().
+     */
+    void definirOuvinte(Runnable ouvinte);
+
+    String nome();
+
+    /** Missões pendentes no escalonador (elegíveis ou retidas). */
+    int profundidade();
+
+    /** Missões retidas à espera do início da sua janela. */
+    default int retidas() {
+        return 0;
+    }
+
+    /** Missões pendentes cujo prazo já passou (escaladas para a frente). */
+    default int atrasadas() {
+        return 0;
+    }
+
+    /** Total de prazos falhados (missões ainda pendentes quando o prazo passou). */
+    default long prazosFalhados() {
+        return 0;
+    }
+
+    /** Liberta recursos (ex: threads de temporizadores). */
+    default void parar() {
+    }
+
+    /**
+     * Cria a política escolhida na propriedade de sistema, PRIORIDADE por omissão.
+     */
+    static EscalonadorMissoes doSistema() {
+        String valor = System.getProperty(PROPRIEDADE);
+        if (valor == null || valor.isBlank() || valor.trim().equalsIgnoreCase("PRIORIDADE")) {
+            return new EscalonadorPrioridade();
+        }
+        if (valor.trim().equalsIgnoreCase("EDF")) {
+            return new EscalonadorEDF();
+        }
+        System.err.println("[EscalonadorMissoes] Política desconhecida '" + valor + "', a usar PRIORIDADE");
+        return new EscalonadorPrioridade();
+    }
+}
@@ -0,0 +1,54 @@
+package nave;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lib.Missao;
+
+/**
+ * Escalonamento por prioridade: todas as missões pendentes são elegíveis,
+ * por prioridade decrescente e depois id crescente (GestaoEstado.ORDEM_ATRIBUICAO).
+ */
+public class EscalonadorPrioridade implements EscalonadorMissoes {
+
+    private final ConcurrentSkipListSet<Missao> pendentes = new ConcurrentSkipListSet<>(GestaoEstado.ORDEM_ATRIBUICAO);
+    private final AtomicInteger profundidade = new AtomicInteger();
+
+    @Override
+    public boolean adicionar(Missao missao) {
+        if (!pendentes.add(missao)) {
+            return false;
+        }
+        profundidade.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void remover(Missao missao) {
+        if (pendentes.remove(missao)) {
+            profundidade.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Collection<Missao> elegiveis() {
+        return Collections.unmodifiableCollection(pendentes);
+    }
+
+    @Override
+    public void definirOuvinte(Runnable ouvinte) {
+        // Nada fica retido: as missões são elegíveis logo em adicionar()
+    }
+
+    @Override
+    public String nome() {
+        return "PRIORIDADE";
+    }
+
+    @Override
+    public int profundidade() {
+        return profundidade.get();
+    }
+}
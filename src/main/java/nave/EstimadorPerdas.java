@@ -0,0 +1,78 @@
+package nave;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimativa da taxa de perda de datagramas por rover (média exponencial).
+ *
+ * Cada sessão contribui com uma amostra: fragmentos perdidos (em falta no
+ * primeiro ACK mais os reconstruídos por paridade no rover) sobre os
+ * fragmentos enviados. A taxa estimada define o tamanho dos grupos de
+ * paridade FEC: mais perda, grupos mais pequenos (mais redundância).
+ */
+public class EstimadorPerdas {
+
+    /** Peso da amostra mais recente na média */
+    private static final double ALFA = 0.3;
+
+    /** Taxa assumida para rovers sem histórico */
+    private static final double TAXA_INICIAL = 0.05;
+
+    /** Abaixo desta taxa não se envia paridade */
+    private static final double TAXA_MINIMA_FEC = 0.01;
+
+    public static final int GRUPO_MINIMO = 2;
+    public static final int GRUPO_MAXIMO = 16;
+
+    /** Probabilidade aceitável de perder todas as cópias de uma mensagem repetida */
+    private static final double FALHA_ALVO_COPIAS = 1e-3;
+    public static final int COPIAS_MAXIMAS = 5;
+
+    private final ConcurrentHashMap<Integer, Double> taxas = new ConcurrentHashMap<>();
+
+    /**
+     * Regista uma amostra de perdas para o rover.
+     */
+    public void registar(int idRover, int enviados, int perdidos) {
+        if (enviados <= 0) return;
+        double amostra = Math.min(1.0, Math.max(0.0, (double) perdidos / enviados));
+        taxas.merge(idRover, (1 - ALFA) * TAXA_INICIAL + ALFA * amostra,
+                    (anterior, ignorado) -> (1 - ALFA) * anterior + ALFA * amostra);
+    }
+
+    /** @return taxa de perda estimada para o rover (0..1) */
+    public double taxa(int idRover) {
+        return taxas.getOrDefault(idRover, TAXA_INICIAL);
+    }
+
+    /**
+     * Tamanho dos grupos de paridade para o rover, ou 0 para não usar FEC.
+     * Escolhe k ≈ 1/(2p), de modo a que um grupo de k fragmentos tenha em
+     * média meia perda (a paridade XOR só recupera uma por grupo).
+     */
+    public int tamanhoGrupoFec(int idRover) {
+        double p = taxa(idRover);
+        if (p < TAXA_MINIMA_FEC) {
+            return 0;
+        }
+        int k = (int) Math.round(1.0 / (2.0 * p));
+        return Math.max(GRUPO_MINIMO, Math.min(GRUPO_MAXIMO, k));
+    }
+
+    /**
+     * Número de cópias de uma mensagem sem confirmação (ex: ACK final) para
+     * que, com perdas independentes à taxa p, todas se percam com
+     * probabilidade abaixo de FALHA_ALVO_COPIAS: n = ⌈log(alvo) / log(p)⌉.
+     */
+    public int copiasParaEntrega(int idRover) {
+        double p = taxa(idRover);
+        if (p <= 0) {
+            return 1;
+        }
+        if (p >= 1) {
+            return COPIAS_MAXIMAS;
+        }
+        int n = (int) Math.ceil(Math.log(FALHA_ALVO_COPIAS) / Math.log(p));
+        return Math.max(1, Math.min(COPIAS_MAXIMAS, n));
+    }
+}
@@ -1,10 +1,16 @@
 package nave;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import lib.Missao;
 import lib.Rover;
@@ -18,6 +24,15 @@ import lib.mensagens.payloads.PayloadTelemetria;
  * Gestão de estado central (armazenamento de rovers e missões).
  * Armazenamento thread-safe usando ConcurrentHashMap porque a Nave-Mãe
  * acede e modifica estes mapas a partir de várias threads.
+ *
+ * As missões PENDENTES estão num escalonador (EscalonadorMissoes, que
+ * decide quais já são elegíveis e por que ordem) e os rovers disponíveis
+ * num índice ordenado, para que o despacho não percorra todas as missões
+ * e rovers. Ambos são atualizados pelos métodos de transição desta
+ * classe: estadoMissao, estadoRover e temMissao só devem ser alterados
+ * através deles (e a prioridade e a janela de uma missão não mudam depois
+ * de entrar no estado). Os rovers disponíveis estão também numa grelha
+ * espacial (GrelhaRovers), para escolher o mais próximo da missão.
  */
 public class GestaoEstado {
 
@@ -28,6 +43,29 @@ public class GestaoEstado {
     private final ConcurrentLinkedQueue<PayloadTelemetria> historicoTelemetria;
     private ConcurrentSkipListSet<Integer> missoesConcluidas;
 
+    /** Ordem de atribuição das missões pendentes: prioridade decrescente, depois id crescente. */
+    public static final Comparator<Missao> ORDEM_ATRIBUICAO =
+            Comparator.comparingInt((Missao m) -> m.prioridade).reversed().thenComparingInt(m -> m.idMissao);
+
+    // Missões PENDENTES (por política de escalonamento) e índice dos ids dos rovers disponíveis
+    private volatile EscalonadorMissoes escalonador = new EscalonadorPrioridade();
+    private final ConcurrentSkipListSet<Integer> roversDisponiveis = new ConcurrentSkipListSet<>();
+
+    // Rovers disponíveis por posição (só acedida com o lock desta classe)
+    private static final float LADO_CELULA_GRELHA = 10.0f;
+    private final GrelhaRovers grelhaDisponiveis = new GrelhaRovers(LADO_CELULA_GRELHA);
+
+    // Modelo de movimento do rover (ContextoRover.atualizarDuranteMissao): um passo a
+    // cada INTERVALO_PASSO_S, com deslocação e descarga de bateria fixas por passo
+    private static final float INTERVALO_PASSO_S = 2.0f;
+    private static final float DESLOCACAO_POR_PASSO = 2.0f;
+    private static final float DESCARGA_MOVIMENTO = 0.05f;
+    private static final float DESCARGA_PARADO = 0.01f;
+    private static final float MARGEM_BATERIA = 5.0f;
+
+    // Avisado quando pode haver novas atribuições (missão pendente ou rover livre)
+    private volatile Runnable ouvinteDespacho;
+
     public GestaoEstado(){
         this.rovers = new ConcurrentHashMap <>();
         this.missoes = new ConcurrentHashMap<>();
@@ -48,12 +86,19 @@ public class GestaoEstado {
 // ----- Rovers -----
 
 /** Adiciona ou substitui um Rover com o id fornecido. */
-    public void adicionarRover(int id, Rover ctx) {
-        rovers.put(id, ctx);
+    public synchronized void adicionarRover(int id, Rover ctx) {
+        Rover anterior = rovers.put(id, ctx);
+        if (anterior != null && anterior != ctx) {
+            roversDisponiveis.remove(id);
+            grelhaDisponiveis.remover(id);
+        }
+        indexarRover(ctx);
     }
 
     /** Remove e devolve o Rover associado ao id, ou null se não existir. */
-    public Rover removerRover(int id) {
+    public synchronized Rover removerRover(int id) {
+        roversDisponiveis.remove(id);
+        grelhaDisponiveis.remover(id);
         return rovers.remove(id);
     }
 
@@ -77,25 +122,265 @@ public class GestaoEstado {
     }
 
     /** Insere o rover apenas se não existir já um com o mesmo id. Retorna true se inseriu. */
-    public boolean inserirRoverSeAusente(int id, Rover ctx) {
+    public synchronized boolean inserirRoverSeAusente(int id, Rover ctx) {
         if (ctx == null) throw new NullPointerException("Rover não pode ser null");
-        return rovers.putIfAbsent(id, ctx) == null;
+        boolean inserido = rovers.putIfAbsent(id, ctx) == null;
+        if (inserido) {
+            indexarRover(ctx);
+        }
+        return inserido;
     }
  
+    /** Devolve o rover disponível de menor id, ou null (O(log n), pelo índice). */
     public Rover obterRoverDisponivel() {
-        for (Rover r : rovers.values()) {
-            if (!r.temMissao && r.estadoRover == Rover.EstadoRover.ESTADO_DISPONIVEL) {
+        for (Integer id : roversDisponiveis) {
+            Rover r = rovers.get(id);
+            if (r != null) {
                 return r;
             }
         }
         return null;
     }
 
+    /** Devolve todos os rovers livres para receber uma missão, por id. */
+    public List<Rover> listarRoversDisponiveis() {
+        List<Rover> disponiveis = new ArrayList<>();
+        for (Integer id : roversDisponiveis) {
+            Rover r = rovers.get(id);
+            if (r != null) {
+                disponiveis.add(r);
+            }
+        }
+        return disponiveis;
+    }
+
+    public synchronized int contarRoversDisponiveis() {
+        return grelhaDisponiveis.tamanho();
+    }
+
+    public boolean haRoversDisponiveis() {
+        return !roversDisponiveis.isEmpty();
+    }
+
+    /**
+     * Devolve o rover disponível mais próximo do centro da área da missão
+     * que tenha bateria para a cumprir (ver bateriaNecessaria), ou null.
+     *
+     * @param aceitar filtro adicional (ex: sem sessão ativa); null aceita todos
+     */
+    public synchronized Rover obterRoverMaisProximo(Missao missao, Predicate<Rover> aceitar) {
+        float x = centroX(missao);
+        float y = centroY(missao);
+        return grelhaDisponiveis.maisProximo(x, y, r -> r.bateria >= bateriaNecessaria(r, missao)
+                                                       && (aceitar == null || aceitar.test(r)));
+    }
+
+    public static float centroX(Missao missao) {
+        return (missao.x1 + missao.x2) / 2.0f;
+    }
+
+    public static float centroY(Missao missao) {
+        return (missao.y1 + missao.y2) / 2.0f;
+    }
+
+    /** Segundos que o rover leva a chegar ao centro da área da missão. */
+    public static float tempoDeslocacao(Rover rover, Missao missao) {
+        return tempoDeslocacao(rover.posicaoX, rover.posicaoY, missao);
+    }
+
+    /** Segundos de deslocação desde o ponto (x, y) até ao centro da área da missão. */
+    public static float tempoDeslocacao(float x, float y, Missao missao) {
+        double distancia = Math.hypot(centroX(missao) - x, centroY(missao) - y);
+        return (float) Math.ceil(distancia / DESLOCACAO_POR_PASSO) * INTERVALO_PASSO_S;
+    }
+
+    /**
+     * Bateria (%) que o rover gasta na missão: deslocação até à área e o
+     * resto da duração parado, mais uma margem.
+     */
+    public static float bateriaNecessaria(Rover rover, Missao missao) {
+        return bateriaNecessaria(rover.posicaoX, rover.posicaoY, missao);
+    }
+
+    /** Igual, partindo do ponto (x, y). */
+    public static float bateriaNecessaria(float x, float y, Missao missao) {
+        float passosDeslocacao = tempoDeslocacao(x, y, missao) / INTERVALO_PASSO_S;
+        float passosMissao = Math.max(missao.duracaoMissao / INTERVALO_PASSO_S, passosDeslocacao);
+        return passosDeslocacao * DESCARGA_MOVIMENTO
+               + (passosMissao - passosDeslocacao) * DESCARGA_PARADO
+               + MARGEM_BATERIA;
+    }
+
+    /**
+     * Bateria (%) para acabar a missão atual (faltam segundosRestantes, já
+     * na área dela) e cumprir depois a seguinte, partindo do centro da atual.
+     */
+    public static float bateriaNecessariaDepois(Missao atual, float segundosRestantes, Missao seguinte) {
+        return segundosRestantes / INTERVALO_PASSO_S * DESCARGA_PARADO
+               + bateriaNecessaria(centroX(atual), centroY(atual), seguinte);
+    }
+
+    private static boolean estaDisponivel(Rover r) {
+        return !r.temMissao && r.estadoRover == Rover.EstadoRover.ESTADO_DISPONIVEL;
+    }
+
+    /**
+     * Reserva a missão para o rover antes do envio por MissionLink: a missão
+     * passa a EM_ANDAMENTO e o rover a RECEBENDO_MISSAO.
+     * @return false se a missão já não estiver pendente ou o rover disponível
+     */
+    public synchronized boolean reservarMissao(Rover rover, Missao missao) {
+        if (missao.estadoMissao != Missao.EstadoMissao.PENDENTE || !estaDisponivel(rover)) {
+            return false;
+        }
+        missao.estadoMissao = Missao.EstadoMissao.EM_ANDAMENTO;
+        rover.estadoRover = Rover.EstadoRover.ESTADO_RECEBENDO_MISSAO;
+        indexarMissao(missao);
+        indexarRover(rover);
+        return true;
+    }
+
+    /**
+     * Reserva a missão como a seguinte de um rover ocupado (entregue por
+     * MissionLink durante a missão atual): a missão passa a EM_ANDAMENTO e
+     * o rover começa-a quando a atual terminar (ver avancarParaMissaoSeguinte).
+     * @return false se a missão já não estiver pendente, o rover não estiver
+     *         em missão ou já tiver uma seguinte
+     */
+    public synchronized boolean reservarMissaoSeguinte(Rover rover, Missao missao) {
+        if (missao.estadoMissao != Missao.EstadoMissao.PENDENTE || !rover.temMissao || rover.idMissaoSeguinte >= 0) {
+            return false;
+        }
+        missao.estadoMissao = Missao.EstadoMissao.EM_ANDAMENTO;
+        rover.idMissaoSeguinte = missao.idMissao;
+        indexarMissao(missao);
+        return true;
+    }
+
+    /**
+     * Desiste da missão seguinte do rover, que ele não chegou a começar
+     * (entrega falhada ou missão atual falhada): a missão volta a PENDENTE
+     * e, se já tinha passado a atual do rover, o rover fica disponível.
+     */
+    public synchronized void desistirMissaoSeguinte(Rover rover, int idMissao) {
+        if (rover.idMissaoSeguinte == idMissao) {
+            rover.idMissaoSeguinte = -1;
+        } else if (rover.temMissao && rover.idMissaoAtual == idMissao) {
+            rover.temMissao = false;
+            rover.idMissaoAtual = -1;
+            rover.estadoRover = Rover.EstadoRover.ESTADO_DISPONIVEL;
+            rover.progressoMissao = 0.0f;
+            indexarRover(rover);
+        }
+        reverterMissaoParaPendente(idMissao);
+    }
+
+    /**
+     * O rover terminou a missão atual: passa logo à seguinte, se tiver uma
+     * reservada, senão fica disponível.
+     */
+    private void avancarParaMissaoSeguinte(Rover rover) {
+        rover.progressoMissao = 0.0f;
+        if (rover.idMissaoSeguinte >= 0) {
+            rover.idMissaoAtual = rover.idMissaoSeguinte;
+            rover.idMissaoSeguinte = -1;
+            rover.temMissao = true;
+            rover.estadoRover = Rover.EstadoRover.ESTADO_EM_MISSAO;
+        } else {
+            rover.temMissao = false;
+            rover.idMissaoAtual = -1;
+            rover.estadoRover = Rover.EstadoRover.ESTADO_DISPONIVEL;
+        }
+        indexarRover(rover);
+    }
+
+    /**
+     * Devolve a DISPONIVEL um rover que ficou em RECEBENDO_MISSAO sem sessão.
+     * @return true se o rover estava em RECEBENDO_MISSAO
+     */
+    public synchronized boolean libertarRoverEmRececao(Rover rover) {
+        if (rover.estadoRover != Rover.EstadoRover.ESTADO_RECEBENDO_MISSAO) {
+            return false;
+        }
+        rover.estadoRover = Rover.EstadoRover.ESTADO_DISPONIVEL;
+        indexarRover(rover);
+        return true;
+    }
+
+    // ----- Despacho -----
+
+    /**
+     * Regista quem deve ser avisado quando surge trabalho para o despachante
+     * de missões: missão criada ou revertida para pendente, rover registado
+     * ou que volta a ficar disponível. O aviso corre na thread que alterou o
+     * estado, por isso deve ser rápido (ex: só agendar uma passagem).
+     */
+    public void definirOuvinteDespacho(Runnable ouvinte) {
+        this.ouvinteDespacho = ouvinte;
+    }
+
+    // ----- Escalonamento -----
+
+    /**
+     * Troca a política de escalonamento das missões pendentes. As missões
+     * já pendentes passam para o novo escalonador e o anterior é parado.
+     */
+    public synchronized void definirEscalonador(EscalonadorMissoes novo) {
+        EscalonadorMissoes anterior = this.escalonador;
+        novo.definirOuvinte(this::notificarDespacho);
+        this.escalonador = novo;
+        for (Missao missao : missoes.values()) {
+            anterior.remover(missao);
+            indexarMissao(missao);
+        }
+        anterior.parar();
+        System.out.println("[Estado] Escalonador de missões: " + novo.nome());
+    }
+
+    public EscalonadorMissoes obterEscalonador() {
+        return escalonador;
+    }
+
+    // ----- Índices -----
+
+    /** Atualiza o escalonador de pendentes para o estado atual da missão. */
+    private void indexarMissao(Missao missao) {
+        if (missao.estadoMissao == Missao.EstadoMissao.PENDENTE) {
+            if (escalonador.adicionar(missao)) {
+                notificarDespacho();
+            }
+        } else {
+            escalonador.remover(missao);
+        }
+    }
+
+    /** Atualiza os índices de disponíveis (e a posição na grelha) para o estado atual do rover. */
+    private void indexarRover(Rover rover) {
+        if (estaDisponivel(rover)) {
+            grelhaDisponiveis.colocar(rover);
+            if (roversDisponiveis.add(rover.idRover)) {
+                notificarDespacho();
+            }
+        } else {
+            roversDisponiveis.remove(rover.idRover);
+            grelhaDisponiveis.remover(rover.idRover);
+        }
+    }
+
+    private void notificarDespacho() {
+        Runnable ouvinte = ouvinteDespacho;
+        if (ouvinte != null) {
+            ouvinte.run();
+        }
+    }
+
     // ----- Missões -----
 
     /** Adiciona ou substitui uma missão com o id fornecido. */
-    public void adicionarMissao(int id, Missao missao) {
-        missoes.put(id, missao);
+    public synchronized void adicionarMissao(int id, Missao missao) {
+        Missao anterior = missoes.put(id, missao);
+        atualizarVersao(anterior, missao);
+        substituirNoIndice(anterior, missao);
     }
 
     /**
@@ -106,13 +391,33 @@ public class GestaoEstado {
             System.out.println("[Estado] Missão #" + missao.idMissao + " já existe. Substituindo...");
         }
 
-        missoes.put(missao.idMissao, missao);
+        Missao anterior = missoes.put(missao.idMissao, missao);
+        atualizarVersao(anterior, missao);
+        substituirNoIndice(anterior, missao);
         System.out.println("[Estado] Missão #" + missao.idMissao + " adicionada: " + missao.tarefa);
     }
 
+    private void substituirNoIndice(Missao anterior, Missao nova) {
+        if (anterior != null && anterior != nova) {
+            escalonador.remover(anterior);
+        }
+        indexarMissao(nova);
+    }
+
+    /** Uma missão que substitui outra com o mesmo id passa a ter versão superior. */
+    private void atualizarVersao(Missao anterior, Missao nova) {
+        if (anterior != null && anterior != nova && nova.versao <= anterior.versao) {
+            nova.versao = anterior.versao + 1;
+        }
+    }
+
     /** Remove e devolve a missão associada ao id, ou null se não existir. */
-    public Missao removerMissao(int id) {
-        return missoes.remove(id);
+    public synchronized Missao removerMissao(int id) {
+        Missao removida = missoes.remove(id);
+        if (removida != null) {
+            escalonador.remover(removida);
+        }
+        return removida;
     }
 
     /** Devolve a missão associada ao id, ou null se não existir. */
@@ -130,11 +435,12 @@ public class GestaoEstado {
         return missoes;
     }
 
-    public void marcarMissaoComoConcluida(int idMissao) {
+    public synchronized void marcarMissaoComoConcluida(int idMissao) {
         Missao m = missoes.get(idMissao);
         if (m != null) {
             m.estadoMissao = Missao.EstadoMissao.CONCLUIDA;
             missoesConcluidas.add(idMissao);
+            indexarMissao(m);
         }
     }
 
@@ -142,44 +448,62 @@ public class GestaoEstado {
         return missoesConcluidas;
     }
 
-    /** Devolve uma missão que ainda não tenha sido atribuida. */
+    /**
+     * Devolve a primeira missão elegível para atribuição segundo o
+     * escalonador (por omissão, a de maior prioridade e menor id), ou null.
+     */
     public Missao obterMissaoNaoAtribuida() {
-        Missao missaoSelecionada = null;
-        int maiorPrioridade = Integer.MIN_VALUE;
-        int menorId = Integer.MAX_VALUE;
-        
-        for (Missao missao : missoes.values()) {
-            if (missao.estadoMissao == Missao.EstadoMissao.PENDENTE) {
-                if (missao.prioridade > maiorPrioridade) {
-                    missaoSelecionada = missao;
-                    maiorPrioridade = missao.prioridade;
-                    menorId = missao.idMissao;
-                } else if (missao.prioridade == maiorPrioridade && missao.idMissao < menorId) {
-                    missaoSelecionada = missao;
-                    menorId = missao.idMissao;
-                }
-            }
-        }
-        return missaoSelecionada;
+        Iterator<Missao> it = escalonador.elegiveis().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Devolve uma vista (live) das missões pendentes já elegíveis, pela
+     * ordem do escalonador. Iterar não copia nem ordena; missões retidas
+     * (ex: antes do início da janela, em EDF) não aparecem.
+     */
+    public Collection<Missao> listarMissoesPendentes() {
+        return Collections.unmodifiableCollection(escalonador.elegiveis());
     }
+
     /** Insere a missão apenas se não existir já uma com o mesmo id. Retorna true se inseriu. */
-    public boolean inserirMissaoSeAusente(int id, Missao missao) {
+    public synchronized boolean inserirMissaoSeAusente(int id, Missao missao) {
         if (missao == null) throw new NullPointerException("missao não pode ser null");
-        return missoes.putIfAbsent(id, missao) == null;
+        boolean inserida = missoes.putIfAbsent(id, missao) == null;
+        if (inserida) {
+            indexarMissao(missao);
+        }
+        return inserida;
     }
 
     // ------ Telemetria -------
 
-    public void atualizarTelemetria(int idRover, PayloadTelemetria p) {
+    /**
+     * Aplica a telemetria ao rover. Um rover em RECEBENDO_MISSAO mantém esse
+     * estado (a telemetria pode ser anterior à missão).
+     *
+     * @param idMissao missão reportada pelo rover (<= 0 = nenhuma)
+     */
+    public synchronized void atualizarTelemetria(int idRover, PayloadTelemetria p, int idMissao) {
         ultimaTelemetria.put(idRover, p);
 
         Rover r = rovers.get(idRover);
         if (r != null) {
             r.posicaoX = p.posicaoX;
             r.posicaoY = p.posicaoY;
-            r.estadoRover = p.estadoOperacional;
+            if (r.estadoRover != Rover.EstadoRover.ESTADO_RECEBENDO_MISSAO) {
+                r.estadoRover = p.estadoOperacional;
+            }
             r.bateria = p.bateria;
             r.velocidade = p.velocidade;
+            if (idMissao > 0) {
+                r.idMissaoAtual = idMissao;
+                r.temMissao = true;
+            } else {
+                r.temMissao = false;
+                r.idMissaoAtual = -1;
+            }
+            indexarRover(r);
         }
 
         historicoTelemetria.add(p);
@@ -229,6 +553,7 @@ public class GestaoEstado {
                 missao.estadoMissao = Missao.EstadoMissao.CONCLUIDA;
                 missoesConcluidas.add(p.idMissao);
             }
+            indexarMissao(missao);
         }
     }
 
@@ -240,7 +565,7 @@ public class GestaoEstado {
     }
 
     /** Marca uma missão como EM_ANDAMENTO quando é atribuída a um rover. */
-    public void atribuirMissaoARover(int idRover, int idMissao) {
+    public synchronized void atribuirMissaoARover(int idRover, int idMissao) {
         Rover rover = obterRover(idRover);
         Missao missao = obterMissao(idMissao);
         if (rover == null || missao == null) return;
@@ -252,9 +577,14 @@ public class GestaoEstado {
         rover.temMissao = true;
         rover.idMissaoAtual = idMissao;
         rover.estadoRover = Rover.EstadoRover.ESTADO_EM_MISSAO;
+        indexarMissao(missao);
+        indexarRover(rover);
     }
 
-    /** Conclui ou cancela uma missão, atualizando estado do rover e da missão. */
+    /**
+     * Conclui ou cancela uma missão, atualizando estado do rover (que passa
+     * à missão seguinte, se tiver uma) e da missão.
+     */
     public synchronized void concluirMissao(int idRover, int idMissao, boolean sucesso) {
         Rover rover = obterRover(idRover);
         Missao missao = obterMissao(idMissao);
@@ -266,17 +596,15 @@ public class GestaoEstado {
             missao.estadoMissao = Missao.EstadoMissao.FALHADA;
         }
 
-        rover.temMissao = false;
-        rover.idMissaoAtual = -1;
-        rover.estadoRover = Rover.EstadoRover.ESTADO_DISPONIVEL;
-        rover.progressoMissao = 0.0f;
+        indexarMissao(missao);
+        avancarParaMissaoSeguinte(rover);
     }
 
     /** 
      * Marca uma missão como falhada devido a um erro do rover.
      * Atualiza estado do rover e da missão, registando o motivo da falha.
      */
-    public void falharMissao(int idRover, int idMissao, int codigoErro, String descricaoErro) {
+    public synchronized void falharMissao(int idRover, int idMissao, int codigoErro, String descricaoErro) {
         Rover rover = obterRover(idRover);
         Missao missao = obterMissao(idMissao);
         
@@ -285,13 +613,16 @@ public class GestaoEstado {
 
         if (missao != null) {
             missao.estadoMissao = Missao.EstadoMissao.FALHADA;
+            indexarMissao(missao);
         }
 
         if (rover != null) {
             rover.temMissao = false;
             rover.idMissaoAtual = -1;
+            rover.idMissaoSeguinte = -1; // não a vai executar (ver desistirMissaoSeguinte)
             // Manter rover em estado de FALHA até recuperar
             rover.estadoRover = Rover.EstadoRover.ESTADO_FALHA;
+            indexarRover(rover);
         }
     }
 
@@ -299,11 +630,38 @@ public class GestaoEstado {
      * Reverte uma missão para o estado PENDENTE.
      * Usado quando há falha de comunicação e a missão deve ser reatribuída.
      */
-    public void reverterMissaoParaPendente(int idMissao) {
+    public synchronized void reverterMissaoParaPendente(int idMissao) {
         Missao missao = obterMissao(idMissao);
         if (missao != null && missao.estadoMissao != Missao.EstadoMissao.CONCLUIDA) {
             missao.estadoMissao = Missao.EstadoMissao.PENDENTE;
             System.out.println("[GestaoEstado] Missão " + idMissao + " revertida para PENDENTE");
+            indexarMissao(missao);
+        }
+    }
+
+    /**
+     * Interrompe a missão em execução no rover (MSG_CANCEL confirmado) e
+     * liberta o rover. Numa preempção a missão volta a PENDENTE e guarda o
+     * último progresso reportado, para o próximo rover continuar a partir
+     * dele; num cancelamento fica CANCELADA. Se o rover já tiver a missão
+     * seguinte, passa a ela.
+     */
+    public synchronized void interromperMissao(int idRover, int idMissao, boolean reatribuir) {
+        Missao missao = obterMissao(idMissao);
+        if (missao != null && missao.estadoMissao == Missao.EstadoMissao.EM_ANDAMENTO) {
+            PayloadProgresso p = progressoMissoes.get(idMissao);
+            if (p != null) {
+                missao.progressoMissao = Math.max(missao.progressoMissao, p.progressoPercentagem);
+            }
+            missao.estadoMissao = reatribuir ? Missao.EstadoMissao.PENDENTE : Missao.EstadoMissao.CANCELADA;
+            System.out.println("[GestaoEstado] Missão " + idMissao + " interrompida no rover " + idRover +
+                               " (" + String.format("%.2f", missao.progressoMissao) + "%) - " + missao.estadoMissao);
+            indexarMissao(missao);
+        }
+
+        Rover rover = obterRover(idRover);
+        if (rover != null) {
+            avancarParaMissaoSeguinte(rover);
         }
     }
 }
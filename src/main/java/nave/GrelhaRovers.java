@@ -0,0 +1,138 @@
+package nave;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import lib.Rover;
+
+/**
+ * Índice espacial (grelha uniforme) das posições dos rovers.
+ *
+ * O plano é dividido em células quadradas de lado fixo; cada rover fica na
+ * célula da sua última posição conhecida. A procura do mais próximo
+ * percorre anéis de células à volta do ponto pedido e pára logo que
+ * nenhuma célula por visitar pode ter um rover mais perto do que o melhor
+ * já encontrado, por isso visita poucas células mesmo com milhares de
+ * rovers.
+ *
+ * Não é thread-safe: o GestaoEstado só lhe acede com o seu lock.
+ */
+public class GrelhaRovers {
+
+    private final float ladoCelula;
+    private final Map<Long, List<Rover>> celulas = new HashMap<>();
+    private final Map<Integer, Long> celulaDoRover = new HashMap<>();
+
+    // Limites das células já ocupadas (só crescem): a procura não passa daqui
+    private int minCx = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE, maxCy = Integer.MIN_VALUE;
+
+    public GrelhaRovers(float ladoCelula) {
+        if (ladoCelula <= 0) {
+            throw new IllegalArgumentException("ladoCelula deve ser > 0");
+        }
+        this.ladoCelula = ladoCelula;
+    }
+
+    /**
+     * Coloca o rover na célula da sua posição atual (move-o se já estava
+     * noutra célula).
+     */
+    public void colocar(Rover rover) {
+        int cx = coordenada(rover.posicaoX);
+        int cy = coordenada(rover.posicaoY);
+        long chave = chave(cx, cy);
+        Long atual = celulaDoRover.get(rover.idRover);
+        if (atual != null) {
+            if (atual == chave) {
+                return;
+            }
+            retirarDaCelula(atual, rover.idRover);
+        }
+        celulas.computeIfAbsent(chave, k -> new ArrayList<>()).add(rover);
+        celulaDoRover.put(rover.idRover, chave);
+        minCx = Math.min(minCx, cx);
+        maxCx = Math.max(maxCx, cx);
+        minCy = Math.min(minCy, cy);
+        maxCy = Math.max(maxCy, cy);
+    }
+
+    public void remover(int idRover) {
+        Long chave = celulaDoRover.remove(idRover);
+        if (chave != null) {
+            retirarDaCelula(chave, idRover);
+        }
+    }
+
+    public int tamanho() {
+        return celulaDoRover.size();
+    }
+
+    /**
+     * Rover aceite mais próximo do ponto (x, y), ou null.
+     *
+     * @param aceitar filtro (ex: bateria suficiente); null aceita todos
+     */
+    public Rover maisProximo(float x, float y, Predicate<Rover> aceitar) {
+        if (celulaDoRover.isEmpty()) {
+            return null;
+        }
+        int cx = coordenada(x);
+        int cy = coordenada(y);
+        int raioMaximo = Math.max(Math.max(cx - minCx, maxCx - cx), Math.max(cy - minCy, maxCy - cy));
+
+        Rover melhor = null;
+        double melhorDist2 = Double.MAX_VALUE;
+        for (int r = 0; r <= raioMaximo; r++) {
+            // Células do anel r ficam a pelo menos (r - 1) * lado do ponto
+            double limite = (r - 1) * (double) ladoCelula;
+            if (melhor != null && r > 0 && limite * limite >= melhorDist2) {
+                break;
+            }
+            for (int i = cx - r; i <= cx + r; i++) {
+                for (int j = cy - r; j <= cy + r; j++) {
+                    if (Math.abs(i - cx) != r && Math.abs(j - cy) != r) {
+                        j = cy + r - 1; // interior do anel já visitado: saltar para a última linha
+                        continue;
+                    }
+                    List<Rover> celula = celulas.get(chave(i, j));
+                    if (celula == null) {
+                        continue;
+                    }
+                    for (Rover rover : celula) {
+                        double dx = rover.posicaoX - x;
+                        double dy = rover.posicaoY - y;
+                        double dist2 = dx * dx + dy * dy;
+                        if (dist2 < melhorDist2 && (aceitar == null || aceitar.test(rover))) {
+                            melhor = rover;
+                            melhorDist2 = dist2;
+                        }
+                    }
+                }
+            }
+        }
+        return melhor;
+    }
+
+    private void retirarDaCelula(long chave, int idRover) {
+        List<Rover> celula = celulas.get(chave);
+        if (celula == null) {
+            return;
+        }
+        celula.removeIf(r -> r.idRover == idRover);
+        if (celula.isEmpty()) {
+            celulas.remove(chave);
+        }
+    }
+
+    private int coordenada(float v) {
+        return (int) Math.floor(v / ladoCelula);
+    }
+
+    private static long chave(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,53 @@
+package nave;
+
+/**
+ * Modelo de execução das sessões MissionLink no ServidorUDP.
+ *
+ * - EVENTOS: uma só thread lê o socket e conduz todas as sessões como
+ *   máquinas de estados; retransmissões e prazos ficam numa roda de
+ *   temporizadores (ver RodaTemporizadores)
+ * - THREADS: uma thread de plataforma por sessão, que bloqueia à espera de
+ *   cada resposta
+ * - VIRTUAIS: como THREADS, mas com threads virtuais (Java 21): as esperas
+ *   estacionam a thread virtual e libertam a thread de suporte
+ *
+ * O modo também decide as threads das ligações TCP de telemetria: só THREADS
+ * usa threads de plataforma, os outros usam threads virtuais.
+ */
+public enum ModoExecucao {
+    EVENTOS,
+    THREADS,
+    VIRTUAIS;
+
+    /** Propriedade de sistema para escolher o modo (ex: -Dmissionlink.modo=THREADS). */
+    public static final String PROPRIEDADE = "missionlink.modo";
+
+    /**
+     * Lê o modo da propriedade de sistema, usando EVENTOS por omissão.
+     */
+    public static ModoExecucao doSistema() {
+        String valor = System.getProperty(PROPRIEDADE);
+        if (valor == null || valor.isBlank()) {
+            return EVENTOS;
+        }
+        try {
+            return ModoExecucao.valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ModoExecucao] Modo desconhecido '" + valor + "', a usar EVENTOS");
+            return EVENTOS;
+        }
+    }
+
+    /**
+     * Arranca uma thread (daemon) para a tarefa, virtual exceto no modo THREADS.
+     */
+    public Thread iniciarThread(String nome, Runnable tarefa) {
+        if (this == THREADS) {
+            Thread t = new Thread(tarefa, nome);
+            t.setDaemon(true);
+            t.start();
+            return t;
+        }
+        return Thread.ofVirtual().name(nome).start(tarefa);
+    }
+}
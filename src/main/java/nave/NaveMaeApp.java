@@ -1,15 +1,23 @@
 package nave;
 
+import lib.mensagens.FormatoWire;
+
 public class NaveMaeApp {
     public static void main(String[] args) {
         System.out.println("=== Nave-Mãe - Sistema de Controlo ===");
         
         try {
             GestaoEstado estado = new GestaoEstado();
+            estado.definirEscalonador(EscalonadorMissoes.doSistema());
 
             // Iniciar os 3 servidores
-            ServidorUDP servidorUDP = new ServidorUDP(estado);
+            ServidorUDP servidorUDP = new ServidorUDP(estado, FormatoWire.doSistema());
+            servidorUDP.ativarFec(Boolean.getBoolean(ServidorUDP.PROPRIEDADE_FEC));
+            servidorUDP.ativarPreempcao(Boolean.parseBoolean(System.getProperty(ServidorUDP.PROPRIEDADE_PREEMPCAO, "true")));
+            servidorUDP.ativarPrefetch(Boolean.parseBoolean(System.getProperty(ServidorUDP.PROPRIEDADE_PREFETCH, "true")));
+            servidorUDP.definirModo(ModoExecucao.doSistema());
             ServidorTCP servidorTCP = new ServidorTCP(estado);
+            servidorTCP.definirModo(ModoExecucao.doSistema());
             ServidorHTTP servidorHTTP = new ServidorHTTP(estado);
             
             // Registar shutdown hook para parar os servidores corretamente
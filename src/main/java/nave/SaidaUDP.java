@@ -0,0 +1,284 @@
+package nave;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saída de datagramas MissionLink da Nave-Mãe.
+ *
+ * Todas as sessões (e os handlers da receção) entregam aqui os datagramas
+ * já codificados; uma única thread envia-os pelos canais da EntradaUDP.
+ * As filas têm prioridade:
+ *  - CONTROLO: ACKs e ACKs finais;
+ *  - SESSAO: HELLO e restantes mensagens de controlo da sessão;
+ *  - DADOS: fragmentos MISSION e paridade, numa fila por rover servida em
+ *    rodízio (um datagrama de cada rover por volta), para que uma missão
+ *    grande não atrase as outras sessões.
+ *
+ * A thread recolhe lotes de até TAMANHO_LOTE datagramas de uma só vez (um
+ * lock por lote) e volta a olhar para as filas prioritárias antes de cada
+ * lote. As filas são limitadas: um datagrama que não cabe é descartado e
+ * o protocolo trata-o como perdido.
+ *
+ * Além de bytes já codificados, aceita datagramas de um pool de buffers
+ * diretos (reservar()): o chamador escreve a mensagem no buffer (ex: com o
+ * EscritorMensagemUDP) e o buffer volta ao pool depois de enviado, sem
+ * byte[] nem objetos novos por envio.
+ */
+public class SaidaUDP {
+
+    /** Fila de saída do datagrama (por ordem de prioridade). */
+    public enum Prioridade {
+        CONTROLO,
+        SESSAO,
+        DADOS
+    }
+
+    private static final int CAPACIDADE_CONTROLO = 4096;
+    private static final int CAPACIDADE_SESSAO = 4096;
+    private static final int CAPACIDADE_DADOS_POR_ROVER = 1024;
+    private static final int TAMANHO_LOTE = 32;
+    private static final int DATAGRAMAS_POOL = 1024;
+    private static final int TAMANHO_DATAGRAMA_POOL = 1024; // chega para qualquer ACK (64 intervalos)
+
+    /**
+     * Datagrama à espera de envio: bytes já codificados, ou um buffer direto
+     * do pool escrito pelo chamador.
+     */
+    public static final class Datagrama {
+        /** Buffer do pool (null nos datagramas com bytes já codificados). */
+        public final ByteBuffer buffer;
+        final byte[] dados;
+        InetSocketAddress destino;
+
+        private Datagrama(ByteBuffer buffer, byte[] dados) {
+            this.buffer = buffer;
+            this.dados = dados;
+        }
+
+        /** Datagrama com bytes já codificados (fora do pool). */
+        public static Datagrama de(byte[] dados) {
+            return new Datagrama(null, dados);
+        }
+    }
+
+    private final EntradaUDP canais;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition temPendentes = lock.newCondition();
+
+    private final ArrayDeque<Datagrama> filaControlo = new ArrayDeque<>();
+    private final ArrayDeque<Datagrama> filaSessao = new ArrayDeque<>();
+    private final Map<Integer, ArrayDeque<Datagrama>> filasDados = new HashMap<>();
+    private final ArrayDeque<Datagrama> livres = new ArrayDeque<>(DATAGRAMAS_POOL);
+    private final ArrayDeque<Integer> rodizio = new ArrayDeque<>(); // rovers com dados pendentes
+    private int pendentes = 0;
+
+    private long descartados = 0;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public SaidaUDP(EntradaUDP canais) {
+        this.canais = canais;
+        for (int i = 0; i < DATAGRAMAS_POOL; i++) {
+            livres.add(new Datagrama(ByteBuffer.allocateDirect(TAMANHO_DATAGRAMA_POOL), null));
+        }
+    }
+
+    public void iniciar() {
+        thread = new Thread(this::executar, "SaidaUDP");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Coloca o datagrama na fila de saída.
+     *
+     * @param idRover rover de destino (chave do rodízio na fila DADOS)
+     * @return false se a fila estiver cheia (datagrama descartado)
+     */
+    public boolean enviar(byte[] dados, InetSocketAddress destino, Prioridade prioridade, int idRover) {
+        return enviar(Datagrama.de(dados), destino, prioridade, idRover);
+    }
+
+    /**
+     * Coloca na fila um datagrama (do pool: com o buffer já pronto a ler, após flip()).
+     * Um datagrama do pool descartado volta logo ao pool.
+     *
+     * @return false se a fila estiver cheia (datagrama descartado)
+     */
+    public boolean enviar(Datagrama d, InetSocketAddress destino, Prioridade prioridade, int idRover) {
+        d.destino = destino;
+        lock.lock();
+        try {
+            switch (prioridade) {
+                case CONTROLO:
+                    if (filaControlo.size() >= CAPACIDADE_CONTROLO) return descartar(d);
+                    filaControlo.add(d);
+                    break;
+                case SESSAO:
+                    if (filaSessao.size() >= CAPACIDADE_SESSAO) return descartar(d);
+                    filaSessao.add(d);
+                    break;
+                default:
+                    ArrayDeque<Datagrama> fila = filasDados.computeIfAbsent(idRover, id -> new ArrayDeque<>());
+                    if (fila.size() >= CAPACIDADE_DADOS_POR_ROVER) return descartar(d);
+                    if (fila.isEmpty()) {
+                        rodizio.add(idRover);
+                    }
+                    fila.add(d);
+                    break;
+            }
+            pendentes++;
+            temPendentes.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserva um datagrama do pool, com o buffer limpo para escrita.
+     * @return o datagrama, ou null se o pool estiver esgotado (usar bytes)
+     */
+    public Datagrama reservar() {
+        lock.lock();
+        try {
+            Datagrama d = livres.poll();
+            if (d != null) {
+                d.buffer.clear();
+            }
+            return d;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devolve ao pool um datagrama reservado que não chegou a ser enviado.
+     */
+    public void libertar(Datagrama d) {
+        if (d.buffer == null) return;
+        lock.lock();
+        try {
+            d.destino = null;
+            livres.add(d);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean descartar(Datagrama d) {
+        descartados++;
+        if (d.buffer != null) {
+            d.destino = null;
+            livres.add(d);
+        }
+        return false;
+    }
+
+    /**
+     * Thread de envio: lote a lote, sem segurar o lock durante o envio.
+     */
+    private void executar() {
+        List<Datagrama> lote = new ArrayList<>(TAMANHO_LOTE);
+        while (running) {
+            try {
+                recolherLote(lote);
+            } catch (InterruptedException e) {
+                break;
+            }
+            boolean doPool = false;
+            for (Datagrama d : lote) {
+                try {
+                    if (d.buffer != null) {
+                        canais.enviar(d.buffer, d.destino);
+                        doPool = true;
+                    } else {
+                        canais.enviar(d.dados, d.destino);
+                    }
+                } catch (IOException e) {
+                    if (running) {
+                        System.err.println("[SaidaUDP] Erro ao enviar para " + d.destino + ": " + e.getMessage());
+                    }
+                }
+            }
+            if (doPool) {
+                devolverAoPool(lote);
+            }
+            lote.clear();
+        }
+    }
+
+    /**
+     * Espera por datagramas e preenche o lote: primeiro CONTROLO, depois
+     * SESSAO, e o resto em rodízio pelas filas DADOS dos rovers.
+     */
+    private void recolherLote(List<Datagrama> lote) throws InterruptedException {
+        lock.lock();
+        try {
+            while (pendentes == 0) {
+                temPendentes.await();
+            }
+            while (lote.size() < TAMANHO_LOTE && !filaControlo.isEmpty()) {
+                lote.add(filaControlo.poll());
+            }
+            while (lote.size() < TAMANHO_LOTE && !filaSessao.isEmpty()) {
+                lote.add(filaSessao.poll());
+            }
+            while (lote.size() < TAMANHO_LOTE && !rodizio.isEmpty()) {
+                Integer idRover = rodizio.poll();
+                ArrayDeque<Datagrama> fila = filasDados.get(idRover);
+                lote.add(fila.poll());
+                if (fila.isEmpty()) {
+                    filasDados.remove(idRover);
+                } else {
+                    rodizio.add(idRover);
+                }
+            }
+            pendentes -= lote.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devolve ao pool, com um só lock, os datagramas do pool já enviados.
+     */
+    private void devolverAoPool(List<Datagrama> lote) {
+        lock.lock();
+        try {
+            for (Datagrama d : lote) {
+                if (d.buffer != null) {
+                    d.destino = null;
+                    livres.add(d);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDescartados() {
+        lock.lock();
+        try {
+            return descartados;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void fechar() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -44,6 +44,7 @@ public class ServidorHTTP {
         //especifico antes do generico
         server.createContext("/telemetria/historico", this::handleTelemetriaHistorico);
         server.createContext("/telemetria", this::handleTelemetria);
+        server.createContext("/escalonador", this::handleEscalonador);
         
         server.createContext("/ui/", new StaticFileHandler("ui"));
     }
@@ -234,6 +235,8 @@ public class ServidorHTTP {
                     case "x2" -> missao.x2 = Float.parseFloat(value);
                     case "y2" -> missao.y2 = Float.parseFloat(value);
                     case "prioridade" -> missao.prioridade = Integer.parseInt(value);
+                    case "duracaoMissao" -> missao.duracaoMissao = Long.parseLong(value);
+                    case "inicioMissao" -> missao.inicioMissao = Long.parseLong(value);
                 }
             } catch (NumberFormatException e) {
                 throw new IllegalArgumentException("Valor inválido para campo '" + key + "': " + value);
@@ -304,6 +307,26 @@ public class ServidorHTTP {
         responder404(ex);
     }
 
+    // ------ ESCALONADOR -------------
+
+    private void handleEscalonador(HttpExchange ex) throws IOException {
+        String method = ex.getRequestMethod();
+
+        // OPTIONS
+        if (method.equals("OPTIONS")) {
+            handleCorsOptions(ex);
+            return;
+        }
+
+        // GET /escalonador
+        if (method.equals("GET")) {
+            responderJson(ex, CriarJson.escalonador(api.obterEscalonador()));
+            return;
+        }
+
+        responder404(ex);
+    }
+
     public void parar() {
         server.stop(0);
         System.out.println("[HTTP] Servidor HTTP parado.");
@@ -20,12 +20,22 @@ public class ServidorTCP implements Runnable {
     private ServerSocket serverSocket;
     private GestaoEstado estado;
     private boolean running = true;
+    
+    // Threads das ligações: virtuais exceto no modo THREADS (uma por rover ligado)
+    private ModoExecucao modo = ModoExecucao.EVENTOS;
 
 
     public ServidorTCP(GestaoEstado estado) {
         this.estado = estado;
     }
 
+    /**
+     * Escolhe o tipo de thread usado para cada ligação (antes de run()).
+     */
+    public void definirModo(ModoExecucao modo) {
+        this.modo = modo;
+    }
+
     @Override
     public void run() {
         try {
@@ -34,9 +44,7 @@ public class ServidorTCP implements Runnable {
             
             while (running) {
                 Socket client = serverSocket.accept();
-                Thread t = new Thread(() -> handleClient(client));
-                t.setDaemon(true);
-                t.start();
+                modo.iniciarThread("TelemetryLink-" + client.getRemoteSocketAddress(), () -> handleClient(client));
             }
             
         } catch (Exception e) {
@@ -151,30 +159,12 @@ public class ServidorTCP implements Runnable {
             return;
         }
 
-        rover.posicaoX = tel.posicaoX;
-        rover.posicaoY = tel.posicaoY;
-        rover.bateria = tel.bateria;
-        rover.velocidade = tel.velocidade;
-        
         if (rover.estadoRover == Rover.EstadoRover.ESTADO_RECEBENDO_MISSAO) {
             // Rover está a receber missão, não sobrescrever com telemetria antiga
             System.out.println("[ServidorTCP] Estado RECEBENDO_MISSAO mantido (ignorando telemetria de " + tel.estadoOperacional + ")");
-        } else {
-            rover.estadoRover = tel.estadoOperacional;
-        }
-        estado.atualizarTelemetria(idRover, tel);
-
-        // Atualizar estado da missão com base na telemetria
-        if (header.idMissao > 0) {
-            if (header.idMissao != rover.idMissaoAtual) {
-                rover.idMissaoAtual = header.idMissao;
-            }
-            rover.temMissao = true;
-        } else {
-            // Rover sem missão ativa (idMissao <= 0)
-            rover.temMissao = false;
-            rover.idMissaoAtual = -1;
         }
+        // Posição, estado e missão atual (idMissao <= 0 = sem missão ativa), com os índices do estado
+        estado.atualizarTelemetria(idRover, tel, header.idMissao);
         
         System.out.printf("[ServidorTCP] Rover %d: pos=(%.2f, %.2f) bat=%.1f%% vel=%.2fm/s estado=%s missao=%d\n",
             idRover, tel.posicaoX, tel.posicaoY, tel.bateria, tel.velocidade, 
@@ -1,31 +1,40 @@
 package nave;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import lib.Condicao;
+import lib.ControloCongestao;
+import lib.EstimadorRTT;
 import lib.MetricasUDP;
 import lib.Missao;
+import lib.RodaTemporizadores;
 import lib.Rover;
 import lib.SessaoServidorMissionLink;
+import lib.SessaoServidorMissionLink.Fase;
+import lib.SinalSessao;
 import lib.TipoMensagem;
-import lib.mensagens.CampoSerializado;
+import lib.mensagens.CodigoParidade;
+import lib.mensagens.EscritorMensagemUDP;
+import lib.mensagens.FormatoWire;
 import lib.mensagens.MensagemUDP;
-import lib.mensagens.SerializadorUDP;
-import lib.mensagens.payloads.FragmentoPayload;
 import lib.mensagens.payloads.PayloadAck;
 import lib.mensagens.payloads.PayloadErro;
-import lib.mensagens.payloads.PayloadMissao;
 import lib.mensagens.payloads.PayloadProgresso;
 
 /**
@@ -39,59 +48,157 @@ public class ServidorUDP implements Runnable {
     
     private static final int PORTA_UDP = 9001;
     private static final int PORTA_BASE_ROVER = 9010;
-    private static final int TIMEOUT_MS = 5000;
-    private static final int MAX_RETRIES = 3;
+    private static final int TIMEOUT_MS = 5000; // RTO inicial de cada rover, até haver amostras de RTT
+    private static final int MAX_RETRIES = 6;   // com backoff exponencial do RTO
     private static final int TAMANHO_FRAGMENTO = 512; // bytes por fragmento
     
-    private DatagramSocket socket;
+    /** Propriedade de sistema para ativar a paridade FEC (ex: -Dmissionlink.fec=true). */
+    public static final String PROPRIEDADE_FEC = "missionlink.fec";
+    // Preempção (ex: -Dmissionlink.preempcao=false para desativar)
+    public static final String PROPRIEDADE_PREEMPCAO = "missionlink.preempcao";
+    // Missão seguinte entregue a rovers ocupados (ex: -Dmissionlink.prefetch=false para desativar)
+    public static final String PROPRIEDADE_PREFETCH = "missionlink.prefetch";
+    
+    // Ciclo de eventos: resolução da roda de temporizadores e período do iniciador de missões
+    // (o despacho reage a eventos; o período só cobre alterações de estado não avisadas)
+    private static final long TICK_MS = 10;
+    private static final int RANHURAS_RODA = 512;
+    private static final long INTERVALO_INICIADOR_MS = 2000;
+    private static final long INTERVALO_LIMPEZA_MS = 10000;
+    private static final int MAX_MISSOES_SEM_ROVER = 32; // por passagem do despachante
+    // Uma missão pendente só interrompe outra em execução com prioridade pelo menos isto abaixo
+    private static final int DIFERENCA_PREEMPCAO = 2;
+    // Só se entrega a missão seguinte a um rover cuja missão atual termina dentro deste tempo
+    private static final float JANELA_PREFETCH_S = 15.0f;
+    // Atribuição em lote (AtribuidorMissoes): nas passagens periódicas, ou logo que haja
+    // este número de missões pendentes; no máximo MAX_MISSOES_LOTE missões de cada vez
+    private static final int LIMIAR_LOTE = 16;
+    private static final int MAX_MISSOES_LOTE = 4096;
+    // Mensagens descodificadas à espera do ciclo de eventos, e quantas processar antes de avançar a roda
+    private static final int CAPACIDADE_EVENTOS = 65536;
+    private static final int MAX_EVENTOS_POR_TICK = 4096;
+    // Espaçamento entre cópias do ACK final (metade do RTO, dentro destes limites)
+    private static final long ESPACO_MIN_ACK_FINAL_MS = 20;
+    private static final long ESPACO_MAX_ACK_FINAL_MS = 200;
+    
+    private final int porta;
+    private EntradaUDP entrada;
+    private SaidaUDP saida;
     private GestaoEstado estado;
     private boolean running;
     
     // Controlo de sessões ativas (idRover -> sessão)
     private ConcurrentHashMap<Integer, SessaoServidorMissionLink> sessoesAtivas;
+    // Missões seguintes em fila (idRover -> sessão entregue durante a missão atual)
+    private final ConcurrentHashMap<Integer, SessaoServidorMissionLink> sessoesSeguintes = new ConcurrentHashMap<>();
     
     // Métricas de comunicação
     private MetricasUDP metricas;
     
+    // Formato dos datagramas enviados (a receção deteta o formato automaticamente)
+    private final FormatoWire formato;
+    
+    // Datagramas MISSION já codificados, reaproveitados em retransmissões
+    private final CacheDatagramasMissao cacheMissoes;
+    
+    // FEC: fragmentos de paridade com redundância ajustada à perda de cada rover
+    private boolean fecAtivo = false;
+    private boolean preempcaoAtiva = true;
+    private boolean prefetchAtivo = true;
+    private final EstimadorPerdas estimadorPerdas;
+    
+    // RTT/RTO por rover (sobrevive às sessões)
+    private final ConcurrentHashMap<Integer, EstimadorRTT> estimadoresRtt = new ConcurrentHashMap<>();
+    
+    // Modelo de execução das sessões e roda de temporizadores (só no modo EVENTOS)
+    private ModoExecucao modo = ModoExecucao.EVENTOS;
+    private RodaTemporizadores roda;
+    private ScheduledExecutorService agendador; // tarefas diferidas nos modos THREADS/VIRTUAIS
+    
+    // ACKs escritos diretamente nos datagramas do pool da SaidaUDP (um escritor por thread)
+    private final ThreadLocal<EscritorMensagemUDP> escritores = ThreadLocal.withInitial(EscritorMensagemUDP::new);
+    private long ultimaLimpeza = System.currentTimeMillis();
+    
+    // Despacho de missões por eventos: pedidos seguidos juntam-se numa só passagem
+    private final AtomicBoolean despachoPedido = new AtomicBoolean();
+    private final SinalSessao sinalDespacho = new SinalSessao(); // acorda o iniciador (THREADS/VIRTUAIS)
+    private volatile BlockingQueue<Runnable> eventos;           // fila do ciclo (EVENTOS)
+    // Modo EVENTOS: o método húngaro corre neste trabalhador e o resultado volta
+    // ao ciclo como evento; enquanto corre, os pedidos de despacho ficam adiados
+    // (flags só usadas na thread do ciclo)
+    private ExecutorService trabalhadorLote;
+    private boolean loteEmCurso = false;
+    private boolean despachoAdiado = false;
+    
     public ServidorUDP(GestaoEstado estado) {
+        this(estado, FormatoWire.BINARIO);
+    }
+    
+    public ServidorUDP(GestaoEstado estado, FormatoWire formato) {
+        this(estado, formato, PORTA_UDP);
+    }
+    
+    /** Com outra porta local (testes). */
+    ServidorUDP(GestaoEstado estado, FormatoWire formato, int porta) {
         this.estado = estado;
+        this.porta = porta;
         this.sessoesAtivas = new ConcurrentHashMap<>();
         this.running = true;
         this.metricas = new MetricasUDP("ServidorUDP");
+        this.formato = formato;
+        this.cacheMissoes = new CacheDatagramasMissao();
+        this.estimadorPerdas = new EstimadorPerdas();
+    }
+    
+    /**
+     * Ativa/desativa o envio de fragmentos de paridade (FEC) com as missões.
+     */
+    public void ativarFec(boolean ativo) {
+        this.fecAtivo = ativo;
+    }
+    
+    /**
+     * Ativa/desativa a preempção de missões em execução por missões
+     * pendentes mais prioritárias quando a frota está toda ocupada.
+     */
+    public void ativarPreempcao(boolean ativa) {
+        this.preempcaoAtiva = ativa;
+    }
+    
+    /**
+     * Ativa/desativa a entrega da missão seguinte a rovers ainda em missão.
+     */
+    public void ativarPrefetch(boolean ativo) {
+        this.prefetchAtivo = ativo;
+    }
+    
+    /**
+     * Escolhe o modelo de execução das sessões (antes de run()).
+     */
+    public void definirModo(ModoExecucao modo) {
+        this.modo = modo;
     }
     
     @Override
     public void run() {
+        // Registado só aqui, com o servidor já construído; o que mudar antes
+        // é apanhado pela primeira passagem do despachante
+        estado.definirOuvinteDespacho(this::pedirDespacho);
         try {
-            socket = new DatagramSocket(PORTA_UDP);
-            socket.setSoTimeout(100); // timeout curto para verificar running
-            System.out.println("[ServidorUDP] Iniciado na porta " + PORTA_UDP);
-            
-            // Thread para iniciar novas missões
-            Thread iniciadorMissoes = new Thread(this::iniciadorMissoes);
-            iniciadorMissoes.setDaemon(true);
-            iniciadorMissoes.start();
+            entrada = new EntradaUDP(porta);
+            entrada.abrir();
+            saida = new SaidaUDP(entrada);
+            saida.iniciar();
+            System.out.println("[ServidorUDP] Iniciado na porta " + porta + " (formato " + formato + 
+                               ", modo " + modo + (fecAtivo ? ", FEC ativo" : "") + ")");
             
-            // Loop principal: recebe respostas dos rovers
-            while (running) {
-                try {
-                    byte[] buffer = new byte[4096];
-                    DatagramPacket pacote = new DatagramPacket(buffer, buffer.length);
-                    socket.receive(pacote);
-                    
-                    // Processar mensagem recebida
-                    processarMensagemRecebida(pacote);
-                    
-                } catch (SocketTimeoutException e) {
-                    // Normal, continuar
-                } catch (IOException e) {
-                    if (running) {
-                        System.err.println("[ServidorUDP] Erro ao receber: " + e.getMessage());
-                    }
-                }
+            if (modo == ModoExecucao.EVENTOS) {
+                executarCicloEventos();
+            } else {
+                executarComThreads();
             }
             
-        } catch (SocketException e) {
+        } catch (IOException e) {
             System.err.println("[ServidorUDP] Erro ao criar socket: " + e.getMessage());
         } finally {
             this.parar();
@@ -100,73 +207,464 @@ public class ServidorUDP implements Runnable {
     }
     
     /**
-     * Thread que verifica periodicamente se há missões PENDENTES
-     * para atribuir a rovers "disponivel".
+     * Modos THREADS/VIRTUAIS: as mensagens são processadas nos trabalhadores
+     * da EntradaUDP (cada rover sempre no mesmo); cada sessão corre na sua
+     * thread e esta thread fica com o iniciador de missões.
+     */
+    private void executarComThreads() {
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ServidorUDP-agendador");
+            t.setDaemon(true);
+            return t;
+        });
+        entrada.iniciar(this::processarMensagemRecebida);
+        iniciadorMissoes();
+    }
+    
+    /**
+     * Thread do despachante de missões: acorda logo que há um pedido de
+     * despacho (ver pedirDespacho) ou, no máximo, a cada INTERVALO_INICIADOR_MS.
      */
     private void iniciadorMissoes() {
-        long ultimaLimpeza = System.currentTimeMillis();
-
+        pedirDespacho();
         while (running) {
             try {
-                Thread.sleep(2000); // Verifica a cada 2 segundos
-                
-                // Limpar sessões órfãs a cada 10 segundos
-                if (System.currentTimeMillis() - ultimaLimpeza > 10000) {
-                    limparSessoesOrfas();
-                    ultimaLimpeza = System.currentTimeMillis();
+                boolean pedido = sinalDespacho.aguardar(() -> despachoPedido.get() || !running, INTERVALO_INICIADOR_MS);
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
                 }
+                despacharMissoes(!pedido);
+            } catch (Exception e) {
+                System.err.println("[ServidorUDP] Erro no iniciador de missões: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Pede uma passagem do despachante. Chamado pelo GestaoEstado (missão
+     * criada, rover disponível) e quando uma sessão termina; vários pedidos
+     * antes da passagem correr resultam numa só.
+     */
+    public void pedirDespacho() {
+        if (!despachoPedido.compareAndSet(false, true)) {
+            return;
+        }
+        BlockingQueue<Runnable> fila = eventos;
+        if (fila != null) {
+            if (!fila.offer(this::tarefaDespacho)) {
+                despachoPedido.set(false); // ciclo saturado: fica para a passagem periódica
+            }
+        } else {
+            sinalDespacho.sinalizar();
+        }
+    }
+    
+    /**
+     * Limpa sessões órfãs (a cada 10 segundos) e atribui as missões
+     * pendentes, por ordem de prioridade, aos rovers disponíveis: cada uma
+     * ao rover mais próximo da sua área com bateria suficiente. Nas
+     * passagens periódicas, ou com muitas missões pendentes, a atribuição é
+     * feita em lote (ver despacharEmLote). As que sobram vão como missão
+     * seguinte para rovers prestes a terminar (ver prefetcharMissoes).
+     *
+     * @param periodica passagem do temporizador (e não pedida por um evento)
+     */
+    private void despacharMissoes(boolean periodica) {
+        despachoPedido.set(false);
 
-                // Procurar missão pendente
-                Missao missao = estado.obterMissaoNaoAtribuida();
-                if (missao == null){
-                    continue;
+        // Limpar sessões órfãs a cada 10 segundos
+        if (System.currentTimeMillis() - ultimaLimpeza > INTERVALO_LIMPEZA_MS) {
+            limparSessoesOrfas();
+            ultimaLimpeza = System.currentTimeMillis();
+        }
+
+        if (loteEmCurso) {
+            despachoAdiado = true; // nova passagem quando o lote chegar
+            return;
+        }
+        if (usarLote(periodica)) {
+            despacharEmLote();
+            return;
+        }
+
+        // Índices do estado: pendentes já por ordem de prioridade, rovers por posição
+        Missao emEspera = null;
+        int semRover = 0;
+        for (Missao missao : estado.listarMissoesPendentes()) {
+            if (!estado.haRoversDisponiveis()) {
+                emEspera = missao;
+                break;
+            }
+            Rover rover = estado.obterRoverMaisProximo(missao, this::roverPodeReceberMissao);
+            if (rover == null) {
+                // Nenhum rover com bateria para esta: tentar as seguintes, até um limite por passagem
+                emEspera = emEspera != null ? emEspera : missao;
+                if (++semRover >= MAX_MISSOES_SEM_ROVER) {
+                    break;
                 }
-                System.out.println("[ServidorUDP] Missão pendente encontrada: " + missao);
+                continue;
+            }
+            rover.portaUdp = PORTA_BASE_ROVER + rover.idRover; // definir porta UDP do rover (valor padrão)
+            iniciarEnvioMissao(rover, missao);
+        }
+
+        if (emEspera != null) {
+            System.out.println("[ServidorUDP] Missões pendentes à espera de rover disponível (próxima: " +
+                               emEspera.idMissao + ")");
+            prefetcharMissoes();
+            preemptarMissoes();
+        }
+    }
+    
+    /**
+     * Missão seguinte (prefetch): com a frota toda ocupada, cada missão
+     * pendente é entregue já ao rover que fica livre mais cedo (fim da
+     * missão atual mais a deslocação desde a área dela), se esse fim for
+     * dentro de JANELA_PREFETCH_S e o rover tiver bateria para as duas. O
+     * rover guarda-a e começa-a logo que a atual termina, sem passar por
+     * DISPONIVEL nem esperar pela telemetria e pelo despachante.
+     */
+    private void prefetcharMissoes() {
+        if (!prefetchAtivo || estado.haRoversDisponiveis()) {
+            return;
+        }
+        List<SessaoServidorMissionLink> candidatas = new ArrayList<>();
+        for (SessaoServidorMissionLink sessao : sessoesAtivas.values()) {
+            if (podeReceberMissaoSeguinte(sessao)) {
+                candidatas.add(sessao);
+            }
+        }
 
-                // Procurar rover disponível
-                Rover roverDisponivel = estado.obterRoverDisponivel();
-                if (!roverPodeReceberMissao(roverDisponivel)) {
-                    System.out.println("[ServidorUDP] Nenhum rover disponível no momento.");
+        int vistas = 0;
+        for (Missao missao : estado.listarMissoesPendentes()) {
+            if (candidatas.isEmpty() || ++vistas > MAX_MISSOES_SEM_ROVER) {
+                break;
+            }
+            SessaoServidorMissionLink escolhida = null;
+            float melhorInicio = Float.MAX_VALUE;
+            for (SessaoServidorMissionLink sessao : candidatas) {
+                float restante = segundosAteFim(sessao);
+                if (sessao.rover.bateria < GestaoEstado.bateriaNecessariaDepois(sessao.missao, restante, missao)) {
                     continue;
-                } else {
-                    roverDisponivel.portaUdp = PORTA_BASE_ROVER + roverDisponivel.idRover; // definir porta UDP do rover (valor padrão)
-                    System.out.println("[ServidorUDP] Atribuindo missão " + missao.idMissao + " ao rover " + roverDisponivel.idRover);
-                    iniciarEnvioMissao(roverDisponivel, missao);
                 }
-                
-            } catch (InterruptedException e) {
+                float inicio = restante + GestaoEstado.tempoDeslocacao(GestaoEstado.centroX(sessao.missao),
+                                                                       GestaoEstado.centroY(sessao.missao), missao);
+                if (inicio < melhorInicio) {
+                    melhorInicio = inicio;
+                    escolhida = sessao;
+                }
+            }
+            if (escolhida != null) {
+                candidatas.remove(escolhida);
+                iniciarEnvioMissaoSeguinte(escolhida, missao);
+            }
+        }
+    }
+
+    /**
+     * Só recebe a missão seguinte um rover que já executa a atual (com
+     * PROGRESS), sem outra em fila, e que a termina dentro de JANELA_PREFETCH_S.
+     */
+    private boolean podeReceberMissaoSeguinte(SessaoServidorMissionLink sessao) {
+        return podeSerInterrompida(sessao) && !sessoesSeguintes.containsKey(sessao.rover.idRover) &&
+               segundosAteFim(sessao) <= JANELA_PREFETCH_S;
+    }
+
+    /**
+     * Segundos que faltam para o rover terminar a missão da sessão, pelo
+     * último progresso reportado.
+     */
+    private float segundosAteFim(SessaoServidorMissionLink sessao) {
+        PayloadProgresso progresso = estado.obterProgresso(sessao.missao.idMissao);
+        float percentagem = progresso != null ? progresso.progressoPercentagem : sessao.missao.progressoMissao;
+        return sessao.missao.duracaoMissao * Math.max(0.0f, 100.0f - percentagem) / 100.0f;
+    }
+
+    /**
+     * Preempção: com a frota toda ocupada, cada missão pendente interrompe
+     * (MSG_CANCEL) a missão em execução de menor prioridade, se esta estiver
+     * pelo menos DIFERENCA_PREEMPCAO abaixo e o rover tiver bateria para a
+     * pendente. A missão interrompida volta a pendente com o seu progresso.
+     * Rovers já a ser interrompidos contam como livres, para que a mesma
+     * missão não interrompa dois rovers em passagens seguidas.
+     */
+    private void preemptarMissoes() {
+        if (!preempcaoAtiva || estado.haRoversDisponiveis()) {
+            return;
+        }
+        List<SessaoServidorMissionLink> emExecucao = new ArrayList<>();
+        int aLibertar = 0;
+        for (SessaoServidorMissionLink sessao : sessoesAtivas.values()) {
+            if (sessao.cancelamentoPedido) {
+                aLibertar++;
+            } else if (podeSerInterrompida(sessao) && !sessoesSeguintes.containsKey(sessao.rover.idRover)) {
+                // Um rover com missão seguinte não fica livre ao ser interrompido
+                emExecucao.add(sessao);
+            }
+        }
+        if (emExecucao.isEmpty()) {
+            return;
+        }
+        emExecucao.sort(Comparator.comparingInt(s -> s.missao.prioridade));
+
+        int vistas = 0;
+        for (Missao missao : estado.listarMissoesPendentes()) {
+            if (emExecucao.isEmpty() || ++vistas > MAX_MISSOES_SEM_ROVER) {
                 break;
-            } catch (Exception e) {
-                System.err.println("[ServidorUDP] Erro no iniciador de missões: " + e.getMessage());
-                e.printStackTrace();
             }
+            SessaoServidorMissionLink vitima = null;
+            for (SessaoServidorMissionLink sessao : emExecucao) {
+                if (missao.prioridade - sessao.missao.prioridade < DIFERENCA_PREEMPCAO) {
+                    break; // as seguintes têm prioridade igual ou maior
+                }
+                if (sessao.rover.bateria >= GestaoEstado.bateriaNecessaria(sessao.rover, missao)) {
+                    vitima = sessao;
+                    break;
+                }
+            }
+            if (vitima == null) {
+                continue;
+            }
+            if (aLibertar > 0) {
+                aLibertar--; // um rover já a ser libertado fica para esta missão
+                continue;
+            }
+            emExecucao.remove(vitima);
+            System.out.println("[ServidorUDP] Preempção: missão " + missao.idMissao + " (prioridade " + missao.prioridade +
+                               ") interrompe a missão " + vitima.missao.idMissao + " (prioridade " +
+                               vitima.missao.prioridade + ") no rover " + vitima.rover.idRover);
+            pedirCancelamento(vitima, true);
+        }
+    }
+    
+    /**
+     * Interrompe a missão em execução no rover com MSG_CANCEL. Numa
+     * preempção a missão volta a PENDENTE (com o progresso já reportado);
+     * senão fica CANCELADA. Em ambos os casos o rover fica livre.
+     *
+     * @param reatribuir true = preempção, false = cancelamento
+     * @return false se o rover não tiver uma missão em execução
+     */
+    public boolean cancelarMissao(int idRover, boolean reatribuir) {
+        SessaoServidorMissionLink sessao = sessoesAtivas.get(idRover);
+        return sessao != null && podeSerInterrompida(sessao) && pedirCancelamento(sessao, reatribuir);
+    }
+    
+    /**
+     * Só se interrompem missões que o rover já está a executar (com PROGRESS
+     * recebido) e que não estejam a terminar ou já a ser interrompidas.
+     */
+    private boolean podeSerInterrompida(SessaoServidorMissionLink sessao) {
+        return sessao.recebendoProgresso && !sessao.emFila && !sessao.cancelamentoPedido && 
+               !sessao.completedRecebido && !sessao.erroRecebido && sessao.fase != Fase.TERMINADA;
+    }
+    
+    /**
+     * Marca a sessão para cancelamento: no modo EVENTOS o CANCEL é enviado
+     * no ciclo, nos restantes pela thread da sessão (que é acordada).
+     */
+    private boolean pedirCancelamento(SessaoServidorMissionLink sessao, boolean reatribuir) {
+        sessao.reatribuirAposCancelar = reatribuir;
+        sessao.cancelamentoConfirmado = false;
+        sessao.cancelamentoRecusado = false;
+        sessao.cancelamentoPedido = true;
+        if (modo != ModoExecucao.EVENTOS) {
+            acordarSessao(sessao);
+            return true;
+        }
+        BlockingQueue<Runnable> fila = eventos;
+        if (fila == null || !fila.offer(() -> iniciarCancelamentoEventos(sessao))) {
+            sessao.cancelamentoPedido = false;
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Envia MSG_CANCEL (seq seguinte ao último do rover; flagSucesso = preempção).
+     * O rover responde com um ACK com o mesmo seq.
+     */
+    private boolean enviarCancelamento(SessaoServidorMissionLink sessao) {
+        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_CANCEL, sessao, sessao.seqCancelamento, 
+                                            sessao.reatribuirAposCancelar);
+        msg.payload = null;
+        return enviarMensagemUDP(msg, sessao);
+    }
+    
+    /**
+     * Cancelamento confirmado pelo rover: a missão volta a pendente (ou fica
+     * cancelada) e o rover fica livre. A sessão é finalizada por quem chama.
+     */
+    private void concluirCancelamento(SessaoServidorMissionLink sessao) {
+        System.out.println("[ServidorUDP] Rover " + sessao.rover.idRover + " parou a missão " + 
+                           sessao.missao.idMissao + (sessao.reatribuirAposCancelar ? " (preempção)" : " (cancelada)"));
+        estado.interromperMissao(sessao.rover.idRover, sessao.missao.idMissao, sessao.reatribuirAposCancelar);
+        cacheMissoes.invalidar(sessao.missao.idMissao); // o progresso inicial da missão mudou
+    }
+    
+    /**
+     * Lote só compensa com vários rovers livres, e fora das passagens
+     * periódicas só com acumulação de missões (LIMIAR_LOTE).
+     */
+    private boolean usarLote(boolean periodica) {
+        if (estado.contarRoversDisponiveis() < 2) {
+            return false;
+        }
+        int pendentes = 0;
+        for (Missao missao : estado.listarMissoesPendentes()) {
+            if (++pendentes >= (periodica ? 2 : LIMIAR_LOTE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Atribuição em lote: as missões pendentes (até MAX_MISSOES_LOTE, por
+     * prioridade) e os rovers livres são emparelhados pelo AtribuidorMissoes
+     * com custo total mínimo (deslocação, prioridade e bateria). No modo
+     * EVENTOS o cálculo corre no trabalhadorLote, para não parar o ciclo
+     * (milhares de missões levam centenas de ms); as reservas são feitas no
+     * ciclo quando o resultado chega, e falham sem efeito se o estado mudou.
+     */
+    private void despacharEmLote() {
+        List<Missao> missoes = new ArrayList<>();
+        for (Missao missao : estado.listarMissoesPendentes()) {
+            missoes.add(missao);
+            if (missoes.size() >= MAX_MISSOES_LOTE) {
+                break;
+            }
+        }
+        List<Rover> rovers = new ArrayList<>();
+        for (Rover rover : estado.listarRoversDisponiveis()) {
+            if (roverPodeReceberMissao(rover)) {
+                rovers.add(rover);
+            }
+        }
+
+        if (modo != ModoExecucao.EVENTOS) {
+            aplicarLote(calcularLote(missoes, rovers));
+            return;
+        }
+        loteEmCurso = true;
+        BlockingQueue<Runnable> fila = eventos;
+        trabalhadorLote.execute(() -> {
+            List<AtribuidorMissoes.Atribuicao> atribuicoes = calcularLote(missoes, rovers);
+            try {
+                fila.put(() -> tarefaLote(atribuicoes));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // servidor a parar
+            }
+        });
+    }
+
+    private List<AtribuidorMissoes.Atribuicao> calcularLote(List<Missao> missoes, List<Rover> rovers) {
+        long inicio = System.nanoTime();
+        try {
+            List<AtribuidorMissoes.Atribuicao> atribuicoes = AtribuidorMissoes.atribuir(missoes, rovers);
+            System.out.println("[ServidorUDP] Atribuição em lote: " + atribuicoes.size() + " de " + missoes.size() +
+                               " missões para " + rovers.size() + " rovers (" +
+                               (System.nanoTime() - inicio) / 1_000_000 + " ms)");
+            return atribuicoes;
+        } catch (RuntimeException e) {
+            System.err.println("[ServidorUDP] Erro na atribuição em lote: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Resultado do lote de volta ao ciclo (modo EVENTOS).
+     */
+    private void tarefaLote(List<AtribuidorMissoes.Atribuicao> atribuicoes) {
+        loteEmCurso = false;
+        try {
+            aplicarLote(atribuicoes);
+        } catch (Exception e) {
+            System.err.println("[ServidorUDP] Erro no despacho de missões: " + e.getMessage());
+        }
+        if (despachoAdiado) {
+            despachoAdiado = false;
+            pedirDespacho();
+        }
+    }
+
+    private void aplicarLote(List<AtribuidorMissoes.Atribuicao> atribuicoes) {
+        for (AtribuidorMissoes.Atribuicao a : atribuicoes) {
+            a.rover.portaUdp = PORTA_BASE_ROVER + a.rover.idRover; // definir porta UDP do rover (valor padrão)
+            iniciarEnvioMissao(a.rover, a.missao);
         }
+        prefetcharMissoes();
     }
     
     /**
      * Inicia o processo de envio de missão para um rover.
+     * @return false se o rover já tem sessão ou a reserva falhou (estado mudou entretanto)
      */
-    private void iniciarEnvioMissao(Rover rover, Missao missao) {
+    private boolean iniciarEnvioMissao(Rover rover, Missao missao) {
 
         // Verificar se já existe sessão ativa para este rover
         if (sessoesAtivas.containsKey(rover.idRover)) {
-            return;
+            return false;
         }
         
         //Mudar estado aqui, quando realmente vai iniciar envio
-        missao.estadoMissao = Missao.EstadoMissao.EM_ANDAMENTO;
-        rover.estadoRover = Rover.EstadoRover.ESTADO_RECEBENDO_MISSAO;
+        if (!estado.reservarMissao(rover, missao)) {
+            return false;
+        }
+        System.out.println("[ServidorUDP] Atribuindo missão " + missao.idMissao + " ao rover " + rover.idRover);
         System.out.println("[ServidorUDP] Rover " + rover.idRover + 
                      " mudou para ESTADO_RECEBENDO_MISSAO");
       
         // Criar nova sessão
         SessaoServidorMissionLink sessao = new SessaoServidorMissionLink(rover, missao);
+        sessao.rtt = estimadoresRtt.computeIfAbsent(rover.idRover, id -> new EstimadorRTT(TIMEOUT_MS));
         sessoesAtivas.put(rover.idRover, sessao);
         
-        // Enviar mensagens em thread separada
-        Thread t = new Thread(() -> executarSessaoMissao(sessao));
-        t.setDaemon(true);
-        t.start();
+        iniciarSessao(sessao, "MissionLink-rover-" + rover.idRover);
+        return true;
+    }
+    
+    /**
+     * Inicia a entrega da missão seguinte a um rover ainda na missão da
+     * sessão atual. A sessão nova fica em sessoesSeguintes (emFila) até a
+     * atual terminar; o HELLO leva flagSucesso para o rover a aceitar em
+     * execução.
+     */
+    private boolean iniciarEnvioMissaoSeguinte(SessaoServidorMissionLink atual, Missao missao) {
+        Rover rover = atual.rover;
+        if (sessoesSeguintes.containsKey(rover.idRover) || !estado.reservarMissaoSeguinte(rover, missao)) {
+            return false;
+        }
+        System.out.println("[ServidorUDP] Missão seguinte " + missao.idMissao + " para o rover " + rover.idRover + 
+                           " (missão atual " + atual.missao.idMissao + " termina em ~" + 
+                           Math.round(segundosAteFim(atual)) + "s)");
+        
+        SessaoServidorMissionLink sessao = new SessaoServidorMissionLink(rover, missao);
+        sessao.rtt = estimadoresRtt.computeIfAbsent(rover.idRover, id -> new EstimadorRTT(TIMEOUT_MS));
+        sessao.missaoSeguinte = true;
+        sessao.emFila = true;
+        sessao.enderecoRover = atual.enderecoRover;
+        sessao.portaRover = atual.portaRover;
+        sessoesSeguintes.put(rover.idRover, sessao);
+        if (!sessoesAtivas.containsKey(rover.idRover)) {
+            promoverMissaoSeguinte(rover.idRover); // a atual terminou entretanto
+        }
+        
+        iniciarSessao(sessao, "MissionLink-rover-" + rover.idRover + "-seguinte");
+        return true;
+    }
+    
+    /**
+     * Arranca o fluxo da sessão: no ciclo de eventos ou numa thread própria
+     * (virtual no modo VIRTUAIS).
+     */
+    private void iniciarSessao(SessaoServidorMissionLink sessao, String nomeThread) {
+        if (modo == ModoExecucao.EVENTOS) {
+            iniciarSessaoEventos(sessao);
+            return;
+        }
+        modo.iniciarThread(nomeThread, () -> executarSessaoMissao(sessao));
     }
     
     /**
@@ -215,11 +713,12 @@ public class ServidorUDP implements Runnable {
             finalizarSessao(sessao, true);
             
             System.out.println("[ServidorUDP] Sessão de missão " + sessao.missao.idMissao + 
-            " para rover " + sessao.rover.idRover + " concluída com sucesso");
+            " para rover " + sessao.rover.idRover + 
+            (sessao.cancelamentoConfirmado ? " interrompida" : " concluída com sucesso"));
 
         } catch (Exception e) {
             System.err.println("[ServidorUDP] Erro na sessão: " + e.getMessage());
-            if (sessoesAtivas.containsKey(sessao.rover.idRover)) {
+            if (sessaoRegistada(sessao)) {
                 finalizarSessao(sessao, false);
             }
         }
@@ -229,28 +728,29 @@ public class ServidorUDP implements Runnable {
      * Envia mensagem HELLO para o rover.
      */
     private boolean enviarHello(SessaoServidorMissionLink sessao) {
-        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_HELLO, sessao, 1, false);
+        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_HELLO, sessao, 1, sessao.missaoSeguinte);
         msg.payload = null; // HELLO não tem payload
+        // Karn: o RTT só se mede a partir de um HELLO enviado uma única vez
+        sessao.helloRetransmitido = sessao.instanteHello != 0;
+        sessao.instanteHello = System.currentTimeMillis();
         return enviarMensagemUDP(msg, sessao);
     }
     
     /**
      * Aguarda uma condição ser satisfeita dentro de um timeout.
+     * A thread da sessão dorme no sinal da sessão e é acordada logo que a
+     * receção processa uma mensagem do rover (ver acordarSessao).
      * @return true se a condição foi satisfeita, false se timeout
      */
-    private boolean aguardarCondicao(Condicao condicao, long timeoutMs) {
-        long inicio = System.currentTimeMillis();
-        while (System.currentTimeMillis() - inicio < timeoutMs) {
-            if (condicao.verificar()) {
-                return true;
-            }
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                return false;
-            }
-        }
-        return false;
+    private boolean aguardarCondicao(SessaoServidorMissionLink sessao, Condicao condicao, long timeoutMs) {
+        return sessao.sinal.aguardar(condicao, timeoutMs);
+    }
+
+    /**
+     * Acorda as threads à espera na sessão (modos THREADS/VIRTUAIS) para reavaliarem a condição.
+     */
+    private void acordarSessao(SessaoServidorMissionLink sessao) {
+        sessao.sinal.sinalizar();
     }
 
     /**
@@ -258,10 +758,11 @@ public class ServidorUDP implements Runnable {
      */
     private boolean aguardarResponse(SessaoServidorMissionLink sessao) {
         for (int tentativas = 0; tentativas < MAX_RETRIES; tentativas++) {
-            if (aguardarCondicao(() -> sessao.responseRecebido, TIMEOUT_MS)) {
+            if (aguardarCondicao(sessao, () -> sessao.responseRecebido, sessao.rtt.rto())) {
                 return sessao.responseSucesso;
             }
             // Timeout sem resposta
+            sessao.rtt.aoTimeout();
             if (tentativas + 1 < MAX_RETRIES) {
                 metricas.incrementarMensagensRetransmitidas();
                 if (!enviarHello(sessao)) {
@@ -273,50 +774,32 @@ public class ServidorUDP implements Runnable {
     }
     
     /**
-     * Fragmenta e envia todos os fragmentos da missão.
-     * Usa o SerializadorUDP para fragmentação automática.
+     * Envia todos os fragmentos da missão.
+     * Os datagramas vêm da cache: a missão só é serializada e fragmentada
+     * na primeira vez (ou quando muda de versão).
+     *
+     * O envio é feito em janela deslizante (ver ControloCongestao): cada seq
+     * espera que haja espaço na janela, os envios são espaçados por srtt/cwnd
+     * e as lacunas reportadas pelos ACKs intermédios do rover são
+     * retransmitidas logo, sem esperar pelo fim da missão.
      */
     private boolean enviarFragmentosMissao(SessaoServidorMissionLink sessao) {
         try {
-            PayloadMissao payload = sessao.missao.toPayload();
-            
-            // Verificar se precisa de fragmentação
-            if (!SerializadorUDP.precisaFragmentacao(payload, TAMANHO_FRAGMENTO)) {
-                // Enviar missão diretamente sem fragmentação
-                System.out.println("[ServidorUDP] Missão " + sessao.missao.idMissao + 
-                        " não precisa de fragmentação - enviando diretamente");
-                
-                sessao.totalFragmentos = 1;
-                // Armazenar o payload completo para permitir retransmissão
-                sessao.payloadCompleto = payload;
-                
-                MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_MISSION, sessao, 2, false);
-                msg.header.totalFragm = 1;
-                msg.payload = payload; // Payload direto, não fragmentado
-                
-                return enviarMensagemUDP(msg, sessao);
-            }
-            
-            // Precisa fragmentação
-            List<FragmentoPayload> fragmentos = SerializadorUDP.fragmentarPayload(payload, TAMANHO_FRAGMENTO);
-            
-            sessao.totalFragmentos = fragmentos.size();
-            sessao.fragmentosPayload = fragmentos;
-
-            // Calcular tamanho total para log
-            List<CampoSerializado> campos = SerializadorUDP.serializarPayload(payload);
-            int tamanhoTotal = SerializadorUDP.calcularTamanhoTotal(campos);
-            
-            System.out.println("[ServidorUDP] Missão " + sessao.missao.idMissao + 
-                    ": " + tamanhoTotal + " bytes em " + sessao.totalFragmentos + 
-                    " fragmentos (máx " + TAMANHO_FRAGMENTO + " bytes cada)");
+            prepararEnvioMissao(sessao);
 
-            // Enviar todos os fragmentos
+            ControloCongestao controlo = sessao.controlo;
             for (int i = 0; i < sessao.totalFragmentos; i++) {
-                if (!enviarFragmentoPayload(sessao, i + 2, fragmentos.get(i))) {
+                int seq = i + 2;
+                if (!controlo.aguardarJanela(seq)) {
+                    System.out.println("[ServidorUDP] Sem ACK do rover " + sessao.rover.idRover + 
+                                     " - janela reduzida para " + (int) controlo.getJanela() + " (seq=" + seq + ")");
+                }
+                retransmitirPerdidos(sessao, true);
+                espacarEnvio(controlo);
+
+                if (!enviarNovoFragmento(sessao, seq)) {
                     return false;
                 }
-                Thread.sleep(10);
             }
 
             return true;
@@ -327,93 +810,215 @@ public class ServidorUDP implements Runnable {
             return false;
         }
     }
-    
+
     /**
-     * Envia um FragmentoPayload específico.
+     * Prepara o envio dos fragmentos: datagramas e paridade da cache,
+     * janela de congestionamento nova e início da medição de goodput.
      */
-    private boolean enviarFragmentoPayload(SessaoServidorMissionLink sessao, int seq, FragmentoPayload frag) {
-        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_MISSION, sessao, seq, false);
-        msg.header.totalFragm = sessao.totalFragmentos;
-        msg.payload = frag;
-        
-        return enviarMensagemUDP(msg, sessao);
+    private void prepararEnvioMissao(SessaoServidorMissionLink sessao) throws IOException {
+        CacheDatagramasMissao.Entrada entrada = cacheMissoes.obter(sessao.missao, TAMANHO_FRAGMENTO,
+                                                                   formato, sessao.rover.idRover);
+        sessao.datagramasMissao = entrada.datagramas;
+        sessao.totalFragmentos = entrada.totalFragmentos();
+        sessao.bytesMissao = entrada.tamanhoPayload;
+        sessao.controlo = new ControloCongestao(sessao.totalFragmentos, sessao.rtt);
+        sessao.ackCompleto = false;
+        sessao.proximoSeq = 2;
+        if (sessao.inicioEnvioMissao == 0) {
+            sessao.inicioEnvioMissao = System.currentTimeMillis();
+        }
+
+        // Paridade FEC: grupos de k fragmentos, k ajustado à perda observada no rover
+        sessao.tamanhoGrupoFec = fecAtivo ? estimadorPerdas.tamanhoGrupoFec(sessao.rover.idRover) : 0;
+        sessao.datagramasParidade = sessao.tamanhoGrupoFec > 0
+                ? cacheMissoes.obterParidade(entrada, sessao.tamanhoGrupoFec)
+                : new byte[0][];
+
+        if (sessao.totalFragmentos == 1) {
+            System.out.println("[ServidorUDP] Missão " + sessao.missao.idMissao + 
+                    " não precisa de fragmentação - enviando diretamente");
+        } else {
+            System.out.println("[ServidorUDP] Missão " + sessao.missao.idMissao + 
+                    ": " + entrada.tamanhoPayload + " bytes em " + sessao.totalFragmentos + 
+                    " fragmentos (máx " + TAMANHO_FRAGMENTO + " bytes cada)" +
+                    (sessao.datagramasParidade.length > 0 ? " + " + sessao.datagramasParidade.length + 
+                            " de paridade (grupos de " + sessao.tamanhoGrupoFec + ", perda estimada " + 
+                            String.format("%.1f", estimadorPerdas.taxa(sessao.rover.idRover) * 100) + "%)" : ""));
+        }
+    }
+
+    /**
+     * Envia o fragmento seq pela ordem da missão; a paridade de cada grupo
+     * segue logo o último fragmento do grupo.
+     */
+    private boolean enviarNovoFragmento(SessaoServidorMissionLink sessao, int seq) {
+        if (!enviarFragmento(sessao, seq)) {
+            return false;
+        }
+        byte[][] paridade = sessao.datagramasParidade;
+        int i = seq - 2;
+        if (paridade.length > 0 && ((i + 1) % sessao.tamanhoGrupoFec == 0 || i + 1 == sessao.totalFragmentos)) {
+            int grupo = i / sessao.tamanhoGrupoFec;
+            enviarDatagrama(paridade[grupo], TipoMensagem.MSG_MISSION,
+                            CodigoParidade.seqParidade(sessao.totalFragmentos, grupo), sessao);
+        }
+        return true;
     }
     
     /**
-     * Envia um fragmento específico por índice (para retransmissões).
+     * Envia um fragmento específico por seq (envio inicial e retransmissões).
+     * Envia diretamente os bytes já codificados, sem voltar a serializar.
      */
     private boolean enviarFragmento(SessaoServidorMissionLink sessao, int seq) {
-        // Caso especial: missão completa sem fragmentação (seq=2, totalFragm=1)
-        if (sessao.totalFragmentos == 1 && seq == 2 && sessao.payloadCompleto != null) {
-            MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_MISSION, sessao, seq, false);
-            msg.header.totalFragm = 1;
-            msg.payload = sessao.payloadCompleto;
-            return enviarMensagemUDP(msg, sessao);
-        }
-        
-        // Caso normal: retransmissão de fragmento específico
+        byte[][] datagramas = sessao.datagramasMissao;
         int indice = seq - 2; // seq começa em 2, indice em 0
-        if (indice < 0 || sessao.fragmentosPayload == null || indice >= sessao.fragmentosPayload.size()) {
+        if (datagramas == null || indice < 0 || indice >= datagramas.length) {
             return false;
         }
-        
-        return enviarFragmentoPayload(sessao, seq, sessao.fragmentosPayload.get(indice));
+        if (sessao.controlo != null) {
+            sessao.controlo.registarEnvio(seq);
+        }
+        sessao.datagramasMissaoEnviados++;
+        return enviarDatagrama(datagramas[indice], TipoMensagem.MSG_MISSION, seq, sessao);
+    }
+
+    /**
+     * Espera o intervalo de pacing da janela antes do próximo envio.
+     */
+    private void espacarEnvio(ControloCongestao controlo) {
+        long intervalo = controlo.intervaloEnvioNanos();
+        if (intervalo > 0) {
+            LockSupport.parkNanos(intervalo);
+        }
     }
     
     /**
      * Aguarda ACK completo, retransmitindo fragmentos perdidos se necessário.
-     * Se o ACK não chegar (timeout), retransmite TODA a missão.
+     * Cada ACK com lacunas provoca a retransmissão dessas lacunas (sem gastar
+     * tentativa, mas contando para o limite de excedeuRondasAck). Num timeout
+     * reenviam-se as lacunas conhecidas e tudo o que ainda não foi confirmado (toda a missão, se nenhum ACK chegou).
      */
     private boolean aguardarAckCompleto(SessaoServidorMissionLink sessao) {
         for (int tentativas = 0; tentativas < MAX_RETRIES; tentativas++) {
-            if (aguardarCondicao(() -> sessao.ackRecebido, TIMEOUT_MS)) {
-                if (sessao.fragmentosPerdidos.isEmpty()) {
-                    // ACK completo
-                    System.out.println("[ServidorUDP] Missão " + sessao.missao.idMissao + 
-                         " enviada com sucesso para rover " + sessao.rover.idRover);
-                    estado.atribuirMissaoARover(sessao.rover.idRover, sessao.missao.idMissao);
-                    return true;
-                } else {
-                    // Retransmitir fragmentos perdidos
-                    System.out.println("[ServidorUDP] Retransmitindo " + 
-                                     sessao.fragmentosPerdidos.size() + " fragmentos perdidos");
-                    metricas.incrementarMensagensRetransmitidas();
-                    for (int seq : sessao.fragmentosPerdidos) {
-                        enviarFragmento(sessao, seq);
-                    }
-                    // Reset para aguardar novo ACK 
-                    sessao.ackRecebido = false;
-                    // Não incrementar tentativas; aguardar novo ACK na próxima iteração
-                    tentativas--;
+            if (sessao.ackCompleto) {
+                concluirEntregaMissao(sessao);
+                return true;
+            }
+
+            sessao.ackRecebido = false;
+            if (!sessao.fragmentosPerdidos.isEmpty()) {
+                System.out.println("[ServidorUDP] Retransmitindo " + 
+                                 sessao.fragmentosPerdidos.cardinality() + " fragmentos perdidos");
+                metricas.incrementarMensagensRetransmitidas();
+                retransmitirPerdidos(sessao, true);
+            }
+
+            if (aguardarCondicao(sessao, () -> sessao.ackRecebido, sessao.rtt.rto())) {
+                // Novo ACK: completo ou com novas lacunas; não consumir tentativa
+                if (excedeuRondasAck(sessao)) {
+                    return false;
                 }
-            } else {
-                // Timeout sem ACK, verificar se temos fragmentos conhecidos para reenviar
-                if (!sessao.fragmentosPerdidos.isEmpty()) {
-                    // Reenviar os mesmos fragmentos
-                    System.out.println("[ServidorUDP] Timeout - retransmitindo " + 
-                                     sessao.fragmentosPerdidos.size() + " fragmentos perdidos");
-                    metricas.incrementarMensagensRetransmitidas();
-                    for (int seq : sessao.fragmentosPerdidos) {
-                        enviarFragmento(sessao, seq);
-                    }
-                    sessao.ackRecebido = false;
-                    tentativas--; // Não consumir tentativa
-                } else {
-                    // Reenviar missão completa
-                    if (tentativas + 1 < MAX_RETRIES) {
-                        System.out.println("[ServidorUDP] Timeout aguardando ACK - retransmitindo missão completa (tentativa " + 
-                                         (tentativas + 2) + "/" + MAX_RETRIES + ")");
-                        metricas.incrementarMensagensRetransmitidas();
-                        if (!enviarFragmentosMissao(sessao)) {
-                            return false;
-                        }
-                    }
+                tentativas--;
+                continue;
+            }
+
+            // Timeout sem ACK
+            sessao.controlo.aoTimeout();
+            sessao.rtt.aoTimeout();
+            if (tentativas + 1 < MAX_RETRIES) {
+                int confirmado = sessao.controlo.getMaiorSeqConfirmado();
+                System.out.println("[ServidorUDP] Timeout aguardando ACK - retransmitindo " + 
+                                 (sessao.fragmentosPerdidos.cardinality() + sessao.totalFragmentos + 1 - confirmado) + 
+                                 " fragmentos não confirmados (tentativa " + (tentativas + 2) + "/" + MAX_RETRIES + ")");
+                metricas.incrementarMensagensRetransmitidas();
+                BitSet pendentes = (BitSet) sessao.fragmentosPerdidos.clone();
+                pendentes.set(confirmado + 1, sessao.totalFragmentos + 2);
+                for (int seq = pendentes.nextSetBit(0); seq >= 0; seq = pendentes.nextSetBit(seq + 1)) {
+                    espacarEnvio(sessao.controlo);
+                    enviarFragmento(sessao, seq);
                 }
             }
         }
         return false;
     }
 
+    /**
+     * Conta mais uma ronda de ACK na entrega da missão. Um ACK com lacunas
+     * não gasta tentativa, mas o total de rondas é limitado (MAX_RETRIES por
+     * fragmento): um rover que reporte lacunas sem fim não prende a sessão.
+     *
+     * @return true se o limite foi excedido (a entrega desiste)
+     */
+    private boolean excedeuRondasAck(SessaoServidorMissionLink sessao) {
+        int limite = MAX_RETRIES * (sessao.totalFragmentos + 1);
+        if (++sessao.rondasAck <= limite) {
+            return false;
+        }
+        System.err.println("[ServidorUDP] Rover " + sessao.rover.idRover + " enviou " + limite +
+                         " ACKs sem confirmar a missão " + sessao.missao.idMissao + " - a desistir");
+        return true;
+    }
+
+    /**
+     * Reenvia os fragmentos em falta no último ACK que não estejam já a
+     * caminho (retransmitidos há menos de ~2 RTT).
+     *
+     * @param espacar aplicar o pacing da janela (o ciclo de eventos não pode bloquear)
+     */
+    private void retransmitirPerdidos(SessaoServidorMissionLink sessao, boolean espacar) {
+        BitSet perdidos = sessao.fragmentosPerdidos;
+        ControloCongestao controlo = sessao.controlo;
+        for (int seq = perdidos.nextSetBit(0); seq >= 0; seq = perdidos.nextSetBit(seq + 1)) {
+            if (controlo.podeRetransmitir(seq)) {
+                if (espacar) {
+                    espacarEnvio(controlo);
+                }
+                enviarFragmento(sessao, seq);
+            }
+        }
+    }
+
+    /**
+     * Missão entregue (ACK completo): regista perdas e goodput e atribui a
+     * missão ao rover (uma missão seguinte já está reservada e fica em fila).
+     */
+    private void concluirEntregaMissao(SessaoServidorMissionLink sessao) {
+        registarAmostraPerdas(sessao);
+        registarGoodput(sessao);
+        System.out.println("[ServidorUDP] Missão " + sessao.missao.idMissao + 
+             " enviada com sucesso para rover " + sessao.rover.idRover + (sessao.emFila ? " (missão seguinte)" : ""));
+        if (!sessao.emFila) {
+            estado.atribuirMissaoARover(sessao.rover.idRover, sessao.missao.idMissao);
+        }
+    }
+
+    /**
+     * Regista no estimador a perda observada na entrega da missão:
+     * fragmentos que algum ACK reportou em falta, mais os que o rover
+     * reconstruiu por paridade.
+     */
+    private void registarAmostraPerdas(SessaoServidorMissionLink sessao) {
+        if (sessao.perdasRegistadas || sessao.totalFragmentos <= 1) {
+            return;
+        }
+        sessao.perdasRegistadas = true;
+
+        int perdidos = sessao.recuperadosFec + sessao.perdidosReportados();
+        estimadorPerdas.registar(sessao.rover.idRover, sessao.totalFragmentos, perdidos);
+    }
+
+    /**
+     * Regista o goodput da entrega da missão (bytes úteis / tempo até ao ACK completo).
+     */
+    private void registarGoodput(SessaoServidorMissionLink sessao) {
+        long duracao = System.currentTimeMillis() - sessao.inicioEnvioMissao;
+        metricas.registarGoodputSessao(sessao.missao.idMissao, sessao.rover.idRover, sessao.bytesMissao,
+                                       sessao.datagramasMissaoEnviados, duracao, sessao.controlo.getJanela());
+        System.out.println("[ServidorUDP] Goodput missão " + sessao.missao.idMissao + ": " + sessao.bytesMissao + 
+                         " bytes em " + duracao + "ms (" + sessao.datagramasMissaoEnviados + " datagramas, janela final " + 
+                         String.format("%.1f", sessao.controlo.getJanela()) + ", " + sessao.rtt + ")");
+    }
+
     /**
      * Aguarda receção de mensagens PROGRESS até receber COMPLETED ou timeout.
      * Reinicia janela de timeout sempre que chega novo progresso.
@@ -421,22 +1026,32 @@ public class ServidorUDP implements Runnable {
 
     private boolean aguardarProgress(SessaoServidorMissionLink sessao) {
 
-        long intervaloAtualizacao = TIMEOUT_MS;
-
-        if (sessao.missao != null && sessao.missao.intervaloAtualizacao > 0){
-            intervaloAtualizacao = sessao.missao.intervaloAtualizacao * 1000; // converter para ms
-        }
-        
-        // timeout = 8x intervalo de atualização (aumentado para tolerar atrasos na rede)
-        long timeoutProgressMs = intervaloAtualizacao * 8;
+        long timeoutProgressMs = timeoutProgresso(sessao);
 
         long inicioJanela = System.currentTimeMillis();
         int ultimoSeq = sessao.ultimoSeq;
         // Continua enquanto não recebeu COMPLETED nem recebeu ERROR
         while (!sessao.completedRecebido && !sessao.erroRecebido) {
 
+            // Preempção/cancelamento pedido pelo despachante
+            if (sessao.cancelamentoPedido) {
+                if (cancelarNaSessao(sessao)) {
+                    return true; // missão interrompida, a sessão termina
+                }
+                inicioJanela = System.currentTimeMillis();
+                continue;
+            }
+
+            // Missão seguinte: abandonada se a atual falhou; o prazo só conta depois de a atual terminar
+            if (sessao.abandonada) {
+                return false;
+            }
+            if (sessao.emFila) {
+                inicioJanela = System.currentTimeMillis();
+            }
+
             //Verificar se sessão ainda existe 
-            if (!sessoesAtivas.containsKey(sessao.rover.idRover)) {
+            if (!sessaoRegistada(sessao)) {
                 System.out.println("[ServidorUDP] Sessão do rover " + sessao.rover.idRover + 
                                  " foi removida (COMPLETED/ERROR recebido em outro handler)");
                 return true; //missão foi concluída
@@ -448,33 +1063,74 @@ public class ServidorUDP implements Runnable {
                 inicioJanela = System.currentTimeMillis();
             }
             // Timeout sem progresso nem completed
-            if (System.currentTimeMillis() - inicioJanela > timeoutProgressMs) {
+            long restante = timeoutProgressMs - (System.currentTimeMillis() - inicioJanela);
+            if (restante < 0 || Thread.currentThread().isInterrupted()) {
                 return false; // Falhou aguardar progress/completed
             }
 
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                return false;
-            }
+            // Acordada por PROGRESS/COMPLETED/ERROR (ou remoção da sessão) ou no fim da janela
+            int seqAtual = ultimoSeq;
+            aguardarCondicao(sessao, () -> sessao.completedRecebido || sessao.erroRecebido || sessao.cancelamentoPedido ||
+                             sessao.abandonada || sessao.ultimoSeq != seqAtual || !sessaoRegistada(sessao), restante + 1);
         }
 
         return true; // COMPLETED ou ERROR recebido
     }
+
+    /**
+     * Modos THREADS/VIRTUAIS: envia MSG_CANCEL até o rover o confirmar (no
+     * máximo MAX_RETRIES vezes, com o RTO do rover).
+     *
+     * @return true se a missão foi interrompida; false se o rover recusou
+     *         (já tinha terminado) ou não respondeu, e a sessão continua
+     */
+    private boolean cancelarNaSessao(SessaoServidorMissionLink sessao) {
+        sessao.seqCancelamento = sessao.ultimoSeq + 1;
+        for (int tentativa = 0; tentativa < MAX_RETRIES && running; tentativa++) {
+            if (tentativa > 0) {
+                sessao.rtt.aoTimeout();
+                metricas.incrementarMensagensRetransmitidas();
+            }
+            enviarCancelamento(sessao);
+            aguardarCondicao(sessao, () -> sessao.cancelamentoConfirmado || sessao.cancelamentoRecusado ||
+                             sessao.completedRecebido || sessao.erroRecebido, sessao.rtt.rto());
+            if (sessao.completedRecebido || sessao.erroRecebido || sessao.cancelamentoRecusado) {
+                break;
+            }
+            if (sessao.cancelamentoConfirmado) {
+                concluirCancelamento(sessao);
+                return true;
+            }
+        }
+        System.out.println("[ServidorUDP] Cancelamento da missão " + sessao.missao.idMissao + 
+                           " não confirmado pelo rover " + sessao.rover.idRover + " - a sessão continua");
+        sessao.cancelamentoPedido = false;
+        return false;
+    }
+
+    /**
+     * Tempo máximo sem PROGRESS antes de dar a sessão como perdida.
+     */
+    private long timeoutProgresso(SessaoServidorMissionLink sessao) {
+        long intervaloAtualizacao = TIMEOUT_MS;
+
+        if (sessao.missao != null && sessao.missao.intervaloAtualizacao > 0){
+            intervaloAtualizacao = sessao.missao.intervaloAtualizacao * 1000; // converter para ms
+        }
+        
+        // timeout = 8x intervalo de atualização (aumentado para tolerar atrasos na rede)
+        return intervaloAtualizacao * 8;
+    }
     
     /**
      * Processa mensagem recebida do rover (RESPONSE ou ACK).
      */
-    private void processarMensagemRecebida(DatagramPacket pacote) {
+    private void processarMensagemRecebida(MensagemUDP msg, InetSocketAddress origem) {
         try {
-            MensagemUDP msg = deserializarMensagem(pacote.getData(), pacote.getLength());
-            if (msg == null || msg.header == null)
-                return;
-            
             metricas.incrementarMensagensRecebidas();
             
             int idRover = msg.header.idEmissor;
-            SessaoServidorMissionLink sessao = sessoesAtivas.get(idRover);
+            SessaoServidorMissionLink sessao = sessaoDaMensagem(idRover, msg.header.idMissao);
             
             if (sessao == null)
                 // Mensagem sem sessão ativa
@@ -484,9 +1140,9 @@ public class ServidorUDP implements Runnable {
             
             // Atualizar endpoint da sessão apenas na primeira mensagem recebida.
             // Após a primeira mensagem, mantemos o endereço fixo para consistência.
-            if (sessao.enderecoRover == null && pacote.getAddress() != null) {
-                sessao.enderecoRover = pacote.getAddress();
-                sessao.portaRover = pacote.getPort();
+            if (sessao.enderecoRover == null && origem != null) {
+                sessao.enderecoRover = origem.getAddress();
+                sessao.portaRover = origem.getPort();
                 System.out.println("[ServidorUDP] Endpoint do rover " + idRover + 
                                  " estabelecido: " + sessao.enderecoRover.getHostAddress() + 
                                  ":" + sessao.portaRover);
@@ -500,60 +1156,117 @@ public class ServidorUDP implements Runnable {
                         metricas.incrementarMensagensDuplicadas();
                         break;
                     }
-                    sessao.responseRecebido = true;
+                    if (!sessao.helloRetransmitido && sessao.instanteHello != 0) {
+                        sessao.rtt.registarAmostra(System.currentTimeMillis() - sessao.instanteHello);
+                    }
                     sessao.responseSucesso = msg.header.flagSucesso;
                     sessao.ultimoSeq = msg.header.seq;
+                    sessao.responseRecebido = true;
                     metricas.incrementarResponseRecebidos();
                     System.out.println("[ServidorUDP] RESPONSE recebido do rover " + idRover + 
-                                     " (sucesso=" + msg.header.flagSucesso + ", seq=" + msg.header.seq + ")");
+                                     " (sucesso=" + msg.header.flagSucesso + ", seq=" + msg.header.seq + ", " + sessao.rtt + ")");
                     break;
                     
                 case MSG_ACK:
-                    sessao.ackRecebido = true;
+                    // Resposta ao MSG_CANCEL (o rover só envia ACKs na receção da missão)
+                    if (sessao.cancelamentoPedido) {
+                        if (msg.header.seq == sessao.seqCancelamento) {
+                            metricas.incrementarAcksRecebidos();
+                            if (msg.header.flagSucesso) {
+                                sessao.cancelamentoConfirmado = true;
+                            } else {
+                                sessao.cancelamentoRecusado = true;
+                            }
+                            System.out.println("[ServidorUDP] ACK do CANCEL recebido do rover " + idRover + 
+                                             " (seq=" + msg.header.seq + ", missão parada=" + msg.header.flagSucesso + ")");
+                        }
+                        break;
+                    }
                     if (msg.header.seq > sessao.ultimoSeq) {
                     sessao.ultimoSeq = msg.header.seq;
                     }
                     metricas.incrementarAcksRecebidos();
                     if (msg.payload instanceof PayloadAck) {
                         PayloadAck ack = (PayloadAck) msg.payload;
-                        sessao.fragmentosPerdidos.clear();
-                        if (ack.missing != null && ack.missing.length > 0) {
-                            for (int seq : ack.missing) {
-                                sessao.fragmentosPerdidos.add(seq);
-                            }
-                            metricas.incrementarMensagensPerdidas(ack.missing.length);
+                        // Só seqs de dados desta missão (intervalos forjados ou antigos ficam de fora)
+                        BitSet emFalta = ack.emFalta(2, sessao.totalFragmentos + 1);
+                        sessao.recuperadosFec = ack.recuperados;
+                        sessao.seqUltimoAck = msg.header.seq;
+                        int perdidosNovos = sessao.registarAck(emFalta);
+                        if (sessao.controlo != null) {
+                            sessao.controlo.aoReceberAck(msg.header.seq, emFalta);
+                        }
+                        if (ack.missingCount == 0 && msg.header.seq >= sessao.totalFragmentos + 1) {
+                            sessao.ackCompleto = true;
+                        }
+                        // Contar cada fragmento perdido uma vez (os ACKs intermédios repetem as lacunas)
+                        if (perdidosNovos > 0) {
+                            metricas.incrementarMensagensPerdidas(perdidosNovos);
                         }
                         System.out.println("[ServidorUDP] ACK recebido do rover " + idRover + 
-                                         " (faltam " + ack.missing.length + " fragmentos" + ", seq=" + msg.header.seq + ")");
+                                         " (faltam " + ack.missingCount + " fragmentos" +
+                                         (ack.listados() < ack.missingCount ? ", listados " + ack.listados() : "") +
+                                         ", seq=" + msg.header.seq + ")");
                     }
+                    sessao.ackRecebido = true;
                     break;
                     
                 case MSG_PROGRESS:
-                    processarProgress(msg, idRover, pacote);
+                    processarProgress(msg, idRover, sessao);
                     break;
                     
                 case MSG_COMPLETED:
-                    processarCompleted(msg, idRover, pacote);
+                    processarCompleted(msg, idRover, sessao);
                     break;
                 
                 case MSG_ERROR:
-                    processarErro(msg, idRover, pacote);
+                    processarErro(msg, idRover, sessao);
                     break;
                     
                 default:
                     System.out.println("[ServidorUDP] Mensagem inesperada: " + msg.header.tipo);
             }
             
+            if (modo == ModoExecucao.EVENTOS) {
+                avancarSessao(sessao);
+            } else {
+                acordarSessao(sessao);
+            }
+            
         } catch (Exception e) {
             System.err.println("[ServidorUDP] Erro ao processar mensagem: " + e.getMessage());
         }
     }
     
+    /**
+     * Sessão a que pertence uma mensagem do rover: a atual ou a da missão
+     * seguinte, pelo id da missão. Null se não for de nenhuma.
+     */
+    private SessaoServidorMissionLink sessaoDaMensagem(int idRover, int idMissao) {
+        SessaoServidorMissionLink seguinte = sessoesSeguintes.get(idRover);
+        if (seguinte != null && seguinte.missao.idMissao == idMissao) {
+            return seguinte;
+        }
+        SessaoServidorMissionLink sessao = sessoesAtivas.get(idRover);
+        if (sessao != null && seguinte != null && sessao.missao.idMissao != idMissao) {
+            return null; // com duas sessões, só pelo id da missão
+        }
+        return sessao;
+    }
+    
+    /**
+     * A sessão ainda está registada (como atual ou como missão seguinte do rover).
+     */
+    private boolean sessaoRegistada(SessaoServidorMissionLink sessao) {
+        int idRover = sessao.rover.idRover;
+        return sessoesAtivas.get(idRover) == sessao || sessoesSeguintes.get(idRover) == sessao;
+    }
+    
     /**
      * Processa mensagem PROGRESS do rover.
      * Trata duplicados, perdas e envia ACK de confirmação.
      */
-    private void processarProgress(MensagemUDP msg, int idRover, DatagramPacket pacote) {
+    private void processarProgress(MensagemUDP msg, int idRover, SessaoServidorMissionLink sessao) {
         if (!(msg.payload instanceof PayloadProgresso)) return;
         
         PayloadProgresso progresso = (PayloadProgresso) msg.payload;
@@ -563,7 +1276,6 @@ public class ServidorUDP implements Runnable {
                          " (seq=" + seqRecebido + ", missão=" + progresso.idMissao + 
                          ", progresso=" + String.format("%.2f", progresso.progressoPercentagem) + "%%)");
 
-        SessaoServidorMissionLink sessao = sessoesAtivas.get(idRover);
         if (sessao == null) return;
         
         // Verificar se é da missão correta
@@ -589,7 +1301,7 @@ public class ServidorUDP implements Runnable {
                              ") - Enviando ACK");
             int seqOriginal = sessao.ultimoSeq;
             sessao.ultimoSeq = seqRecebido;
-            sessao.progressoPerdido = new HashSet<>();
+            limparProgressoPerdido(sessao);
             enviarAckParaRover(sessao);
             if (seqRecebido < seqOriginal) {
                 sessao.ultimoSeq = seqOriginal; // Restaurar para mensagens antigas
@@ -599,13 +1311,11 @@ public class ServidorUDP implements Runnable {
 
         // Verificar perdas: seq não é o próximo esperado
         int seqEsperado = sessao.ultimoSeq + 1;
-        sessao.progressoPerdido = new HashSet<>();
+        limparProgressoPerdido(sessao);
         
         if (seqRecebido > seqEsperado) {
-            for (int s = seqEsperado; s < seqRecebido; s++) {
-                sessao.progressoPerdido.add(s);
-            }
-            metricas.incrementarMensagensPerdidas(sessao.progressoPerdido.size());
+            sessao.progressoPerdido.set(seqEsperado, seqRecebido);
+            metricas.incrementarMensagensPerdidas(sessao.progressoPerdido.cardinality());
             System.out.println("[ServidorUDP] PROGRESS perdido detectado: seqs " + sessao.progressoPerdido);
         }
 
@@ -622,23 +1332,15 @@ public class ServidorUDP implements Runnable {
      * Processa mensagem COMPLETED do rover.
      * Trata duplicados reenviando ACK (rover pode não ter recebido).
      */
-    private void processarCompleted(MensagemUDP msg, int idRover, DatagramPacket pacote) {
-        SessaoServidorMissionLink sessao = sessoesAtivas.get(idRover);
-        
+    private void processarCompleted(MensagemUDP msg, int idRover, SessaoServidorMissionLink sessao) {
+
         // Proteção contra COMPLETED duplicado
         if (sessao != null && sessao.completedRecebido) {
             System.out.println("[ServidorUDP] COMPLETED duplicado do rover " + idRover + 
                              " (seq=" + msg.header.seq + ") - Reenviando ACK FINAL");
             metricas.incrementarMensagensDuplicadas();
             sessao.ultimoSeq = msg.header.seq;
-            // Marcar que estamos a reenviar ACK final para evitar que a
-            // rotina de limpeza remova a sessão enquanto fazemos retransmissões.
-            sessao.finalAckPending = true;
-            try {
-                enviarAckFinalParaRover(sessao);
-            } finally {
-                sessao.finalAckPending = false;
-            }
+            enviarAckFinalParaRover(sessao);
             return;
         }
         
@@ -654,21 +1356,8 @@ public class ServidorUDP implements Runnable {
             sessao.completedSucesso = msg.header.flagSucesso;
             sessao.ultimoSeq = msg.header.seq;
             
-            // Enviar ACK final 3 vezes para garantir entrega
-            sessao.finalAckPending = true;
-            try {
-                for (int i = 0; i < 3; i++) {
-                    enviarAckFinalParaRover(sessao);
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            } finally {
-                sessao.finalAckPending = false;
-            }
-
+            // ACK final em várias cópias, enviadas em diferido (não bloqueia a receção)
+            enviarAckFinalRedundante(sessao, null);
         }
     }
     
@@ -676,9 +1365,8 @@ public class ServidorUDP implements Runnable {
      * Processa mensagem ERROR do rover.
      * Indica que o rover não conseguiu completar a missão devido a erro.
      */
-    private void processarErro(MensagemUDP msg, int idRover, DatagramPacket pacote) {
-        SessaoServidorMissionLink sessao = sessoesAtivas.get(idRover);
-        
+    private void processarErro(MensagemUDP msg, int idRover, SessaoServidorMissionLink sessao) {
+
         // Proteção contra ERROR duplicado 
         if (sessao != null && sessao.erroRecebido) {
             System.out.println("[ServidorUDP] ERROR duplicado do rover " + idRover + 
@@ -715,82 +1403,172 @@ public class ServidorUDP implements Runnable {
                              " - Payload não reconhecido)");
         }
 
-        estado.falharMissao(idRover, msg.header.idMissao, codigoErro, descricaoErro);
-        
-        if (sessao != null) {
-            sessao.erroRecebido = true;
-            sessao.ultimoSeq = msg.header.seq;
-
-            // Marcar que estamos a enviar ACK final; evitar que o metodo
-            // de limpeza de sessões orfãs remova a sessão enquanto enviamos retransmissões.
-            sessao.finalAckPending = true;
+        estado.falharMissao(idRover, msg.header.idMissao, codigoErro, descricaoErro);
+        if (sessoesSeguintes.get(idRover) != sessao) {
+            abandonarMissaoSeguinte(idRover); // o rover em falha não vai executar a seguinte
+        }
+        
+        if (sessao != null) {
+            sessao.erroRecebido = true;
+            sessao.ultimoSeq = msg.header.seq;
+
+            // Finalizar a sessão logo após a última cópia do ACK final
+            int idMissao = msg.header.idMissao;
+            enviarAckFinalRedundante(sessao, () -> {
+                finalizarSessao(sessao, false);
+                System.out.println("[ServidorUDP] Missão " + idMissao + " do rover " + idRover + 
+                                 " falhou com erro");
+                System.out.println("[ServidorUDP] Sessões ativas restantes: " + sessoesAtivas.keySet());
+            });
+        }
+
+    }
+
+    /**
+     * Envia o ACK final (COMPLETED/ERROR) em várias cópias espaçadas, sem
+     * bloquear quem recebe as mensagens. O número de cópias segue a taxa de
+     * perda estimada para o rover (EstimadorPerdas.copiasParaEntrega) e o
+     * espaçamento é metade do RTO, para que a mesma rajada de perdas não
+     * leve todas as cópias.
+     * Até à última cópia a sessão fica com finalAckPending (a limpeza espera;
+     * a finalização espera nas threads da sessão e, no modo EVENTOS, fica
+     * para depois); depois corre aoTerminar, se houver.
+     */
+    private void enviarAckFinalRedundante(SessaoServidorMissionLink sessao, Runnable aoTerminar) {
+        int copias = estimadorPerdas.copiasParaEntrega(sessao.rover.idRover);
+        long espaco = Math.max(ESPACO_MIN_ACK_FINAL_MS, Math.min(ESPACO_MAX_ACK_FINAL_MS, sessao.rtt.rto() / 2));
+        sessao.finalAckPending = true;
+        enviarCopiaAckFinal(sessao, copias - 1, espaco, aoTerminar);
+    }
+
+    private void enviarCopiaAckFinal(SessaoServidorMissionLink sessao, int restantes, long espaco, Runnable aoTerminar) {
+        try {
+            enviarAckFinalParaRover(sessao);
+            if (restantes > 0 && running) {
+                agendarTarefa(espaco, () -> enviarCopiaAckFinal(sessao, restantes - 1, espaco, aoTerminar));
+                return;
+            }
+        } catch (Exception e) {
+            System.err.println("[ServidorUDP] Erro ao enviar ACK final: " + e.getMessage());
+        }
+        sessao.finalAckPending = false;
+        acordarSessao(sessao);
+        if (aoTerminar != null) {
+            aoTerminar.run();
+        }
+        if (modo == ModoExecucao.EVENTOS) {
+            avancarSessao(sessao); // a finalização ficou à espera do ACK final
+        }
+    }
+
+    /**
+     * Agenda uma tarefa avulsa (sem substituir o temporizador da sessão):
+     * na roda no modo EVENTOS, no agendador nos restantes.
+     */
+    private void agendarTarefa(long atrasoMs, Runnable tarefa) {
+        Runnable protegida = () -> {
             try {
-                // Enviar ACK final 3 vezes para garantir que rover recebe
-                for (int i = 0; i < 3; i++) {
-                    enviarAckFinalParaRover(sessao);
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            } finally {
-                sessao.finalAckPending = false;
+                tarefa.run();
+            } catch (Exception e) {
+                System.err.println("[ServidorUDP] Erro em tarefa agendada: " + e.getMessage());
             }
-
-            // Remover sessão imediatamente após enviar ACKs
-            sessoesAtivas.remove(idRover);
-            System.out.println("[ServidorUDP] Sessão do rover " + idRover + 
-                             " removida (missão " + msg.header.idMissao + " falhou com erro)");
-            System.out.println("[ServidorUDP] Sessões ativas restantes: " + sessoesAtivas.keySet());
+        };
+        if (modo == ModoExecucao.EVENTOS) {
+            roda.agendar(atrasoMs, protegida);
+        } else {
+            agendador.schedule(protegida, atrasoMs, TimeUnit.MILLISECONDS);
         }
-
     }
 
     /**
      * Envia ACK para o rover (usado para PROGRESS, COMPLETED e ERROR).
      */
     private boolean enviarAckParaRover(SessaoServidorMissionLink sessao) {
-        boolean temProgressoPerdido = sessao.progressoPerdido != null && !sessao.progressoPerdido.isEmpty();
-        MensagemUDP ack = criarMensagemBase(TipoMensagem.MSG_ACK, sessao, sessao.ultimoSeq, !temProgressoPerdido);
-
-        if (temProgressoPerdido) {
-            PayloadAck payloadAck = new PayloadAck();
-            payloadAck.missingCount = sessao.progressoPerdido.size();
-            payloadAck.missing = setParaArray(sessao.progressoPerdido);
-            ack.payload = payloadAck;
+        boolean enviado = enviarAck(sessao, false);
+        if (enviado && sessao.progressoPerdido != null) {
+            sessao.progressoPerdido.clear();
+        }
+        return enviado;
+    }
+
+    /**
+     * Envia o ACK (com os PROGRESS em falta, se houver). No formato binário
+     * é escrito diretamente num datagrama do pool da SaidaUDP, sem
+     * MensagemUDP, payload nem byte[]; no formato Java, ou com o pool
+     * esgotado, segue o caminho normal.
+     */
+    private boolean enviarAck(SessaoServidorMissionLink sessao, boolean finalAck) {
+        BitSet perdidos = sessao.progressoPerdido;
+        boolean temProgressoPerdido = perdidos != null && !perdidos.isEmpty();
+
+        SaidaUDP.Datagrama datagrama = formato == FormatoWire.BINARIO ? saida.reservar() : null;
+        if (datagrama == null) {
+            MensagemUDP ack = criarMensagemBase(TipoMensagem.MSG_ACK, sessao, sessao.ultimoSeq, !temProgressoPerdido);
+            if (temProgressoPerdido || finalAck) {
+                PayloadAck payloadAck = new PayloadAck();
+                payloadAck.finalAck = finalAck;
+                if (temProgressoPerdido) {
+                    payloadAck.definirEmFalta(perdidos);
+                }
+                ack.payload = payloadAck;
+            }
+            return enviarMensagemUDP(ack, sessao);
+        }
+
+        EscritorMensagemUDP escritor = escritores.get().iniciar(datagrama.buffer, TipoMensagem.MSG_ACK, 0,
+                sessao.rover.idRover, sessao.missao.idMissao, sessao.ultimoSeq, 1, !temProgressoPerdido);
+        if (temProgressoPerdido || finalAck) {
+            escritor.ack(temProgressoPerdido ? perdidos : null, finalAck, 0);
         } else {
-            ack.payload = null;
+            escritor.semPayload();
         }
+        datagrama.buffer.flip();
+        return enviarDatagrama(datagrama, TipoMensagem.MSG_ACK, sessao.ultimoSeq, sessao);
+    }
 
-        boolean enviado = enviarMensagemUDP(ack, sessao);
-        if (enviado && sessao.progressoPerdido != null) {
+    /**
+     * Esvazia o conjunto de PROGRESS em falta da sessão (reutilizado entre PROGRESS).
+     */
+    private void limparProgressoPerdido(SessaoServidorMissionLink sessao) {
+        if (sessao.progressoPerdido == null) {
+            sessao.progressoPerdido = new BitSet();
+        } else {
             sessao.progressoPerdido.clear();
         }
-        return enviado;
     }
     
     /**
-     * Finaliza a sessão de missão.
+     * Finaliza a sessão de missão (uma só vez).
      * Em caso de insucesso na comunicação, reverte a missão E estado do rover
      */
     private void finalizarSessao(SessaoServidorMissionLink sessao, boolean sucesso) {
 
-        while (sessao.finalAckPending) {
-            // Aguardar até que o ACK final seja enviado, se aplicável
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+        if (sessao.finalAckPending) {
+            if (modo == ModoExecucao.EVENTOS) {
+                // Não esperar: as cópias do ACK final correm neste mesmo ciclo
+                // e a última volta a avancarSessao, que finaliza então
+                return;
+            }
+            // Aguardar até que o ACK final seja enviado (acordado quando termina)
+            if (!aguardarCondicao(sessao, () -> !sessao.finalAckPending, TIMEOUT_MS)) {
+                System.out.println("[ServidorUDP] ACK final para rover " + sessao.rover.idRover + 
+                                 " ainda em envio - a finalizar na mesma");
             }
         }
+        if (!sessao.marcarFinalizada()) {
+            return;
+        }
         if (!sucesso && !sessao.completedRecebido && !sessao.erroRecebido) {
             if (sessao.recebendoProgresso) {
                 // Rover já tinha começado execução: não reverter, fica como falhada, futuramente o rover poderia recomeçar a missão a partir daqui
                 System.out.println("[ServidorUDP] Missão " + sessao.missao.idMissao + 
                                  " do rover " + sessao.rover.idRover + 
                                  " perdeu comunicação mas rover já estava a executar - NÃO reverter");
+            } else if (sessao.missaoSeguinte) {
+                // Missão seguinte que o rover nunca começou (entrega falhada ou abandonada)
+                estado.desistirMissaoSeguinte(sessao.rover, sessao.missao.idMissao);
+                System.out.println("[ServidorUDP] Missão seguinte " + sessao.missao.idMissao + 
+                                 " do rover " + sessao.rover.idRover + " revertida para pendente");
             } else {
                 // Falha ANTES de começar execução 
                 estado.reverterMissaoParaPendente(sessao.missao.idMissao);
@@ -799,9 +1577,82 @@ public class ServidorUDP implements Runnable {
                                  " nunca confirmou/começou execução)");
             }
         }
+        // Um rover que não chegou a confirmar a missão volta a estar disponível
+        estado.libertarRoverEmRececao(sessao.rover);
+        // Datagramas em cache só são reaproveitados se a missão voltar a pendente
+        if (sessao.missao.estadoMissao != Missao.EstadoMissao.PENDENTE) {
+            cacheMissoes.invalidar(sessao.missao.idMissao);
+        }
         int idRover = sessao.rover.idRover;
-        sessoesAtivas.remove(idRover);
+        sessao.fase = Fase.TERMINADA;
+        cancelarTemporizador(sessao);
+        retirarSessao(sessao);
         System.out.println("[ServidorUDP] Sessão do rover " + idRover + " removida");
+        pedirDespacho();
+    }
+
+    /**
+     * Remove a sessão do rover, cancelando o temporizador pendente (modo EVENTOS).
+     */
+    private void removerSessao(SessaoServidorMissionLink sessao) {
+        if (sessao != null && sessaoRegistada(sessao)) {
+            retirarSessao(sessao);
+            sessao.fase = Fase.TERMINADA;
+            cancelarTemporizador(sessao);
+            acordarSessao(sessao);
+            pedirDespacho();
+        }
+    }
+
+    /**
+     * Retira a sessão dos mapas. Se era a atual do rover, a missão seguinte
+     * em fila (se houver) passa a ser a atual.
+     */
+    private void retirarSessao(SessaoServidorMissionLink sessao) {
+        int idRover = sessao.rover.idRover;
+        if (sessoesSeguintes.remove(idRover, sessao)) {
+            return;
+        }
+        if (sessoesAtivas.remove(idRover, sessao)) {
+            promoverMissaoSeguinte(idRover);
+        }
+    }
+
+    /**
+     * A missão atual do rover terminou: a sessão da seguinte passa a atual e
+     * o prazo de PROGRESS começa a contar (o rover começa-a logo).
+     */
+    private void promoverMissaoSeguinte(int idRover) {
+        SessaoServidorMissionLink seguinte = sessoesSeguintes.get(idRover);
+        if (seguinte == null || seguinte.abandonada || sessoesAtivas.putIfAbsent(idRover, seguinte) != null) {
+            return;
+        }
+        sessoesSeguintes.remove(idRover, seguinte);
+        seguinte.atualizarAtividade();
+        seguinte.emFila = false;
+        System.out.println("[ServidorUDP] Missão seguinte " + seguinte.missao.idMissao + 
+                           " passa a missão atual do rover " + idRover);
+        acordarSessao(seguinte);
+    }
+
+    /**
+     * A missão atual do rover falhou: a seguinte em fila é abandonada e
+     * volta a pendente (no modo EVENTOS logo, nos restantes pela thread da
+     * sessão, que é acordada).
+     */
+    private void abandonarMissaoSeguinte(int idRover) {
+        SessaoServidorMissionLink seguinte = sessoesSeguintes.get(idRover);
+        if (seguinte == null || seguinte.abandonada) {
+            return;
+        }
+        System.out.println("[ServidorUDP] Missão seguinte " + seguinte.missao.idMissao + 
+                           " do rover " + idRover + " abandonada");
+        seguinte.abandonada = true;
+        if (modo == ModoExecucao.EVENTOS) {
+            finalizarSessao(seguinte, false);
+        } else {
+            acordarSessao(seguinte);
+        }
     }
     
     /**
@@ -809,35 +1660,49 @@ public class ServidorUDP implements Runnable {
      */
     private boolean enviarMensagemUDP(MensagemUDP msg, SessaoServidorMissionLink sessao) {
         try {
-            InetAddress endereco = sessao.enderecoRover;
-            int porta = sessao.portaRover;
-
-            // Caso não esteja em sessão tenta ir buscar os dados no rover
-
-            if (endereco == null && sessao.rover != null && sessao.rover.enderecoHost != null) {
-                endereco = InetAddress.getByName(sessao.rover.enderecoHost);
-            }
-            if (porta <= 0) {
-                if (sessao.rover != null && sessao.rover.portaUdp != null && sessao.rover.portaUdp > 0) {
-                    porta = sessao.rover.portaUdp;
-                } else {
-                    porta = PORTA_BASE_ROVER + sessao.rover.idRover; // porta padrão
-                }
-            }
+            byte[] dados = sessao.serializador.serializarMensagem(msg, formato);
+            return enviarDatagrama(dados, msg.header.tipo, msg.header.seq, sessao);
+        } catch (IOException e) {
+            System.err.println("[ServidorUDP] Erro ao serializar mensagem: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Envia bytes já codificados para o rover da sessão, pela fila de saída
+     * correspondente ao tipo de mensagem (ver SaidaUDP).
+     */
+    private boolean enviarDatagrama(byte[] dados, TipoMensagem tipo, int seq, SessaoServidorMissionLink sessao) {
+        return enviarDatagrama(SaidaUDP.Datagrama.de(dados), tipo, seq, sessao);
+    }
 
-            if (endereco == null || porta <= 0) {
+    /**
+     * Igual, para um datagrama já escrito (ex: do pool da SaidaUDP). Se não
+     * for enviado, um datagrama do pool volta ao pool.
+     */
+    private boolean enviarDatagrama(SaidaUDP.Datagrama datagrama, TipoMensagem tipo, int seq, SessaoServidorMissionLink sessao) {
+        try {
+            InetSocketAddress destino = destinoRover(sessao);
+            if (destino == null) {
                 System.err.println("[ServidorUDP] Endpoint do rover desconhecido para envio (id=" +
                                    (sessao.rover != null ? sessao.rover.idRover : -1) + ")");
+                saida.libertar(datagrama);
                 return false;
             }
 
-            byte[] dados = sessao.serializador.serializarObjeto(msg);
-            DatagramPacket pacote = new DatagramPacket(dados, dados.length, endereco, porta);
-            socket.send(pacote);
+            // ACKs passam à frente de HELLO, e estes à frente dos fragmentos de missão
+            SaidaUDP.Prioridade prioridade = tipo == TipoMensagem.MSG_ACK ? SaidaUDP.Prioridade.CONTROLO
+                    : tipo == TipoMensagem.MSG_MISSION ? SaidaUDP.Prioridade.DADOS
+                    : SaidaUDP.Prioridade.SESSAO;
+            if (!saida.enviar(datagrama, destino, prioridade, sessao.rover.idRover)) {
+                System.err.println("[ServidorUDP] Fila de saída cheia - " + tipo + " para rover " + 
+                                   sessao.rover.idRover + " descartada (seq=" + seq + ")");
+                return false;
+            }
 
             metricas.incrementarMensagensEnviadas();
             // Incrementar contadores específicos por tipo
-            switch (msg.header.tipo) {
+            switch (tipo) {
                 case MSG_HELLO:
                     metricas.incrementarHelloEnviados();
                     break;
@@ -849,14 +1714,53 @@ public class ServidorUDP implements Runnable {
                     break;
             }
             
-            System.out.println("[ServidorUDP] Enviada mensagem " + msg.header.tipo +
-                               " para rover " + sessao.rover.idRover + " (seq=" + msg.header.seq + ")");
+            System.out.println("[ServidorUDP] Enviada mensagem " + tipo +
+                               " para rover " + sessao.rover.idRover + " (seq=" + seq + ")");
             return true;
         } catch (IOException e) {
             System.err.println("[ServidorUDP] Erro ao enviar mensagem: " + e.getMessage());
+            saida.libertar(datagrama);
             return false;
         }
     }
+
+    /**
+     * Endereço de envio para o rover da sessão. O da sessão é criado uma
+     * vez e reutilizado; sem endereço na sessão usa os dados do rover.
+     *
+     * @return o destino, ou null se desconhecido
+     */
+    private InetSocketAddress destinoRover(SessaoServidorMissionLink sessao) throws IOException {
+        InetAddress endereco = sessao.enderecoRover;
+        int porta = sessao.portaRover;
+        InetSocketAddress destino = sessao.destinoRover;
+        if (destino != null && endereco != null && destino.getPort() == porta && destino.getAddress().equals(endereco)) {
+            return destino;
+        }
+        boolean daSessao = endereco != null && porta > 0;
+
+        // Caso não esteja em sessão tenta ir buscar os dados no rover
+
+        if (endereco == null && sessao.rover != null && sessao.rover.enderecoHost != null) {
+            endereco = InetAddress.getByName(sessao.rover.enderecoHost);
+        }
+        if (porta <= 0) {
+            if (sessao.rover != null && sessao.rover.portaUdp != null && sessao.rover.portaUdp > 0) {
+                porta = sessao.rover.portaUdp;
+            } else {
+                porta = PORTA_BASE_ROVER + sessao.rover.idRover; // porta padrão
+            }
+        }
+
+        if (endereco == null || porta <= 0) {
+            return null;
+        }
+        destino = new InetSocketAddress(endereco, porta);
+        if (daSessao) {
+            sessao.destinoRover = destino;
+        }
+        return destino;
+    }
     
     /**
      * Verifica se rover está realmente disponível para receber missão.
@@ -903,8 +1807,7 @@ public class ServidorUDP implements Runnable {
                                  " (inatividade=" + (inatividade/1000) + "s)");
 
                 // Reverter estado do rover para DISPONIVEL
-                if (rover.estadoRover == Rover.EstadoRover.ESTADO_RECEBENDO_MISSAO) {
-                    rover.estadoRover = Rover.EstadoRover.ESTADO_DISPONIVEL;
+                if (estado.libertarRoverEmRececao(rover)) {
                     System.out.println("[ServidorUDP] Rover " + idRover + 
                                      " revertido para ESTADO_DISPONIVEL");
                 }
@@ -936,45 +1839,417 @@ public class ServidorUDP implements Runnable {
                 
                 System.out.println("[ServidorUDP] Rover " + rover.idRover + 
                                  " está em RECEBENDO_MISSAO mas sem sessão - revertendo");
-                rover.estadoRover = Rover.EstadoRover.ESTADO_DISPONIVEL;
+                estado.libertarRoverEmRececao(rover);
             }
         }
 
         for (int idRover : paraRemover) {
-            sessoesAtivas.remove(idRover);
+            removerSessao(sessoesAtivas.get(idRover));
         }
 
         if (!paraRemover.isEmpty()) {
             System.out.println("[ServidorUDP] Sessões órfãs removidas: " + paraRemover);
         }
     }
-    // ==================== MÉTODOS DE SERIALIZAÇÃO ====================
+    // ==================== MODO EVENTOS ====================
+    
+    /**
+     * Modo EVENTOS: uma só thread recebe os datagramas, faz avançar a
+     * máquina de estados da sessão respetiva e executa os temporizadores
+     * expirados (retransmissões, prazos, iniciador de missões). Nenhum passo
+     * bloqueia, pelo que o número de sessões não depende do número de threads.
+     */
+    private void executarCicloEventos() {
+        roda = new RodaTemporizadores(TICK_MS, RANHURAS_RODA);
+        roda.agendar(INTERVALO_INICIADOR_MS, this::tarefaIniciador);
+        
+        // Os trabalhadores da EntradaUDP descodificam; o processamento fica nesta thread
+        BlockingQueue<Runnable> eventos = new LinkedBlockingQueue<>(CAPACIDADE_EVENTOS);
+        this.eventos = eventos;
+        trabalhadorLote = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ServidorUDP-lote");
+            t.setDaemon(true);
+            return t;
+        });
+        despachoPedido.set(false);
+        pedirDespacho(); // primeira passagem logo no arranque
+        entrada.iniciar((msg, origem) -> {
+            if (!eventos.offer(() -> processarMensagemRecebida(msg, origem))) {
+                metricas.incrementarMensagensPerdidas(1); // ciclo saturado: descartar como a rede faria
+            }
+        });
+        
+        while (running) {
+            try {
+                // Acordar com a primeira mensagem ou, no máximo, ao fim de um tick da roda
+                Runnable evento = eventos.poll(TICK_MS, TimeUnit.MILLISECONDS);
+                for (int n = 0; evento != null; n++) {
+                    evento.run();
+                    evento = n < MAX_EVENTOS_POR_TICK ? eventos.poll() : null;
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            roda.avancar(System.currentTimeMillis());
+        }
+    }
     
     /**
-     * Deserializa bytes para MensagemUDP.
+     * Iniciador de missões como tarefa periódica da roda (rede de segurança
+     * para alterações de estado que não pediram despacho).
      */
-    private MensagemUDP deserializarMensagem(byte[] dados, int length) {
-        return SerializadorUDP.deserializarMensagem(dados, length);
+    private void tarefaIniciador() {
+        try {
+            despacharMissoes(true);
+        } catch (Exception e) {
+            System.err.println("[ServidorUDP] Erro no iniciador de missões: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (running) {
+                roda.agendar(INTERVALO_INICIADOR_MS, this::tarefaIniciador);
+            }
+        }
     }
     
-    // ==================== MÉTODOS AUXILIARES ====================
+    /**
+     * Passagem do despachante pedida por um evento (corre no ciclo).
+     */
+    private void tarefaDespacho() {
+        try {
+            despacharMissoes(false);
+        } catch (Exception e) {
+            System.err.println("[ServidorUDP] Erro no despacho de missões: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Agenda o próximo temporizador da sessão, substituindo o anterior.
+     * Uma exceção na tarefa termina a sessão sem parar o ciclo de eventos.
+     */
+    private void agendar(SessaoServidorMissionLink sessao, long atrasoMs, Runnable tarefa) {
+        cancelarTemporizador(sessao);
+        sessao.temporizador = roda.agendar(atrasoMs, () -> {
+            sessao.temporizador = null;
+            try {
+                tarefa.run();
+            } catch (Exception e) {
+                System.err.println("[ServidorUDP] Erro na sessão: " + e.getMessage());
+                finalizarSessao(sessao, false);
+            }
+        });
+    }
+    
+    private void cancelarTemporizador(SessaoServidorMissionLink sessao) {
+        if (sessao.temporizador != null) {
+            sessao.temporizador.cancelar();
+            sessao.temporizador = null;
+        }
+    }
+    
+    /**
+     * Passo 1 (HELLO): envia e arma o RTO.
+     */
+    private void iniciarSessaoEventos(SessaoServidorMissionLink sessao) {
+        sessao.fase = Fase.HELLO;
+        sessao.tentativas = 0;
+        if (!enviarHello(sessao)) {
+            System.err.println("[ServidorUDP] Falha ao enviar HELLO para rover " + sessao.rover.idRover);
+            finalizarSessao(sessao, false);
+            return;
+        }
+        agendar(sessao, sessao.rtt.rto(), () -> aoExpirarHello(sessao));
+    }
+    
+    private void aoExpirarHello(SessaoServidorMissionLink sessao) {
+        sessao.rtt.aoTimeout();
+        if (++sessao.tentativas >= MAX_RETRIES) {
+            System.err.println("[ServidorUDP] Timeout aguardando RESPONSE do rover " + sessao.rover.idRover);
+            finalizarSessao(sessao, false);
+            return;
+        }
+        metricas.incrementarMensagensRetransmitidas();
+        if (!enviarHello(sessao)) {
+            finalizarSessao(sessao, false);
+            return;
+        }
+        agendar(sessao, sessao.rtt.rto(), () -> aoExpirarHello(sessao));
+    }
+    
+    /**
+     * Reage a uma mensagem do rover já processada pelos handlers comuns
+     * (que atualizaram os campos da sessão), mudando de fase se for o caso.
+     */
+    private void avancarSessao(SessaoServidorMissionLink sessao) {
+        if (sessao.fase == Fase.TERMINADA) {
+            return;
+        }
+        if (sessao.completedRecebido || sessao.erroRecebido) {
+            if (sessao.finalAckPending) {
+                return; // volta aqui depois da última cópia do ACK final
+            }
+            // Passo 5 concluído: COMPLETED/ERROR já confirmado pelo handler
+            finalizarSessao(sessao, true);
+            System.out.println("[ServidorUDP] Sessão de missão " + sessao.missao.idMissao + 
+            " para rover " + sessao.rover.idRover + " concluída com sucesso");
+            return;
+        }
+        
+        switch (sessao.fase) {
+            case HELLO:
+                if (!sessao.responseRecebido) {
+                    return;
+                }
+                cancelarTemporizador(sessao);
+                if (!sessao.responseSucesso) {
+                    System.err.println("[ServidorUDP] Rover " + sessao.rover.idRover + " recusou a missão " + 
+                                     sessao.missao.idMissao);
+                    finalizarSessao(sessao, false);
+                    return;
+                }
+                iniciarFragmentosEventos(sessao);
+                break;
+                
+            case ENVIO_FRAGMENTOS:
+                if (!sessao.ackRecebido) {
+                    return;
+                }
+                sessao.ackRecebido = false;
+                sessao.tentativas = 0;
+                if (excedeuRondasAck(sessao)) {
+                    finalizarSessao(sessao, false);
+                    return;
+                }
+                retransmitirPerdidos(sessao, false);
+                if (sessao.janelaCheia) {
+                    bombearFragmentos(sessao); // o ACK pode ter aberto a janela
+                }
+                break;
+                
+            case AGUARDAR_ACK:
+                if (!sessao.ackRecebido) {
+                    return;
+                }
+                sessao.ackRecebido = false;
+                sessao.tentativas = 0;
+                if (!sessao.ackCompleto && excedeuRondasAck(sessao)) {
+                    finalizarSessao(sessao, false);
+                    return;
+                }
+                if (sessao.ackCompleto) {
+                    concluirEntregaMissao(sessao);
+                    sessao.fase = Fase.AGUARDAR_PROGRESSO;
+                    agendar(sessao, timeoutProgresso(sessao), () -> aoExpirarProgresso(sessao));
+                    return;
+                }
+                if (!sessao.fragmentosPerdidos.isEmpty()) {
+                    System.out.println("[ServidorUDP] Retransmitindo " + 
+                                     sessao.fragmentosPerdidos.cardinality() + " fragmentos perdidos");
+                    metricas.incrementarMensagensRetransmitidas();
+                    retransmitirPerdidos(sessao, false);
+                }
+                agendar(sessao, sessao.rtt.rto(), () -> aoExpirarAck(sessao));
+                break;
+                
+            case CANCELAMENTO:
+                if (sessao.cancelamentoConfirmado) {
+                    cancelarTemporizador(sessao);
+                    concluirCancelamento(sessao);
+                    finalizarSessao(sessao, true);
+                } else if (sessao.cancelamentoRecusado) {
+                    System.out.println("[ServidorUDP] Rover " + sessao.rover.idRover + " já não executa a missão " + 
+                                       sessao.missao.idMissao + " - cancelamento ignorado");
+                    abandonarCancelamento(sessao);
+                }
+                break;
+                
+            default:
+                // AGUARDAR_PROGRESSO: o PROGRESS já foi confirmado; o prazo é verificado pelo temporizador
+                break;
+        }
+    }
+    
+    /**
+     * Cancelamento (modo EVENTOS): envia MSG_CANCEL e arma o RTO. Os PROGRESS
+     * que entretanto cheguem continuam a ser tratados (o progresso guardado
+     * fica mais recente); COMPLETED/ERROR terminam a sessão normalmente.
+     */
+    private void iniciarCancelamentoEventos(SessaoServidorMissionLink sessao) {
+        if (sessao.fase != Fase.AGUARDAR_PROGRESSO || sessao.completedRecebido || sessao.erroRecebido) {
+            sessao.cancelamentoPedido = false;
+            return;
+        }
+        sessao.fase = Fase.CANCELAMENTO;
+        sessao.tentativas = 0;
+        sessao.seqCancelamento = sessao.ultimoSeq + 1;
+        enviarCancelamento(sessao);
+        agendar(sessao, sessao.rtt.rto(), () -> aoExpirarCancelamento(sessao));
+    }
+    
+    private void aoExpirarCancelamento(SessaoServidorMissionLink sessao) {
+        sessao.rtt.aoTimeout();
+        if (++sessao.tentativas >= MAX_RETRIES) {
+            System.out.println("[ServidorUDP] Cancelamento da missão " + sessao.missao.idMissao + 
+                               " não confirmado pelo rover " + sessao.rover.idRover + " - a sessão continua");
+            abandonarCancelamento(sessao);
+            return;
+        }
+        metricas.incrementarMensagensRetransmitidas();
+        enviarCancelamento(sessao);
+        agendar(sessao, sessao.rtt.rto(), () -> aoExpirarCancelamento(sessao));
+    }
+    
+    /**
+     * O rover não parou a missão: a sessão volta a aguardar PROGRESS/COMPLETED.
+     */
+    private void abandonarCancelamento(SessaoServidorMissionLink sessao) {
+        sessao.cancelamentoPedido = false;
+        sessao.fase = Fase.AGUARDAR_PROGRESSO;
+        agendar(sessao, timeoutProgresso(sessao), () -> aoExpirarProgresso(sessao));
+    }
+    
+    /**
+     * Passo 3 (MISSION): prepara os datagramas e começa a encher a janela.
+     */
+    private void iniciarFragmentosEventos(SessaoServidorMissionLink sessao) {
+        try {
+            prepararEnvioMissao(sessao);
+        } catch (Exception e) {
+            System.err.println("[ServidorUDP] Erro ao enviar fragmentos: " + e.getMessage());
+            System.err.println("[ServidorUDP] Falha ao enviar fragmentos para rover " + sessao.rover.idRover);
+            finalizarSessao(sessao, false);
+            return;
+        }
+        sessao.fase = Fase.ENVIO_FRAGMENTOS;
+        sessao.tentativas = 0;
+        bombearFragmentos(sessao);
+    }
+    
+    /**
+     * Envia os fragmentos seguintes enquanto couberem na janela. O pacing é
+     * feito à resolução da roda: em cada tick saem no máximo TICK/intervalo
+     * fragmentos e o resto fica para o tick seguinte. Com a janela cheia
+     * espera-se pelo próximo ACK (ou pelo RTO).
+     */
+    private void bombearFragmentos(SessaoServidorMissionLink sessao) {
+        ControloCongestao controlo = sessao.controlo;
+        int ultimoSeq = sessao.totalFragmentos + 1;
+        long intervalo = controlo.intervaloEnvioNanos();
+        long limite = intervalo > 0 ? Math.max(1, TICK_MS * 1_000_000 / intervalo) : Long.MAX_VALUE;
+        
+        long enviados = 0;
+        while (sessao.proximoSeq <= ultimoSeq && enviados < limite && controlo.cabeNaJanela(sessao.proximoSeq)) {
+            if (!enviarNovoFragmento(sessao, sessao.proximoSeq)) {
+                System.err.println("[ServidorUDP] Falha ao enviar fragmentos para rover " + sessao.rover.idRover);
+                finalizarSessao(sessao, false);
+                return;
+            }
+            sessao.proximoSeq++;
+            enviados++;
+        }
+        
+        if (sessao.proximoSeq > ultimoSeq) {
+            // Passo 4: todos enviados, aguardar ACK completo
+            sessao.janelaCheia = false;
+            sessao.fase = Fase.AGUARDAR_ACK;
+            agendar(sessao, sessao.rtt.rto(), () -> aoExpirarAck(sessao));
+        } else if (controlo.cabeNaJanela(sessao.proximoSeq)) {
+            sessao.janelaCheia = false;
+            agendar(sessao, TICK_MS, () -> bombearFragmentos(sessao));
+        } else {
+            sessao.janelaCheia = true;
+            agendar(sessao, sessao.rtt.rto(), () -> aoExpirarJanela(sessao));
+        }
+    }
+    
+    /**
+     * Janela cheia e sem ACK dentro do RTO: janela ao mínimo e envia-se o
+     * fragmento seguinte na mesma (como no modo THREADS).
+     */
+    private void aoExpirarJanela(SessaoServidorMissionLink sessao) {
+        ControloCongestao controlo = sessao.controlo;
+        controlo.aoTimeout();
+        sessao.rtt.aoTimeout();
+        if (++sessao.tentativas >= MAX_RETRIES) {
+            System.err.println("[ServidorUDP] Timeout: rover " + sessao.rover.idRover + 
+                             " deixou de confirmar fragmentos da missão " + sessao.missao.idMissao);
+            finalizarSessao(sessao, false);
+            return;
+        }
+        System.out.println("[ServidorUDP] Sem ACK do rover " + sessao.rover.idRover + 
+                         " - janela reduzida para " + (int) controlo.getJanela() + " (seq=" + sessao.proximoSeq + ")");
+        if (!enviarNovoFragmento(sessao, sessao.proximoSeq)) {
+            finalizarSessao(sessao, false);
+            return;
+        }
+        sessao.proximoSeq++;
+        bombearFragmentos(sessao);
+    }
+    
+    /**
+     * Sem ACK completo dentro do RTO: reenviam-se as lacunas conhecidas e o
+     * envio recomeça (pela janela, já reduzida) no primeiro seq não confirmado.
+     */
+    private void aoExpirarAck(SessaoServidorMissionLink sessao) {
+        sessao.controlo.aoTimeout();
+        sessao.rtt.aoTimeout();
+        if (++sessao.tentativas >= MAX_RETRIES) {
+            System.err.println("[ServidorUDP] Timeout: rover " + sessao.rover.idRover + 
+                             " não confirmou recepção da missão " + sessao.missao.idMissao + 
+                             " após " + MAX_RETRIES + " tentativas");
+            finalizarSessao(sessao, false);
+            return;
+        }
+        int confirmado = sessao.controlo.getMaiorSeqConfirmado();
+        System.out.println("[ServidorUDP] Timeout aguardando ACK - retransmitindo " + 
+                         (sessao.fragmentosPerdidos.cardinality() + sessao.totalFragmentos + 1 - confirmado) + 
+                         " fragmentos não confirmados (tentativa " + (sessao.tentativas + 1) + "/" + MAX_RETRIES + ")");
+        metricas.incrementarMensagensRetransmitidas();
+        BitSet perdidos = sessao.fragmentosPerdidos;
+        for (int seq = perdidos.nextSetBit(0); seq >= 0 && seq <= confirmado; seq = perdidos.nextSetBit(seq + 1)) {
+            enviarFragmento(sessao, seq);
+        }
+        sessao.proximoSeq = Math.min(sessao.proximoSeq, confirmado + 1);
+        sessao.fase = Fase.ENVIO_FRAGMENTOS;
+        bombearFragmentos(sessao);
+    }
     
     /**
-     * Converte Set<Integer> para int[].
+     * Passo 5 (PROGRESS): prazo de inatividade. Em vez de reagendar a cada
+     * PROGRESS, o temporizador verifica a última atividade quando expira.
      */
-    private int[] setParaArray(Set<Integer> set) {
-        int[] array = new int[set.size()];
-        int i = 0;
-        for (Integer valor : set) {
-            array[i++] = valor;
+    private void aoExpirarProgresso(SessaoServidorMissionLink sessao) {
+        long limite = timeoutProgresso(sessao);
+        if (sessao.emFila) {
+            // Missão seguinte: o prazo só conta depois de a atual terminar
+            agendar(sessao, limite, () -> aoExpirarProgresso(sessao));
+            return;
+        }
+        long inativo = System.currentTimeMillis() - sessao.ultimaAtividade;
+        if (inativo > limite) {
+            System.err.println("[ServidorUDP] Falha ao aguardar PROGRESS do rover " + sessao.rover.idRover);
+            finalizarSessao(sessao, false);
+            return;
         }
-        return array;
+        agendar(sessao, limite - inativo + TICK_MS, () -> aoExpirarProgresso(sessao));
     }
     
+    // ==================== MÉTODOS AUXILIARES ====================
+    
     public void parar() {
         running = false;
-        if (socket != null && !socket.isClosed()) {
-                socket.close();
+        estado.definirOuvinteDespacho(null);
+        sinalDespacho.sinalizar();
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+        if (trabalhadorLote != null) {
+            trabalhadorLote.shutdownNow();
+        }
+        if (saida != null) {
+            saida.fechar();
+        }
+        if (entrada != null) {
+            entrada.fechar();
         }
     }
     
@@ -1004,23 +2279,7 @@ public class ServidorUDP implements Runnable {
      * Este ACK indica ao rover que pode parar de retransmitir COMPLETED/ERROR.
      */
     private boolean enviarAckFinalParaRover(SessaoServidorMissionLink sessao) {
-        boolean temProgressoPerdido = sessao.progressoPerdido != null && !sessao.progressoPerdido.isEmpty();
-        MensagemUDP ack = criarMensagemBase(TipoMensagem.MSG_ACK, sessao, sessao.ultimoSeq, !temProgressoPerdido);
-
-        PayloadAck payloadAck = new PayloadAck();
-        payloadAck.finalAck = true; // Marca como ACK final
-        
-        if (temProgressoPerdido) {
-            payloadAck.missingCount = sessao.progressoPerdido.size();
-            payloadAck.missing = setParaArray(sessao.progressoPerdido);
-        } else {
-            payloadAck.missingCount = 0;
-            payloadAck.missing = new int[0];
-        }
-        
-        ack.payload = payloadAck;
-
-        boolean enviado = enviarMensagemUDP(ack, sessao);
+        boolean enviado = enviarAck(sessao, true);
         if (enviado) {
             System.out.println("[ServidorUDP] ACK final enviado para rover " + sessao.rover.idRover + 
                              " (seq=" + sessao.ultimoSeq + ", finalAck=true)");
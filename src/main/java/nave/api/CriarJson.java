@@ -4,6 +4,7 @@ package nave.api;
 import lib.Rover;
 import lib.Missao;
 import lib.mensagens.payloads.*;
+import nave.EscalonadorMissoes;
 
 import java.util.Collection;
 import java.util.Map;
@@ -40,6 +41,7 @@ public class CriarJson {
                 + "\"velocidade\":" + r.velocidade + ","
                 + "\"estadoOperacional\":\"" + escape(estadoNormalizado) + "\","
                 + "\"idMissaoAtual\":" + r.idMissaoAtual + ","
+                + "\"idMissaoSeguinte\":" + r.idMissaoSeguinte + ","
                 + "\"progressoMissao\":" + (r.progressoMissao != null ? r.progressoMissao : 0.0f) + ","
                 + "\"temMissao\":" + r.temMissao
                 + "}";
@@ -75,7 +77,9 @@ public class CriarJson {
                 + "\"y1\":" + m.y1 + ","
                 + "\"x2\":" + m.x2 + ","
                 + "\"y2\":" + m.y2 + ","
-                + "\"prioridade\":" + m.prioridade
+                + "\"prioridade\":" + m.prioridade + ","
+                + "\"duracaoMissao\":" + m.duracaoMissao + ","
+                + "\"inicioMissao\":" + m.inicioMissao
                 + "}";
     }
 
@@ -134,6 +138,21 @@ public class CriarJson {
         return sb.toString();
     }
 
+    // ----- Escalonador -----
+
+    public static String escalonador(EscalonadorMissoes e) {
+        if (e == null) return "null";
+
+        return "{"
+                + "\"politica\":\"" + e.nome() + "\","
+                + "\"profundidade\":" + e.profundidade() + ","
+                + "\"elegiveis\":" + e.elegiveis().size() + ","
+                + "\"retidas\":" + e.retidas() + ","
+                + "\"atrasadas\":" + e.atrasadas() + ","
+                + "\"prazosFalhados\":" + e.prazosFalhados()
+                + "}";
+    }
+
     // ----- uteis ----
 
     /** Escapa caracteres problemáticos para JSON. */
@@ -1,5 +1,6 @@
 package nave.api;
 
+import nave.EscalonadorMissoes;
 import nave.GestaoEstado;
 import lib.Missao;
 import lib.Rover;
@@ -54,4 +55,9 @@ public class ObservacaoAPI {
     public Queue<PayloadTelemetria> listarHistoricoTelemetria() {
         return estado.obterHistoricoTelemetria();
     }
+
+    /** Devolve o escalonador de missões pendentes (política e métricas). */
+    public EscalonadorMissoes obterEscalonador() {
+        return estado.obterEscalonador();
+    }
 }
@@ -2,17 +2,29 @@ package rover;
 
 import lib.SessaoClienteMissionLink;
 import lib.TipoMensagem;
+import lib.mensagens.CodecBinarioUDP;
+import lib.mensagens.CodigoParidade;
+import lib.mensagens.FormatoWire;
 import lib.mensagens.MensagemUDP;
+import lib.mensagens.MensagemUDPRecebida;
 import lib.mensagens.SerializadorUDP;
+import lib.mensagens.VistaMensagemUDP;
 import lib.mensagens.payloads.*;
 import lib.Rover.EstadoRover;
 import lib.MetricasUDP;
+import lib.EstimadorRTT;
+import lib.RodaTemporizadores;
 
 import java.io.*;
 import java.net.*;
-import java.util.Set;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
 
 /**
  * Cliente UDP do Rover (MissionLink).
@@ -25,51 +37,130 @@ import java.util.Arrays;
  * 4. Envia ACK (completo ou com lista de fragmentos perdidos)
  * 5. Recebe retransmissões se necessário
  * 6. Envia ACK final (missing=[])
+ * 7. Durante a execução, um CANCEL da Nave-Mãe interrompe a missão (ACK com o seq do CANCEL)
+ * 8. Durante a execução, um HELLO com flagSucesso entrega a missão seguinte (passos 2-6 numa
+ *    segunda sessão), que começa logo que a atual termine (COMPLETED confirmado ou CANCEL)
+ *
+ * Corre como um reator numa só thread: um DatagramChannel não bloqueante
+ * num Selector e uma RodaTemporizadores. O select espera até chegar um
+ * datagrama ou expirar o próximo temporizador; a reportagem da missão, as
+ * esperas por ACK, as retransmissões e as cópias de ACK são temporizadores,
+ * pelo que nada dorme nem bloqueia e o rover não cria threads por missão.
  */
 public class ClienteUDP implements Runnable {
     
-    private static final int TIMEOUT_MS = 3000; // Timeout para ACKs de PROGRESS/COMPLETED
-    private static final int TIMEOUT_FRAGMENTOS_MS = 2000; // Timeout para solicitar fragmentos perdidos (menor que timeout da nave de 5000ms)
+    private static final int TIMEOUT_MS = 3000; // RTO inicial para ACKs de PROGRESS/COMPLETED (até haver amostras de RTT)
+    private static final int TIMEOUT_FRAGMENTOS_MS = 2000; // Timeout inicial para solicitar fragmentos perdidos (até haver amostras de RTT)
     private static final int MAX_RETRIES = 5;   // Aumentado para maior tolerância a perdas
     
+    // Reator: resolução da roda, buffer de receção e espaçamento entre cópias de um ACK
+    private static final long TICK_MS = 10;
+    private static final int RANHURAS_RODA = 512;
+    private static final int TAMANHO_BUFFER = 4096;
+    private static final long ESPACO_COPIAS_ACK_MS = 100;
+    
+    /** Mensagem à espera do ACK do seu seq (PROGRESS, COMPLETED, ERROR). */
+    private static final class EnvioFiavel {
+        final MensagemUDP msg;
+        final int seq;
+        final int maxTentativas;
+        final String nome;
+        final Consumer<Boolean> aoTerminar; // recebe true se confirmado
+        int tentativas = 0;
+        long instantePrimeiroEnvio;
+        RodaTemporizadores.Temporizador temporizador;
+        
+        EnvioFiavel(MensagemUDP msg, int seq, int maxTentativas, String nome, Consumer<Boolean> aoTerminar) {
+            this.msg = msg;
+            this.seq = seq;
+            this.maxTentativas = maxTentativas;
+            this.nome = nome;
+            this.aoTerminar = aoTerminar;
+        }
+    }
+    
     private int idRover;
     private int porta;
-    private DatagramSocket socket;
-    private boolean running = true;
+    private DatagramChannel canal;
+    private Selector seletor;
+    private final ByteBuffer bufferRececao = ByteBuffer.allocate(TAMANHO_BUFFER); // reutilizado em todas as receções
+    private final MensagemUDPRecebida recebida = new MensagemUDPRecebida();        // idem, descodificação em duas fases
+    private final VistaMensagemUDP vista = new VistaMensagemUDP();                 // idem, ACKs lidos sem criar objetos
+    private final ByteBuffer bufferEnvio = ByteBuffer.allocateDirect(TAMANHO_BUFFER); // envios binários codificados no lugar
+    private InetSocketAddress destinoNave;                                         // último destino, reutilizado
+    private RodaTemporizadores roda;
+    private volatile boolean running = true;
     private MaquinaEstados maquina;
     
+    // Envio à espera de ACK e temporizador de fragmentos em falta (no máximo um de cada)
+    private EnvioFiavel envioPendente = null;
+    private RodaTemporizadores.Temporizador temporizadorFragmentos = null;
+    
     // Controle da sessão completa da missão 
     private SessaoClienteMissionLink sessaoAtual = null;
+    // Missão seguinte, entregue durante a execução da atual (payload null enquanto em receção)
+    private SessaoClienteMissionLink sessaoSeguinte = null;
+    private PayloadMissao missaoSeguinte = null;
+    // A nave já enviou paridade (FEC): a partir daí os datagramas MISSION são
+    // copiados do buffer de receção para a recuperação por paridade
+    private boolean fecEmUso = false;
+    
+    // Última missão interrompida por CANCEL (para reconfirmar CANCELs repetidos)
+    private int idMissaoCancelada = -1;
+    // Serialização de mensagens enviadas fora de uma sessão (ex: ACK de um CANCEL repetido)
+    private final SerializadorUDP serializadorAvulso = new SerializadorUDP();
     
     // Métricas de comunicação
     private MetricasUDP metricas;
     
+    // RTT/RTO para a Nave-Mãe (sobrevive às sessões)
+    private final EstimadorRTT rtt = new EstimadorRTT(TIMEOUT_MS);
+    
+    // Formato dos datagramas enviados (a receção deteta o formato automaticamente)
+    private final FormatoWire formato;
+    
     public ClienteUDP(int idRover, int porta, MaquinaEstados maquina) {
+        this(idRover, porta, maquina, FormatoWire.BINARIO);
+    }
+    
+    public ClienteUDP(int idRover, int porta, MaquinaEstados maquina, FormatoWire formato) {
         this.idRover = idRover;
         this.porta = porta;
         this.maquina = maquina;
         this.metricas = new MetricasUDP("ClienteUDP-" + idRover);
+        this.formato = formato;
     }
     
     @Override
     public void run() {
         try {
-            socket = new DatagramSocket(porta);
-            socket.setSoTimeout(100);
-            System.out.println("[ClienteUDP] Rover " + idRover + " iniciado na porta " + porta);
+            canal = DatagramChannel.open();
+            canal.bind(new InetSocketAddress(porta));
+            canal.configureBlocking(false);
+            seletor = Selector.open();
+            canal.register(seletor, SelectionKey.OP_READ);
+            roda = new RodaTemporizadores(TICK_MS, RANHURAS_RODA);
+            System.out.println("[ClienteUDP] Rover " + idRover + " iniciado na porta " + porta + " (formato " + formato + ")");
             
             while (running) {
                 try {
-                    byte[] buffer = new byte[4096];
-                    DatagramPacket pacote = new DatagramPacket(buffer, buffer.length);
-                    socket.receive(pacote);
+                    // Esperar por um datagrama ou pelo próximo temporizador (sem temporizadores, só pelo datagrama)
+                    long espera = roda.msAteProximo(System.currentTimeMillis());
+                    if (espera < 0) {
+                        seletor.select();
+                    } else if (espera == 0) {
+                        seletor.selectNow();
+                    } else {
+                        seletor.select(espera);
+                    }
+                    seletor.selectedKeys().clear();
                     
-                    // Processar mensagem recebida
-                    processarMensagem(pacote);
+                    // Temporizadores primeiro: a roda fica no tick atual antes de a receção agendar
+                    roda.avancar(System.currentTimeMillis());
+                    receberPendentes();
                     
-                } catch (SocketTimeoutException e) {
-                    // Timeout normal, aproveitar para verificar se estamos à espera de fragmentos
-                    verificarTimeoutFragmentos();
+                } catch (ClosedSelectorException e) {
+                    break;
                 } catch (IOException e) {
                     if (running) {
                         System.err.println("[ClienteUDP] Erro ao receber: " + e.getMessage());
@@ -77,42 +168,115 @@ public class ClienteUDP implements Runnable {
                 }
             }
             
-        } catch (SocketException e) {
+        } catch (IOException e) {
             System.err.println("[ClienteUDP] Erro ao criar socket: " + e.getMessage());
         } finally {
-            
+            fecharCanal();
             System.out.println("[ClienteUDP] Rover " + idRover + " - loop principal encerrado");
         }
     }
     
+    /**
+     * Lê todos os datagramas já disponíveis no canal (sempre para o mesmo buffer).
+     */
+    private void receberPendentes() throws IOException {
+        while (running) {
+            bufferRececao.clear();
+            SocketAddress origem = canal.receive(bufferRececao);
+            if (origem == null) {
+                return;
+            }
+            try {
+                bufferRececao.flip();
+                if (!processarAckBinario()) {
+                    processarMensagem(bufferRececao.array(), bufferRececao.limit(), (InetSocketAddress) origem);
+                }
+            } catch (Exception e) {
+                System.err.println("[ClienteUDP] Erro ao processar mensagem: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Agenda uma tarefa no reator. Uma exceção na tarefa é registada sem
+     * parar o ciclo.
+     */
+    private RodaTemporizadores.Temporizador agendar(long atrasoMs, Runnable tarefa) {
+        return roda.agendar(atrasoMs, () -> {
+            try {
+                tarefa.run();
+            } catch (Exception e) {
+                System.err.println("[ClienteUDP] Erro em tarefa agendada: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Caminho frequente: um ACK binário é lido diretamente do buffer de
+     * receção através da vista, sem MensagemUDP nem payload.
+     *
+     * @return true se o datagrama foi tratado (ACK binário ou binário para outro rover)
+     */
+    private boolean processarAckBinario() {
+        if (!vista.envolver(bufferRececao)) {
+            return false;
+        }
+        if (vista.idRecetor() != idRover) {
+            return true;
+        }
+        if (vista.tipo() != TipoMensagem.MSG_ACK) {
+            return false;
+        }
+        metricas.incrementarMensagensRecebidas();
+        boolean comPayload = vista.tipoPayload() == CodecBinarioUDP.PAYLOAD_ACK;
+        processarAck(vista.idMissao(), vista.seq(), vista.flagSucesso(),
+                     comPayload && vista.ackFinal(),
+                     comPayload && vista.ackNumeroIntervalos() > 0 ? vista.ackEmFalta(1, ultimoSeqEnviado()) : null);
+        return true;
+    }
+    
+    /**
+     * Maior seq enviado na sessão atual: os PROGRESS que um ACK pode pedir
+     * de novo estão em [1, ultimoSeqEnviado()] (0 sem sessão).
+     */
+    private int ultimoSeqEnviado() {
+        return sessaoAtual != null ? sessaoAtual.seqAtual : 0;
+    }
+    
     /**
      * Processa mensagem recebida da Nave-Mãe.
+     *
+     * @param dados buffer de receção (reutilizado: copiar o que for guardado)
      */
-    private void processarMensagem(DatagramPacket pacote) {
-        MensagemUDP msg = SerializadorUDP.deserializarMensagem(pacote.getData(), pacote.getLength());
-
-        if (msg == null || msg.header == null) {
+    private void processarMensagem(byte[] dados, int tamanho, InetSocketAddress origem) {
+        // Só o cabeçalho: datagramas para outros rovers são descartados sem descodificar o payload
+        if (!recebida.ler(dados, tamanho) || recebida.header.idRecetor != idRover) {
             return;
         }
-
-        if (msg.header.idRecetor != idRover) {
+        MensagemUDP msg = recebida.mensagem();
+        if (msg == null) {
             return;
         }
 
         metricas.incrementarMensagensRecebidas();
 
-        InetAddress endereco = pacote.getAddress();
-        int porta = pacote.getPort();
+        InetAddress endereco = origem.getAddress();
+        int porta = origem.getPort();
 
         switch (msg.header.tipo) {
             case MSG_HELLO:
                 processarHello(msg, endereco, porta);
                 break;
             case MSG_MISSION:
-                processarMission(msg);
+                processarMission(msg, dados, tamanho);
                 break;
             case MSG_ACK:
-                processarAck(msg);
+                PayloadAck ack = msg.payload instanceof PayloadAck ? (PayloadAck) msg.payload : null;
+                processarAck(msg.header.idMissao, msg.header.seq, msg.header.flagSucesso,
+                             ack != null && ack.finalAck, ack != null ? ack.emFalta(1, ultimoSeqEnviado()) : null);
+                break;
+            case MSG_CANCEL:
+                processarCancelamento(msg, endereco, porta);
                 break;
             default:
                 System.out.println("[ClienteUDP] Mensagem inesperada: " + msg.header.tipo);
@@ -127,6 +291,13 @@ public class ClienteUDP implements Runnable {
     private void processarHello(MensagemUDP msg, InetAddress endereco, int porta) {
         System.out.println("[ClienteUDP] HELLO recebido - Missão ID: " + msg.header.idMissao);
         
+        if (sessaoSeguinte != null && sessaoSeguinte.idMissao == msg.header.idMissao) {
+            System.out.println("[ClienteUDP] HELLO duplicado para missão seguinte " + msg.header.idMissao + " - Reenviando RESPONSE");
+            metricas.incrementarMensagensDuplicadas();
+            enviarResponse(sessaoSeguinte, true);
+            return;
+        }
+        
         // Proteção contra HELLO duplicado 
         if (sessaoAtual != null && sessaoAtual.idMissao == msg.header.idMissao) {
             System.out.println("[ClienteUDP] HELLO duplicado para missão " + msg.header.idMissao + " - Reenviando RESPONSE");
@@ -138,15 +309,23 @@ public class ClienteUDP implements Runnable {
         
         // Proteção: não aceitar nova missão se já está em execução
         if (sessaoAtual != null && sessaoAtual.emExecucao) {
+            // Missão seguinte (flagSucesso): aceite numa segunda sessão, salvo se já houver uma
+            // ou se a atual estiver a falhar (ERROR em envio)
+            boolean aFalhar = envioPendente != null && envioPendente.msg.header.tipo == TipoMensagem.MSG_ERROR;
+            if (msg.header.flagSucesso && sessaoSeguinte == null && !aFalhar) {
+                sessaoSeguinte = new SessaoClienteMissionLink(msg.header.idMissao, endereco, porta);
+                sessaoSeguinte.seqAtual = msg.header.seq;
+                System.out.println("[ClienteUDP] Missão seguinte " + msg.header.idMissao + " aceite durante a missão " + 
+                                 sessaoAtual.idMissao + " - Aguardando fragmentos MISSION");
+                enviarResponse(sessaoSeguinte, true);
+                return;
+            }
             System.out.println("[ClienteUDP] HELLO ignorado - Rover já está em execução de missão " + sessaoAtual.idMissao);
             // Responder que não está disponível
             // Criar sessão temporária para enviar RESPONSE negativo
             SessaoClienteMissionLink sessaoTemp = new SessaoClienteMissionLink(msg.header.idMissao, endereco, porta);
             sessaoTemp.seqAtual = msg.header.seq;
-            SessaoClienteMissionLink sessaoAnterior = sessaoAtual;
-            sessaoAtual = sessaoTemp;
-            enviarResponse(false);
-            sessaoAtual = sessaoAnterior;
+            enviarResponse(sessaoTemp, false);
             return;
         }
         
@@ -175,15 +354,96 @@ public class ClienteUDP implements Runnable {
         enviarResponse(disponivel);
     }
     
+    /**
+     * Processa mensagem CANCEL: a Nave-Mãe interrompe a missão em execução
+     * (preempção, se flagSucesso, ou cancelamento). O rover para a
+     * reportagem, desiste do envio pendente, volta a DISPONIVEL e confirma
+     * com um ACK com o seq do CANCEL (flagSucesso = missão parada).
+     * Um CANCEL repetido volta a ser confirmado; se a missão já não estiver
+     * em execução, ou o COMPLETED/ERROR já estiver a ser enviado, responde
+     * com flagSucesso=false e a missão termina normalmente.
+     */
+    private void processarCancelamento(MensagemUDP msg, InetAddress endereco, int porta) {
+        int idMissao = msg.header.idMissao;
+        boolean preempcao = msg.header.flagSucesso;
+        boolean aTerminar = envioPendente != null && envioPendente.msg.header.tipo != TipoMensagem.MSG_PROGRESS;
+        boolean parada;
+        
+        if (sessaoAtual != null && sessaoAtual.idMissao == idMissao && sessaoAtual.emExecucao && !aTerminar) {
+            System.out.println("[ClienteUDP] CANCEL recebido - missão " + idMissao + " interrompida" + 
+                             (preempcao ? " (preempção)" : ""));
+            pararMissao();
+            idMissaoCancelada = idMissao;
+            parada = true;
+        } else if (idMissao == idMissaoCancelada) {
+            System.out.println("[ClienteUDP] CANCEL duplicado para missão " + idMissao + " - Reenviando ACK");
+            metricas.incrementarMensagensDuplicadas();
+            parada = true;
+        } else {
+            System.out.println("[ClienteUDP] CANCEL para missão " + idMissao + " que não está em execução");
+            parada = false;
+        }
+        
+        MensagemUDP ack = criarMensagemBase(TipoMensagem.MSG_ACK, idMissao, msg.header.seq, parada);
+        ack.payload = null;
+        byte[] dados = serializar(ack);
+        if (dados == null) {
+            return;
+        }
+        enviarDatagrama(dados, TipoMensagem.MSG_ACK, endereco, porta);
+        for (int i = 1; i < 3; i++) {
+            agendar(i * ESPACO_COPIAS_ACK_MS, () -> enviarDatagrama(dados, TipoMensagem.MSG_ACK, endereco, porta));
+        }
+    }
+    
+    /**
+     * Interrompe a missão em execução: sem mais PROGRESS nem retransmissões
+     * (a reportagem agendada vê a sessão terminada) e rover DISPONIVEL.
+     */
+    private void pararMissao() {
+        EnvioFiavel envio = envioPendente;
+        if (envio != null) {
+            if (envio.temporizador != null) {
+                envio.temporizador.cancelar();
+                envio.temporizador = null;
+            }
+            envioPendente = null; // sem aoTerminar: não há passo seguinte
+        }
+        sessaoAtual.aguardandoAck = false;
+        sessaoAtual.emExecucao = false;
+        sessaoAtual = null;
+        
+        if (maquina != null) {
+            maquina.cancelarMissao();
+        }
+        iniciarMissaoSeguinte();
+    }
+    
     /**
      * Processa fragmento MISSION.
-     * Suporta tanto PayloadMissao direto (sem fragmentação) quanto FragmentoPayload.
+     * Suporta PayloadMissao direto (sem fragmentação), FragmentoPayload e
+     * PayloadParidade (FEC).
+     * 
+     * @param dados buffer de receção com o datagrama (copiado só se houver
+     *              FEC, para a recuperação por paridade)
      */
-    private void processarMission(MensagemUDP msg) {
-        if (sessaoAtual == null || sessaoAtual.idMissao != msg.header.idMissao) {
+    private void processarMission(MensagemUDP msg, byte[] dados, int tamanho) {
+        SessaoClienteMissionLink sessao = sessaoDaMissao(msg.header.idMissao);
+        if (sessao == null) {
             System.err.println("[ClienteUDP] Fragmento recebido sem sessão ativa");
             return;
         }
+        if (sessao.fragmentosRecebidos == null) {
+            // Missão já reconstruída e em execução: fragmento/paridade atrasado
+            metricas.incrementarMensagensDuplicadas();
+            return;
+        }
+        
+        // Primeiro MISSION após o RESPONSE: amostra de RTT
+        if (!sessao.responseRetransmitido && sessao.instanteResponse != 0) {
+            rtt.registarAmostra(System.currentTimeMillis() - sessao.instanteResponse);
+            sessao.responseRetransmitido = true; // uma amostra por sessão
+        }
         
         int seq = msg.header.seq;
         
@@ -193,152 +453,241 @@ public class ClienteUDP implements Runnable {
             PayloadMissao payload = (PayloadMissao) msg.payload;
             
             // intervalos já vêm em segundos, converter para ms (com mínimo de 200ms)
-            sessaoAtual.intervaloAtualizacao = Math.max(200, (int) (payload.intervaloAtualizacao * 1000));
-            sessaoAtual.duracaoMissao = payload.duracaoMissao * 1000;
-            sessaoAtual.seqAtual = seq;
-            sessaoAtual.totalFragmentos = 1;
+            sessao.intervaloAtualizacao = Math.max(200, (int) (payload.intervaloAtualizacao * 1000));
+            sessao.duracaoMissao = payload.duracaoMissao * 1000;
+            sessao.seqAtual = seq;
+            sessao.totalFragmentos = 1;
             
             System.out.println("[ClienteUDP] Missão recebida: " + payload);
-
-            // Atualizar máquina de estados
-            if (maquina != null) {
-                maquina.receberMissao(payload);
-            }
             
             // Enviar ACK de confirmação
-            sessaoAtual.fragmentosPerdidos = new HashSet<>();
-            enviarAck();
+            sessao.fragmentosPerdidos = new BitSet();
+            enviarAck(sessao);
             
-            System.out.println("[ClienteUDP] SeqAtual após ACK: " + sessaoAtual.seqAtual + 
-                             " (próximo PROGRESS usará seq=" + (sessaoAtual.seqAtual + 1) + ")");
+            System.out.println("[ClienteUDP] SeqAtual após ACK: " + sessao.seqAtual + 
+                             " (próximo PROGRESS usará seq=" + (sessao.seqAtual + 1) + ")");
             
-            // Iniciar reportagem
-            Thread t = new Thread(this::reportarMissao);
-            t.setDaemon(true);
-            t.start();
+            // Iniciar reportagem (ou guardar, se for a missão seguinte)
+            missaoRecebida(sessao, payload);
             return;
         }
         
         // Caso contrário, é FragmentoPayload (com fragmentação)
         // Atualizar total de fragmentos se necessário (primeira vez que recebemos um MISSION)
-        if (sessaoAtual.totalFragmentos == 0 && msg.header.totalFragm >= 1) {
-            sessaoAtual.totalFragmentos = msg.header.totalFragm;
-            sessaoAtual.ultimoFragmentoRecebido = System.currentTimeMillis(); // Iniciar contagem de tempo
-            System.out.println("[ClienteUDP] Total de fragmentos atualizado: " + sessaoAtual.totalFragmentos);
+        if (sessao.totalFragmentos == 0 && msg.header.totalFragm >= 1) {
+            sessao.totalFragmentos = msg.header.totalFragm;
+            sessao.ultimoFragmentoRecebido = System.currentTimeMillis(); // Iniciar contagem de tempo
+            System.out.println("[ClienteUDP] Total de fragmentos atualizado: " + sessao.totalFragmentos);
+            armarTimeoutFragmentos(sessao, timeoutFragmentos());
         }
         
-        System.out.println("[ClienteUDP] Fragmento recebido: seq=" + seq + "/" + (msg.header.totalFragm + 1));
-        
-        // Extrair FragmentoPayload
-        if (!(msg.payload instanceof FragmentoPayload)) {
-            System.err.println("[ClienteUDP] Payload não é FragmentoPayload nem PayloadMissao");
-            return;
-        }
-        
-        FragmentoPayload fragmento = (FragmentoPayload) msg.payload;
-        
-        if (fragmento.temDados()) {
-            // Verificar se é fragmento duplicado
-            boolean fragmentoDuplicado = sessaoAtual.fragmentosRecebidos.containsKey(seq);
+        if (msg.payload instanceof PayloadParidade) {
+            PayloadParidade paridade = (PayloadParidade) msg.payload;
+            System.out.println("[ClienteUDP] Paridade recebida: seq=" + seq + " " + paridade);
+            sessao.paridadesRecebidas.putIfAbsent(paridade.seqInicial, paridade);
+            fecEmUso = true;
+            sessao.ultimoFragmentoRecebido = System.currentTimeMillis();
+            recuperarPorParidade(sessao, paridade);
+        } else {
+            System.out.println("[ClienteUDP] Fragmento recebido: seq=" + seq + "/" + (msg.header.totalFragm + 1));
             
-            if (fragmentoDuplicado) {
-                System.out.println("[ClienteUDP] Fragmento duplicado ignorado: seq=" + seq);
-                metricas.incrementarMensagensDuplicadas();
-                return; // Ignorar fragmento duplicado
+            // Extrair FragmentoPayload
+            if (!(msg.payload instanceof FragmentoPayload)) {
+                System.err.println("[ClienteUDP] Payload não é FragmentoPayload nem PayloadMissao");
+                return;
             }
             
-            sessaoAtual.fragmentosRecebidos.put(seq, fragmento);
-            // Atualizar timestamp do último fragmento recebido
-            sessaoAtual.ultimoFragmentoRecebido = System.currentTimeMillis();
+            FragmentoPayload fragmento = (FragmentoPayload) msg.payload;
             
-            // Manter o maior seq recebido
-            if (seq > sessaoAtual.seqAtual) {
-                sessaoAtual.seqAtual = seq;
+            if (fragmento.temDados()) {
+                // Verificar se é fragmento duplicado
+                boolean fragmentoDuplicado = sessao.seqsRecebidos.get(seq);
+                
+                if (fragmentoDuplicado) {
+                    System.out.println("[ClienteUDP] Fragmento duplicado ignorado: seq=" + seq);
+                    metricas.incrementarMensagensDuplicadas();
+                    return; // Ignorar fragmento duplicado
+                }
+                
+                registarFragmento(sessao, seq, fragmento, fecEmUso ? Arrays.copyOf(dados, tamanho) : null);
+                
+                // O fragmento pode completar um grupo de paridade já recebido
+                PayloadParidade paridade = paridadeDoGrupo(sessao, seq);
+                if (paridade != null) {
+                    recuperarPorParidade(sessao, paridade);
+                }
             }
-            
-            // Agregar campos no serializador
-            sessaoAtual.serializador.agregarCampos(fragmento);
         }
         
         // Verificar se recebemos todos os fragmentos
-        int fragmentosEsperados = sessaoAtual.totalFragmentos;
-        int fragmentosRecebidos = sessaoAtual.fragmentosRecebidos.size();
+        int fragmentosEsperados = sessao.totalFragmentos;
+        int fragmentosRecebidos = sessao.fragmentosRecebidos.size();
         
         System.out.println("[ClienteUDP] Progresso: " + fragmentosRecebidos + "/" + fragmentosEsperados);
         
         // Após receber fragmentos, verificar se deve enviar ACK
-        // Envia ACK quando: recebeu todos OU múltiplos de 5 fragmentos
-        if (fragmentosEsperados > 0 && 
-            (fragmentosRecebidos >= fragmentosEsperados || 
-             (fragmentosRecebidos > 0 && fragmentosRecebidos % 5 == 0))) {
-            
-            // Identificar fragmentos perdidos
-            sessaoAtual.fragmentosPerdidos = identificarFragmentosPerdidos();
-            
-            if (sessaoAtual.fragmentosPerdidos.isEmpty()) {
-                // Todos recebidos
-                if (reconstruirMissao()) {
-                    System.out.println("[ClienteUDP] Missão recebida com sucesso!");
-                    enviarAck();
-                    System.out.println("[ClienteUDP] SeqAtual após ACK: " + sessaoAtual.seqAtual + 
-                                     " (próximo PROGRESS usará seq=" + (sessaoAtual.seqAtual + 1) + ")");
-                    Thread t = new Thread(this::reportarMissao);
-                    t.setDaemon(true);
-                    t.start();
-                } else {
-                    System.err.println("[ClienteUDP] Erro ao reconstruir missão");
-                }
+        // Envia ACK quando: recebeu todos OU múltiplos de FRAGMENTOS_POR_ACK fragmentos
+        if (fragmentosEsperados > 0 && fragmentosRecebidos >= fragmentosEsperados) {
+            // Todos recebidos
+            sessao.fragmentosPerdidos = new BitSet();
+            PayloadMissao payload = reconstruirMissao(sessao);
+            if (payload != null) {
+                System.out.println("[ClienteUDP] Missão recebida com sucesso!");
+                enviarAck(sessao);
+                System.out.println("[ClienteUDP] SeqAtual após ACK: " + sessao.seqAtual + 
+                                 " (próximo PROGRESS usará seq=" + (sessao.seqAtual + 1) + ")");
+                missaoRecebida(sessao, payload);
             } else {
-                System.out.println("[ClienteUDP] Solicitando retransmissão de " + sessaoAtual.fragmentosPerdidos.size() + " fragmentos");
-                enviarAck();
+                System.err.println("[ClienteUDP] Erro ao reconstruir missão");
+            }
+        } else if (fragmentosEsperados > 0 && fragmentosRecebidos > 0 &&
+                   fragmentosRecebidos % SessaoClienteMissionLink.FRAGMENTOS_POR_ACK == 0) {
+            // ACK intermédio: confirma até ao maior seq recebido e lista só as lacunas
+            // abaixo dele (os seqs seguintes podem ainda não ter sido enviados).
+            // Serve de feedback à janela de envio da nave; basta um envio, o seguinte substitui-o.
+            sessao.fragmentosPerdidos = identificarFragmentosPerdidos(sessao, sessao.seqAtual);
+            if (!sessao.fragmentosPerdidos.isEmpty()) {
+                System.out.println("[ClienteUDP] Solicitando retransmissão de " + sessao.fragmentosPerdidos.cardinality() + " fragmentos");
                 // Atualizar timestamp para evitar envios repetidos imediatos
-                sessaoAtual.ultimoFragmentoRecebido = System.currentTimeMillis();
+                sessao.ultimoFragmentoRecebido = System.currentTimeMillis();
+            }
+            enviarAck(sessao, 1);
+        }
+    }
+    
+    /**
+     * Sessão em receção da missão: a atual ou a da missão seguinte.
+     */
+    private SessaoClienteMissionLink sessaoDaMissao(int idMissao) {
+        if (sessaoAtual != null && sessaoAtual.idMissao == idMissao) {
+            return sessaoAtual;
+        }
+        if (sessaoSeguinte != null && sessaoSeguinte.idMissao == idMissao) {
+            return sessaoSeguinte;
+        }
+        return null;
+    }
+    
+    /**
+     * Missão completa e confirmada: a atual começa logo; a seguinte fica
+     * guardada até a atual terminar (ver iniciarMissaoSeguinte).
+     */
+    private void missaoRecebida(SessaoClienteMissionLink sessao, PayloadMissao payload) {
+        if (sessao == sessaoSeguinte) {
+            terminarRececao(sessao);
+            missaoSeguinte = payload;
+            System.out.println("[ClienteUDP] Missão seguinte " + sessao.idMissao + 
+                             " pronta - começa quando a missão " + sessaoAtual.idMissao + " terminar");
+            return;
+        }
+        // Atualizar máquina de estados
+        if (maquina != null) {
+            maquina.receberMissao(payload);
+        }
+        iniciarReportagem();
+    }
+    
+    /**
+     * Guarda um fragmento de dados e agrega os seus campos.
+     *
+     * @param bruto bytes do datagrama para a recuperação por paridade, ou
+     *              null sem FEC (o payload já foi descodificado para objetos)
+     */
+    private void registarFragmento(SessaoClienteMissionLink sessao, int seq, FragmentoPayload fragmento, byte[] bruto) {
+        sessao.fragmentosRecebidos.put(seq, fragmento);
+        sessao.seqsRecebidos.set(seq);
+        if (bruto != null) {
+            sessao.datagramasRecebidos.put(seq, bruto);
+        }
+        // Atualizar timestamp do último fragmento recebido
+        sessao.ultimoFragmentoRecebido = System.currentTimeMillis();
+        
+        // Manter o maior seq recebido
+        if (seq > sessao.seqAtual) {
+            sessao.seqAtual = seq;
+        }
+        
+        // Agregar campos no serializador
+        sessao.serializador.agregarCampos(fragmento);
+    }
+    
+    /**
+     * Devolve a paridade recebida do grupo a que o seq pertence, ou null.
+     */
+    private PayloadParidade paridadeDoGrupo(SessaoClienteMissionLink sessao, int seq) {
+        for (PayloadParidade p : sessao.paridadesRecebidas.values()) {
+            if (p.cobre(seq)) {
+                return p;
             }
         }
+        return null;
+    }
+    
+    /**
+     * Se faltar exatamente um fragmento no grupo da paridade, reconstrói-o
+     * localmente (XOR) em vez de esperar pela retransmissão.
+     */
+    private void recuperarPorParidade(SessaoClienteMissionLink sessao, PayloadParidade paridade) {
+        int seqEmFalta = CodigoParidade.seqEmFalta(paridade, sessao.datagramasRecebidos);
+        if (seqEmFalta < 0 || sessao.seqsRecebidos.get(seqEmFalta)) {
+            return; // grupo completo, com mais de uma perda ou recebido antes de haver FEC (sem cópia)
+        }
+        
+        byte[] bruto = CodigoParidade.recuperar(paridade, sessao.datagramasRecebidos);
+        MensagemUDP recuperada = bruto != null ? SerializadorUDP.deserializarMensagem(bruto, bruto.length) : null;
+        if (recuperada == null || recuperada.header.seq != seqEmFalta || 
+            !(recuperada.payload instanceof FragmentoPayload)) {
+            System.err.println("[ClienteUDP] Falha ao recuperar fragmento seq=" + seqEmFalta + " por paridade");
+            return;
+        }
+        
+        registarFragmento(sessao, seqEmFalta, (FragmentoPayload) recuperada.payload, bruto);
+        sessao.recuperadosFec++;
+        System.out.println("[ClienteUDP] Fragmento seq=" + seqEmFalta + " reconstruído por paridade (FEC)");
     }
     
     /**
      * Processa mensagem ACK (para PROGRESS e COMPLETED).
-     * Valida que o ACK corresponde ao seq esperado.
+     * Valida que o ACK corresponde ao seq esperado. Recebe os campos já
+     * lidos, para servir tanto a vista binária como a MensagemUDP.
+     *
+     * @param emFalta PROGRESS que a nave pede para reenviar (null = nenhum)
      */
-    private void processarAck(MensagemUDP msg) {
-        if (sessaoAtual == null || !sessaoAtual.emExecucao || msg.header.idMissao != sessaoAtual.idMissao) {
+    private void processarAck(int idMissao, int seqRecebido, boolean flagSucesso, boolean finalAck, BitSet emFalta) {
+        if (sessaoAtual == null || !sessaoAtual.emExecucao || idMissao != sessaoAtual.idMissao) {
             return;
         }
         
         metricas.incrementarAcksRecebidos();
-        int seqRecebido = msg.header.seq;
         
         // PRIORITY: Verificar se é ACK final (para COMPLETED/ERROR)
-        if (msg.payload instanceof PayloadAck) {
-            PayloadAck ack = (PayloadAck) msg.payload;
-            if (ack.finalAck) {
-                System.out.println("[ClienteUDP] ACK FINAL recebido (seq=" + seqRecebido + 
-                                 ") - parar todas as retransmissões");
-                sessaoAtual.ultimoSeqConfirmado = seqRecebido;
-                sessaoAtual.aguardandoAck = false;
-                return; // Parar imediatamente, não processar missing progress
-            }
+        if (finalAck) {
+            System.out.println("[ClienteUDP] ACK FINAL recebido (seq=" + seqRecebido + 
+                             ") - parar todas as retransmissões");
+            sessaoAtual.instanteUltimoAck = System.currentTimeMillis();
+            sessaoAtual.ultimoSeqConfirmado = seqRecebido;
+            sessaoAtual.aguardandoAck = false;
+            verificarEnvioConfirmado();
+            return; // Parar imediatamente, não processar missing progress
         }
         
         // Verificar se é o ACK que estamos à espera
         if (sessaoAtual.aguardandoAck && seqRecebido == sessaoAtual.seqAckEsperado) {
             System.out.println("[ClienteUDP] ACK válido recebido para seq=" + seqRecebido + 
-                             " (sucesso=" + msg.header.flagSucesso + ")");
+                             " (sucesso=" + flagSucesso + ")");
+            sessaoAtual.instanteUltimoAck = System.currentTimeMillis();
             sessaoAtual.ultimoSeqConfirmado = seqRecebido;
             sessaoAtual.aguardandoAck = false;
 
             // Se o ACK veio com progresso perdido, reenviar os PROGRESS
-            if (msg.payload instanceof PayloadAck) {
-                PayloadAck ack = (PayloadAck) msg.payload;
-                if (ack.missing != null && ack.missing.length > 0) {
-                    System.out.println("[ClienteUDP] Servidor pediu reenvio de PROGRESS perdidos: " + Arrays.toString(ack.missing));
-                    metricas.incrementarMensagensPerdidas(ack.missing.length);
-                    for (int seq : ack.missing) {
-                        reenviarProgress(seq);
-                    }
+            if (emFalta != null && !emFalta.isEmpty()) {
+                System.out.println("[ClienteUDP] Servidor pediu reenvio de PROGRESS perdidos: " + emFalta);
+                metricas.incrementarMensagensPerdidas(emFalta.cardinality());
+                for (int seq = emFalta.nextSetBit(0); seq >= 0; seq = emFalta.nextSetBit(seq + 1)) {
+                    reenviarProgress(seq);
                 }
             }
+            verificarEnvioConfirmado();
         } else if (seqRecebido < sessaoAtual.seqAckEsperado) {
             // ACK antigo/duplicado
             System.out.println("[ClienteUDP] ACK antigo ignorado (recebido=" + seqRecebido + 
@@ -371,18 +720,18 @@ public class ClienteUDP implements Runnable {
     }
     
     /**
-     * Identifica quais fragmentos ainda não foram recebidos.
+     * Identifica quais fragmentos ainda não foram recebidos até ao seq
+     * indicado (gama de seqs de dados menos o bitmap de recebidos).
      */
-    private Set<Integer> identificarFragmentosPerdidos() {
-        Set<Integer> perdidos = new HashSet<>();
+    private BitSet identificarFragmentosPerdidos(SessaoClienteMissionLink sessao, int ateSeq) {
+        int limite = Math.min(ateSeq, sessao.totalFragmentos + 1);
+        BitSet perdidos = new BitSet(limite + 1);
+        perdidos.set(2, limite + 1);
+        perdidos.andNot(sessao.seqsRecebidos);
         
-        for (int i = 2; i <= sessaoAtual.totalFragmentos + 1; i++) {
-            if (!sessaoAtual.fragmentosRecebidos.containsKey(i)) {
-                perdidos.add(i);
-            }
-        }
-        if (perdidos.size() > 0) {
-            metricas.incrementarMensagensPerdidas(perdidos.size());
+        int emFalta = perdidos.cardinality();
+        if (emFalta > 0) {
+            metricas.incrementarMensagensPerdidas(emFalta);
         }
         return perdidos;
     }
@@ -390,35 +739,31 @@ public class ClienteUDP implements Runnable {
     /**
      * Reconstrói a missão a partir dos campos identificados.
      * Usa o DesserializadorUDP para reconstruir o payload.
+     *
+     * @return a missão, ou null se estiver incompleta ou inválida
      */
-    private boolean reconstruirMissao() {
+    private PayloadMissao reconstruirMissao(SessaoClienteMissionLink sessao) {
         try {
             // Verificar se missão está completa
-            if (!sessaoAtual.serializador.missaoCompleta()) {
+            if (!sessao.serializador.missaoCompleta()) {
                 System.err.println("[ClienteUDP] Missão incompleta - campos em falta");
-                return false;
+                return null;
             }
             
             // Reconstruir payload usando o protocolo
-            PayloadMissao payload = sessaoAtual.serializador.reconstruirMissao();
+            PayloadMissao payload = sessao.serializador.reconstruirMissao();
 
             // intervalos já vêm em segundos, converter para ms (com mínimo de 200ms)
-            sessaoAtual.intervaloAtualizacao = Math.max(200, (int) (payload.intervaloAtualizacao * 1000));
-            sessaoAtual.duracaoMissao = payload.duracaoMissao * 1000;
+            sessao.intervaloAtualizacao = Math.max(200, (int) (payload.intervaloAtualizacao * 1000));
+            sessao.duracaoMissao = payload.duracaoMissao * 1000;
 
             System.out.println("[ClienteUDP] Missão reconstruída: " + payload);
-
-            // Atualizar máquina de estados
-            if (maquina != null) {
-                maquina.receberMissao(payload);
-            }
-
-            return true;
+            return payload;
 
         } catch (Exception e) {
             System.err.println("[ClienteUDP] Erro ao reconstruir missão: " + e.getMessage());
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
     
@@ -428,11 +773,15 @@ public class ClienteUDP implements Runnable {
      * Cria uma mensagem UDP base com campos comuns preenchidos.
      */
     private MensagemUDP criarMensagemBase(TipoMensagem tipo, int seq, boolean flagSucesso) {
+        return criarMensagemBase(tipo, sessaoAtual.idMissao, seq, flagSucesso);
+    }
+    
+    private MensagemUDP criarMensagemBase(TipoMensagem tipo, int idMissao, int seq, boolean flagSucesso) {
         MensagemUDP msg = new MensagemUDP();
         msg.header.tipo = tipo;
         msg.header.idEmissor = idRover;
         msg.header.idRecetor = 0; // Nave-Mãe
-        msg.header.idMissao = sessaoAtual.idMissao;
+        msg.header.idMissao = idMissao;
         msg.header.seq = seq;
         msg.header.totalFragm = 1;
         msg.header.flagSucesso = flagSucesso;
@@ -445,40 +794,54 @@ public class ClienteUDP implements Runnable {
      * Envia mensagem RESPONSE.
      */
     private void enviarResponse(boolean sucesso) {
-        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_RESPONSE, sessaoAtual.seqAtual, sucesso);
+        enviarResponse(sessaoAtual, sucesso);
+    }
+    
+    private void enviarResponse(SessaoClienteMissionLink sessao, boolean sucesso) {
+        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_RESPONSE, sessao.idMissao, sessao.seqAtual, sucesso);
         msg.payload = null;
         
-        enviarParaNave(msg);
+        // RTT: RESPONSE -> primeiro MISSION (só se o RESPONSE foi enviado uma vez)
+        sessao.responseRetransmitido = sessao.instanteResponse != 0;
+        sessao.instanteResponse = System.currentTimeMillis();
+        enviarMensagem(msg, sessao.enderecoNave, sessao.portaNave);
         System.out.println("[ClienteUDP] RESPONSE enviado (sucesso=" + sucesso + ")");
     }
     
     /**
-     * Envia mensagem ACK.
+     * Envia mensagem ACK da receção da missão da sessão.
      */
-    private void enviarAck() {
-        boolean semPerdas = sessaoAtual.fragmentosPerdidos.isEmpty();
-        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_ACK, sessaoAtual.seqAtual, semPerdas);
+    private void enviarAck(SessaoClienteMissionLink sessao) {
+        enviarAck(sessao, 3);
+    }
+    
+    /**
+     * Envia mensagem ACK o número de vezes indicado: a primeira cópia logo,
+     * as restantes agendadas com ESPACO_COPIAS_ACK_MS entre si.
+     */
+    private void enviarAck(SessaoClienteMissionLink sessao, int envios) {
+        boolean semPerdas = sessao.fragmentosPerdidos.isEmpty();
+        MensagemUDP msg = criarMensagemBase(TipoMensagem.MSG_ACK, sessao.idMissao, sessao.seqAtual, semPerdas);
         
         PayloadAck ack = new PayloadAck();
-        ack.missingCount = sessaoAtual.fragmentosPerdidos.size();
-        ack.missing = setParaArray(sessaoAtual.fragmentosPerdidos);
+        ack.definirEmFalta(sessao.fragmentosPerdidos);
+        ack.recuperados = sessao.recuperadosFec;
         msg.payload = ack;
         
-        // Enviar ACK 3 vezes para maior robustez 
-        for (int i = 0; i < 3; i++) {
-            enviarParaNave(msg);
-            if (i < 2) {
-                try {
-                    Thread.sleep(100); // 100ms entre envios
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
+        // Enviar ACK várias vezes para maior robustez (mesmos bytes em todas as cópias)
+        byte[] dados = serializar(msg);
+        if (dados == null) {
+            return;
+        }
+        InetAddress endereco = sessao.enderecoNave;
+        int portaNave = sessao.portaNave;
+        enviarDatagrama(dados, TipoMensagem.MSG_ACK, endereco, portaNave);
+        for (int i = 1; i < envios; i++) {
+            agendar(i * ESPACO_COPIAS_ACK_MS, () -> enviarDatagrama(dados, TipoMensagem.MSG_ACK, endereco, portaNave));
         }
         
-        System.out.println("[ClienteUDP] ACK enviado 3x (seq=" + sessaoAtual.seqAtual + 
-                         ", faltam " + sessaoAtual.fragmentosPerdidos.size() + " fragmentos)");
+        System.out.println("[ClienteUDP] ACK enviado " + envios + "x (seq=" + sessao.seqAtual + 
+                         ", faltam " + sessao.fragmentosPerdidos.cardinality() + " fragmentos)");
     }
     
     
@@ -493,20 +856,51 @@ public class ClienteUDP implements Runnable {
      * Envia mensagem UDP para endereço específico.
      */
     private void enviarMensagem(MensagemUDP msg, InetAddress endereco, int porta) {
+        // Binário: codificado diretamente no buffer de envio, sem byte[] intermédio
+        if (formato == FormatoWire.BINARIO && CodecBinarioUDP.tamanhoCodificado(msg) <= bufferEnvio.capacity()) {
+            bufferEnvio.clear();
+            CodecBinarioUDP.codificar(msg, bufferEnvio);
+            bufferEnvio.flip();
+            enviarDatagrama(bufferEnvio, msg.header.tipo, endereco, porta);
+            return;
+        }
+        byte[] dados = serializar(msg);
+        if (dados != null) {
+            enviarDatagrama(dados, msg.header.tipo, endereco, porta);
+        }
+    }
+    
+    private byte[] serializar(MensagemUDP msg) {
+        try {
+            SerializadorUDP serializador = sessaoAtual != null ? sessaoAtual.serializador : serializadorAvulso;
+            return serializador.serializarMensagem(msg, formato);
+        } catch (IOException e) {
+            System.err.println("[ClienteUDP] Erro ao serializar mensagem: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Envia bytes já codificados. O canal não bloqueia: se o buffer de envio
+     * do socket estiver cheio o datagrama perde-se, como na rede.
+     */
+    private void enviarDatagrama(byte[] dados, TipoMensagem tipo, InetAddress endereco, int porta) {
+        enviarDatagrama(ByteBuffer.wrap(dados), tipo, endereco, porta);
+    }
+    
+    private void enviarDatagrama(ByteBuffer dados, TipoMensagem tipo, InetAddress endereco, int porta) {
         try {
             // Verificação defensiva
-            if (socket == null) {
+            if (canal == null) {
                 System.err.println("[ClienteUDP] Socket não inicializado - não é possível enviar");
                 return;
             }
             
-            byte[] dados = sessaoAtual.serializador.serializarObjeto(msg);
-            DatagramPacket pacote = new DatagramPacket(dados, dados.length, endereco, porta);
-            socket.send(pacote);
+            canal.send(dados, destino(endereco, porta));
             
             metricas.incrementarMensagensEnviadas();
             // Incrementar contadores específicos por tipo
-            switch (msg.header.tipo) {
+            switch (tipo) {
                 case MSG_RESPONSE:
                     // RESPONSE não tem contador específico de envio (apenas recepção no servidor)
                     break;
@@ -525,6 +919,7 @@ public class ClienteUDP implements Runnable {
                 case MSG_HELLO:
                 case MSG_MISSION:
                 case MSG_TELEMETRY:
+                case MSG_CANCEL:
                     // Não enviados pelo cliente
                     break;
             }
@@ -534,115 +929,198 @@ public class ClienteUDP implements Runnable {
     }
     
     /**
-     * Envia mensagem com retransmissão até receber ACK ou atingir máximo de tentativas.
-     * @return true se ACK foi recebido, false se esgotou tentativas
+     * Envia mensagem com retransmissão até receber ACK ou atingir máximo de
+     * tentativas. Não espera: cada tentativa arma um temporizador de RTO e o
+     * ACK é tratado em processarAck.
+     *
+     * @param aoTerminar chamado com true se o ACK foi recebido, false se esgotou tentativas
      */
-    private boolean enviarComRetry(MensagemUDP msg, int seqParaEnviar, int maxTentativas, String nomeMensagem) {
+    private void enviarComRetry(MensagemUDP msg, int seqParaEnviar, int maxTentativas, String nomeMensagem,
+                                Consumer<Boolean> aoTerminar) {
         sessaoAtual.aguardandoAck = true;
         sessaoAtual.seqAckEsperado = seqParaEnviar;
         
-        int tentativas = 0;
-        while (tentativas < maxTentativas && sessaoAtual != null && sessaoAtual.aguardandoAck && running) {
-            enviarParaNave(msg);
-            
-            if (tentativas == 0) {
-                System.out.println("[ClienteUDP] " + nomeMensagem + " enviado (seq=" + seqParaEnviar + ")");
-            } else {
-                metricas.incrementarMensagensRetransmitidas();
-                System.out.println("[ClienteUDP] " + nomeMensagem + " retransmitido (seq=" + seqParaEnviar + 
-                                 ", tentativa " + tentativas + ")");
-            }
-            
-            if (aguardarAckParaSeq(seqParaEnviar, TIMEOUT_MS)) {
-                return true;
-            }
-            
-            tentativas++;
-            if (tentativas < maxTentativas) {
-                System.out.println("[ClienteUDP] Timeout aguardando ACK para " + nomeMensagem + " seq=" + seqParaEnviar +
-                                    " - Tentando novamente...");
-            }
+        EnvioFiavel envio = new EnvioFiavel(msg, seqParaEnviar, maxTentativas, nomeMensagem, aoTerminar);
+        envio.instantePrimeiroEnvio = System.currentTimeMillis();
+        envioPendente = envio;
+        transmitir(envio);
+    }
+    
+    /**
+     * Endereço de envio, reutilizado enquanto o destino for o mesmo (a nave).
+     */
+    private InetSocketAddress destino(InetAddress endereco, int porta) {
+        InetSocketAddress destino = destinoNave;
+        if (destino == null || destino.getPort() != porta || !destino.getAddress().equals(endereco)) {
+            destino = new InetSocketAddress(endereco, porta);
+            destinoNave = destino;
         }
+        return destino;
+    }
+    
+    private void transmitir(EnvioFiavel envio) {
+        enviarParaNave(envio.msg);
         
-        if (sessaoAtual != null && sessaoAtual.aguardandoAck) {
-            System.out.println("[ClienteUDP] AVISO: Máximo de retransmissões atingido para " + nomeMensagem + " seq=" + seqParaEnviar);
-            sessaoAtual.aguardandoAck = false;
+        if (envio.tentativas == 0) {
+            System.out.println("[ClienteUDP] " + envio.nome + " enviado (seq=" + envio.seq + ")");
+        } else {
+            metricas.incrementarMensagensRetransmitidas();
+            System.out.println("[ClienteUDP] " + envio.nome + " retransmitido (seq=" + envio.seq + 
+                             ", tentativa " + envio.tentativas + ")");
         }
-        return false;
+        envio.temporizador = agendar(rtt.rto(), () -> aoExpirarEnvio(envio));
     }
     
-    // ==================== MÉTODOS AUXILIARES ====================
+    /**
+     * RTO expirado sem ACK: retransmite ou desiste.
+     */
+    private void aoExpirarEnvio(EnvioFiavel envio) {
+        envio.temporizador = null;
+        if (envioPendente != envio) {
+            return;
+        }
+        if (!running || sessaoAtual == null || !sessaoAtual.emExecucao) {
+            terminarEnvio(envio, false);
+            return;
+        }
+        
+        rtt.aoTimeout();
+        envio.tentativas++;
+        if (envio.tentativas < envio.maxTentativas) {
+            System.out.println("[ClienteUDP] Timeout aguardando ACK para " + envio.nome + " seq=" + envio.seq +
+                                " - Tentando novamente...");
+            transmitir(envio);
+            return;
+        }
+        
+        if (sessaoAtual.aguardandoAck) {
+            System.out.println("[ClienteUDP] AVISO: Máximo de retransmissões atingido para " + envio.nome + " seq=" + envio.seq);
+            sessaoAtual.aguardandoAck = false;
+        }
+        terminarEnvio(envio, false);
+    }
     
     /**
-     * Converte Set<Integer> para int[].
+     * Chamado depois de processar um ACK: conclui o envio pendente se o seu seq ficou confirmado.
      */
-    private int[] setParaArray(Set<Integer> set) {
-        int[] array = new int[set.size()];
-        int i = 0;
-        for (Integer valor : set) {
-            array[i++] = valor;
+    private void verificarEnvioConfirmado() {
+        EnvioFiavel envio = envioPendente;
+        if (envio == null || sessaoAtual == null) {
+            return;
+        }
+        if (!sessaoAtual.aguardandoAck && sessaoAtual.ultimoSeqConfirmado >= envio.seq) {
+            // Karn: só há amostra se a mensagem foi enviada uma única vez
+            if (envio.tentativas == 0) {
+                rtt.registarAmostra(sessaoAtual.instanteUltimoAck - envio.instantePrimeiroEnvio);
+            }
+            terminarEnvio(envio, true);
+        }
+    }
+    
+    private void terminarEnvio(EnvioFiavel envio, boolean confirmado) {
+        if (envio.temporizador != null) {
+            envio.temporizador.cancelar();
+            envio.temporizador = null;
         }
-        return array;
+        envioPendente = null;
+        envio.aoTerminar.accept(confirmado);
     }
     
+    // ==================== MÉTODOS AUXILIARES ====================
+    
     /**
-     * Inicia a reportagem da missão
+     * Inicia a reportagem da missão: um passo a cada intervaloAtualizacao,
+     * agendado depois de o PROGRESS anterior ser confirmado (ou desistido).
      */
-    private void reportarMissao() {
+    private void iniciarReportagem() {
         // Atualizar sessão 
         if (sessaoAtual == null) return;
-        int missionId = sessaoAtual.idMissao;
         sessaoAtual.emExecucao = true;
         sessaoAtual.inicioMissao = System.currentTimeMillis();
-        
-        // Limpar dados (não mais necessários)
-        sessaoAtual.fragmentosRecebidos = null;
-        sessaoAtual.serializador.limpar();
+        terminarRececao(sessaoAtual);
         
         // Iniciar envio de progresso
-        System.out.println("[ClienteUDP] Iniciada a execução da missão " + missionId);
-        while (running && sessaoAtual != null && sessaoAtual.emExecucao) {
-            try {
-                Thread.sleep(sessaoAtual.intervaloAtualizacao);
-                
-                if (sessaoAtual == null || !sessaoAtual.emExecucao) {
-                    System.out.println("[ClienteUDP] Sessão terminada - parando reportagem");
-                    break;
-                }
+        System.out.println("[ClienteUDP] Iniciada a execução da missão " + sessaoAtual.idMissao);
+        agendarReportagem(sessaoAtual);
+    }
+    
+    /**
+     * Receção da missão terminada: liberta os dados dos fragmentos (não mais
+     * necessários) e o temporizador de fragmentos em falta.
+     */
+    private void terminarRececao(SessaoClienteMissionLink sessao) {
+        sessao.fragmentosRecebidos = null;
+        sessao.datagramasRecebidos = null;
+        sessao.paridadesRecebidas = null;
+        sessao.serializador.limpar();
+        if (temporizadorFragmentos != null) {
+            temporizadorFragmentos.cancelar();
+            temporizadorFragmentos = null;
+        }
+    }
+    
+    /**
+     * A missão atual terminou (COMPLETED confirmado ou CANCEL): a seguinte,
+     * se houver, passa a atual e começa logo se já estiver recebida; senão
+     * começa quando a receção terminar.
+     */
+    private void iniciarMissaoSeguinte() {
+        SessaoClienteMissionLink seguinte = sessaoSeguinte;
+        if (seguinte == null) {
+            return;
+        }
+        PayloadMissao payload = missaoSeguinte;
+        sessaoSeguinte = null;
+        missaoSeguinte = null;
+        sessaoAtual = seguinte;
+        System.out.println("[ClienteUDP] Missão seguinte " + seguinte.idMissao + " passa a missão atual" + 
+                         (payload == null ? " (ainda em receção)" : ""));
+        if (payload != null) {
+            if (maquina != null) {
+                maquina.receberMissao(payload);
+            }
+            iniciarReportagem();
+        }
+    }
+    
+    private void agendarReportagem(SessaoClienteMissionLink sessao) {
+        agendar(sessao.intervaloAtualizacao, () -> passoReportagem(sessao));
+    }
+    
+    /**
+     * Um passo da reportagem: atualiza a missão e envia PROGRESS, COMPLETED ou ERROR.
+     */
+    private void passoReportagem(SessaoClienteMissionLink sessao) {
+        if (!running || sessaoAtual != sessao || !sessao.emExecucao) {
+            System.out.println("[ClienteUDP] Sessão terminada - parando reportagem");
+            System.out.println("[ClienteUDP] Execução da missão " + sessao.idMissao + " terminada");
+            return;
+        }
 
-                // Atualizar lógica da missão antes de reportar
-                if (maquina != null) {
-                    maquina.atualizar();
-                }
+        // Atualizar lógica da missão antes de reportar
+        if (maquina != null) {
+            maquina.atualizar();
+        }
 
-                float progressoPerc = maquina != null ? maquina.getContexto().getProgresso() : 0.0f;
-                
-                // Verificar condições de erro que impedem continuar a missão
-                PayloadErro.CodigoErro erroDetectado = verificarCondicoesErro();
-                if (erroDetectado != null) {
-                    System.out.println("[ClienteUDP] Erro detectado: " + erroDetectado.descricaoPadrao);
-                    enviarErro(erroDetectado, null);
-                    return; // Termina a reportagem
-                }
-                
-                long tempoDecorrido = System.currentTimeMillis() - sessaoAtual.inicioMissao;
-                
-                // Enviar PROGRESS
-                if (progressoPerc >= 100.0f) {
-                    System.out.println("[ClienteUDP] Progresso atingiu 100% - enviando COMPLETED");
-                    enviarCompleted(true);
-                    System.out.println("[ClienteUDP] Reportagem terminada com sucesso");
-                    return; 
-                } else {
-                    enviarProgress(progressoPerc, tempoDecorrido);
-                }
-                
-            } catch (InterruptedException e) {
-                break;
-            }
+        float progressoPerc = maquina != null ? maquina.getContexto().getProgresso() : 0.0f;
+        
+        // Verificar condições de erro que impedem continuar a missão
+        PayloadErro.CodigoErro erroDetectado = verificarCondicoesErro();
+        if (erroDetectado != null) {
+            System.out.println("[ClienteUDP] Erro detectado: " + erroDetectado.descricaoPadrao);
+            enviarErro(erroDetectado, null);
+            return; // Termina a reportagem
         }
         
-        System.out.println("[ClienteUDP] Execução da missão " + missionId + " terminada");
+        long tempoDecorrido = System.currentTimeMillis() - sessao.inicioMissao;
+        
+        // Enviar PROGRESS
+        if (progressoPerc >= 100.0f) {
+            System.out.println("[ClienteUDP] Progresso atingiu 100% - enviando COMPLETED");
+            enviarCompleted(true);
+        } else {
+            enviarProgress(progressoPerc, tempoDecorrido, () -> agendarReportagem(sessao));
+        }
     }
 
     /**
@@ -691,22 +1169,24 @@ public class ClienteUDP implements Runnable {
         );
         
         int maxTentativasErro = MAX_RETRIES * 3; // Mais tentativas para mensagem crítica
-        boolean confirmado = enviarComRetry(msg, seqParaEnviar, maxTentativasErro, "ERRO (" + codigoErro.codigo + ")");
-        
-        if (!confirmado) {
-            System.err.println("[ClienteUDP] AVISO: ERRO não foi confirmado após " + maxTentativasErro + " tentativas");
-        }
+        enviarComRetry(msg, seqParaEnviar, maxTentativasErro, "ERRO (" + codigoErro.codigo + ")", confirmado -> {
+            if (!confirmado) {
+                System.err.println("[ClienteUDP] AVISO: ERRO não foi confirmado após " + maxTentativasErro + " tentativas");
+            }
 
-        // Só actualizar estado DEPOIS de esgotar todas as tentativas
-        finalizarMissaoComEstado(codigoErro.descricaoPadrao, EstadoRover.ESTADO_FALHA, EventoRelevante.EVENTO_ERRO_MISSAO);
+            // Só actualizar estado DEPOIS de esgotar todas as tentativas
+            finalizarMissaoComEstado(codigoErro.descricaoPadrao, EstadoRover.ESTADO_FALHA, EventoRelevante.EVENTO_ERRO_MISSAO);
+        });
     }
 
     
     /**
      * Envia mensagem PROGRESS para a Nave-Mãe.
      * Implementa retransmissão robusta com validação de seq do ACK.
+     *
+     * @param seguinte chamado quando o PROGRESS é confirmado ou se desiste dele
      */
-    private void enviarProgress(float progressoPerc, long tempoDecorrido) {
+    private void enviarProgress(float progressoPerc, long tempoDecorrido, Runnable seguinte) {
         if (sessaoAtual == null || !sessaoAtual.emExecucao) return;
         
         int seqParaEnviar = ++sessaoAtual.seqAtual;
@@ -723,7 +1203,7 @@ public class ClienteUDP implements Runnable {
         sessaoAtual.progressosEnviados.put(seqParaEnviar, progresso);
         
         enviarComRetry(msg, seqParaEnviar, MAX_RETRIES, 
-                      "PROGRESS (" + String.format("%.2f", progressoPerc) + "%)");
+                      "PROGRESS (" + String.format("%.2f", progressoPerc) + "%)", confirmado -> seguinte.run());
     }
     
     /**
@@ -741,14 +1221,15 @@ public class ClienteUDP implements Runnable {
         
         // Aumentar drasticamente tentativas para mensagem crítica
         int maxTentativasCompleted = MAX_RETRIES * 3; // ~45 segundos de tentativas
-        boolean confirmado = enviarComRetry(msg, seqParaEnviar, maxTentativasCompleted, "COMPLETED (sucesso=" + sucesso + ")");
-        
-        if (!confirmado) {
-            System.err.println("[ClienteUDP] AVISO: COMPLETED não foi confirmado após " + maxTentativasCompleted + " tentativas");
-        }
+        enviarComRetry(msg, seqParaEnviar, maxTentativasCompleted, "COMPLETED (sucesso=" + sucesso + ")", confirmado -> {
+            if (!confirmado) {
+                System.err.println("[ClienteUDP] AVISO: COMPLETED não foi confirmado após " + maxTentativasCompleted + " tentativas");
+            }
 
-        // Só actualizar estado DEPOIS de esgotar todas as tentativas
-        finalizarMissaoComEstado("concluída", EstadoRover.ESTADO_CONCLUIDO, EventoRelevante.EVENTO_FIM_MISSAO);
+            // Só actualizar estado DEPOIS de esgotar todas as tentativas
+            finalizarMissaoComEstado("concluída", EstadoRover.ESTADO_CONCLUIDO, EventoRelevante.EVENTO_FIM_MISSAO);
+            System.out.println("[ClienteUDP] Reportagem terminada com sucesso");
+        });
     }
     
     /**
@@ -777,86 +1258,102 @@ public class ClienteUDP implements Runnable {
             " agora em estado " + novoEstado + 
             " (temMissao=" + maquina.getContexto().temMissao + ")");
         }
+        
+        if (novoEstado == EstadoRover.ESTADO_CONCLUIDO) {
+            iniciarMissaoSeguinte();
+        } else if (sessaoSeguinte != null) {
+            // Rover em falha: a Nave-Mãe devolve a missão seguinte a pendente
+            System.out.println("[ClienteUDP] Missão seguinte " + sessaoSeguinte.idMissao + " descartada");
+            sessaoSeguinte = null;
+            missaoSeguinte = null;
+        }
     }
 
     /**
-     * Aguarda ACK para um seq específico até timeoutMs.
-     * Retorna true se ACK válido foi recebido, false se timeout.
+     * Arma (ou rearma) o temporizador de fragmentos em falta da sessão.
      */
-    private boolean aguardarAckParaSeq(int seqEsperado, long timeoutMs) {
-        long inicio = System.currentTimeMillis();
-        while (System.currentTimeMillis() - inicio < timeoutMs && running) {
-            if (sessaoAtual == null || !sessaoAtual.emExecucao) {
-                return false;
-            }
-            
-            // Verificar se o ACK para este seq foi confirmado
-            if (!sessaoAtual.aguardandoAck && sessaoAtual.ultimoSeqConfirmado >= seqEsperado) {
-                return true;
-            }
-            
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                return false;
-            }
+    private void armarTimeoutFragmentos(SessaoClienteMissionLink sessao, long atrasoMs) {
+        if (temporizadorFragmentos != null) {
+            temporizadorFragmentos.cancelar();
         }
-        return false; // Timeout
+        temporizadorFragmentos = agendar(atrasoMs, () -> {
+            temporizadorFragmentos = null;
+            verificarTimeoutFragmentos(sessao);
+        });
+    }
+    
+    private long timeoutFragmentos() {
+        return rtt.temAmostras() ? rtt.rto() : TIMEOUT_FRAGMENTOS_MS;
     }
     
     /**
-     * Verifica periodicamente se estamos esperando fragmentos há muito tempo.
-     * Envia ACK solicitando fragmentos perdidos se timeout for atingido.
+     * Verifica se estamos à espera de fragmentos há muito tempo e, nesse
+     * caso, envia ACK a pedir os fragmentos perdidos. Rearma-se para o
+     * próximo prazo enquanto a sessão estiver a receber fragmentos.
      */
-    private void verificarTimeoutFragmentos() {
-        // Só verificar se temos sessão ativa que ainda não está em execução
-        if (sessaoAtual == null || sessaoAtual.emExecucao) {
-            return;
-        }
-        
-        // Se não sabemos quantos fragmentos esperar, não há nada a fazer
-        if (sessaoAtual.totalFragmentos == 0) {
+    private void verificarTimeoutFragmentos(SessaoClienteMissionLink sessao) {
+        // Só verificar se a sessão continua ativa e ainda não está em execução
+        if ((sessaoAtual != sessao && sessaoSeguinte != sessao) || sessao.emExecucao || sessao.fragmentosRecebidos == null) {
             return;
         }
         
-        int fragmentosRecebidos = sessaoAtual.fragmentosRecebidos.size();
+        int fragmentosRecebidos = sessao.fragmentosRecebidos.size();
         
         // Se já temos todos, não precisa verificar timeout
-        if (fragmentosRecebidos >= sessaoAtual.totalFragmentos) {
+        if (fragmentosRecebidos >= sessao.totalFragmentos) {
             return;
         }
         
+        long timeoutFragmentos = timeoutFragmentos();
+        
         // Se não recebemos nenhum fragmento ainda, não há timeout
-        if (fragmentosRecebidos == 0 || sessaoAtual.ultimoFragmentoRecebido == 0) {
+        if (fragmentosRecebidos == 0 || sessao.ultimoFragmentoRecebido == 0) {
+            armarTimeoutFragmentos(sessao, timeoutFragmentos);
             return;
         }
         
         // Verificar se passou tempo suficiente desde o último fragmento
-        long tempoDecorrido = System.currentTimeMillis() - sessaoAtual.ultimoFragmentoRecebido;
+        long tempoDecorrido = System.currentTimeMillis() - sessao.ultimoFragmentoRecebido;
         
-        if (tempoDecorrido > TIMEOUT_FRAGMENTOS_MS) {
+        if (tempoDecorrido > timeoutFragmentos) {
             System.out.println("[ClienteUDP] Timeout aguardando fragmentos (" + tempoDecorrido + 
-                             "ms) - " + fragmentosRecebidos + "/" + sessaoAtual.totalFragmentos + " recebidos");
+                             "ms) - " + fragmentosRecebidos + "/" + sessao.totalFragmentos + " recebidos");
             
             // Identificar fragmentos perdidos
-            sessaoAtual.fragmentosPerdidos = identificarFragmentosPerdidos();
+            sessao.fragmentosPerdidos = identificarFragmentosPerdidos(sessao, sessao.totalFragmentos + 1);
             
-            if (!sessaoAtual.fragmentosPerdidos.isEmpty()) {
+            if (!sessao.fragmentosPerdidos.isEmpty()) {
                 System.out.println("[ClienteUDP] Solicitando retransmissão de " + 
-                                 sessaoAtual.fragmentosPerdidos.size() + " fragmentos perdidos");
-                enviarAck();
+                                 sessao.fragmentosPerdidos.cardinality() + " fragmentos perdidos");
+                enviarAck(sessao);
                 
                 // Atualizar timestamp para evitar envios repetidos imediatos
-                sessaoAtual.ultimoFragmentoRecebido = System.currentTimeMillis();
+                sessao.ultimoFragmentoRecebido = System.currentTimeMillis();
             }
+            armarTimeoutFragmentos(sessao, timeoutFragmentos);
+        } else {
+            // Chegaram fragmentos entretanto: esperar pelo resto do prazo
+            armarTimeoutFragmentos(sessao, timeoutFragmentos - tempoDecorrido + 1);
         }
     }
     
     public void parar() {
         running = false;
-        if (socket != null && !socket.isClosed()) {
-                socket.close();
+        if (seletor != null) {
+            seletor.wakeup(); // o reator fecha o canal ao sair do ciclo
+        }
+    }
+    
+    private void fecharCanal() {
+        try {
+            if (seletor != null) {
+                seletor.close();
+            }
+            if (canal != null) {
+                canal.close();
             }
+        } catch (IOException e) {
+        }
     }
     
     public MetricasUDP getMetricas() {
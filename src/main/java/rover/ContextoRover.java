@@ -109,9 +109,12 @@ import lib.mensagens.payloads.PayloadTelemetria;
                 this.missaoAtual = missao;
                 this.idMissaoAtual = (missao != null ? missao.idMissao : -1);
                 this.temMissao = (missao != null);
-                this.progressoMissao = 0.0f;
-                this.timestampInicioMissao = Instant.now().getEpochSecond();
-                this.ultimoCheckpoint = 0;
+                // Missão retomada (interrompida noutro rover): o progresso já feito conta como tempo decorrido
+                float inicial = missao != null ? Math.max(0.0f, Math.min(100.0f, missao.progressoInicial)) : 0.0f;
+                long jaDecorrido = missao != null ? (long) (missao.duracaoMissao * inicial / 100.0f) : 0;
+                this.progressoMissao = inicial;
+                this.timestampInicioMissao = Instant.now().getEpochSecond() - jaDecorrido;
+                this.ultimoCheckpoint = Math.min(3, (int) (inicial / 25.0f));
                 this.eventoPendente = EventoRelevante.EVENTO_INICIO_MISSAO;
         }
 
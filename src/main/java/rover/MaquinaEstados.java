@@ -91,6 +91,16 @@ public class MaquinaEstados {
         contexto.transicionarEstado(EstadoRover.ESTADO_EM_MISSAO);
     }
 
+    // Processa interrupção da missão pela Nave-Mãe (MSG_CANCEL)
+    public void cancelarMissao() {
+        System.out.println("[MaquinaEstados] Rover " + contexto.idRover +
+                " interrompeu a missão " + contexto.getMissaoId());
+
+        contexto.concluirMissao();
+        contexto.transicionarEstado(EstadoRover.ESTADO_DISPONIVEL);
+        contexto.eventoPendente = EventoRelevante.EVENTO_FIM_MISSAO;
+    }
+
     // Exposição do contexto
     public ContextoRover getContexto() {
         return contexto;
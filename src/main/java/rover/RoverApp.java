@@ -1,5 +1,7 @@
 package rover;
 
+import lib.mensagens.FormatoWire;
+
 /**
  * Aplicação minimalista do Rover.
  * 
@@ -10,6 +12,7 @@ package rover;
  * Uso: java RoverApp [id] [posX] [posY] [ipNave] [portaTcpNave] [portaUdp]
  * 
  * Valores por defeito: id=1, pos=(0,0), ipNave=127.0.0.1, portaTcpNave=5001, portaUdp=9010+id
+ * Formato MissionLink: -Dmissionlink.formato=BINARIO|JAVA (por omissão BINARIO)
  */
 public class RoverApp {
 
@@ -63,7 +66,7 @@ public class RoverApp {
             MaquinaEstados maquina = new MaquinaEstados(roverId, posX, posY);
             
             // Criar clientes
-            ClienteUDP clienteUDP = new ClienteUDP(roverId, portaUdp, maquina);
+            ClienteUDP clienteUDP = new ClienteUDP(roverId, portaUdp, maquina, FormatoWire.doSistema());
             ClienteTCP clienteTCP = new ClienteTCP(maquina.getContexto(), ipNave, portaTcpNave);
             
             // Thread que atualiza periodicamente a máquina de estados
@@ -0,0 +1,91 @@
+package lib;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do ControloCongestao (crescimento, redução a metade e janela mínima).
+ */
+class ControloCongestaoTest {
+
+    private static final double MINIMA = ControloCongestao.JANELA_MINIMA;
+
+    @Test
+    @DisplayName("Janela deve crescer um fragmento por fragmento confirmado em slow start")
+    void testCrescimentoSlowStart() {
+        ControloCongestao controlo = novoControlo();
+        assertEquals(MINIMA, controlo.getJanela());
+
+        enviar(controlo, 2, 11);
+        controlo.aoReceberAck(11, new BitSet());
+        assertEquals(MINIMA + 10, controlo.getJanela());
+        assertEquals(11, controlo.getMaiorSeqConfirmado());
+        assertTrue(controlo.cabeNaJanela((int) (11 + MINIMA + 10)));
+        assertFalse(controlo.cabeNaJanela((int) (12 + MINIMA + 10)));
+
+        // ACK repetido não confirma nada de novo
+        controlo.aoReceberAck(11, new BitSet());
+        assertEquals(MINIMA + 10, controlo.getJanela());
+        assertEquals(0, controlo.getReducoes());
+    }
+
+    @Test
+    @DisplayName("Lacuna nova deve reduzir a janela a metade, uma vez por janela")
+    void testReducaoAMetade() {
+        ControloCongestao controlo = novoControlo();
+        enviar(controlo, 2, 41);
+        controlo.aoReceberAck(41, new BitSet());
+        assertEquals(MINIMA + 40, controlo.getJanela());
+
+        enviar(controlo, 42, 91);
+        controlo.aoReceberAck(91, lacunas(60));
+        assertEquals((MINIMA + 40) / 2, controlo.getJanela());
+        assertEquals(1, controlo.getReducoes());
+
+        // Outra lacuna dentro da mesma janela (até ao seq 91) não reduz de novo
+        controlo.aoReceberAck(95, lacunas(60, 70));
+        assertEquals((MINIMA + 40) / 2, controlo.getJanela());
+        assertEquals(1, controlo.getReducoes());
+    }
+
+    @Test
+    @DisplayName("Janela não deve descer abaixo do mínimo")
+    void testJanelaMinima() {
+        ControloCongestao controlo = novoControlo();
+        enviar(controlo, 2, 41);
+        controlo.aoReceberAck(41, new BitSet());
+
+        controlo.aoTimeout();
+        assertEquals(MINIMA, controlo.getJanela());
+
+        enviar(controlo, 42, 51);
+        controlo.aoReceberAck(51, lacunas(45));
+        assertEquals(MINIMA, controlo.getJanela());
+        assertEquals(2, controlo.getReducoes());
+
+        controlo.aoTimeout();
+        assertEquals(MINIMA, controlo.getJanela());
+    }
+
+    private static ControloCongestao novoControlo() {
+        return new ControloCongestao(200, new EstimadorRTT(1000));
+    }
+
+    private static void enviar(ControloCongestao controlo, int de, int ate) {
+        for (int seq = de; seq <= ate; seq++) {
+            controlo.registarEnvio(seq);
+        }
+    }
+
+    private static BitSet lacunas(int... seqs) {
+        BitSet emFalta = new BitSet();
+        for (int seq : seqs) {
+            emFalta.set(seq);
+        }
+        return emFalta;
+    }
+}
@@ -0,0 +1,102 @@
+package lib;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do EstimadorRTT contra valores do RFC 6298 calculados à mão
+ * (α = 1/8, β = 1/4, RTO = SRTT + 4·RTTVAR).
+ */
+class EstimadorRTTTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    @DisplayName("Sem amostras deve usar o RTO inicial")
+    void testSemAmostras() {
+        EstimadorRTT rtt = new EstimadorRTT(1000);
+        assertFalse(rtt.temAmostras());
+        assertEquals(1000, rtt.rto());
+        assertEquals(0, rtt.srtt(), DELTA);
+    }
+
+    @Test
+    @DisplayName("SRTT e RTTVAR devem seguir o RFC 6298")
+    void testSrttRttvar() {
+        EstimadorRTT rtt = new EstimadorRTT(1000);
+
+        // Primeira amostra: SRTT = R, RTTVAR = R/2
+        rtt.registarAmostra(100);
+        assertEquals(100, rtt.srtt(), DELTA);
+        assertEquals(50, rtt.rttvar(), DELTA);
+        assertEquals(300, rtt.rto());               // 100 + 4·50
+
+        // RTTVAR = 3/4·50 + 1/4·|100 - 200| = 62.5; SRTT = 7/8·100 + 1/8·200 = 112.5
+        rtt.registarAmostra(200);
+        assertEquals(62.5, rtt.rttvar(), DELTA);
+        assertEquals(112.5, rtt.srtt(), DELTA);
+        assertEquals(363, rtt.rto());               // ceil(112.5 + 250)
+
+        // RTTVAR = 3/4·62.5 + 1/4·12.5 = 50; SRTT = 7/8·112.5 + 1/8·100 = 110.9375
+        rtt.registarAmostra(100);
+        assertEquals(50, rtt.rttvar(), DELTA);
+        assertEquals(110.9375, rtt.srtt(), DELTA);
+        assertEquals(311, rtt.rto());               // ceil(110.9375 + 200)
+    }
+
+    @Test
+    @DisplayName("RTO deve ficar entre o mínimo e o máximo")
+    void testLimitesRto() {
+        assertEquals(EstimadorRTT.RTO_MINIMO_MS, new EstimadorRTT(10).rto());
+        assertEquals(EstimadorRTT.RTO_MAXIMO_MS, new EstimadorRTT(60_000).rto());
+
+        EstimadorRTT rapido = new EstimadorRTT(1000);
+        rapido.registarAmostra(5);                  // 5 + 4·2.5 = 15
+        assertEquals(EstimadorRTT.RTO_MINIMO_MS, rapido.rto());
+
+        EstimadorRTT lento = new EstimadorRTT(1000);
+        lento.registarAmostra(4000);                // 4000 + 4·2000 = 12000
+        assertEquals(EstimadorRTT.RTO_MAXIMO_MS, lento.rto());
+    }
+
+    @Test
+    @DisplayName("Cada timeout deve duplicar o RTO até ao máximo e nova amostra repõe-no")
+    void testBackoff() {
+        EstimadorRTT rtt = new EstimadorRTT(1000);
+        rtt.registarAmostra(100);
+        assertEquals(300, rtt.rto());
+
+        long[] esperados = {600, 1200, 2400, 4800, 5000, 5000};
+        for (int i = 0; i < esperados.length; i++) {
+            rtt.aoTimeout();
+            assertEquals(esperados[i], rtt.rto());
+            assertEquals(i + 1, rtt.getBackoff());
+        }
+
+        // RTTVAR = 3/4·50 + 0 = 37.5; SRTT = 100; RTO = 100 + 150
+        rtt.registarAmostra(100);
+        assertEquals(0, rtt.getBackoff());
+        assertEquals(250, rtt.rto());
+    }
+
+    @Test
+    @DisplayName("Regra de Karn: fragmentos retransmitidos não dão amostra")
+    void testRegraDeKarn() {
+        EstimadorRTT rtt = new EstimadorRTT(1000);
+        ControloCongestao controlo = new ControloCongestao(10, rtt);
+
+        controlo.registarEnvio(2);
+        controlo.registarEnvio(2);                  // retransmissão
+        controlo.aoReceberAck(2, new BitSet());
+        assertFalse(rtt.temAmostras());
+        assertEquals(1000, rtt.rto());
+
+        controlo.registarEnvio(3);
+        controlo.aoReceberAck(3, new BitSet());
+        assertTrue(rtt.temAmostras());
+    }
+}
@@ -0,0 +1,109 @@
+package lib;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes da RodaTemporizadores (tempo simulado, sem esperas reais).
+ */
+class RodaTemporizadoresTest {
+
+    @Test
+    @DisplayName("Temporizadores expiram por ordem e só quando o prazo chega")
+    void testExpiraPorOrdem() {
+        RodaTemporizadores roda = new RodaTemporizadores(10, 8, 0);
+        List<Integer> expirados = new ArrayList<>();
+        roda.agendar(50, () -> expirados.add(50));
+        roda.agendar(10, () -> expirados.add(10));
+        roda.agendar(25, () -> expirados.add(25));
+
+        assertEquals(0, roda.avancar(9));
+        assertEquals(1, roda.avancar(10));
+        assertEquals(List.of(10), expirados);
+
+        roda.avancar(100);
+        assertEquals(List.of(10, 25, 50), expirados);
+        assertEquals(0, roda.pendentes());
+    }
+
+    @Test
+    @DisplayName("Prazos de várias voltas e cancelamento")
+    void testVoltasECancelamento() {
+        RodaTemporizadores roda = new RodaTemporizadores(10, 8, 0); // uma volta = 80ms
+        List<String> expirados = new ArrayList<>();
+        roda.agendar(30, () -> expirados.add("curto"));
+        roda.agendar(270, () -> expirados.add("longo"));
+        RodaTemporizadores.Temporizador cancelado = roda.agendar(30, () -> expirados.add("cancelado"));
+
+        cancelado.cancelar();
+        assertFalse(cancelado.ativo());
+
+        roda.avancar(260);
+        assertEquals(List.of("curto"), expirados);
+        roda.avancar(270);
+        assertEquals(List.of("curto", "longo"), expirados);
+    }
+
+    @Test
+    @DisplayName("Tarefas podem reagendar-se durante a expiração")
+    void testReagendarNaTarefa() {
+        RodaTemporizadores roda = new RodaTemporizadores(10, 8, 0);
+        int[] execucoes = {0};
+        Runnable[] periodica = new Runnable[1];
+        periodica[0] = () -> {
+            execucoes[0]++;
+            roda.agendar(20, periodica[0]);
+        };
+        roda.agendar(20, periodica[0]);
+
+        roda.avancar(200);
+        assertEquals(10, execucoes[0]);
+        assertEquals(1, roda.pendentes());
+    }
+
+    @Test
+    @DisplayName("Tarefa pode cancelar outro temporizador do mesmo tick")
+    void testCancelarNaTarefa() {
+        RodaTemporizadores roda = new RodaTemporizadores(10, 8, 0);
+        List<String> expirados = new ArrayList<>();
+        RodaTemporizadores.Temporizador[] vitima = new RodaTemporizadores.Temporizador[1];
+        roda.agendar(20, () -> expirados.add("ultimo"));
+        vitima[0] = roda.agendar(20, () -> expirados.add("vitima"));
+        roda.agendar(20, () -> {
+            expirados.add("primeiro");
+            vitima[0].cancelar();
+        });
+        roda.agendar(100, () -> expirados.add("proxima volta")); // mesma ranhura, volta seguinte
+
+        assertEquals(2, roda.avancar(20));
+        assertEquals(List.of("primeiro", "ultimo"), expirados);
+        assertFalse(vitima[0].ativo());
+        assertEquals(1, roda.pendentes());
+
+        roda.avancar(100);
+        assertEquals(List.of("primeiro", "ultimo", "proxima volta"), expirados);
+        assertEquals(0, roda.pendentes());
+    }
+
+    @Test
+    @DisplayName("Tempo até ao próximo temporizador, incluindo voltas futuras")
+    void testMsAteProximo() {
+        RodaTemporizadores roda = new RodaTemporizadores(10, 8, 0); // uma volta = 80ms
+        assertEquals(-1, roda.msAteProximo(0));
+
+        roda.agendar(200, () -> {});
+        assertEquals(200, roda.msAteProximo(0));
+        RodaTemporizadores.Temporizador curto = roda.agendar(30, () -> {});
+        assertEquals(25, roda.msAteProximo(5));
+
+        curto.cancelar();
+        roda.avancar(150);
+        assertEquals(50, roda.msAteProximo(150));
+        assertEquals(0, roda.msAteProximo(260));
+    }
+}
@@ -0,0 +1,212 @@
+package lib.mensagens;
+
+import lib.mensagens.payloads.*;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes e benchmark do EmpacotadorFragmentos.
+ * Compara o número de fragmentos com o algoritmo best-fit original
+ * (mantido aqui como referência) e mede o tempo com milhares de partes.
+ * O benchmark só corre com "gradle benchmark" (fora de "gradle test").
+ */
+class EmpacotadorFragmentosTest {
+
+    private static final int TAMANHO = SerializadorUDP.TAMANHO_FRAGMENTO_PADRAO;
+
+    // ==================== TESTES DE CORREÇÃO ====================
+
+    @Test
+    @DisplayName("Nenhum fragmento deve exceder o tamanho máximo")
+    void testRespeitaTamanhoMaximo() {
+        List<CampoSerializado> campos = camposAleatorios(new Random(7), 2000, 1, 300);
+
+        List<FragmentoPayload> fragmentos = EmpacotadorFragmentos.empacotar(campos, TAMANHO);
+
+        int total = 0;
+        for (FragmentoPayload frag : fragmentos) {
+            assertTrue(frag.temDados(), "Fragmento vazio não deve ser criado");
+            assertTrue(frag.tamanhoEstimado() <= TAMANHO, "Fragmento excede o tamanho máximo");
+            total += frag.numeroCampos();
+        }
+        assertEquals(campos.size(), total, "Todos os campos devem ser empacotados");
+    }
+
+    @Test
+    @DisplayName("Campo maior que o fragmento fica sozinho num fragmento")
+    void testCampoMaiorQueFragmento() {
+        List<CampoSerializado> campos = new ArrayList<>();
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_TAREFA, new byte[TAMANHO]));
+        campos.add(new CampoSerializado(RegistoCampos.MISSAO_ID_MISSAO, new byte[4]));
+
+        List<FragmentoPayload> fragmentos = EmpacotadorFragmentos.empacotar(campos, TAMANHO);
+
+        assertEquals(2, fragmentos.size());
+        assertEquals(1, fragmentos.get(0).numeroCampos());
+    }
+
+    @Test
+    @DisplayName("Número de fragmentos deve ser igual ou menor que o do algoritmo original")
+    void testNaoPiorQueOriginal() {
+        // Missões reais (pequena e com tarefa grande)
+        for (int tamanhoTarefa : new int[] {10, 400, 600, 1500, 5000, 20000}) {
+            PayloadMissao missao = criarMissao(tamanhoTarefa);
+            List<CampoSerializado> partes = partesDe(SerializadorUDP.serializarPayload(missao));
+            assertNaoPior(partes, "tarefa de " + tamanhoTarefa + " bytes");
+        }
+
+        // Misturas aleatórias de tamanhos
+        for (int semente = 0; semente < 50; semente++) {
+            Random r = new Random(semente);
+            List<CampoSerializado> campos = camposAleatorios(r, 50 + r.nextInt(400), 1, 1 + r.nextInt(490));
+            assertNaoPior(campos, "semente " + semente);
+        }
+    }
+
+    @Test
+    @DisplayName("Missão com tarefa grande deve ser reconstruída após empacotamento")
+    void testReconstrucaoTarefaGrande() {
+        PayloadMissao original = criarMissao(100_000);
+
+        SerializadorUDP serializador = new SerializadorUDP();
+        for (FragmentoPayload frag : SerializadorUDP.fragmentarPayload(original, TAMANHO)) {
+            serializador.agregarCampos(frag);
+        }
+
+        assertTrue(serializador.missaoCompleta());
+        assertEquals(original.tarefa, serializador.reconstruirMissao().tarefa);
+    }
+
+    // ==================== BENCHMARK ====================
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: empacotamento escala para milhares de partes")
+    void benchmarkMilharesDePartes() {
+        for (int n : new int[] {1_000, 5_000, 20_000}) {
+            List<CampoSerializado> campos = camposAleatorios(new Random(n), n, 1, 400);
+
+            // aquecimento
+            EmpacotadorFragmentos.empacotar(campos, TAMANHO);
+            empacotarOriginal(campos, TAMANHO);
+
+            long t0 = System.nanoTime();
+            int novos = EmpacotadorFragmentos.empacotar(campos, TAMANHO).size();
+            long tNovo = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            int originais = empacotarOriginal(campos, TAMANHO).size();
+            long tOriginal = System.nanoTime() - t0;
+
+            System.out.printf("[Benchmark] %6d partes: novo %4d frag. em %7.2f ms | original %4d frag. em %8.2f ms%n",
+                              n, novos, tNovo / 1e6, originais, tOriginal / 1e6);
+
+            assertTrue(novos <= originais, "Empacotador não deve usar mais fragmentos que o original");
+        }
+
+        // Uma tarefa de 2 MB gera ~4000 partes do mesmo campo
+        PayloadMissao missao = criarMissao(2_000_000);
+        long t0 = System.nanoTime();
+        List<FragmentoPayload> fragmentos = SerializadorUDP.fragmentarPayload(missao, TAMANHO);
+        long t = System.nanoTime() - t0;
+        System.out.printf("[Benchmark] tarefa de 2 MB: %d fragmentos em %.2f ms%n", fragmentos.size(), t / 1e6);
+        assertTrue(fragmentos.size() > 3900);
+    }
+
+    // ==================== MÉTODOS AUXILIARES ====================
+
+    private static void assertNaoPior(List<CampoSerializado> campos, String caso) {
+        int novos = EmpacotadorFragmentos.empacotar(campos, TAMANHO).size();
+        int originais = empacotarOriginal(campos, TAMANHO).size();
+        assertTrue(novos <= originais,
+                   caso + ": " + novos + " fragmentos (original: " + originais + ")");
+    }
+
+    private static List<CampoSerializado> partesDe(List<CampoSerializado> campos) {
+        List<CampoSerializado> partes = new ArrayList<>();
+        for (CampoSerializado c : campos) {
+            if (c.tamanho() > TAMANHO) {
+                partes.addAll(SerializadorUDP.fragmentarCampoGrande(c, TAMANHO));
+            } else {
+                partes.add(c);
+            }
+        }
+        return partes;
+    }
+
+    private static List<CampoSerializado> camposAleatorios(Random r, int n, int min, int max) {
+        List<CampoSerializado> campos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int tamanho = min + r.nextInt(max - min + 1);
+            campos.add(new CampoSerializado(RegistoCampos.MISSAO_TAREFA, new byte[tamanho]));
+        }
+        return campos;
+    }
+
+    private static PayloadMissao criarMissao(int tamanhoTarefa) {
+        PayloadMissao missao = new PayloadMissao();
+        missao.idMissao = 1;
+        missao.x1 = 1.0f;
+        missao.y1 = 2.0f;
+        missao.x2 = 3.0f;
+        missao.y2 = 4.0f;
+        missao.tarefa = "x".repeat(tamanhoTarefa);
+        missao.duracaoMissao = 60;
+        missao.intervaloAtualizacao = 5;
+        missao.inicioMissao = 0;
+        missao.prioridade = 1;
+        return missao;
+    }
+
+    /**
+     * Algoritmo original de SerializadorUDP.empacotarCampos (best-fit sobre uma
+     * lista com remove por índice, O(n²)), mantido apenas como referência.
+     */
+    private static List<FragmentoPayload> empacotarOriginal(List<CampoSerializado> campos, int tamanhoMaximo) {
+        List<FragmentoPayload> fragmentos = new ArrayList<>();
+        List<CampoSerializado> camposPendentes = new ArrayList<>(campos);
+        FragmentoPayload fragmentoAtual = new FragmentoPayload();
+        int tamanhoAtual = 0;
+
+        while (!camposPendentes.isEmpty()) {
+            CampoSerializado melhorCampo = null;
+            int melhorIndice = -1;
+            int melhorDesperdicio = Integer.MAX_VALUE;
+
+            int espacoRestante = tamanhoMaximo - tamanhoAtual;
+            for (int i = 0; i < camposPendentes.size(); i++) {
+                int tamanhoCampo = camposPendentes.get(i).tamanhoSerializado();
+                if (tamanhoCampo <= espacoRestante && espacoRestante - tamanhoCampo < melhorDesperdicio) {
+                    melhorDesperdicio = espacoRestante - tamanhoCampo;
+                    melhorCampo = camposPendentes.get(i);
+                    melhorIndice = i;
+                }
+            }
+            if (melhorCampo != null) {
+                fragmentoAtual.adicionarCampo(melhorCampo);
+                tamanhoAtual += melhorCampo.tamanhoSerializado();
+                camposPendentes.remove(melhorIndice);
+            } else {
+                if (fragmentoAtual.temDados()) {
+                    fragmentos.add(fragmentoAtual);
+                }
+                fragmentoAtual = new FragmentoPayload();
+                CampoSerializado campo = camposPendentes.remove(0);
+                fragmentoAtual.adicionarCampo(campo);
+                tamanhoAtual = campo.tamanhoSerializado();
+            }
+        }
+        if (fragmentoAtual.temDados()) {
+            fragmentos.add(fragmentoAtual);
+        }
+        return fragmentos;
+    }
+}
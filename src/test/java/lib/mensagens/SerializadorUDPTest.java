@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,7 +35,7 @@ class SerializadorUDPTest {
         
         List<CampoSerializado> campos = SerializadorUDP.serializarPayload(missao);
         
-        assertEquals(10, campos.size(), "PayloadMissao deve ter 10 campos");
+        assertEquals(11, campos.size(), "PayloadMissao deve ter 11 campos");
         assertTrue(temCampo(campos, "idMissao"), "Deve ter campo idMissao");
         assertTrue(temCampo(campos, "x1"), "Deve ter campo x1");
         assertTrue(temCampo(campos, "y1"), "Deve ter campo y1");
@@ -44,6 +46,7 @@ class SerializadorUDPTest {
         assertTrue(temCampo(campos, "intervaloAtualizacao"), "Deve ter campo intervaloAtualizacao");
         assertTrue(temCampo(campos, "inicioMissao"), "Deve ter campo inicioMissao");
         assertTrue(temCampo(campos, "prioridade"), "Deve ter campo prioridade");
+        assertTrue(temCampo(campos, "progressoInicial"), "Deve ter campo progressoInicial");
     }
     
     @Test
@@ -63,14 +66,13 @@ class SerializadorUDPTest {
     @DisplayName("Serializar PayloadAck deve criar todos os campos esperados")
     void testSerializarAck() {
         PayloadAck ack = new PayloadAck();
-        ack.missingCount = 2;
-        ack.missing = new int[]{3, 5};
+        ack.definirEmFalta(BitSet.valueOf(new long[]{0b101000}));
         
         List<CampoSerializado> campos = SerializadorUDP.serializarPayload(ack);
         
         assertEquals(2, campos.size(), "PayloadAck deve ter 2 campos");
         assertTrue(temCampo(campos, "missingCount"), "Deve ter campo missingCount");
-        assertTrue(temCampo(campos, "missing"), "Deve ter campo missing");
+        assertTrue(temCampo(campos, "missingIntervalos"), "Deve ter campo missingIntervalos");
     }
     
     @Test
@@ -92,6 +94,24 @@ class SerializadorUDPTest {
         assertTrue(temCampo(campos, "timestampErro"), "Deve ter campo timestampErro");
     }
     
+    @Test
+    @DisplayName("Campos devem ser identificados por id registado com overhead fixo")
+    void testCamposComIdNumerico() {
+        List<CampoSerializado> campos = SerializadorUDP.serializarPayload(criarMissaoTeste());
+        
+        for (CampoSerializado c : campos) {
+            assertTrue(RegistoCampos.valido(c.id), "Campo deve ter id registado: " + c.nome);
+            assertEquals(c.nome, RegistoCampos.nomeDe(c.id));
+            assertEquals(CampoSerializado.OVERHEAD + c.tamanho(), c.tamanhoSerializado());
+        }
+        assertEquals(RegistoCampos.MISSAO_TAREFA, RegistoCampos.idDe(PayloadMissao.class, "tarefa"));
+        // Nome repetido entre payloads: cada um tem o seu id
+        assertEquals(RegistoCampos.MISSAO_ID_MISSAO, RegistoCampos.idDe(PayloadMissao.class, "idMissao"));
+        assertEquals(RegistoCampos.PROGRESSO_ID_MISSAO, RegistoCampos.idDe(PayloadProgresso.class, "idMissao"));
+        assertEquals(RegistoCampos.ERRO_ID_MISSAO, RegistoCampos.idDe(PayloadErro.class, "idMissao"));
+        assertEquals(RegistoCampos.DESCONHECIDO, RegistoCampos.idDe(PayloadAck.class, "idMissao"));
+    }
+    
     // ==================== TESTES DE FRAGMENTAÇÃO ====================
     
     @Test
@@ -142,7 +162,7 @@ class SerializadorUDPTest {
         for (int i = 0; i < dadosGrandes.length; i++) {
             dadosGrandes[i] = (byte) (i % 256);
         }
-        CampoSerializado campoGrande = new CampoSerializado("dadosTeste", dadosGrandes);
+        CampoSerializado campoGrande = new CampoSerializado(RegistoCampos.MISSAO_TAREFA, dadosGrandes);
         
         List<CampoSerializado> partes = SerializadorUDP.fragmentarCampoGrande(campoGrande, 512);
         
@@ -150,7 +170,8 @@ class SerializadorUDPTest {
         
         // Verificar que todas as partes têm o mesmo nome
         for (CampoSerializado parte : partes) {
-            assertEquals("dadosTeste", parte.nome, "Todas as partes devem ter o mesmo nome");
+            assertEquals(RegistoCampos.MISSAO_TAREFA, parte.id, "Todas as partes devem ter o mesmo id");
+            assertEquals("tarefa", parte.nome, "Todas as partes devem ter o mesmo nome");
             assertTrue(parte.isFragmentado(), "Partes devem estar marcadas como fragmentadas");
             assertEquals(partes.size(), parte.totalPartes, "Total de partes deve ser consistente");
         }
@@ -193,6 +214,7 @@ class SerializadorUDPTest {
         assertEquals(original.intervaloAtualizacao, reconstruida.intervaloAtualizacao);
         assertEquals(original.inicioMissao, reconstruida.inicioMissao);
         assertEquals(original.prioridade, reconstruida.prioridade);
+        assertEquals(original.progressoInicial, reconstruida.progressoInicial, 0.001f);
     }
     
     @Test
@@ -209,11 +231,70 @@ class SerializadorUDPTest {
         }
         
         assertTrue(serializador.missaoCompleta(), "Missão deve estar completa mesmo com fragmentos fora de ordem");
-        
+
         PayloadMissao reconstruida = serializador.reconstruirMissao();
         assertEquals(original.tarefa, reconstruida.tarefa);
     }
-    
+
+    @Test
+    @DisplayName("Partes de campo grande fora de ordem e duplicadas devem ser reconstruídas nos offsets")
+    void testReconstrucaoPartesForaDeOrdemEDuplicadas() {
+        PayloadMissao original = criarMissaoTeste();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("parte ").append(i).append(" da tarefa; ");
+        }
+        original.tarefa = sb.toString();
+
+        List<FragmentoPayload> fragmentos = SerializadorUDP.fragmentarPayload(original, 128);
+        assertTrue(fragmentos.size() > 10);
+
+        // Última primeiro, depois o resto em ordem inversa, com duplicados
+        serializador.agregarCampos(fragmentos.get(fragmentos.size() - 1));
+        for (int i = fragmentos.size() - 1; i >= 0; i--) {
+            assertFalse(serializador.missaoCompleta() && i > 0, "Missão não deve estar completa antes do fim");
+            serializador.agregarCampos(fragmentos.get(i));
+            serializador.agregarCampos(fragmentos.get(i));
+        }
+
+        assertTrue(serializador.missaoCompleta());
+        assertEquals(11, serializador.numeroCampos());
+        assertEquals(original.tarefa, serializador.reconstruirMissao().tarefa);
+    }
+
+    @Test
+    @DisplayName("Comprimento de string forjado deve recusar a missão")
+    void testComprimentoStringForjado() {
+        // Diz ter 1000 bytes mas só traz 3
+        byte[] forjados = ByteBuffer.allocate(7).putInt(1000).put(new byte[] {'a', 'b', 'c'}).array();
+        FragmentoPayload fragmento = new FragmentoPayload();
+        fragmento.adicionarCampo(new CampoSerializado(RegistoCampos.MISSAO_TAREFA, forjados, 0, 1));
+        serializador.agregarCampos(fragmento);
+        for (FragmentoPayload frag : SerializadorUDP.fragmentarPayload(criarMissaoTeste(), 512)) {
+            serializador.agregarCampos(frag); // a tarefa verdadeira chega já repetida
+        }
+
+        assertTrue(serializador.missaoCompleta());
+        assertThrows(IllegalStateException.class, serializador::reconstruirMissao);
+    }
+
+    @Test
+    @DisplayName("Cabeçalho de parte forjado não deve alocar um campo gigante")
+    void testPartesForjadasRecusadas() {
+        // 32767 partes de 4 KB: ~128 MB, acima de MAX_TAMANHO_CAMPO
+        CampoSerializado forjada = new CampoSerializado(RegistoCampos.MISSAO_TAREFA, new byte[4096], 0, Short.MAX_VALUE);
+        assertFalse(new BufferReconstrucao(Short.MAX_VALUE).adicionar(forjada));
+
+        FragmentoPayload fragmento = new FragmentoPayload();
+        fragmento.adicionarCampo(forjada);
+        serializador.agregarCampos(fragmento);
+        assertFalse(serializador.missaoCompleta());
+
+        // Dentro do limite continua a ser aceite
+        CampoSerializado valida = new CampoSerializado(RegistoCampos.MISSAO_TAREFA, new byte[4096], 0, 2);
+        assertTrue(new BufferReconstrucao(2).adicionar(valida));
+    }
+
     // ==================== TESTES DE VERIFICAÇÃO DE COMPLETUDE ====================
     
     @Test
@@ -260,6 +341,270 @@ class SerializadorUDPTest {
         assertNull(resultado, "Dados inválidos devem resultar em null");
     }
     
+    // ==================== TESTES DO CODEC BINÁRIO ====================
+    
+    @Test
+    @DisplayName("Codec binário deve preservar cabeçalho e PayloadMissao")
+    void testCodecBinarioMissao() throws IOException {
+        MensagemUDP original = new MensagemUDP(lib.TipoMensagem.MSG_MISSION, 7, criarMissaoTeste());
+        original.header.idEmissor = 0;
+        original.header.idRecetor = 3;
+        original.header.seq = 2;
+        original.header.totalFragm = 1;
+        original.header.flagSucesso = true;
+        
+        byte[] dados = serializador.serializarMensagem(original, FormatoWire.BINARIO);
+        MensagemUDP reconstruida = SerializadorUDP.deserializarMensagem(dados, dados.length);
+        
+        assertNotNull(reconstruida);
+        assertEquals(dados.length, CodecBinarioUDP.tamanhoCodificado(original));
+        assertEquals(lib.TipoMensagem.MSG_MISSION, reconstruida.header.tipo);
+        assertEquals(3, reconstruida.header.idRecetor);
+        assertEquals(7, reconstruida.header.idMissao);
+        assertEquals(2, reconstruida.header.seq);
+        assertTrue(reconstruida.header.flagSucesso);
+        assertEquals(original.header.timestamp.getTime(), reconstruida.header.timestamp.getTime());
+        
+        PayloadMissao m = (PayloadMissao) reconstruida.payload;
+        PayloadMissao o = (PayloadMissao) original.payload;
+        assertEquals(o.idMissao, m.idMissao);
+        assertEquals(o.x2, m.x2, 0.001f);
+        assertEquals(o.tarefa, m.tarefa);
+        assertEquals(o.inicioMissao, m.inicioMissao);
+        assertEquals(o.prioridade, m.prioridade);
+    }
+    
+    @Test
+    @DisplayName("Codec binário deve preservar fragmentos, ACK, progresso e erro")
+    void testCodecBinarioOutrosPayloads() throws IOException {
+        PayloadMissao missao = criarMissaoTeste();
+        missao.tarefa = "x".repeat(1500);
+        FragmentoPayload frag = SerializadorUDP.fragmentarPayload(missao, 512).get(0);
+        
+        PayloadAck ack = new PayloadAck();
+        ack.definirEmFalta(BitSet.valueOf(new long[]{0b101000}));
+        ack.finalAck = true;
+        
+        PayloadErro erro = new PayloadErro(1, PayloadErro.CodigoErro.ERRO_OBSTACULO, "rocha", 40.0f, 55.0f, 1.0f, 2.0f);
+        
+        MensagemUDP[] mensagens = {
+            new MensagemUDP(lib.TipoMensagem.MSG_MISSION, 1, frag),
+            new MensagemUDP(lib.TipoMensagem.MSG_ACK, 1, ack),
+            new MensagemUDP(lib.TipoMensagem.MSG_PROGRESS, 1, new PayloadProgresso(1, 30, 12.5f)),
+            new MensagemUDP(lib.TipoMensagem.MSG_ERROR, 1, erro)
+        };
+        
+        for (MensagemUDP original : mensagens) {
+            byte[] binario = serializador.serializarMensagem(original, FormatoWire.BINARIO);
+            byte[] java = serializador.serializarMensagem(original, FormatoWire.JAVA);
+            assertTrue(binario.length < java.length, "Formato binário deve ser mais compacto: " + original.header.tipo);
+            
+            MensagemUDP reconstruida = SerializadorUDP.deserializarMensagem(binario, binario.length);
+            assertNotNull(reconstruida);
+            assertEquals(original.payload.getClass(), reconstruida.payload.getClass());
+        }
+        
+        byte[] dados = serializador.serializarMensagem(mensagens[1], FormatoWire.BINARIO);
+        PayloadAck ackLido = (PayloadAck) SerializadorUDP.deserializarMensagem(dados, dados.length).payload;
+        assertArrayEquals(new int[]{3, 3, 5, 5}, ackLido.intervalos);
+        assertEquals(BitSet.valueOf(new long[]{0b101000}), ackLido.emFalta(2, 100));
+        assertTrue(ackLido.finalAck);
+        
+        dados = serializador.serializarMensagem(mensagens[0], FormatoWire.BINARIO);
+        FragmentoPayload fragLido = (FragmentoPayload) SerializadorUDP.deserializarMensagem(dados, dados.length).payload;
+        assertEquals(frag.numeroCampos(), fragLido.numeroCampos());
+        assertArrayEquals(frag.campos.get(0).dados, fragLido.campos.get(0).dados);
+    }
+    
+    @Test
+    @DisplayName("Datagrama binário truncado deve resultar em null")
+    void testCodecBinarioTruncado() throws IOException {
+        MensagemUDP original = new MensagemUDP(lib.TipoMensagem.MSG_PROGRESS, 1, new PayloadProgresso(1, 30, 12.5f));
+        byte[] dados = serializador.serializarMensagem(original, FormatoWire.BINARIO);
+        
+        assertNull(SerializadorUDP.deserializarMensagem(dados, dados.length - 3));
+    }
+
+    @Test
+    @DisplayName("Paridade XOR deve reconstruir um fragmento em falta por grupo")
+    void testParidadeRecuperaFragmento() throws IOException {
+        PayloadMissao missao = criarMissaoTeste();
+        missao.tarefa = "x".repeat(3000);
+        List<FragmentoPayload> fragmentos = SerializadorUDP.fragmentarPayload(missao, 512);
+        byte[][] datagramas = new byte[fragmentos.size()][];
+        for (int i = 0; i < datagramas.length; i++) {
+            MensagemUDP msg = new MensagemUDP(lib.TipoMensagem.MSG_MISSION, 1, fragmentos.get(i));
+            msg.header.seq = i + 2;
+            msg.header.totalFragm = datagramas.length;
+            datagramas[i] = serializador.serializarMensagem(msg, FormatoWire.BINARIO);
+        }
+
+        int k = 3;
+        int grupos = CodigoParidade.numeroGrupos(datagramas.length, k);
+        for (int g = 0; g < grupos; g++) {
+            PayloadParidade paridade = CodigoParidade.gerar(datagramas, g, k);
+
+            // Paridade também passa pelo codec
+            MensagemUDP msgParidade = new MensagemUDP(lib.TipoMensagem.MSG_MISSION, 1, paridade);
+            byte[] bytesParidade = serializador.serializarMensagem(msgParidade, FormatoWire.BINARIO);
+            paridade = (PayloadParidade) SerializadorUDP.deserializarMensagem(bytesParidade, bytesParidade.length).payload;
+
+            // Perder o último fragmento do grupo
+            java.util.Map<Integer, byte[]> recebidos = new java.util.HashMap<>();
+            int perdido = paridade.seqInicial + paridade.tamanhoGrupo - 1;
+            for (int seq = paridade.seqInicial; seq < perdido; seq++) {
+                recebidos.put(seq, datagramas[seq - 2]);
+            }
+
+            assertEquals(perdido, CodigoParidade.seqEmFalta(paridade, recebidos));
+            assertArrayEquals(datagramas[perdido - 2], CodigoParidade.recuperar(paridade, recebidos));
+        }
+
+        // Duas perdas no mesmo grupo não são recuperáveis
+        PayloadParidade paridade = CodigoParidade.gerar(datagramas, 0, k);
+        java.util.Map<Integer, byte[]> recebidos = new java.util.HashMap<>();
+        recebidos.put(2, datagramas[0]);
+        assertNull(CodigoParidade.recuperar(paridade, recebidos));
+    }
+
+    @Test
+    @DisplayName("Reescrever recetor de datagrama binário deve manter o resto da mensagem")
+    void testCodecBinarioReescreverRecetor() throws IOException {
+        MensagemUDP original = new MensagemUDP(lib.TipoMensagem.MSG_MISSION, 7, criarMissaoTeste());
+        original.header.idRecetor = 1;
+        original.header.seq = 2;
+        byte[] dados = serializador.serializarMensagem(original, FormatoWire.BINARIO);
+
+        CodecBinarioUDP.reescreverRecetor(dados, 2);
+        MensagemUDP lida = SerializadorUDP.deserializarMensagem(dados, dados.length);
+
+        assertNotNull(lida);
+        assertEquals(2, lida.header.idRecetor);
+        assertEquals(7, lida.header.idMissao);
+        assertEquals(2, lida.header.seq);
+        assertEquals(((PayloadMissao) original.payload).tarefa, ((PayloadMissao) lida.payload).tarefa);
+    }
+
+    @Test
+    @DisplayName("Descodificar a partir de buffer direto e ler o emissor sem descodificar")
+    void testDescodificarBufferDireto() throws IOException {
+        MensagemUDP original = new MensagemUDP(lib.TipoMensagem.MSG_PROGRESS, 3, new PayloadProgresso(3, 60, 42.5f));
+        original.header.idEmissor = 17;
+        original.header.seq = 9;
+        byte[] dados = serializador.serializarMensagem(original, FormatoWire.BINARIO);
+
+        ByteBuffer buf = ByteBuffer.allocateDirect(4096);
+        buf.put(dados).flip();
+        assertEquals(17, CodecBinarioUDP.lerEmissor(buf));
+        assertEquals(0, buf.position(), "Ler o emissor não deve consumir o buffer");
+
+        MensagemUDP lida = SerializadorUDP.deserializarMensagem(buf);
+        assertNotNull(lida);
+        assertEquals(9, lida.header.seq);
+        assertEquals(42.5f, ((PayloadProgresso) lida.payload).progressoPercentagem);
+
+        // Formato Java: sem cabeçalho binário, mas descodifica na mesma
+        byte[] bytesJava = serializador.serializarMensagem(original, FormatoWire.JAVA);
+        ByteBuffer bufJava = ByteBuffer.allocateDirect(4096);
+        bufJava.put(bytesJava).flip();
+        assertEquals(-1, CodecBinarioUDP.lerEmissor(bufJava));
+        assertEquals(17, SerializadorUDP.deserializarMensagem(bufJava).header.idEmissor);
+    }
+
+    @Test
+    @DisplayName("Ler só o cabeçalho e descodificar o payload apenas quando pedido")
+    void testCabecalhoPrimeiroPayloadPreguicoso() throws IOException {
+        MensagemUDP original = new MensagemUDP(lib.TipoMensagem.MSG_MISSION, 5, criarMissaoTeste());
+        original.header.idRecetor = 2;
+        original.header.seq = 4;
+        byte[] dados = serializador.serializarMensagem(original, FormatoWire.BINARIO);
+        dados[CodecBinarioUDP.OFF_TIPO_PAYLOAD] = 99; // payload inválido: só falha se for descodificado
+
+        MensagemUDPRecebida recebida = new MensagemUDPRecebida();
+        assertTrue(recebida.ler(dados, dados.length));
+        assertEquals(lib.TipoMensagem.MSG_MISSION, recebida.header.tipo);
+        assertEquals(2, recebida.header.idRecetor);
+        assertEquals(5, recebida.header.idMissao);
+        assertEquals(4, recebida.header.seq);
+        assertNull(recebida.mensagem(), "O payload inválido só é detetado ao descodificar");
+
+        // Reutilizar a mesma instância para outro datagrama
+        dados[CodecBinarioUDP.OFF_TIPO_PAYLOAD] = CodecBinarioUDP.PAYLOAD_MISSAO;
+        CodecBinarioUDP.reescreverRecetor(dados, 3);
+        assertTrue(recebida.ler(dados, dados.length));
+        assertEquals(3, recebida.header.idRecetor);
+        MensagemUDP lida = recebida.mensagem();
+        assertNotNull(lida);
+        assertEquals(((PayloadMissao) original.payload).tarefa, ((PayloadMissao) lida.payload).tarefa);
+        assertNotSame(recebida.header, lida.header);
+
+        // Formato Java e bytes inválidos
+        byte[] bytesJava = serializador.serializarMensagem(original, FormatoWire.JAVA);
+        assertTrue(recebida.ler(bytesJava, bytesJava.length));
+        assertEquals(2, recebida.header.idRecetor);
+        assertTrue(recebida.payload() instanceof PayloadMissao);
+        assertFalse(recebida.ler(new byte[] {1, 2, 3}, 3));
+    }
+
+    @Test
+    @DisplayName("ACK deve codificar perdas em intervalos e limitar o número de intervalos")
+    void testAckIntervalosEmFalta() throws IOException {
+        // Rajada 2..1001 mais seqs isolados: 1 intervalo + 3
+        BitSet emFalta = new BitSet();
+        emFalta.set(2, 1002);
+        emFalta.set(1500);
+        emFalta.set(1502);
+        emFalta.set(4000);
+
+        PayloadAck ack = new PayloadAck();
+        ack.definirEmFalta(emFalta);
+        assertEquals(1003, ack.missingCount);
+        assertArrayEquals(new int[]{2, 1001, 1500, 1500, 1502, 1502, 4000, 4000}, ack.intervalos);
+
+        MensagemUDP msg = new MensagemUDP(lib.TipoMensagem.MSG_ACK, 1, ack);
+        byte[] dados = serializador.serializarMensagem(msg, FormatoWire.BINARIO);
+        assertTrue(dados.length < 100, "ACK com 1003 seqs em falta deve ter poucos bytes: " + dados.length);
+        assertEquals(emFalta, ((PayloadAck) SerializadorUDP.deserializarMensagem(dados, dados.length).payload).emFalta(2, 4000));
+
+        // Perdas alternadas: só seguem os primeiros MAX_INTERVALOS intervalos
+        BitSet alternado = new BitSet();
+        for (int seq = 2; seq < 2 + 4 * PayloadAck.MAX_INTERVALOS; seq += 2) {
+            alternado.set(seq);
+        }
+        ack.definirEmFalta(alternado);
+        assertEquals(2 * PayloadAck.MAX_INTERVALOS, ack.missingCount);
+        assertEquals(PayloadAck.MAX_INTERVALOS, ack.listados());
+        assertEquals(alternado.get(0, 2 + 2 * PayloadAck.MAX_INTERVALOS), ack.emFalta(2, 2 + 4 * PayloadAck.MAX_INTERVALOS));
+
+        // Intervalos sobrepostos são rejeitados
+        assertThrows(IllegalArgumentException.class, () -> IntervalosSeq.descodificar(new int[]{5, 8, 7, 9}, 2, 100));
+    }
+
+    @Test
+    @DisplayName("Intervalo forjado num ACK deve ser recortado à gama de seqs da sessão")
+    void testAckIntervaloForjado() throws IOException {
+        PayloadAck ack = new PayloadAck();
+        ack.intervalos = new int[]{0, Integer.MAX_VALUE - 1};
+        ack.missingCount = 1;
+
+        MensagemUDP msg = new MensagemUDP(lib.TipoMensagem.MSG_ACK, 1, ack);
+        byte[] dados = serializador.serializarMensagem(msg, FormatoWire.BINARIO);
+        PayloadAck lido = (PayloadAck) SerializadorUDP.deserializarMensagem(dados, dados.length).payload;
+
+        // Missão com 10 fragmentos de dados: seqs 2..11
+        BitSet emFalta = lido.emFalta(2, 11);
+        assertEquals(10, emFalta.cardinality());
+        assertEquals(12, emFalta.length(), "O conjunto não deve crescer além da gama da sessão");
+
+        VistaMensagemUDP vista = new VistaMensagemUDP();
+        assertTrue(vista.envolver(ByteBuffer.wrap(dados)));
+        assertEquals(emFalta, vista.ackEmFalta(2, 11));
+
+        // Intervalos fora da gama ficam de fora
+        assertTrue(IntervalosSeq.descodificar(new int[]{500, 900}, 2, 11).isEmpty());
+        assertTrue(IntervalosSeq.descodificar(new int[]{0, 5}, 2, 1).isEmpty());
+    }
+
     // ==================== TESTES DE LIMPAR ====================
     
     @Test
@@ -306,6 +651,7 @@ class SerializadorUDPTest {
         missao.intervaloAtualizacao = 10;
         missao.inicioMissao = System.currentTimeMillis() / 1000;
         missao.prioridade = 3;
+        missao.progressoInicial = 40.0f;
         return missao;
     }
     
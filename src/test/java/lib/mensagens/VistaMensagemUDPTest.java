@@ -0,0 +1,130 @@
+package lib.mensagens;
+
+import lib.TipoMensagem;
+import lib.mensagens.payloads.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Testes unitários para VistaMensagemUDP e EscritorMensagemUDP.
+ * Testa a compatibilidade com o CodecBinarioUDP e que escrever e ler um
+ * ACK (escritor na nave, vista no rover) não aloca memória.
+ */
+class VistaMensagemUDPTest {
+
+    @Test
+    @DisplayName("Escritor e vista devem ser compatíveis com o CodecBinarioUDP")
+    void testCompatibilidadeComCodec() {
+        ByteBuffer buf = ByteBuffer.allocateDirect(1024);
+        BitSet emFalta = new BitSet();
+        emFalta.set(3, 6);
+        emFalta.set(9);
+
+        new EscritorMensagemUDP().iniciar(buf, TipoMensagem.MSG_ACK, 0, 7, 42, 11, 1, false)
+                                 .ack(emFalta, true, 2);
+        buf.flip();
+
+        // O codec lê o que o escritor escreveu
+        MensagemUDP msg = CodecBinarioUDP.descodificar(buf.duplicate());
+        assertEquals(TipoMensagem.MSG_ACK, msg.header.tipo);
+        assertEquals(7, msg.header.idRecetor);
+        assertEquals(42, msg.header.idMissao);
+        assertEquals(11, msg.header.seq);
+        PayloadAck ack = (PayloadAck) msg.payload;
+        assertTrue(ack.finalAck);
+        assertEquals(2, ack.recuperados);
+        assertEquals(emFalta, ack.emFalta(2, 100));
+
+        // A vista lê o mesmo
+        VistaMensagemUDP vista = new VistaMensagemUDP();
+        assertTrue(vista.envolver(buf));
+        assertEquals(TipoMensagem.MSG_ACK, vista.tipo());
+        assertEquals(7, vista.idRecetor());
+        assertEquals(11, vista.seq());
+        assertFalse(vista.flagSucesso());
+        assertEquals(4, vista.ackMissingCount());
+        assertEquals(2, vista.ackNumeroIntervalos());
+        assertTrue(vista.ackFinal());
+        assertEquals(2, vista.ackRecuperados());
+        assertEquals(emFalta, vista.ackEmFalta(2, 100));
+
+        // E a vista lê o que o codec escreveu
+        MensagemUDP progresso = new MensagemUDP();
+        progresso.header.tipo = TipoMensagem.MSG_PROGRESS;
+        progresso.header.idEmissor = 7;
+        progresso.header.idMissao = 42;
+        progresso.header.seq = 12;
+        PayloadProgresso p = new PayloadProgresso();
+        p.idMissao = 42;
+        p.tempoDecorrido = 30;
+        p.progressoPercentagem = 55.5f;
+        progresso.payload = p;
+        assertTrue(vista.envolver(ByteBuffer.wrap(CodecBinarioUDP.codificar(progresso))));
+        assertEquals(TipoMensagem.MSG_PROGRESS, vista.tipo());
+        assertEquals(12, vista.seq());
+        assertEquals(42, vista.progressoIdMissao());
+        assertEquals(30, vista.progressoTempoDecorrido());
+        assertEquals(55.5f, vista.progressoPercentagem());
+    }
+
+    @Test
+    @DisplayName("Vista deve rejeitar datagramas inválidos ou truncados")
+    void testVistaRejeitaInvalidos() {
+        VistaMensagemUDP vista = new VistaMensagemUDP();
+        assertFalse(vista.envolver(ByteBuffer.wrap(new byte[10])));
+
+        ByteBuffer buf = ByteBuffer.allocate(1024);
+        new EscritorMensagemUDP().iniciar(buf, TipoMensagem.MSG_PROGRESS, 1, 0, 5, 3, 1, true)
+                                 .progresso(5, 10, 20f);
+        buf.flip();
+        buf.limit(buf.limit() - 1);
+        assertFalse(vista.envolver(buf), "PROGRESS truncado deve ser rejeitado");
+    }
+
+    @Test
+    @DisplayName("Escrever e ler um ACK num buffer reutilizado não deve alocar memória")
+    void testAckSemAlocacoes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) mx;
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        ByteBuffer buf = ByteBuffer.allocateDirect(1024);
+        EscritorMensagemUDP escritor = new EscritorMensagemUDP();
+        VistaMensagemUDP vista = new VistaMensagemUDP();
+        BitSet emFalta = new BitSet(64);
+        emFalta.set(4);
+
+        ciclo(buf, escritor, vista, emFalta, 20_000); // aquecimento (JIT)
+        long antes = bean.getCurrentThreadAllocatedBytes();
+        long soma = ciclo(buf, escritor, vista, emFalta, 100_000);
+        long alocados = bean.getCurrentThreadAllocatedBytes() - antes;
+
+        assertTrue(soma != 0);
+        assertTrue(alocados < 1024, "Alocados " + alocados + " bytes em 100000 ciclos");
+    }
+
+    /** Escreve e lê um ACK por iteração. */
+    private static long ciclo(ByteBuffer buf, EscritorMensagemUDP escritor, VistaMensagemUDP vista,
+                              BitSet emFalta, int iteracoes) {
+        long soma = 0;
+        for (int i = 0; i < iteracoes; i++) {
+            buf.clear();
+            escritor.iniciar(buf, TipoMensagem.MSG_ACK, 0, 1, 5, i, 1, false).ack(emFalta, false, 0);
+            buf.flip();
+            if (vista.envolver(buf) && vista.tipo() == TipoMensagem.MSG_ACK) {
+                soma += vista.seq() + vista.ackNumeroIntervalos() + vista.ackInicio(0);
+            }
+        }
+        return soma;
+    }
+}
@@ -0,0 +1,142 @@
+package nave;
+
+import lib.Missao;
+import lib.Rover;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para AtribuidorMissoes, com um benchmark do tempo total
+ * de deslocação da frota face à atribuição gulosa (rover mais próximo,
+ * missão a missão).
+ */
+class AtribuidorMissoesTest {
+
+    @Test
+    @DisplayName("Método húngaro deve encontrar o custo mínimo (comparado com força bruta)")
+    void testHungaroOtimo() {
+        Random aleatorio = new Random(7);
+        for (int caso = 0; caso < 50; caso++) {
+            int n = 1 + aleatorio.nextInt(5);
+            int m = n + aleatorio.nextInt(3);
+            double[][] custos = new double[n][m];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < m; j++) {
+                    custos[i][j] = aleatorio.nextInt(100);
+                }
+            }
+
+            int[] colunas = AtribuidorMissoes.hungaro(custos);
+            Set<Integer> usadas = new HashSet<>();
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                assertTrue(usadas.add(colunas[i]), "Coluna atribuída duas vezes");
+                total += custos[i][colunas[i]];
+            }
+            assertEquals(minimoForcaBruta(custos, 0, new boolean[m]), total, 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Missões sem rover com bateria suficiente ficam por atribuir")
+    void testParesInviaveis() {
+        Rover fraco = new Rover(1, 0f, 0f, null);
+        fraco.bateria = 1f;
+        Rover forte = new Rover(2, 50f, 50f, null);
+        List<AtribuidorMissoes.Atribuicao> r = AtribuidorMissoes.atribuirExato(
+                List.of(novaMissao(1, 0f, 0f), novaMissao(2, 1f, 1f)), List.of(fraco, forte));
+
+        assertEquals(1, r.size());
+        assertSame(forte, r.get(0).rover);
+    }
+
+    // ==================== BENCHMARK ====================
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: deslocação total da frota, lote vs guloso")
+    void testBenchmarkDeslocacao() {
+        comparar(300, 300, 11);
+        comparar(3000, 3000, 13); // acima de MAX_CELULAS_EXATO: modo incremental
+    }
+
+    private static void comparar(int numMissoes, int numRovers, long semente) {
+        Random aleatorio = new Random(semente);
+        List<Missao> missoes = new ArrayList<>();
+        for (int id = 1; id <= numMissoes; id++) {
+            missoes.add(novaMissao(id, aleatorio.nextFloat() * 1000, aleatorio.nextFloat() * 1000));
+        }
+        List<Rover> rovers = new ArrayList<>();
+        for (int id = 1; id <= numRovers; id++) {
+            rovers.add(new Rover(id, aleatorio.nextFloat() * 1000, aleatorio.nextFloat() * 1000, null));
+        }
+
+        long inicio = System.nanoTime();
+        List<AtribuidorMissoes.Atribuicao> lote = AtribuidorMissoes.atribuir(missoes, rovers);
+        long msLote = (System.nanoTime() - inicio) / 1_000_000;
+        List<AtribuidorMissoes.Atribuicao> guloso = atribuirGuloso(missoes, rovers);
+
+        double deslocacaoLote = deslocacaoTotal(lote);
+        double deslocacaoGuloso = deslocacaoTotal(guloso);
+        System.out.printf("[Benchmark] %d missões x %d rovers: lote %.0f s (%d ms), guloso %.0f s (%.1f%% menos)%n",
+                          numMissoes, numRovers, deslocacaoLote, msLote, deslocacaoGuloso,
+                          100.0 * (1 - deslocacaoLote / deslocacaoGuloso));
+
+        assertEquals(guloso.size(), lote.size(), "Ambos devem atribuir todas as missões");
+        assertTrue(deslocacaoLote < deslocacaoGuloso);
+    }
+
+    /** Caminho atual do despachante: por ordem, cada missão ao rover livre mais próximo. */
+    private static List<AtribuidorMissoes.Atribuicao> atribuirGuloso(List<Missao> missoes, List<Rover> rovers) {
+        GrelhaRovers grelha = new GrelhaRovers(10.0f);
+        rovers.forEach(grelha::colocar);
+        List<AtribuidorMissoes.Atribuicao> resultado = new ArrayList<>();
+        for (Missao missao : missoes) {
+            Rover rover = grelha.maisProximo(GestaoEstado.centroX(missao), GestaoEstado.centroY(missao),
+                    r -> r.bateria >= GestaoEstado.bateriaNecessaria(r, missao));
+            if (rover != null) {
+                grelha.remover(rover.idRover);
+                resultado.add(new AtribuidorMissoes.Atribuicao(missao, rover));
+            }
+        }
+        return resultado;
+    }
+
+    private static double deslocacaoTotal(List<AtribuidorMissoes.Atribuicao> atribuicoes) {
+        double total = 0;
+        for (AtribuidorMissoes.Atribuicao a : atribuicoes) {
+            total += GestaoEstado.tempoDeslocacao(a.rover, a.missao);
+        }
+        return total;
+    }
+
+    private static double minimoForcaBruta(double[][] custos, int linha, boolean[] usadas) {
+        if (linha == custos.length) {
+            return 0;
+        }
+        double melhor = Double.MAX_VALUE;
+        for (int j = 0; j < usadas.length; j++) {
+            if (!usadas[j]) {
+                usadas[j] = true;
+                melhor = Math.min(melhor, custos[linha][j] + minimoForcaBruta(custos, linha + 1, usadas));
+                usadas[j] = false;
+            }
+        }
+        return melhor;
+    }
+
+    private static Missao novaMissao(int id, float x, float y) {
+        return new Missao(id, "Missão " + id, Missao.EstadoMissao.PENDENTE, 3,
+                          x - 5, y - 5, x + 5, y + 5, 30, 3);
+    }
+}
@@ -0,0 +1,152 @@
+package nave;
+
+import lib.Missao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para EscalonadorEDF (ordem por prazo, retenção até ao
+ * início da janela e escalada das missões fora de prazo).
+ */
+class EscalonadorEDFTest {
+
+    private final EscalonadorEDF escalonador = new EscalonadorEDF();
+
+    @AfterEach
+    void parar() {
+        escalonador.parar();
+    }
+
+    @Test
+    @DisplayName("Missões elegíveis devem sair por prazo, as sem prazo no fim")
+    void testOrdemPorPrazo() {
+        long agora = agoraSeg();
+        Missao semPrazo = novaMissao(1, 5, 0, 30);
+        Missao tardia = novaMissao(2, 5, agora - 10, 1000);
+        Missao urgente = novaMissao(3, 1, agora - 10, 100);
+
+        assertTrue(escalonador.adicionar(semPrazo));
+        assertTrue(escalonador.adicionar(tardia));
+        assertTrue(escalonador.adicionar(urgente));
+
+        assertEquals(List.of(urgente, tardia, semPrazo), new ArrayList<>(escalonador.elegiveis()));
+        assertEquals(3, escalonador.profundidade());
+
+        escalonador.remover(urgente);
+        assertEquals(List.of(tardia, semPrazo), new ArrayList<>(escalonador.elegiveis()));
+        assertEquals(2, escalonador.profundidade());
+    }
+
+    @Test
+    @DisplayName("Missão deve ficar retida até ao início da janela")
+    void testRetencaoAteInicio() throws InterruptedException {
+        CountDownLatch aviso = new CountDownLatch(1);
+        escalonador.definirOuvinte(aviso::countDown);
+        Missao futura = novaMissao(1, 3, agoraSeg() + 1, 60);
+
+        assertFalse(escalonador.adicionar(futura));
+        assertTrue(escalonador.elegiveis().isEmpty());
+        assertEquals(1, escalonador.retidas());
+        assertEquals(1, escalonador.profundidade());
+
+        assertTrue(aviso.await(3, TimeUnit.SECONDS), "A abertura da janela deve avisar o ouvinte");
+        assertEquals(List.of(futura), new ArrayList<>(escalonador.elegiveis()));
+        assertEquals(0, escalonador.retidas());
+    }
+
+    @Test
+    @DisplayName("Missão fora de prazo deve ser escalada para a frente e contada")
+    void testEscaladaForaDePrazo() throws InterruptedException {
+        CountDownLatch aviso = new CountDownLatch(1);
+        escalonador.definirOuvinte(aviso::countDown);
+        long agora = agoraSeg();
+        Missao semPrazo = novaMissao(1, 5, 0, 30);
+        Missao aExpirar = novaMissao(2, 1, agora - 10, 11);
+
+        escalonador.adicionar(semPrazo);
+        escalonador.adicionar(aExpirar);
+        assertEquals(0, escalonador.prazosFalhados());
+
+        assertTrue(aviso.await(3, TimeUnit.SECONDS), "O prazo deve avisar o ouvinte");
+        assertEquals(1, escalonador.prazosFalhados());
+        assertEquals(1, escalonador.atrasadas());
+
+        // Já fora de prazo ao entrar: atrasada logo, e à frente das restantes
+        Missao jaAtrasada = novaMissao(3, 1, agora - 100, 10);
+        assertTrue(escalonador.adicionar(jaAtrasada));
+        assertEquals(2, escalonador.prazosFalhados());
+        assertEquals(List.of(jaAtrasada, aExpirar, semPrazo), new ArrayList<>(escalonador.elegiveis()));
+    }
+
+    @Test
+    @DisplayName("Missão atrasada que volta a entrar deve contar um só prazo falhado")
+    void testPrazoFalhadoUmaVez() {
+        Missao atrasada = novaMissao(1, 2, agoraSeg() - 100, 10);
+
+        assertTrue(escalonador.adicionar(atrasada));
+        assertEquals(1, escalonador.prazosFalhados());
+
+        // Atribuída e revertida para pendente: volta a entrar, ainda atrasada
+        escalonador.remover(atrasada);
+        assertTrue(escalonador.adicionar(atrasada));
+        assertEquals(1, escalonador.prazosFalhados());
+        assertEquals(1, escalonador.atrasadas());
+        assertEquals(List.of(atrasada), new ArrayList<>(escalonador.elegiveis()));
+    }
+
+    @Test
+    @DisplayName("Missão terminada deve ser esquecida na contagem de prazos")
+    void testPrazoEsquecidoAoTerminar() {
+        Missao atrasada = novaMissao(1, 2, agoraSeg() - 100, 10);
+        escalonador.adicionar(atrasada);
+
+        // Ainda em curso: continua contada
+        atrasada.estadoMissao = Missao.EstadoMissao.EM_ANDAMENTO;
+        escalonador.remover(atrasada);
+        atrasada.estadoMissao = Missao.EstadoMissao.PENDENTE;
+        escalonador.adicionar(atrasada);
+        assertEquals(1, escalonador.prazosFalhados());
+
+        // Concluída: o id sai do registo (um id reutilizado conta de novo)
+        atrasada.estadoMissao = Missao.EstadoMissao.CONCLUIDA;
+        escalonador.remover(atrasada);
+        atrasada.estadoMissao = Missao.EstadoMissao.PENDENTE;
+        escalonador.adicionar(atrasada);
+        assertEquals(2, escalonador.prazosFalhados());
+    }
+
+    @Test
+    @DisplayName("Remover uma missão retida deve cancelar o temporizador")
+    void testRemoverRetida() throws InterruptedException {
+        CountDownLatch aviso = new CountDownLatch(1);
+        escalonador.definirOuvinte(aviso::countDown);
+        Missao futura = novaMissao(1, 3, agoraSeg() + 1, 60);
+
+        escalonador.adicionar(futura);
+        escalonador.remover(futura);
+
+        assertFalse(aviso.await(2500, TimeUnit.MILLISECONDS));
+        assertTrue(escalonador.elegiveis().isEmpty());
+        assertEquals(0, escalonador.profundidade());
+    }
+
+    private static long agoraSeg() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static Missao novaMissao(int id, int prioridade, long inicio, long duracao) {
+        Missao m = new Missao(id, "Missão " + id, Missao.EstadoMissao.PENDENTE, prioridade,
+                              0f, 0f, 10f, 10f, duracao, 3);
+        m.inicioMissao = inicio;
+        return m;
+    }
+}
@@ -0,0 +1,226 @@
+package nave;
+
+import lib.Missao;
+import lib.Rover;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para os índices de GestaoEstado (missões pendentes e
+ * rovers disponíveis).
+ */
+class GestaoEstadoTest {
+
+    private GestaoEstado estado;
+
+    @BeforeEach
+    void setUp() {
+        estado = new GestaoEstado();
+        // Retirar as missões de exemplo do construtor
+        for (int id = 1; id <= 3; id++) {
+            estado.removerMissao(id);
+        }
+    }
+
+    @Test
+    @DisplayName("Pendentes devem sair por prioridade decrescente e id crescente")
+    void testOrdemPendentes() {
+        estado.adicionarMissao(novaMissao(10, 1));
+        estado.adicionarMissao(novaMissao(11, 5));
+        estado.adicionarMissao(novaMissao(12, 5));
+        estado.adicionarMissao(novaMissao(13, 3));
+
+        List<Integer> ordem = new ArrayList<>();
+        for (Missao m : estado.listarMissoesPendentes()) {
+            ordem.add(m.idMissao);
+        }
+        assertEquals(List.of(11, 12, 13, 10), ordem);
+        assertEquals(11, estado.obterMissaoNaoAtribuida().idMissao);
+    }
+
+    @Test
+    @DisplayName("Índices devem acompanhar reserva, conclusão e reversão")
+    void testTransicoesAtualizamIndices() {
+        AtomicInteger avisos = new AtomicInteger();
+        estado.definirOuvinteDespacho(avisos::incrementAndGet);
+
+        Missao missao = novaMissao(20, 2);
+        estado.adicionarMissao(missao);
+        Rover rover = new Rover(1, 0f, 0f, "127.0.0.1");
+        estado.adicionarRover(1, rover);
+        assertEquals(2, avisos.get(), "Missão pendente e rover disponível devem avisar o despachante");
+        assertSame(rover, estado.obterRoverDisponivel());
+
+        assertTrue(estado.reservarMissao(rover, missao));
+        assertNull(estado.obterMissaoNaoAtribuida());
+        assertNull(estado.obterRoverDisponivel());
+        assertFalse(estado.reservarMissao(rover, missao), "Não deve reservar duas vezes");
+
+        // Falha antes da confirmação: missão volta a pendente, rover a disponível
+        estado.reverterMissaoParaPendente(20);
+        assertTrue(estado.libertarRoverEmRececao(rover));
+        assertSame(missao, estado.obterMissaoNaoAtribuida());
+        assertSame(rover, estado.obterRoverDisponivel());
+
+        estado.reservarMissao(rover, missao);
+        estado.atribuirMissaoARover(1, 20);
+        estado.concluirMissao(1, 20, true);
+        assertNull(estado.obterMissaoNaoAtribuida());
+        assertSame(rover, estado.obterRoverDisponivel());
+        assertEquals(Missao.EstadoMissao.CONCLUIDA, missao.estadoMissao);
+    }
+
+    @Test
+    @DisplayName("Substituir uma missão não deve deixar a antiga no índice")
+    void testSubstituirMissao() {
+        estado.adicionarMissao(novaMissao(30, 1));
+        Missao nova = novaMissao(30, 4);
+        estado.adicionarMissao(nova);
+
+        assertEquals(1, estado.listarMissoesPendentes().size());
+        assertSame(nova, estado.obterMissaoNaoAtribuida());
+    }
+
+    @Test
+    @DisplayName("Interromper uma missão deve guardar o progresso e libertar o rover")
+    void testInterromperMissao() {
+        Missao missao = novaMissao(40, 2);
+        estado.adicionarMissao(missao);
+        Rover rover = new Rover(1, 0f, 0f, "127.0.0.1");
+        estado.adicionarRover(1, rover);
+
+        estado.reservarMissao(rover, missao);
+        estado.atribuirMissaoARover(1, 40);
+        estado.atualizarProgressoMissao(1, 40, 60.0f);
+        estado.interromperMissao(1, 40, true);
+
+        assertEquals(Missao.EstadoMissao.PENDENTE, missao.estadoMissao);
+        assertEquals(60.0f, missao.progressoMissao, 0.001f);
+        assertSame(missao, estado.obterMissaoNaoAtribuida());
+        assertSame(rover, estado.obterRoverDisponivel());
+        assertEquals(-1, rover.idMissaoAtual);
+
+        // Sem reatribuição a missão fica cancelada e fora dos pendentes
+        estado.reservarMissao(rover, missao);
+        estado.atribuirMissaoARover(1, 40);
+        estado.interromperMissao(1, 40, false);
+        assertEquals(Missao.EstadoMissao.CANCELADA, missao.estadoMissao);
+        assertNull(estado.obterMissaoNaoAtribuida());
+        assertSame(rover, estado.obterRoverDisponivel());
+    }
+
+    @Test
+    @DisplayName("Rover com missão seguinte deve passar a ela ao concluir a atual")
+    void testMissaoSeguinte() {
+        Missao atual = novaMissao(50, 2);
+        Missao seguinte = novaMissao(51, 2);
+        Missao outra = novaMissao(52, 2);
+        estado.adicionarMissao(atual);
+        estado.adicionarMissao(seguinte);
+        estado.adicionarMissao(outra);
+        Rover rover = new Rover(1, 0f, 0f, "127.0.0.1");
+        estado.adicionarRover(1, rover);
+
+        assertFalse(estado.reservarMissaoSeguinte(rover, seguinte), "Rover sem missão não recebe seguinte");
+        estado.reservarMissao(rover, atual);
+        estado.atribuirMissaoARover(1, 50);
+        assertTrue(estado.reservarMissaoSeguinte(rover, seguinte));
+        assertFalse(estado.reservarMissaoSeguinte(rover, outra), "Só uma missão seguinte por rover");
+        assertEquals(Missao.EstadoMissao.EM_ANDAMENTO, seguinte.estadoMissao);
+        assertSame(outra, estado.obterMissaoNaoAtribuida());
+
+        // Concluir a atual: o rover passa logo à seguinte, sem ficar disponível
+        estado.concluirMissao(1, 50, true);
+        assertEquals(51, rover.idMissaoAtual);
+        assertEquals(-1, rover.idMissaoSeguinte);
+        assertTrue(rover.temMissao);
+        assertNull(estado.obterRoverDisponivel());
+
+        // Desistir da seguinte já promovida: missão a pendente, rover disponível
+        estado.desistirMissaoSeguinte(rover, 51);
+        assertEquals(Missao.EstadoMissao.PENDENTE, seguinte.estadoMissao);
+        assertSame(rover, estado.obterRoverDisponivel());
+    }
+
+    @Test
+    @DisplayName("Falha da missão atual deve devolver a seguinte a pendente")
+    void testFalhaComMissaoSeguinte() {
+        Missao atual = novaMissao(60, 2);
+        Missao seguinte = novaMissao(61, 2);
+        estado.adicionarMissao(atual);
+        estado.adicionarMissao(seguinte);
+        Rover rover = new Rover(1, 0f, 0f, "127.0.0.1");
+        estado.adicionarRover(1, rover);
+
+        estado.reservarMissao(rover, atual);
+        estado.atribuirMissaoARover(1, 60);
+        estado.reservarMissaoSeguinte(rover, seguinte);
+        estado.falharMissao(1, 60, 1, "Bateria crítica");
+        estado.desistirMissaoSeguinte(rover, 61);
+
+        assertEquals(-1, rover.idMissaoSeguinte);
+        assertEquals(Missao.EstadoMissao.PENDENTE, seguinte.estadoMissao);
+        assertSame(seguinte, estado.obterMissaoNaoAtribuida());
+        assertEquals(Rover.EstadoRover.ESTADO_FALHA, rover.estadoRover);
+    }
+
+    @Test
+    @DisplayName("Cada transição que cria trabalho deve avisar o despachante uma vez")
+    void testAvisosDespacho() {
+        AtomicInteger avisos = new AtomicInteger();
+        estado.definirOuvinteDespacho(avisos::incrementAndGet);
+
+        List<Rover> rovers = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            Rover rover = new Rover(id, id * 10f, 0f, "127.0.0.1");
+            rovers.add(rover);
+            estado.adicionarRover(id, rover);
+        }
+        assertEquals(3, avisos.get(), "Cada rover registado deve avisar");
+        assertEquals(3, estado.listarRoversDisponiveis().size());
+
+        Missao missao = novaMissao(70, 2);
+        estado.adicionarMissao(missao);
+        assertEquals(4, avisos.get(), "Missão criada deve avisar");
+
+        // Reserva e confirmação não criam trabalho
+        Rover rover = rovers.get(0);
+        estado.reservarMissao(rover, missao);
+        estado.atribuirMissaoARover(1, 70);
+        assertEquals(4, avisos.get());
+        assertEquals(2, estado.listarRoversDisponiveis().size());
+
+        // Sessão terminada com a missão concluída: o rover volta a estar livre
+        estado.concluirMissao(1, 70, true);
+        assertEquals(5, avisos.get(), "Rover libertado pela conclusão deve avisar");
+
+        // Sessão falhada antes da confirmação: missão pendente e rover livre
+        Missao outra = novaMissao(71, 2);
+        estado.adicionarMissao(outra);
+        estado.reservarMissao(rover, outra);
+        assertEquals(6, avisos.get());
+        estado.reverterMissaoParaPendente(71);
+        assertTrue(estado.libertarRoverEmRececao(rover));
+        assertEquals(8, avisos.get(), "Missão revertida e rover libertado devem avisar");
+
+        // Rover em FALHA e missão FALHADA não criam trabalho
+        estado.reservarMissao(rover, outra);
+        estado.atribuirMissaoARover(1, 71);
+        estado.falharMissao(1, 71, 1, "Bateria crítica");
+        assertEquals(8, avisos.get());
+        assertEquals(2, estado.listarRoversDisponiveis().size());
+    }
+
+    private static Missao novaMissao(int id, int prioridade) {
+        return new Missao(id, "Missão " + id, Missao.EstadoMissao.PENDENTE, prioridade,
+                          0f, 0f, 10f, 10f, 30, 3);
+    }
+}
@@ -0,0 +1,69 @@
+package nave;
+
+import lib.Rover;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para GrelhaRovers.
+ */
+class GrelhaRoversTest {
+
+    @Test
+    @DisplayName("Mais próximo deve coincidir com a procura exaustiva")
+    void testMaisProximoIgualAExaustivo() {
+        Random aleatorio = new Random(42);
+        GrelhaRovers grelha = new GrelhaRovers(10.0f);
+        List<Rover> rovers = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            Rover r = new Rover(id, aleatorio.nextFloat() * 1000 - 500, aleatorio.nextFloat() * 1000 - 500, null);
+            r.bateria = aleatorio.nextFloat() * 100;
+            rovers.add(r);
+            grelha.colocar(r);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            float x = aleatorio.nextFloat() * 1200 - 600;
+            float y = aleatorio.nextFloat() * 1200 - 600;
+            Rover esperado = null;
+            double melhor = Double.MAX_VALUE;
+            for (Rover r : rovers) {
+                double d = Math.hypot(r.posicaoX - x, r.posicaoY - y);
+                if (r.bateria >= 50 && d < melhor) {
+                    melhor = d;
+                    esperado = r;
+                }
+            }
+            assertSame(esperado, grelha.maisProximo(x, y, r -> r.bateria >= 50));
+        }
+    }
+
+    @Test
+    @DisplayName("Mover e remover rovers deve atualizar as células")
+    void testMoverERemover() {
+        GrelhaRovers grelha = new GrelhaRovers(10.0f);
+        Rover a = new Rover(1, 0f, 0f, null);
+        Rover b = new Rover(2, 100f, 100f, null);
+        grelha.colocar(a);
+        grelha.colocar(b);
+        assertSame(a, grelha.maisProximo(5f, 5f, null));
+
+        a.posicaoX = 300f;
+        a.posicaoY = 300f;
+        grelha.colocar(a);
+        assertSame(b, grelha.maisProximo(5f, 5f, null));
+        assertEquals(2, grelha.tamanho());
+
+        grelha.remover(2);
+        assertSame(a, grelha.maisProximo(5f, 5f, null));
+        grelha.remover(1);
+        assertNull(grelha.maisProximo(5f, 5f, null));
+    }
+}
@@ -0,0 +1,119 @@
+package nave;
+
+import lib.Missao;
+import lib.Rover;
+import lib.mensagens.FormatoWire;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.net.DatagramSocket;
+import java.net.SocketException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do despacho de missões por eventos no ServidorUDP. Os rovers não
+ * respondem (as sessões ficam no HELLO), por isso só se observa a
+ * atribuição: missões que saem de pendentes e rovers que deixam de estar
+ * disponíveis. Os prazos ficam abaixo do INTERVALO_INICIADOR_MS (2 s), para
+ * não serem cumpridos pela passagem periódica.
+ */
+class ServidorUDPTest {
+
+    private static final long PRAZO_MS = 1000;
+
+    private GestaoEstado estado;
+    private ServidorUDP servidor;
+    private Thread thread;
+
+    @BeforeEach
+    void setUp() {
+        estado = new GestaoEstado();
+        // Retirar as missões de exemplo do construtor
+        for (int id = 1; id <= 3; id++) {
+            estado.removerMissao(id);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (servidor != null) {
+            servidor.parar();
+            thread.join(2000);
+        }
+    }
+
+    @Test
+    @DisplayName("Pedidos feitos antes de run() devem dar uma passagem que serve todos os rovers livres")
+    void testPedidosAntesDoArranque() throws Exception {
+        for (int id = 1; id <= 4; id++) {
+            estado.adicionarRover(id, new Rover(id, id * 20f, id * 20f, "127.0.0.1"));
+            estado.adicionarMissao(novaMissao(10 + id, id * 20f));
+        }
+        servidor = novoServidor(ModoExecucao.THREADS);
+        // Sem ouvinte registado ainda: juntam-se num só pedido
+        servidor.pedirDespacho();
+        servidor.pedirDespacho();
+        servidor.pedirDespacho();
+
+        arrancar();
+        esperar(() -> estado.listarMissoesPendentes().isEmpty(), "Todas as missões devem ser atribuídas");
+        assertEquals(0, estado.contarRoversDisponiveis(), "Cada rover livre deve receber uma missão");
+    }
+
+    @Test
+    @DisplayName("Missão criada e rover disponível devem acordar o despachante")
+    void testAvisosDoEstado() throws Exception {
+        estado.adicionarRover(1, new Rover(1, 0f, 0f, "127.0.0.1"));
+        servidor = novoServidor(ModoExecucao.EVENTOS);
+        arrancar();
+        Thread.sleep(200); // deixar correr a passagem do arranque
+
+        // Missão criada com um rover livre
+        estado.adicionarMissao(novaMissao(20, 0f));
+        esperar(() -> estado.contarRoversDisponiveis() == 0, "Missão nova deve ser atribuída ao rover livre");
+
+        // Frota ocupada: a missão fica pendente até surgir um rover
+        estado.adicionarMissao(novaMissao(21, 50f));
+        Thread.sleep(100);
+        assertEquals(1, estado.listarMissoesPendentes().size());
+
+        estado.adicionarRover(2, new Rover(2, 50f, 50f, "127.0.0.1"));
+        esperar(() -> estado.listarMissoesPendentes().isEmpty(), "Rover disponível deve receber a missão em espera");
+    }
+
+    private ServidorUDP novoServidor(ModoExecucao modo) throws SocketException {
+        int porta;
+        try (DatagramSocket livre = new DatagramSocket(0)) {
+            porta = livre.getLocalPort();
+        }
+        ServidorUDP novo = new ServidorUDP(estado, FormatoWire.BINARIO, porta);
+        novo.definirModo(modo);
+        novo.ativarPrefetch(false);
+        novo.ativarPreempcao(false);
+        return novo;
+    }
+
+    private void arrancar() {
+        thread = new Thread(servidor, "ServidorUDP-teste");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void esperar(BooleanSupplier condicao, String mensagem) throws InterruptedException {
+        long limite = System.currentTimeMillis() + PRAZO_MS;
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, mensagem);
+            Thread.sleep(10);
+        }
+    }
+
+    private static Missao novaMissao(int id, float x) {
+        return new Missao(id, "Missão " + id, Missao.EstadoMissao.PENDENTE, 2,
+                          x, x, x + 10f, x + 10f, 30, 3);
+    }
+}